@@ -18,10 +18,14 @@ package de.hsos.ecs.richwps.wpsmonitor;
 import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.CliBuilder;
 import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.command.CommandException;
 import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.commands.AddCommand;
+import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.commands.BulkAddCommand;
 import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.commands.CreateCommand;
 import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.commands.DeleteCommand;
+import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.commands.ExportCommand;
+import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.commands.ImportCommand;
 import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.commands.MonitorExitCommand;
 import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.commands.PauseCommand;
+import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.commands.RebalanceCommand;
 import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.commands.ResumeCommand;
 import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.commands.ShowCommand;
 import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.commands.StatusCommand;
@@ -35,7 +39,10 @@ import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.HttpOperation;
 import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.MonitorRoute;
 import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.RestInterface;
 import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.RestInterfaceBuilder;
+import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.routes.BulkScheduleRoute;
+import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.routes.ExportMeasurementRoute;
 import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.routes.ListMeasurementRoute;
+import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.routes.ListRollupRoute;
 import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.routes.ListWpsProcessRoute;
 import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.routes.ListWpsProcessesRoute;
 import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.routes.ListWpsRoute;
@@ -46,6 +53,9 @@ import de.hsos.ecs.richwps.wpsmonitor.control.MonitorException;
 import de.hsos.ecs.richwps.wpsmonitor.control.MonitorBuilder;
 import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
 import de.hsos.ecs.richwps.wpsmonitor.creation.Factory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.compact.CompactStorageMigration;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.Jpa;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.SchemaMigration;
 import de.hsos.ecs.richwps.wpsmonitor.measurement.qos.response.ResponseFactory;
 import de.hsos.ecs.richwps.wpsmonitor.measurement.qos.response.ResponseMetricFactory;
 import de.hsos.ecs.richwps.wpsmonitor.creation.BuilderException;
@@ -65,6 +75,7 @@ import org.apache.logging.log4j.Logger;
  */
 public class Application {
     private static final Logger LOG;
+    private static final String PERSISTENCE_UNIT = "de.hsosnabrueck.ecs.richwps_WPSMonitor_pu";
     private final ApplicationStartOptions opt;
 
     public static void main(String[] args) {
@@ -81,6 +92,16 @@ public class Application {
     }
 
     public void run() {
+        if (opt.isMigrateStorage()) {
+            migrateStorage();
+            return;
+        }
+
+        if (opt.isDropLegacyColumns()) {
+            dropLegacyColumns();
+            return;
+        }
+
         try {
 
             Monitor monitor = setupMonitor();
@@ -140,13 +161,17 @@ public class Application {
             
             new CliBuilder(console)
                     .addCommand(new AddCommand(monitor))
+                    .addCommand(new BulkAddCommand(monitor))
                     .addCommand(new MonitorExitCommand(monitor))
                     .addCommand(new CreateCommand(monitor))
                     .addCommand(new ShowCommand(monitor))
                     .addCommand(new StatusCommand(monitor))
                     .addCommand(new DeleteCommand(monitor))
+                    .addCommand(new ExportCommand(monitor))
+                    .addCommand(new ImportCommand(monitor))
                     .addCommand(new ResumeCommand(monitor))
                     .addCommand(new PauseCommand(monitor))
+                    .addCommand(new RebalanceCommand(monitor))
                     .addCommand(new TestCommand(monitor))
                     .withDefaultCommands()
                     .build()
@@ -156,6 +181,35 @@ public class Application {
         }
     }
 
+    /**
+     * Moves all measurements into the compact storage layout, which is used if
+     * qos.storage.compact is active. The monitor isn't started.
+     */
+    public void migrateStorage() {
+        LOG.trace("Migrate measurements to the compact storage ...");
+
+        try (Jpa jpa = new Jpa(PERSISTENCE_UNIT)) {
+            jpa.open();
+            new CompactStorageMigration(jpa).migrate();
+        }
+    }
+
+    /**
+     * Drops the legacy column of the uncompressed test requests, after the
+     * requests were copied. The monitor isn't started.
+     */
+    public void dropLegacyColumns() {
+        LOG.trace("Drop the legacy test request column ...");
+
+        try (Jpa jpa = new Jpa(PERSISTENCE_UNIT)) {
+            jpa.open();
+
+            if (!new SchemaMigration(jpa).dropRawRequestColumn()) {
+                LOG.info("There are no legacy columns to drop.");
+            }
+        }
+    }
+
     /**
      * Setup the Monitor-instance
      *
@@ -164,7 +218,7 @@ public class Application {
      */
     public Monitor setupMonitor() throws BuilderException {
         Monitor monitor = new MonitorBuilder()
-                .withPersistenceUnit("de.hsosnabrueck.ecs.richwps_WPSMonitor_pu")
+                .withPersistenceUnit(PERSISTENCE_UNIT)
                 .setupDefault()
                 .build();
 
@@ -203,7 +257,10 @@ public class Application {
                 })
                 .addRoute(HttpOperation.GET, new ListWpsProcessRoute())
                 .addRoute(HttpOperation.GET, new ListWpsProcessesRoute())
-                .addRoute(HttpOperation.GET, new ListWpsRoute());
+                .addRoute(HttpOperation.GET, new ListWpsRoute())
+                .addRoute(HttpOperation.GET, new ListRollupRoute())
+                .addRoute(HttpOperation.GET, new ExportMeasurementRoute())
+                .addRoute(HttpOperation.POST, new BulkScheduleRoute());
 
         return restInterface;
     }
@@ -39,15 +39,21 @@ public class ApplicationStartOptions {
         opt = new Options();
         opt.addOption("ut", "ui-type", true, "Type of ui. Possibilities: gui, cli");
         opt.addOption("ll", "log-level", true, "Log Level. Possibilities: debug, none");
+        opt.addOption("ms", "migrate-storage", false, "Migrates all measurements to the compact storage and exits");
+        opt.addOption("dl", "drop-legacy-columns", false, "Drops the legacy test request column of the processes and exits; older versions can't use the database afterwards");
     }
     
     private Level logLevel;
     private UiType ui;
+    private Boolean migrateStorage;
+    private Boolean dropLegacyColumns;
 
     public ApplicationStartOptions(final String[] args) throws ParseException {
         this.cmd = new GnuParser().parse(opt, args);
         this.ui = UiType.GUI;
         this.logLevel = DEFAULT_LOG_LEVEL;
+        this.migrateStorage = false;
+        this.dropLegacyColumns = false;
         
         init();
     }
@@ -64,6 +70,14 @@ public class ApplicationStartOptions {
                 logLevel = Level.DEBUG;
             }
         }
+        
+        if(cmd.hasOption("migrate-storage")) {
+            migrateStorage = true;
+        }
+        
+        if(cmd.hasOption("drop-legacy-columns")) {
+            dropLegacyColumns = true;
+        }
     }
 
     public Level getLogLevel() {
@@ -74,6 +88,14 @@ public class ApplicationStartOptions {
         return ui;
     }
 
+    public Boolean isMigrateStorage() {
+        return migrateStorage;
+    }
+
+    public Boolean isDropLegacyColumns() {
+        return dropLegacyColumns;
+    }
+
     public static Options getOpt() {
         return opt;
     }
@@ -51,6 +51,10 @@ public abstract class MonitorCommandWithTrigger extends MonitorCommand {
     }
 
     protected void addTrigger(final Long wpsId, final String identifier, final String stringRepresentation) throws CommandException {
+        addTrigger(wpsId, identifier, parseTrigger(stringRepresentation));
+    }
+
+    protected TriggerConfig parseTrigger(final String stringRepresentation) throws CommandException {
         TriggerConfig tConfig = null;
 
         if (stringRepresentation.startsWith("@")) {
@@ -65,7 +69,7 @@ public abstract class MonitorCommandWithTrigger extends MonitorCommand {
             throw new CommandException("Can't read the given trigger string. Must be JSON or in SimpleTriggerNotation");
         }
 
-        addTrigger(wpsId, identifier, tConfig);
+        return tConfig;
     }
 
     protected TriggerConfig unmarshallSimpleNotation(final String notation) throws CommandException {
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.boundary.cli.commands;
+
+import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.command.CommandException;
+import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.command.MonitorCommandWithTrigger;
+import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.command.RequiredOptionMissingCommandException;
+import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.command.annotation.CommandOption;
+import de.hsos.ecs.richwps.wpsmonitor.control.Monitor;
+import de.hsos.ecs.richwps.wpsmonitor.control.scheduler.TriggerConfig;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adds many processes of a already registred WPS at once. The process
+ * identifiers are read from a file, one identifier per line. The processes
+ * are stored in one transaction and registred in the scheduler with one call.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class BulkAddCommand extends MonitorCommandWithTrigger {
+
+    @CommandOption(
+            shortOptionName = "f",
+            longOptionName = "file",
+            description = "A file with one process identifier per line.",
+            hasArgument = true,
+            argumentName = "file"
+    )
+    private String file;
+
+    public BulkAddCommand(final Monitor monitor) {
+        super("bulkadd", "Adds many Processes to a already registred WPS at once. "
+                + "If a trigger is given, the trigger is added to all of the processes.",
+                monitor
+        );
+    }
+
+    @Override
+    public void execute() throws CommandException {
+        if (endpoint != null && wpsId == null) {
+            wpsId = monitorControl.getWpsId(endpoint);
+        }
+
+        if (wpsId == null) {
+            throw new CommandException("WPS not found.");
+        }
+
+        if (file == null) {
+            throw new RequiredOptionMissingCommandException("File option missing.");
+        }
+
+        try {
+            final List<String> identifiers = readIdentifiers(file);
+            final TriggerConfig trigger = triggerStringRepresentation != null
+                    ? parseTrigger(triggerStringRepresentation)
+                    : null;
+
+            final List<WpsProcessEntity> created = monitorControl.createAndScheduleProcesses(wpsId, identifiers);
+
+            if (created == null) {
+                throw new CommandException("WPS not found.");
+            }
+
+            super.consoleProxy.printLine(created.size() + " of " + identifiers.size()
+                    + " processes were added and registred in the scheduler.");
+
+            if (trigger != null) {
+                final List<TriggerConfig> triggers = monitorControl.saveTriggers(wpsId, identifiers, trigger);
+
+                super.consoleProxy.printLine(triggers.size() + " triggers were added.");
+            }
+        } catch (IllegalArgumentException ex) {
+            throw new CommandException("Illegal Argument: ", ex);
+        } catch (IOException ex) {
+            throw new CommandException("Can't read " + file + ".", ex);
+        }
+    }
+
+    private List<String> readIdentifiers(final String file) throws IOException {
+        final List<String> identifiers = new ArrayList<>();
+
+        for (String line : Files.readAllLines(Paths.get(file), Charset.forName("UTF-8"))) {
+            final String identifier = line.trim();
+
+            if (!identifier.isEmpty()) {
+                identifiers.add(identifier);
+            }
+        }
+
+        return identifiers;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.boundary.cli.commands;
+
+import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.command.CommandException;
+import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.command.MonitorCommand;
+import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.command.RequiredOptionMissingCommandException;
+import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.command.annotation.CommandOption;
+import de.hsos.ecs.richwps.wpsmonitor.control.Monitor;
+import de.hsos.ecs.richwps.wpsmonitor.data.exchange.ExchangeFormat;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Date;
+
+/**
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class ExportCommand extends MonitorCommand {
+
+    @CommandOption(
+            shortOptionName = "f",
+            longOptionName = "file",
+            description = "The file into which the measured data is written.",
+            hasArgument = true,
+            argumentName = "file"
+    )
+    private String file;
+
+    @CommandOption(
+            shortOptionName = "fmt",
+            longOptionName = "format",
+            description = "The format of the file; csv or ndjson. Default is csv.",
+            hasArgument = true,
+            argumentName = "format"
+    )
+    private String format;
+
+    @CommandOption(
+            shortOptionName = "s",
+            longOptionName = "since",
+            description = "Only measured data which is not older than the given "
+                + "date is exported. e.g. 12.03.2012",
+            hasArgument = true,
+            argumentName = "date"
+    )
+    private Date since;
+
+    public ExportCommand(final Monitor monitor) {
+        super("export", "Exports the measured data of a WPS process into a file, "
+                + "newest first. The export is streamed, so it can be used for "
+                + "large amounts of measured data.", monitor);
+    }
+
+    @Override
+    public void execute() throws CommandException {
+        if (endpoint != null && wpsId == null) {
+            wpsId = monitorControl.getWpsId(endpoint);
+        }
+
+        if (wpsId == null || identifier == null) {
+            throw new WpsProcessMissingException();
+        }
+
+        if (file == null) {
+            throw new RequiredOptionMissingCommandException("File option missing.");
+        }
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file),
+                Charset.forName("UTF-8")))) {
+            ExchangeFormat exchangeFormat = ExchangeFormat.fromString(format == null ? "csv" : format);
+            Integer exported = monitorControl.exportMeasuredData(wpsId, identifier, since, exchangeFormat, writer);
+
+            super.consoleProxy.printLine(exported + " measurements exported to " + file + ".");
+        } catch (IllegalArgumentException ex) {
+            throw new CommandException("Illegal Argument: ", ex);
+        } catch (IOException ex) {
+            throw new CommandException("Can't write " + file + ".", ex);
+        }
+    }
+}
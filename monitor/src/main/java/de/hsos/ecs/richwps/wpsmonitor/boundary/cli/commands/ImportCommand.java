@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.boundary.cli.commands;
+
+import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.command.CommandException;
+import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.command.MonitorCommand;
+import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.command.RequiredOptionMissingCommandException;
+import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.command.annotation.CommandOption;
+import de.hsos.ecs.richwps.wpsmonitor.control.Monitor;
+import de.hsos.ecs.richwps.wpsmonitor.data.exchange.ExchangeFormat;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+/**
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class ImportCommand extends MonitorCommand {
+
+    @CommandOption(
+            shortOptionName = "f",
+            longOptionName = "file",
+            description = "The file which was created by the export command.",
+            hasArgument = true,
+            argumentName = "file"
+    )
+    private String file;
+
+    @CommandOption(
+            shortOptionName = "fmt",
+            longOptionName = "format",
+            description = "The format of the file; csv or ndjson. Default is csv.",
+            hasArgument = true,
+            argumentName = "format"
+    )
+    private String format;
+
+    public ImportCommand(final Monitor monitor) {
+        super("import", "Imports measured data from a file into a WPS process. "
+                + "The measured data is stored in batches; invalid lines are skipped.", monitor);
+    }
+
+    @Override
+    public void execute() throws CommandException {
+        if (endpoint != null && wpsId == null) {
+            wpsId = monitorControl.getWpsId(endpoint);
+        }
+
+        if (wpsId == null || identifier == null) {
+            throw new WpsProcessMissingException();
+        }
+
+        if (file == null) {
+            throw new RequiredOptionMissingCommandException("File option missing.");
+        }
+
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), Charset.forName("UTF-8"))) {
+            ExchangeFormat exchangeFormat = ExchangeFormat.fromString(format == null ? "csv" : format);
+            Integer imported = monitorControl.importMeasuredData(wpsId, identifier, exchangeFormat, reader);
+
+            super.consoleProxy.printLine(imported + " measurements imported from " + file + ".");
+        } catch (IllegalArgumentException ex) {
+            throw new CommandException("Illegal Argument: ", ex);
+        } catch (IOException ex) {
+            throw new CommandException("Can't read " + file + ".", ex);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.boundary.cli.commands;
+
+import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.command.CommandException;
+import de.hsos.ecs.richwps.wpsmonitor.boundary.cli.command.MonitorCommand;
+import de.hsos.ecs.richwps.wpsmonitor.control.Monitor;
+import de.hsos.ecs.richwps.wpsmonitor.control.scheduler.TriggerConfig;
+import java.util.List;
+
+/**
+ * Moves the start times of the registred triggers, so that the processes are
+ * not measured at the same time.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class RebalanceCommand extends MonitorCommand {
+
+    public RebalanceCommand(final Monitor monitor) {
+        super("rebalance", "Spreads the start times of all registred triggers, "
+                + "so that the processes are not measured at the same time.", monitor);
+    }
+
+    @Override
+    public void execute() throws CommandException {
+        final List<TriggerConfig> moved = monitorControl.rebalanceTriggers();
+
+        super.consoleProxy.printLine(moved.size() + " triggers were moved.");
+    }
+}
@@ -26,6 +26,7 @@ import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.strategy.Hide;
 import de.hsos.ecs.richwps.wpsmonitor.control.Monitor;
 import de.hsos.ecs.richwps.wpsmonitor.control.scheduler.TriggerConfig;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Range;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessSummary;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
@@ -145,8 +146,8 @@ public class ShowCommand extends MonitorCommand {
     }
 
     private void appenProcessOutput(final Long wpsId, final StringBuilder strBuilder) {
-        List<WpsProcessEntity> processes = monitorControl.getProcesses(wpsId);
-        for (final WpsProcessEntity process : processes) {
+        List<WpsProcessSummary> processes = monitorControl.getProcessSummaries(wpsId);
+        for (final WpsProcessSummary process : processes) {
             strBuilder.append("\tIdentifier: ")
                     .append(process.getIdentifier())
                     .append("\n");
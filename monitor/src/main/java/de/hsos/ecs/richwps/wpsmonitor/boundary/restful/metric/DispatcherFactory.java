@@ -26,16 +26,24 @@ import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
  */
 public class DispatcherFactory implements Factory<EntityDispatcher> {
 
+    private static final Integer MAX_CACHED_RESULTS = 256;
+
     private final MetricFactoryMap converterMap;
 
+    /**
+     * Shared by all created dispatchers.
+     */
+    private final MetricResultCache resultCache;
+
     public DispatcherFactory(final MetricFactoryMap converterMap) {
         this.converterMap = Validate.notNull(converterMap, "converterMap");
+        this.resultCache = new MetricResultCache(MAX_CACHED_RESULTS);
     }
 
     @Override
     public EntityDispatcher create() {
         EntityDisassembler entityDisassembler = new EntityDisassembler(converterMap);
 
-        return new EntityDispatcher(entityDisassembler);
+        return new EntityDispatcher(entityDisassembler, resultCache);
     }
 }
@@ -17,6 +17,7 @@ package de.hsos.ecs.richwps.wpsmonitor.boundary.restful.metric;
 
 import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
 import de.hsos.ecs.richwps.wpsmonitor.creation.Factory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosRecord;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.AbstractQosEntity;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
 import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
@@ -64,7 +65,19 @@ public class EntityDisassembler {
     public Map<String, QosMetric> disassembleToConverters(final List<MeasuredDataEntity> dataList) {
         Map<String, Set<QosMetric>> metrics = createNewBunchOfConverters();
 
-        return disassembleLoop(dataList, metrics);
+        return disassembleLoop(QosRecord.of(dataList), metrics);
+    }
+
+    /**
+     * Dissassembles the given records to the specific metrics.
+     *
+     * @param records List of {@link QosRecord} instances
+     * @return Map instance, the key is the metric name and the value the metric
+     */
+    public Map<String, QosMetric> disassembleRecordsToConverters(final List<QosRecord> records) {
+        Map<String, Set<QosMetric>> metrics = createNewBunchOfConverters();
+
+        return disassembleLoop(records, metrics);
     }
 
     /**
@@ -86,14 +99,14 @@ public class EntityDisassembler {
     public Map<String, QosMetric> disassembleToMetricssWithRawData(final List<MeasuredDataEntity> dataList) {
         Map<String, Set<QosMetric>> metrics = createNewBunchOfConverters();
 
-        Map<String, QosMetric> merged = disassembleLoop(dataList, metrics);
+        Map<String, QosMetric> merged = disassembleLoop(QosRecord.of(dataList), metrics);
         merged.putAll(disassembleToDummyConverter(dataList));
 
         return merged;
     }
 
     private Map<String, QosMetric> disassembleLoop(final List<MeasuredDataEntity> dataList) {
-        return disassembleLoop(dataList, null);
+        return disassembleLoop(QosRecord.of(dataList), null);
     }
 
     /**
@@ -101,18 +114,18 @@ public class EntityDisassembler {
      * teh code of hell).
      *
      * @param metrics QosMetric list
-     * @param dataList List of {@link MeasuredDataEntity} instances
+     * @param records List of {@link QosRecord} instances
      * @return Map Instance, the key is the metric name and the value the metric
      */
-    private Map<String, QosMetric> disassembleLoop(final List<MeasuredDataEntity> dataList, final Map<String, Set<QosMetric>> metrics) {
+    private Map<String, QosMetric> disassembleLoop(final List<QosRecord> records, final Map<String, Set<QosMetric>> metrics) {
         Map<String, QosMetric> finalMetrics = new HashMap<>();
 
-        for (MeasuredDataEntity measuredDataEntity : dataList) {
-            List<AbstractQosEntity> measureData = measuredDataEntity.getData();
+        for (QosRecord record : records) {
+            AbstractQosEntity abstractQosEntity = record.getEntity();
 
-            for (AbstractQosEntity abstractQosEntity : measureData) {
+            if (abstractQosEntity != null) {
                 String converterEntityIndex = abstractQosEntity.getEntityName();
-                Measurement measurement = new Measurement(abstractQosEntity, measuredDataEntity.getCreateTime());
+                Measurement measurement = new Measurement(abstractQosEntity, record.getCreateTime());
                 // if converters is null, use defaultConverter
                 if (metrics == null || !metrics.containsKey(converterEntityIndex)) {
                     // TODO fix this
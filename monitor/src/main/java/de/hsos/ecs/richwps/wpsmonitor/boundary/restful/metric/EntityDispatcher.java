@@ -15,6 +15,7 @@
  */
 package de.hsos.ecs.richwps.wpsmonitor.boundary.restful.metric;
 
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosRecord;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
 import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
 import java.util.HashMap;
@@ -30,6 +31,7 @@ import java.util.Map;
 public class EntityDispatcher {
 
     private final EntityDisassembler disassembler;
+    private final MetricResultCache resultCache;
 
     /**
      * Constructor.
@@ -37,7 +39,18 @@ public class EntityDispatcher {
      * @param disassembler EntityDisassembler instance
      */
     public EntityDispatcher(final EntityDisassembler disassembler) {
+        this(disassembler, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param disassembler EntityDisassembler instance
+     * @param resultCache MetricResultCache instance; can be null
+     */
+    public EntityDispatcher(final EntityDisassembler disassembler, final MetricResultCache resultCache) {
         this.disassembler = Validate.notNull(disassembler, "disassembler");
+        this.resultCache = resultCache;
     }
 
     /**
@@ -48,9 +61,40 @@ public class EntityDispatcher {
      * @return Map with Entity name as key and converted data as value
      */
     public Map<String, Object> dispatchToMetric(final List<MeasuredDataEntity> data) {
-        Map<String, QosMetric> disassemble = disassembler.disassembleToConverters(data);
+        Map<String, Object> result = resultCache == null ? null : resultCache.get(data);
 
-        return dispatch(disassemble);
+        if (result == null) {
+            Map<String, QosMetric> disassemble = disassembler.disassembleToConverters(data);
+            result = dispatch(disassemble);
+
+            if (resultCache != null) {
+                resultCache.put(data, result);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Dispatches the metrics of the given records into a Map. Entities which
+     * have no registered metric will be ignored.
+     *
+     * @param records List of {@link QosRecord} instances
+     * @return Map with Entity name as key and converted data as value
+     */
+    public Map<String, Object> dispatchRecordsToMetric(final List<QosRecord> records) {
+        Map<String, Object> result = resultCache == null ? null : resultCache.get(records);
+
+        if (result == null) {
+            Map<String, QosMetric> disassemble = disassembler.disassembleRecordsToConverters(records);
+            result = dispatch(disassemble);
+
+            if (resultCache != null) {
+                resultCache.put(records, result);
+            }
+        }
+
+        return result;
     }
 
     /**
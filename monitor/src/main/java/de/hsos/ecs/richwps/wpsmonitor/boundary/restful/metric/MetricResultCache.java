@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.boundary.restful.metric;
+
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the calculated metrics of measured data lists. The lists are
+ * compared by identity; this fits the immutable snapshots of the
+ * {@link de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.cache.MeasuredDataCache},
+ * which are reused as long as the measured data of a process doesn't change.
+ * So repeated requests are answered without recalculation.
+ *
+ * The lists are referenced weakly, so no list is kept alive by this cache.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class MetricResultCache {
+
+    private final Map<Integer, CachedResult> results;
+
+    /**
+     * Creates a new MetricResultCache instance.
+     *
+     * @param maxEntries Max. amount of remembered results
+     */
+    public MetricResultCache(final Integer maxEntries) {
+        if (maxEntries == null || maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries need to be greater than zero.");
+        }
+
+        this.results = new LinkedHashMap<Integer, CachedResult>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Integer, CachedResult> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Gets the remembered result of the given list.
+     *
+     * @param data List instance
+     * @return result or null if nothing is remembered for this list instance
+     */
+    public synchronized Map<String, Object> get(final List<?> data) {
+        CachedResult cached = results.get(System.identityHashCode(data));
+
+        if (cached != null && cached.source.get() == data) {
+            return cached.result;
+        }
+
+        return null;
+    }
+
+    /**
+     * Remembers the result of the given list.
+     *
+     * @param data List instance
+     * @param result Calculated metrics
+     */
+    public synchronized void put(final List<?> data, final Map<String, Object> result) {
+        results.put(System.identityHashCode(data), new CachedResult(data, result));
+    }
+
+    private static final class CachedResult {
+
+        private final WeakReference<List<?>> source;
+        private final Map<String, Object> result;
+
+        CachedResult(final List<?> source, final Map<String, Object> result) {
+            this.source = new WeakReference<List<?>>(source);
+            this.result = result;
+        }
+    }
+}
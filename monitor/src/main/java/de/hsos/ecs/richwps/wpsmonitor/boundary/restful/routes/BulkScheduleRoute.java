@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.boundary.restful.routes;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.MonitorRoute;
+import de.hsos.ecs.richwps.wpsmonitor.control.scheduler.TriggerConfig;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import spark.Request;
+import spark.Response;
+
+/**
+ * Route (POST) to add many processes of a registered WPS-Server at once. It's
+ * has the following parameter:
+ *
+ * :wpsid - for the WPS-ID
+ *
+ * The body is a JSON object with the process identifiers and an optional
+ * trigger, which is added to all of the given processes, e.g.
+ * {"processes": ["p1", "p2"], "trigger": {"start": ..., "end": ...,
+ * "interval": 1, "intervalType": "HOUR"}}. The processes are stored in one
+ * transaction and scheduled with one scheduler call.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class BulkScheduleRoute extends MonitorRoute {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    public BulkScheduleRoute() {
+        super("/measurement/wps/:wpsid/process");
+    }
+
+    @Override
+    public Object handle(final Request request, final Response response) {
+        try {
+            final Long wpsId = Long.parseLong(request.params(":wpsid"));
+            final BulkScheduleRequest bulk = new Gson().fromJson(request.body(), BulkScheduleRequest.class);
+
+            if (bulk == null || bulk.processes == null) {
+                response.status(400);
+                return null;
+            }
+
+            List<WpsProcessEntity> created = getMonitorControl().createAndScheduleProcesses(wpsId, bulk.processes);
+
+            if (created != null) {
+                List<String> createdIdentifiers = new ArrayList<>();
+
+                for (WpsProcessEntity process : created) {
+                    createdIdentifiers.add(process.getIdentifier());
+                }
+
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("created", createdIdentifiers);
+
+                if (bulk.trigger != null) {
+                    List<TriggerConfig> triggers = getMonitorControl().saveTriggers(wpsId, bulk.processes, bulk.trigger);
+                    result.put("triggers", triggers == null ? 0 : triggers.size());
+                }
+
+                response.type(getStrategy().getMimeType());
+                return getStrategy().presentate(result);
+            }
+        } catch (NumberFormatException ex) {
+            LOG.warn("Can't cast wpsid Parameter to Long.", ex);
+        } catch (JsonParseException | IllegalArgumentException ex) {
+            LOG.warn("The body of the bulk request was not valid.", ex);
+
+            response.status(400);
+            return null;
+        }
+
+        response.status(404);
+        return null;
+    }
+
+    /**
+     * Body of the bulk request.
+     */
+    private static class BulkScheduleRequest {
+
+        private List<String> processes;
+        private TriggerConfig trigger;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.boundary.restful.routes;
+
+import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.MonitorRoute;
+import de.hsos.ecs.richwps.wpsmonitor.data.exchange.ExchangeFormat;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Date;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.jetty.server.HttpConnection;
+import spark.Request;
+import spark.Response;
+
+/**
+ * Route for the bulk export of measured data. It's has the following
+ * parameters:
+ *
+ * :wps - for the WPS-Identifier :process - for the WPS-Process Identifier
+ * :format - csv or ndjson
+ *
+ * The optional query parameter "since" (milliseconds since the epoch) limits
+ * the export to newer measurements. The lines are written straight to the
+ * response while the measurements are read page by page, so the export of
+ * months of data doesn't need more memory than a single page.
+ *
+ * Invalid parameters are answered with 400, an unknown process with 404. If
+ * the export fails after it has started, the connection is closed.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class ExportMeasurementRoute extends MonitorRoute {
+
+    private static final Logger LOG = LogManager.getLogger();
+    private static final String SINCE_PARAM = "since";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    public ExportMeasurementRoute(final String alias) {
+        super(alias);
+    }
+
+    public ExportMeasurementRoute() {
+        super("/export/wps/:wps/process/:process/format/:format");
+    }
+
+    @Override
+    public Object handle(Request request, Response response) {
+        final Long wpsId;
+        final String processIdentifier;
+        final ExchangeFormat format;
+        final Date since;
+
+        // everything is validated before the first byte is written; the
+        // status can't be changed afterwards
+        try {
+            wpsId = Long.parseLong(Validate.notNull(request.params(":wps"), "Wps parameter"));
+            processIdentifier = Validate.notNull(request.params(":process"), "Process parameter");
+            format = ExchangeFormat.fromString(request.params(":format"));
+            since = getSince(request.queryParams(SINCE_PARAM));
+        } catch (IllegalArgumentException ex) {
+            LOG.warn("A value was null or invalid.", ex);
+
+            response.status(400);
+            return null;
+        }
+
+        if (!getMonitorControl().isProcessExists(wpsId, processIdentifier)) {
+            response.status(404);
+            return null;
+        }
+
+        LOG.debug("ExportMeasurementRoute called with parameters wpsIdentifier: {} processIdentifier: {} format: {} since: {}",
+                wpsId, processIdentifier, format, since
+        );
+
+        response.type(format.getMimeType() + "; charset=utf-8");
+
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(response.raw().getOutputStream(), UTF8));
+            Integer exported = getMonitorControl().exportMeasuredData(wpsId, processIdentifier, since, format, writer);
+            writer.flush();
+
+            LOG.debug("ExportMeasurementRoute wrote {} measurements.", exported);
+        } catch (IOException | RuntimeException ex) {
+            LOG.warn("Export aborted.", ex);
+
+            abort();
+        }
+
+        return "";
+    }
+
+    /**
+     * Closes the connection of the current request. The response may already
+     * be committed, so the client must not see a complete export.
+     */
+    private void abort() {
+        HttpConnection connection = HttpConnection.getCurrentConnection();
+
+        if (connection != null) {
+            connection.getEndPoint().close();
+        }
+    }
+
+    private Date getSince(final String since) {
+        if (since == null || since.isEmpty()) {
+            return null;
+        }
+
+        Long millis = Long.parseLong(since);
+
+        if (millis < 0) {
+            throw new IllegalArgumentException("The since parameter is negative.");
+        }
+
+        return new Date(millis);
+    }
+}
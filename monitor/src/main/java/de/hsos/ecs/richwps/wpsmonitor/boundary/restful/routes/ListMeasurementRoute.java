@@ -16,7 +16,8 @@
 package de.hsos.ecs.richwps.wpsmonitor.boundary.restful.routes;
 
 import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.MonitorRoute;
-import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Range;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Cursor;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosRecord;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
 import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
 import java.util.List;
@@ -35,7 +36,11 @@ import spark.Response;
  * display mode; both for Measurements and metrics, metrics for only metrics and
  * values for only measurements
  *
- * Through this route you can select all measured datas of the monitor.
+ * Through this route you can select all measured datas of the monitor. If the
+ * page is full, the response carries the header X-Next-Cursor; pass its value
+ * as query parameter "cursor" to get the next, older page. A malformed cursor
+ * or a count which is not positive is answered with 400, an unknown WPS or
+ * process with 404.
  *
  * @author Florian Vogelpohl <floriantobias@gmail.com>
  */
@@ -43,6 +48,8 @@ public class ListMeasurementRoute extends MonitorRoute {
 
     private static final Logger LOG = LogManager.getLogger();
     private static final Integer DEFAULT_COUNT_OF_RANGE = 100;
+    private static final String CURSOR_PARAM = "cursor";
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
     public ListMeasurementRoute(final String alias) {
         super(alias);
@@ -54,37 +61,46 @@ public class ListMeasurementRoute extends MonitorRoute {
 
     @Override
     public Object handle(Request request, Response response) {
+        final Long wpsId;
+        final String processIdentifier;
+        final Integer limit;
+        final Cursor cursor;
+
         try {
-            String wpsIdString = Validate.notNull(request.params(":wps"), "Wps parameter");
-            String processIdentifier = Validate.notNull(request.params(":process"), "Process parameter");
-            String count = request.params(":count");
-
-            Long wpsId = Long.parseLong(wpsIdString);
-            if (getMonitorControl().isProcessExists(wpsId, processIdentifier)) {
-                List<MeasuredDataEntity> measuredData = getMonitorControl()
-                        .getMeasuredData(wpsId, processIdentifier, getRange(count));
-
-                LOG.debug("ListMeasurementRoute called with parameters wpsIdentifier: {} processIdentifier: {} count: {}",
-                        wpsIdString, processIdentifier, count
-                );
-
-                Map<String, Object> toPresentate = getMetrics(measuredData);
-                
-                response.type(getStrategy().getMimeType());
-
-                return getStrategy()
-                        .presentate(toPresentate);
-            } 
+            wpsId = Long.parseLong(Validate.notNull(request.params(":wps"), "Wps parameter"));
+            processIdentifier = Validate.notNull(request.params(":process"), "Process parameter");
+            limit = getCount(request.params(":count"));
+            cursor = getCursor(request.queryParams(CURSOR_PARAM));
         } catch (IllegalArgumentException ex) {
-            LOG.warn("A value was null.", ex);
+            LOG.warn("A value was null or invalid.", ex);
+
+            response.status(400);
+            return null;
         }
 
-        response.status(404);
-        return null;
-    }
+        if (!getMonitorControl().isProcessExists(wpsId, processIdentifier)) {
+            response.status(404);
+            return null;
+        }
+
+        List<QosRecord> records = getMonitorControl()
+                .getMeasuredRecords(wpsId, processIdentifier, cursor, limit);
+
+        LOG.debug("ListMeasurementRoute called with parameters wpsIdentifier: {} processIdentifier: {} count: {} cursor: {}",
+                wpsId, processIdentifier, limit, cursor
+        );
+
+        Map<String, Object> toPresentate = getDispatch().dispatchRecordsToMetric(records);
+
+        if (QosRecord.countMeasurements(records).equals(limit)) {
+            Cursor next = Cursor.after(records.get(records.size() - 1));
+            response.header(NEXT_CURSOR_HEADER, next.encode());
+        }
+
+        response.type(getStrategy().getMimeType());
 
-    private Map<String, Object> getMetrics(List<MeasuredDataEntity> measuredData) {
-        return getDispatch().dispatchToMetric(measuredData);
+        return getStrategy()
+                .presentate(toPresentate);
     }
 
     private Map<String, Object> getRaw(List<MeasuredDataEntity> measuredData) {
@@ -95,7 +111,15 @@ public class ListMeasurementRoute extends MonitorRoute {
         return getDispatch().dispatchBoth(measuredData);
     }
 
-    private Range getRange(String countValue) {
+    private Cursor getCursor(final String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+
+        return Cursor.decode(token);
+    }
+
+    private Integer getCount(String countValue) {
         Integer countInt;
 
         if (countValue == null) {
@@ -108,6 +132,10 @@ public class ListMeasurementRoute extends MonitorRoute {
             }
         }
 
-        return new Range(null, countInt);
+        if (countInt <= 0) {
+            throw new IllegalArgumentException("The count parameter needs to be positive.");
+        }
+
+        return countInt;
     }
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.boundary.restful.routes;
+
+import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.MonitorRoute;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataRollupEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.RollupGranularity;
+import de.hsos.ecs.richwps.wpsmonitor.util.QuantileHistogram;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import spark.Request;
+import spark.Response;
+
+/**
+ * Route for long-range reports. Instead of the raw measurements, the
+ * pre-aggregated rollups are read. It's has the following parameters:
+ *
+ * :wps - for the WPS-Identifier :process - for the WPS-Process Identifier
+ * :granularity - minute, hour or day :days - the amount of days which are
+ * reported, counted back from now
+ *
+ * The result contains a summary for each qos entity type and the rollup
+ * buckets.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class ListRollupRoute extends MonitorRoute {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    public ListRollupRoute(final String alias) {
+        super(alias);
+    }
+
+    public ListRollupRoute() {
+        super("/rollup/wps/:wps/process/:process/granularity/:granularity/days/:days");
+    }
+
+    @Override
+    public Object handle(Request request, Response response) {
+        try {
+            String wpsIdString = Validate.notNull(request.params(":wps"), "Wps parameter");
+            String processIdentifier = Validate.notNull(request.params(":process"), "Process parameter");
+            String granularityString = Validate.notNull(request.params(":granularity"), "Granularity parameter");
+            String daysString = Validate.notNull(request.params(":days"), "Days parameter");
+
+            Long wpsId = Long.parseLong(wpsIdString);
+            Integer days = Integer.parseInt(daysString);
+            RollupGranularity granularity = RollupGranularity.valueOf(granularityString.toUpperCase());
+
+            if (days > 0 && getMonitorControl().isProcessExists(wpsId, processIdentifier)) {
+                Date to = new Date();
+                Date from = getFrom(to, days);
+
+                List<MeasuredDataRollupEntity> rollups = getMonitorControl()
+                        .getRollups(wpsId, processIdentifier, granularity, from, to);
+
+                LOG.debug("ListRollupRoute called with parameters wpsIdentifier: {} processIdentifier: {} granularity: {} days: {}",
+                        wpsIdString, processIdentifier, granularity, days
+                );
+
+                Map<String, Object> toPresentate = new LinkedHashMap<>();
+                toPresentate.put("granularity", granularity);
+                toPresentate.put("from", from);
+                toPresentate.put("to", to);
+                toPresentate.put("summary", getSummaries(rollups));
+                toPresentate.put("rollups", rollups);
+
+                response.type(getStrategy().getMimeType());
+
+                return getStrategy()
+                        .presentate(toPresentate);
+            }
+        } catch (IllegalArgumentException ex) {
+            LOG.warn("A value was null or invalid.", ex);
+        }
+
+        response.status(404);
+        return null;
+    }
+
+    private Date getFrom(final Date to, final Integer days) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(to);
+        cal.add(Calendar.DATE, -days);
+
+        return cal.getTime();
+    }
+
+    private Map<String, Object> getSummaries(final List<MeasuredDataRollupEntity> rollups) {
+        Map<String, MeasuredDataRollupEntity> merged = new LinkedHashMap<>();
+
+        for (MeasuredDataRollupEntity rollup : rollups) {
+            MeasuredDataRollupEntity total = merged.get(rollup.getEntityName());
+
+            if (total == null) {
+                total = new MeasuredDataRollupEntity();
+                merged.put(rollup.getEntityName(), total);
+            }
+
+            total.merge(rollup);
+        }
+
+        Map<String, Object> summaries = new LinkedHashMap<>();
+
+        for (Map.Entry<String, MeasuredDataRollupEntity> e : merged.entrySet()) {
+            summaries.put(e.getKey(), getSummary(e.getValue()));
+        }
+
+        return summaries;
+    }
+
+    private Map<String, Object> getSummary(final MeasuredDataRollupEntity total) {
+        QuantileHistogram histogram = total.getHistogram();
+        Map<String, Object> summary = new LinkedHashMap<>();
+
+        summary.put("measurements", total.getMeasurementCount());
+        summary.put("successful", total.getSuccessCount());
+        summary.put("availability", total.getSuccessRate());
+        summary.put("min", total.getMinValue());
+        summary.put("max", total.getMaxValue());
+        summary.put("mean", histogram.getMean());
+        summary.put("median", histogram.getMedian());
+        summary.put("p95", histogram.getValueAtQuantile(0.95));
+
+        return summary;
+    }
+}
@@ -16,7 +16,7 @@
 package de.hsos.ecs.richwps.wpsmonitor.boundary.restful.routes;
 
 import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.MonitorRoute;
-import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessSummary;
 import java.util.List;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -40,7 +40,7 @@ public class ListWpsProcessRoute extends MonitorRoute {
 
         try {
             final Long wpsId = Long.parseLong(request.params(":wpsid"));
-            List<WpsProcessEntity> processesOfWps = getMonitorControl().getProcesses(wpsId);
+            List<WpsProcessSummary> processesOfWps = getMonitorControl().getProcessSummaries(wpsId);
 
             response.type(getStrategy().getMimeType());
             return getStrategy().presentate(processesOfWps);
@@ -16,7 +16,7 @@
 package de.hsos.ecs.richwps.wpsmonitor.boundary.restful.routes;
 
 import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.MonitorRoute;
-import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessSummary;
 import java.util.List;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -40,7 +40,7 @@ public class ListWpsProcessesRoute extends MonitorRoute {
         try {
             Long wpsId = Long.parseLong(request.params("id"));
 
-            List<WpsProcessEntity> processes = getMonitorControl().getProcesses(wpsId);
+            List<WpsProcessSummary> processes = getMonitorControl().getProcessSummaries(wpsId);
 
             if (processes != null) {
                 response.type(getStrategy().getMimeType());
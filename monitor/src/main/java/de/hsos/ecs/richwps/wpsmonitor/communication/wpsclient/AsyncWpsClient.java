@@ -0,0 +1,39 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient;
+
+/**
+ * Interface for WpsClients which can execute requests without blocking the
+ * calling thread. The result is delivered to a {@link WpsResponseCallback}
+ * instance as soon as the WPS-Server has answered or the connection failed.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public interface AsyncWpsClient extends WpsClient {
+
+    /**
+     * Invoke the WpsClient to execute the given wpsRequest asynchronously. The
+     * method returns immediately; WpsRequest.prepareRequest() is called at real
+     * execution time like in execute(). The callback is never called within
+     * the I/O thread of the client implementation, so it is allowed to do some
+     * blocking work, e.g. persisting the measured data.
+     *
+     * @param wpsRequest WpsRequest instance that contains all necessary
+     * informations to call a server
+     * @param callback Callback which receives the WpsResponse
+     */
+    public void executeAsync(final WpsRequest wpsRequest, final WpsResponseCallback callback);
+}
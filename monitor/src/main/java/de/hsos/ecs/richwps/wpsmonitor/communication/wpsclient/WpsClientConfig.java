@@ -29,10 +29,62 @@ public class WpsClientConfig {
     private Integer connectionTimeout;
 
     /**
-     * Will set the timeout to 10 s
+     * Maximum amount of pooled connections over all routes
+     */
+    private Integer maxConnectionsTotal;
+
+    /**
+     * Maximum amount of pooled connections per route (WPS-Server)
+     */
+    private Integer maxConnectionsPerRoute;
+
+    /**
+     * Time in ms after which idle pooled connections will be evicted
+     */
+    private Integer idleConnectionTimeout;
+
+    /**
+     * Keep-alive duration in ms, which is used if the server doesn't send a
+     * Keep-Alive header
+     */
+    private Integer keepAliveDuration;
+
+    /**
+     * If true, every request opens a new connection; so the full connect cost
+     * is measured
+     */
+    private Boolean coldConnection;
+
+    /**
+     * Amount of threads which process the responses of asynchronous requests
+     */
+    private Integer asyncWorkers;
+
+    /**
+     * Max. amount of responses of asynchronous requests which wait for a
+     * worker; further responses are delivered as connection exceptions
+     */
+    private Integer asyncQueueCapacity;
+
+    /**
+     * Max. amount of bytes of a response body which are retained; 0 means
+     * unlimited
+     */
+    private Integer maxResponseBodySize;
+
+    /**
+     * Will set the timeout to 10 s and uses pooled connections
      */
     public WpsClientConfig() {
         connectionTimeout = 10000;
+        maxConnectionsTotal = 200;
+        maxConnectionsPerRoute = 20;
+        idleConnectionTimeout = 60000;
+        keepAliveDuration = 30000;
+        coldConnection = false;
+        asyncWorkers = 2;
+        asyncQueueCapacity = 1000;
+        maxResponseBodySize = 1048576;
     }
 
     public Integer getConnectionTimeout() {
@@ -43,8 +95,80 @@ public class WpsClientConfig {
         this.connectionTimeout = connectionTimeout;
     }
 
+    public Integer getMaxConnectionsTotal() {
+        return maxConnectionsTotal;
+    }
+
+    public void setMaxConnectionsTotal(Integer maxConnectionsTotal) {
+        this.maxConnectionsTotal = maxConnectionsTotal;
+    }
+
+    public Integer getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(Integer maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public Integer getIdleConnectionTimeout() {
+        return idleConnectionTimeout;
+    }
+
+    public void setIdleConnectionTimeout(Integer idleConnectionTimeout) {
+        this.idleConnectionTimeout = idleConnectionTimeout;
+    }
+
+    public Integer getKeepAliveDuration() {
+        return keepAliveDuration;
+    }
+
+    public void setKeepAliveDuration(Integer keepAliveDuration) {
+        this.keepAliveDuration = keepAliveDuration;
+    }
+
+    public Boolean isColdConnection() {
+        return coldConnection;
+    }
+
+    public void setColdConnection(Boolean coldConnection) {
+        this.coldConnection = coldConnection;
+    }
+
+    public Integer getAsyncWorkers() {
+        return asyncWorkers;
+    }
+
+    public void setAsyncWorkers(Integer asyncWorkers) {
+        this.asyncWorkers = asyncWorkers;
+    }
+
+    public Integer getAsyncQueueCapacity() {
+        return asyncQueueCapacity;
+    }
+
+    public void setAsyncQueueCapacity(Integer asyncQueueCapacity) {
+        this.asyncQueueCapacity = asyncQueueCapacity;
+    }
+
+    public Integer getMaxResponseBodySize() {
+        return maxResponseBodySize;
+    }
+
+    public void setMaxResponseBodySize(Integer maxResponseBodySize) {
+        this.maxResponseBodySize = maxResponseBodySize;
+    }
+
     @Override
     public String toString() {
-        return "WpsClientConfig{" + "connectionTimeout=" + connectionTimeout + '}';
+        return "WpsClientConfig{" + "connectionTimeout=" + connectionTimeout
+                + ", maxConnectionsTotal=" + maxConnectionsTotal
+                + ", maxConnectionsPerRoute=" + maxConnectionsPerRoute
+                + ", idleConnectionTimeout=" + idleConnectionTimeout
+                + ", keepAliveDuration=" + keepAliveDuration
+                + ", coldConnection=" + coldConnection
+                + ", asyncWorkers=" + asyncWorkers
+                + ", asyncQueueCapacity=" + asyncQueueCapacity
+                + ", maxResponseBodySize=" + maxResponseBodySize + '}';
     }
 }
@@ -41,6 +41,18 @@ public class WpsResponse {
      */
     private String responseBody;
 
+    /**
+     * Amount of bytes which are received from the wps server; can be null if
+     * the body wasn't read from a stream.
+     */
+    private Long responseSize;
+
+    /**
+     * Indicates that the responseBody doesn't contain the full answer of the
+     * wps server, because the retain limit of the client was reached.
+     */
+    private Boolean truncated;
+
     /**
      * Constructor.
      *
@@ -52,6 +64,7 @@ public class WpsResponse {
         this.exception = exception;
         this.responseBody = responseBody;
         this.responseTime = responseTime;
+        this.truncated = false;
     }
 
     /**
@@ -84,6 +97,22 @@ public class WpsResponse {
         this.responseBody = responseBody;
     }
 
+    public Long getResponseSize() {
+        return responseSize;
+    }
+
+    public void setResponseSize(Long responseSize) {
+        this.responseSize = responseSize;
+    }
+
+    public Boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(Boolean truncated) {
+        this.truncated = truncated;
+    }
+
     public Boolean isException() {
         return exception != null;
     }
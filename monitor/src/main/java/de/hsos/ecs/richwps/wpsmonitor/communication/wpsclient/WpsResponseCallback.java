@@ -0,0 +1,34 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient;
+
+/**
+ * Callback for {@link AsyncWpsClient} implementations.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public interface WpsResponseCallback {
+
+    /**
+     * Is called if the request is completed. Connection errors are indicated
+     * through the exception of the WpsResponse instance, like in
+     * WpsClient.execute().
+     *
+     * @param wpsRequest The executed WpsRequest instance
+     * @param wpsResponse The Answer from the called server
+     */
+    public void completed(final WpsRequest wpsRequest, final WpsResponse wpsResponse);
+}
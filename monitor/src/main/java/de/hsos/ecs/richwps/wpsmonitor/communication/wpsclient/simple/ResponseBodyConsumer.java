@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.simple;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.methods.AsyncByteConsumer;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Response consumer of the asynchronous WpsClient, which counts every byte of
+ * the response body, but retains only the first maxRetainedBytes bytes; the
+ * counterpart of the {@link ResponseBodyInputStream}. The entity of the result
+ * holds the retained bytes.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+final class ResponseBodyConsumer extends AsyncByteConsumer<HttpResponse> {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int maxRetainedBytes;
+    private final ByteArrayOutputStream retained;
+    private HttpResponse response;
+    private long count;
+    private boolean truncated;
+
+    /**
+     * Creates a new ResponseBodyConsumer instance.
+     *
+     * @param maxRetainedBytes Max. amount of bytes which are retained; null or
+     * 0 means unlimited
+     */
+    ResponseBodyConsumer(final Integer maxRetainedBytes) {
+        this.maxRetainedBytes = maxRetainedBytes == null ? 0 : Math.max(0, maxRetainedBytes);
+        this.retained = new ByteArrayOutputStream(this.maxRetainedBytes > 0
+                ? Math.min(this.maxRetainedBytes, BUFFER_SIZE)
+                : BUFFER_SIZE);
+        this.count = 0;
+        this.truncated = false;
+    }
+
+    @Override
+    protected void onResponseReceived(final HttpResponse response) {
+        this.response = response;
+    }
+
+    @Override
+    protected void onByteReceived(final ByteBuffer buf, final IOControl ioctrl) {
+        int len = buf.remaining();
+        int retainable = len;
+
+        count += len;
+
+        if (maxRetainedBytes > 0) {
+            retainable = Math.min(len, Math.max(0, maxRetainedBytes - retained.size()));
+        }
+
+        if (retainable > 0) {
+            byte[] bytes = new byte[retainable];
+            buf.get(bytes);
+            retained.write(bytes, 0, retainable);
+        }
+
+        if (retainable < len) {
+            truncated = true;
+            buf.position(buf.limit());
+        }
+    }
+
+    @Override
+    protected HttpResponse buildResult(final HttpContext context) {
+        HttpEntity entity = response.getEntity();
+
+        if (entity != null) {
+            ByteArrayEntity body = new ByteArrayEntity(retained.toByteArray());
+            body.setContentType(entity.getContentType());
+            body.setContentEncoding(entity.getContentEncoding());
+
+            response.setEntity(body);
+        }
+
+        return response;
+    }
+
+    @Override
+    protected void releaseResources() {
+        // the retained bytes are part of the result
+    }
+
+    /**
+     * Amount of bytes which are received so far.
+     *
+     * @return byte count
+     */
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * Indicates that more bytes were received than retained.
+     *
+     * @return true if the retained body is incomplete
+     */
+    boolean isTruncated() {
+        return truncated;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.simple;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * InputStream wrapper which counts every byte that is read from the response
+ * body, but retains only the first maxRetainedBytes bytes. So a large WPS
+ * response can be read completely without buffering it on the heap.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+final class ResponseBodyInputStream extends FilterInputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ByteArrayOutputStream retained;
+    private final int maxRetainedBytes;
+    private long count;
+    private boolean truncated;
+
+    /**
+     * Creates a new ResponseBodyInputStream instance.
+     *
+     * @param in Underlying response body stream
+     * @param maxRetainedBytes Max. amount of bytes which are retained; null or
+     * 0 means unlimited
+     */
+    ResponseBodyInputStream(final InputStream in, final Integer maxRetainedBytes) {
+        super(in);
+
+        this.maxRetainedBytes = maxRetainedBytes == null ? 0 : Math.max(0, maxRetainedBytes);
+        this.retained = new ByteArrayOutputStream(this.maxRetainedBytes > 0
+                ? Math.min(this.maxRetainedBytes, BUFFER_SIZE)
+                : BUFFER_SIZE);
+        this.count = 0;
+        this.truncated = false;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+
+        if (b != -1) {
+            count++;
+
+            if (isRetainable(1)) {
+                retained.write(b);
+            } else {
+                truncated = true;
+            }
+        }
+
+        return b;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        int read = super.read(b, off, len);
+
+        if (read > 0) {
+            count += read;
+            retain(b, off, read);
+        }
+
+        return read;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        // skipped bytes must be counted and retained too
+        byte[] buffer = new byte[(int) Math.min(n, BUFFER_SIZE)];
+        long skipped = 0;
+
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+
+            if (read == -1) {
+                break;
+            }
+
+            skipped += read;
+        }
+
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(final int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * Reads the rest of the stream. This is necessary to count the full
+     * response size and to release a pooled connection.
+     *
+     * @throws IOException
+     */
+    void drain() throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        while (read(buffer, 0, buffer.length) != -1) {
+            // only count and retain
+        }
+    }
+
+    /**
+     * Amount of bytes which are read so far.
+     *
+     * @return byte count
+     */
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * Indicates that more bytes were read than retained.
+     *
+     * @return true if the retained body is incomplete
+     */
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Decodes the retained bytes.
+     *
+     * @param charset Charset of the response body
+     * @return String instance
+     */
+    String getRetainedBody(final Charset charset) {
+        return new String(retained.toByteArray(), charset);
+    }
+
+    private void retain(final byte[] b, final int off, final int len) {
+        int retainable = len;
+
+        if (maxRetainedBytes > 0) {
+            retainable = Math.min(len, Math.max(0, maxRetainedBytes - retained.size()));
+        }
+
+        if (retainable > 0) {
+            retained.write(b, off, retainable);
+        }
+
+        if (retainable < len) {
+            truncated = true;
+        }
+    }
+
+    private boolean isRetainable(final int len) {
+        return maxRetainedBytes == 0 || retained.size() + len <= maxRetainedBytes;
+    }
+}
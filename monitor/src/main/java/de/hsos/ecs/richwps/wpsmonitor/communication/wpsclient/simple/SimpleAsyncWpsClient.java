@@ -0,0 +1,187 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.simple;
+
+import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.AsyncWpsClient;
+import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsClientConfig;
+import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsRequest;
+import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsResponse;
+import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsResponseCallback;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Non-blocking variant of the {@link SimpleWpsClient}. The request is sent
+ * over the shared {@link SimpleWpsClientAsyncEngine}; the response is
+ * classified and delivered within the worker pool of the engine. The blocking
+ * execute-method is still available and uses the shared connection pool.
+ *
+ * Like the blocking client, only the first maxResponseBodySize bytes of the
+ * response body are retained; the response is classified by these bytes. If
+ * the worker pool is saturated or shut down, the callback is called in the
+ * I/O thread with a connection exception; so a callback is never dropped.
+ *
+ * If the engine couldn't be started, executeAsync falls back to a blocking
+ * request in the calling thread.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class SimpleAsyncWpsClient extends SimpleWpsClient implements AsyncWpsClient {
+
+    private static final Logger LOG = LogManager.getLogger();
+    private final SimpleWpsClientAsyncEngine engine;
+
+    /**
+     * Creates a new SimpleAsyncWpsClient instance.
+     *
+     * @param connectionPool Pool for blocking requests
+     * @param engine Engine for non-blocking requests
+     */
+    public SimpleAsyncWpsClient(final SimpleWpsClientConnectionPool connectionPool, final SimpleWpsClientAsyncEngine engine) {
+        super(connectionPool);
+
+        this.engine = Validate.notNull(engine, "engine");
+    }
+
+    @Override
+    public void init(final WpsClientConfig config) {
+        super.init(config);
+
+        engine.start(config);
+    }
+
+    @Override
+    public void executeAsync(final WpsRequest wpsRequest, final WpsResponseCallback callback) {
+        Validate.notNull(wpsRequest, "wpsRequest");
+        Validate.notNull(callback, "callback");
+
+        final CloseableHttpAsyncClient httpAsyncClient = engine.getHttpAsyncClient();
+        final ExecutorService callbackExecutor = engine.getCallbackExecutor();
+
+        if (httpAsyncClient == null) {
+            callback.completed(wpsRequest, execute(wpsRequest));
+
+            return;
+        }
+
+        try {
+            HttpPost httpRequest = buildRequest(wpsRequest);
+
+            LOG.debug("Sending asynchronous Request to Server: {}", wpsRequest.getProcessInfo().getWpsEndpoint());
+
+            final ResponseBodyConsumer consumer = new ResponseBodyConsumer(getMaxResponseBodySize());
+
+            wpsRequest.prepareRequest();
+            httpAsyncClient.execute(HttpAsyncMethods.create(httpRequest), consumer, new FutureCallback<HttpResponse>() {
+
+                @Override
+                public void completed(final HttpResponse httpResponse) {
+                    Date responseTime = new Date();
+
+                    LOG.debug("Asynchronous Response received.");
+
+                    // the consumer has retained the body, so reading it won't block
+                    dispatch(callbackExecutor, wpsRequest, consumer, responseTime, callback);
+                }
+
+                @Override
+                public void failed(final Exception ex) {
+                    LOG.warn("Apache HTTP Async Client I/O Error.", ex);
+
+                    // null entity indicates ConnectionException!
+                    dispatch(callbackExecutor, wpsRequest, null, null, callback);
+                }
+
+                @Override
+                public void cancelled() {
+                    LOG.debug("Asynchronous Request was cancelled.");
+
+                    dispatch(callbackExecutor, wpsRequest, null, null, callback);
+                }
+            });
+        } catch (UnsupportedEncodingException ex) {
+            LOG.warn("Apache HTTP Client: Encoding not supported.", ex);
+
+            dispatch(callbackExecutor, wpsRequest, null, null, callback);
+        }
+    }
+
+    /**
+     * Classifies the response and calls the callback within the worker pool.
+     * If the worker pool rejects the response, the callback is called in the
+     * current thread with a connection exception. A null consumer indicates a
+     * connection exception.
+     */
+    private void dispatch(final ExecutorService callbackExecutor, final WpsRequest wpsRequest,
+            final ResponseBodyConsumer consumer, final Date responseTime, final WpsResponseCallback callback) {
+
+        try {
+            callbackExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    callback.completed(wpsRequest, readAsyncResponse(consumer, responseTime));
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            LOG.warn("Asynchronous WpsClient workers are saturated or shut down. Response of {} is delivered as connection exception.",
+                    wpsRequest.getProcessInfo().getWpsEndpoint());
+
+            callback.completed(wpsRequest, getConnectionExceptionResponse(responseTime));
+        }
+    }
+
+    private WpsResponse readAsyncResponse(final ResponseBodyConsumer consumer, final Date responseTime) {
+        if (consumer == null || consumer.getResult() == null) {
+            return getConnectionExceptionResponse(responseTime);
+        }
+
+        try {
+            WpsResponse response = readWpsResponse(consumer.getResult().getEntity(), responseTime);
+
+            // the entity only holds the retained bytes
+            if (response.getResponseSize() != null) {
+                response.setResponseSize(consumer.getCount());
+                response.setTruncated(consumer.isTruncated() || response.isTruncated());
+            }
+
+            return response;
+        } catch (IOException ex) {
+            LOG.warn("Apache HTTP Async Client I/O Error.", ex);
+
+            return getConnectionExceptionResponse(responseTime);
+        }
+    }
+
+    private WpsResponse getConnectionExceptionResponse(final Date responseTime) {
+        // null body indicates ConnectionException!
+        WpsResponse response = getWpsResponse(null, responseTime);
+        lookupForExceptions(response);
+
+        return response;
+    }
+}
@@ -22,33 +22,25 @@ import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsException;
 import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsRequest;
 import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsResponse;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.NoConnectionReuseStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.message.BasicNameValuePair;
-import org.apache.http.util.EntityUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.w3c.dom.DOMException;
-import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
-import org.xml.sax.ErrorHandler;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
-import org.xml.sax.SAXParseException;
 
 /**
  * A very simple WpsClient Implementation based on Apache HTTP Components Lib.
@@ -60,6 +52,10 @@ import org.xml.sax.SAXParseException;
  * connection error, because the wps server seems to be unreachable (or no wps
  * server runs at this server).
  *
+ * The response body is classified while it is streamed; only the first
+ * maxResponseBodySize bytes (see {@link WpsClientConfig}) are retained in the
+ * WpsResponse object.
+ *
  * @see WpsClient
  * @see WpsResponse
  * @see WpsRequest
@@ -68,29 +64,51 @@ import org.xml.sax.SAXParseException;
 public class SimpleWpsClient implements WpsClient {
 
     private static final Logger LOG = LogManager.getLogger();
-    private String wpsExceptionMessage;
-    private HttpClient httpClient;
+    private static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
+    private final SimpleWpsClientConnectionPool connectionPool;
+    private CloseableHttpClient httpClient;
+    private Boolean coldConnection;
+    private Integer maxResponseBodySize;
+
+    /**
+     * Creates a SimpleWpsClient which opens a new connection for every
+     * request.
+     */
+    public SimpleWpsClient() {
+        this(null);
+    }
+
+    /**
+     * Creates a SimpleWpsClient which uses the given shared connection pool.
+     * If the pool is null or the config demands cold connections, a new
+     * connection is opened for every request.
+     *
+     * @param connectionPool {@link SimpleWpsClientConnectionPool} instance
+     */
+    public SimpleWpsClient(final SimpleWpsClientConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
 
     @Override
     public void init(final WpsClientConfig config) {
         LOG.debug("Init WpsClient with {}", config);
 
-        Integer timeout = config.getConnectionTimeout();
+        coldConnection = connectionPool == null || config.isColdConnection();
+        maxResponseBodySize = config.getMaxResponseBodySize();
 
-        RequestConfig.Builder requestBuilder = RequestConfig.custom()
-                .setConnectTimeout(timeout)
-                .setSocketTimeout(timeout)
-                .setConnectionRequestTimeout(timeout);
-
-        httpClient = HttpClientBuilder.create()
-                .setDefaultRequestConfig(requestBuilder.build())
-                .build();
+        if (coldConnection) {
+            httpClient = HttpClientBuilder.create()
+                    .setConnectionReuseStrategy(NoConnectionReuseStrategy.INSTANCE)
+                    .setDefaultRequestConfig(SimpleWpsClientConnectionPool.getRequestConfig(config))
+                    .build();
+        } else {
+            httpClient = connectionPool.getHttpClient(config);
+        }
     }
 
     @Override
     public WpsResponse execute(final WpsRequest wpsRequest) {
 
-        String responseBody = null;
         Date responseTime = null;
         WpsResponse response = null;
 
@@ -108,49 +126,108 @@ public class SimpleWpsClient implements WpsClient {
 
                 LOG.debug("Response received.");
 
-                // get response body
-                HttpEntity responseEntity = httpResponse.getEntity();
-                responseBody = EntityUtils.toString(responseEntity);
+                // classify the response body while it is streamed
+                response = readWpsResponse(httpResponse.getEntity(), responseTime);
             } catch (UnsupportedEncodingException ex) {
                 LOG.warn("Apache HTTP Client: Encoding not supported.", ex);
             } catch (IOException ex) {
                 LOG.warn("Apache HTTP Client I/O Error.", ex);
+            } finally {
+                closeColdClient();
+            }
 
-                // set null to indicate ConnectionException!
-                responseBody = null;
+            if (response == null) {
+                // null body indicates ConnectionException!
+                response = getWpsResponse(null, responseTime);
+                lookupForExceptions(response);
             }
+        }
 
-            // create response Object
-            response = getWpsResponse(responseBody, responseTime);
+        return response;
+    }
+
+    /**
+     * Reads and classifies the given response entity in one pass. The body is
+     * counted completely, but only retained up to maxResponseBodySize bytes.
+     * If the entity is null, the response indicates a connection exception.
+     *
+     * @param entity Response entity; can be null
+     * @param responseTime Time of the response
+     * @return WpsResponse instance
+     * @throws IOException If the response body can't be read
+     */
+    protected WpsResponse readWpsResponse(final HttpEntity entity, final Date responseTime) throws IOException {
+        InputStream content = entity == null ? null : entity.getContent();
+
+        if (content == null) {
+            WpsResponse response = getWpsResponse(null, responseTime);
             lookupForExceptions(response);
+
+            return response;
+        }
+
+        ResponseBodyInputStream in = new ResponseBodyInputStream(content, maxResponseBodySize);
+        String exceptionText = null;
+        Boolean noWpsResponse = false;
+
+        try {
+            exceptionText = WpsResponseClassifier.findExceptionText(in);
+        } catch (NoWpsResponse ex) {
+            noWpsResponse = true;
+        } finally {
+            try {
+                in.drain();
+            } finally {
+                in.close();
+            }
+        }
+
+        WpsResponse response = getWpsResponse(in.getRetainedBody(getCharset(entity)), responseTime);
+        response.setResponseSize(in.getCount());
+        response.setTruncated(in.isTruncated());
+
+        if (noWpsResponse) {
+            response.setException(new WpsConnectionException());
+        } else if (exceptionText != null) {
+            response.setException(createWpsException(exceptionText));
         }
 
         return response;
     }
 
-    private WpsResponse getWpsResponse(final String responseBody, final Date responseTime) {
+    /**
+     * A cold client is only used for one request; the shared pooled client
+     * must not be closed here.
+     */
+    private void closeColdClient() {
+        if (coldConnection) {
+            try {
+                httpClient.close();
+            } catch (IOException ex) {
+                LOG.debug("Can't close the HttpClient.", ex);
+            }
+        }
+    }
+
+    protected Integer getMaxResponseBodySize() {
+        return maxResponseBodySize;
+    }
+
+    protected WpsResponse getWpsResponse(final String responseBody, final Date responseTime) {
         return new WpsResponse(responseBody, responseTime);
     }
 
-    private void lookupForExceptions(WpsResponse response) {
+    protected void lookupForExceptions(WpsResponse response) {
         String responseBody = response.getResponseBody();
         // set exception if necessary
         if (responseBody == null) {
             response.setException(new WpsConnectionException());
         } else {
             try {
-                if (isWpsException(responseBody)) {
-                    WpsException ex;
+                String exceptionText = WpsResponseClassifier.findExceptionText(new StringReader(responseBody));
 
-                    if (wpsExceptionMessage == null || "".equals(wpsExceptionMessage)) {
-                        ex = new WpsException();
-                    } else {
-                        ex = new WpsException(wpsExceptionMessage);
-
-                        LOG.debug(wpsExceptionMessage);
-                    }
-
-                    response.setException(ex);
+                if (exceptionText != null) {
+                    response.setException(createWpsException(exceptionText));
                 }
             } catch (NoWpsResponse ex) {
                 response.setException(new WpsConnectionException());
@@ -159,73 +236,43 @@ public class SimpleWpsClient implements WpsClient {
 
     }
 
-    private HttpPost buildRequest(final WpsRequest wpsRequest) throws UnsupportedEncodingException {
-        HttpPost httpRequest = new HttpPost(wpsRequest.getProcessInfo().getWpsEndpoint().toString());
-        List<NameValuePair> body = new ArrayList<>();
-        body.add(new BasicNameValuePair("request", wpsRequest.getRawRequest()));
-
-        httpRequest.setEntity(new UrlEncodedFormEntity(body));
+    private WpsException createWpsException(final String exceptionText) {
+        WpsException ex;
 
-        return httpRequest;
-    }
+        if ("".equals(exceptionText)) {
+            ex = new WpsException();
+        } else {
+            ex = new WpsException(exceptionText);
 
-    private Boolean isWpsException(final String responseBody) throws NoWpsResponse {
-        try {
-            Document doc = getDocumentBuilder().parse(new InputSource(new StringReader(responseBody)));
-            NodeList nl = doc.getElementsByTagNameNS("*", "ExceptionText");
+            LOG.debug(exceptionText);
+        }
 
-            if (nl.getLength() > 0) {
-                StringBuilder strBuilder = new StringBuilder();
+        return ex;
+    }
 
-                for (int i = 0; i < nl.getLength(); i++) {
-                    strBuilder.append(nl.item(i).getTextContent());
-                    strBuilder.append("\n----\n");
-                }
+    private Charset getCharset(final HttpEntity entity) {
+        Charset charset = null;
 
-                wpsExceptionMessage = strBuilder.toString();
+        try {
+            ContentType contentType = ContentType.get(entity);
 
-                return true;
-            } else {
-                return false;
+            if (contentType != null) {
+                charset = contentType.getCharset();
             }
-        } catch (SAXException ex) {
-            LOG.debug("SAX Exception occourd at parse WPS Response.", ex);
-        } catch (IOException ex) {
-            LOG.debug("I/O Exception occourd at parse WPS Response.", ex);
-        } catch (ParserConfigurationException ex) {
-            LOG.debug("Parse Exception occourd at parse WPS Response.", ex);
-        } catch (DOMException ex) {
-            LOG.debug("DOM Exception occourd at parse WPS Response.", ex);
+        } catch (RuntimeException ex) {
+            LOG.debug("Can't determine the charset of the WPS Response.", ex);
         }
 
-        LOG.debug("Exception occured while parsing the WpsResponse body. Interpreting as ConnectionError.");
-        throw new NoWpsResponse();
+        return charset == null ? DEFAULT_CHARSET : charset;
     }
 
-    private DocumentBuilder getDocumentBuilder() throws ParserConfigurationException {
-        DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
-        docBuilderFactory.setNamespaceAware(true);
-        
-        DocumentBuilder newDocumentBuilder = docBuilderFactory.newDocumentBuilder();
-        
-        // Configure error handler
-        newDocumentBuilder.setErrorHandler(new ErrorHandler() {
-            @Override
-            public void error(SAXParseException saxpe) throws SAXException {
-                LOG.warn(saxpe);
-            }
+    protected HttpPost buildRequest(final WpsRequest wpsRequest) throws UnsupportedEncodingException {
+        HttpPost httpRequest = new HttpPost(wpsRequest.getProcessInfo().getWpsEndpoint().toString());
+        List<NameValuePair> body = new ArrayList<>();
+        body.add(new BasicNameValuePair("request", wpsRequest.getRawRequest()));
 
-            @Override
-            public void fatalError(SAXParseException saxpe) throws SAXException {
-                LOG.warn(saxpe);
-            }
+        httpRequest.setEntity(new UrlEncodedFormEntity(body));
 
-            @Override
-            public void warning(SAXParseException saxpe) throws SAXException {
-                LOG.warn(saxpe);
-            }
-        });
-        
-        return newDocumentBuilder;
+        return httpRequest;
     }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.simple;
+
+import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsClientConfig;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.impl.NoConnectionReuseStrategy;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Monitor-wide non-blocking HTTP engine which is shared by all
+ * {@link SimpleAsyncWpsClient} instances. It consists of an NIO HttpAsyncClient
+ * with its own connection pool and a small worker pool which processes the
+ * responses; so the I/O reactor thread is never blocked by response
+ * classification, probes or persisting. The queue of the worker pool is
+ * bounded by the asyncQueueCapacity of the {@link WpsClientConfig}; the
+ * executor rejects responses if it is saturated or shut down.
+ *
+ * The engine is started lazily with the {@link WpsClientConfig} of the first
+ * client and can be restarted after close() was called.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class SimpleWpsClientAsyncEngine implements AutoCloseable {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    /**
+     * Max. time in seconds to wait for outstanding callbacks at close()
+     */
+    private static final Integer CALLBACK_TERMINATION_TIMEOUT = 30;
+
+    private CloseableHttpAsyncClient httpAsyncClient;
+    private ExecutorService callbackExecutor;
+
+    /**
+     * Starts the engine with the given config, if not already started.
+     *
+     * @param config {@link WpsClientConfig} instance
+     */
+    public synchronized void start(final WpsClientConfig config) {
+        Validate.notNull(config, "config");
+
+        if (httpAsyncClient == null) {
+            LOG.debug("Starting asynchronous WpsClient engine with {}", config);
+
+            try {
+                Integer timeout = config.getConnectionTimeout();
+
+                IOReactorConfig reactorConfig = IOReactorConfig.custom()
+                        .setConnectTimeout(timeout)
+                        .setSoTimeout(timeout)
+                        .build();
+
+                PoolingNHttpClientConnectionManager connectionManager
+                        = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(reactorConfig));
+                connectionManager.setMaxTotal(config.getMaxConnectionsTotal());
+                connectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+
+                HttpAsyncClientBuilder builder = HttpAsyncClientBuilder.create()
+                        .setConnectionManager(connectionManager)
+                        .setKeepAliveStrategy(SimpleWpsClientConnectionPool.getKeepAliveStrategy(config.getKeepAliveDuration()))
+                        .setDefaultRequestConfig(SimpleWpsClientConnectionPool.getRequestConfig(config));
+
+                if (config.isColdConnection()) {
+                    builder.setConnectionReuseStrategy(NoConnectionReuseStrategy.INSTANCE);
+                }
+
+                callbackExecutor = new ThreadPoolExecutor(config.getAsyncWorkers(), config.getAsyncWorkers(),
+                        0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(config.getAsyncQueueCapacity()),
+                        new ThreadFactory() {
+                            private final AtomicInteger count = new AtomicInteger();
+
+                            @Override
+                            public Thread newThread(final Runnable r) {
+                                return new Thread(r, "wpsclient-async-worker-" + count.incrementAndGet());
+                            }
+                        });
+
+                httpAsyncClient = builder.build();
+                httpAsyncClient.start();
+            } catch (IOReactorException ex) {
+                LOG.error("Can't create the I/O reactor. Asynchronous WpsClients will fall back to blocking requests.", ex);
+            }
+        }
+    }
+
+    /**
+     * Gets the shared HttpAsyncClient instance.
+     *
+     * @return CloseableHttpAsyncClient instance or null, if the engine is not
+     * started
+     */
+    public synchronized CloseableHttpAsyncClient getHttpAsyncClient() {
+        return httpAsyncClient;
+    }
+
+    /**
+     * Gets the ExecutorService which should process the responses. It throws
+     * a RejectedExecutionException if it is saturated or shut down.
+     *
+     * @return ExecutorService instance or null, if the engine is not started
+     */
+    public synchronized ExecutorService getCallbackExecutor() {
+        return callbackExecutor;
+    }
+
+    /**
+     * Closes the HttpAsyncClient; requests in flight are failed and delivered
+     * as connection exceptions. Outstanding callbacks are awaited to give
+     * them the chance to finish their work.
+     */
+    @Override
+    public synchronized void close() {
+        if (httpAsyncClient != null) {
+            try {
+                httpAsyncClient.close();
+            } catch (IOException ex) {
+                LOG.warn("I/O Exception while closing the HttpAsyncClient.", ex);
+            }
+
+            callbackExecutor.shutdown();
+
+            try {
+                if (!callbackExecutor.awaitTermination(CALLBACK_TERMINATION_TIMEOUT, TimeUnit.SECONDS)) {
+                    LOG.warn("Not all WpsClient callbacks are finished after {} seconds.", CALLBACK_TERMINATION_TIMEOUT);
+                    callbackExecutor.shutdownNow();
+                }
+            } catch (InterruptedException ex) {
+                callbackExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+
+            httpAsyncClient = null;
+            callbackExecutor = null;
+        }
+    }
+}
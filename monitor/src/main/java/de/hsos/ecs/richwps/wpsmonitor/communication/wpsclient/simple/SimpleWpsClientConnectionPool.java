@@ -0,0 +1,168 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.simple;
+
+import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsClientConfig;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Monitor-wide pool of HTTP connections which is shared by all
+ * {@link SimpleWpsClient} instances. The pool is created lazily with the
+ * {@link WpsClientConfig} of the first client and lives until close() is
+ * called; after that, the next client will create a new pool. Idle and expired
+ * connections are evicted by a background thread.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class SimpleWpsClientConnectionPool implements AutoCloseable {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+    private ScheduledExecutorService evictor;
+
+    /**
+     * Gets the shared HttpClient instance. If no pool exists, a new one is
+     * created with the given config.
+     *
+     * @param config {@link WpsClientConfig} instance
+     * @return CloseableHttpClient instance
+     */
+    public synchronized CloseableHttpClient getHttpClient(final WpsClientConfig config) {
+        Validate.notNull(config, "config");
+
+        if (httpClient == null) {
+            LOG.debug("Creating shared connection pool with {}", config);
+
+            connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(config.getMaxConnectionsTotal());
+            connectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+
+            httpClient = HttpClientBuilder.create()
+                    .setConnectionManager(connectionManager)
+                    .setKeepAliveStrategy(getKeepAliveStrategy(config.getKeepAliveDuration()))
+                    .setDefaultRequestConfig(getRequestConfig(config))
+                    .build();
+
+            startEvictor(config.getIdleConnectionTimeout());
+        }
+
+        return httpClient;
+    }
+
+    /**
+     * Builds the RequestConfig with the timeout values of the given config.
+     *
+     * @param config {@link WpsClientConfig} instance
+     * @return RequestConfig instance
+     */
+    public static RequestConfig getRequestConfig(final WpsClientConfig config) {
+        Integer timeout = config.getConnectionTimeout();
+
+        return RequestConfig.custom()
+                .setConnectTimeout(timeout)
+                .setSocketTimeout(timeout)
+                .setConnectionRequestTimeout(timeout)
+                .build();
+    }
+
+    /**
+     * Builds a keep-alive strategy which uses the given duration if the server
+     * doesn't send a Keep-Alive header.
+     *
+     * @param keepAliveDuration Duration in ms
+     * @return ConnectionKeepAliveStrategy instance
+     */
+    public static ConnectionKeepAliveStrategy getKeepAliveStrategy(final Integer keepAliveDuration) {
+        return new DefaultConnectionKeepAliveStrategy() {
+
+            @Override
+            public long getKeepAliveDuration(final HttpResponse response, final HttpContext context) {
+                long duration = super.getKeepAliveDuration(response, context);
+
+                // the server sends no Keep-Alive header
+                if (duration < 0) {
+                    duration = keepAliveDuration;
+                }
+
+                return duration;
+            }
+        };
+    }
+
+    private void startEvictor(final Integer idleTimeout) {
+        evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                Thread t = new Thread(r, "wpsclient-connection-evictor");
+                t.setDaemon(true);
+
+                return t;
+            }
+        });
+
+        final PoolingHttpClientConnectionManager manager = connectionManager;
+        long period = Math.max(1000, idleTimeout / 2);
+
+        evictor.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                manager.closeExpiredConnections();
+                manager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Closes all pooled connections and stops the evictor thread.
+     */
+    @Override
+    public synchronized void close() {
+        if (httpClient != null) {
+            evictor.shutdownNow();
+
+            try {
+                httpClient.close();
+            } catch (IOException ex) {
+                LOG.warn("I/O Exception while closing the shared HttpClient.", ex);
+            }
+
+            connectionManager.shutdown();
+
+            evictor = null;
+            httpClient = null;
+            connectionManager = null;
+        }
+    }
+}
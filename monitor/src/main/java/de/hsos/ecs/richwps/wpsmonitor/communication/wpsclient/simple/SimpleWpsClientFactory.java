@@ -24,11 +24,28 @@ import de.hsos.ecs.richwps.wpsmonitor.creation.Factory;
  *
  * @author Florian Vogelpohl <floriantobias@gmail.com>
  */
-public class SimpleWpsClientFactory implements Factory<WpsClient> {
+public class SimpleWpsClientFactory implements Factory<WpsClient>, AutoCloseable {
+
+    /**
+     * Connection pool which is shared by all created clients
+     */
+    private final SimpleWpsClientConnectionPool connectionPool;
+
+    public SimpleWpsClientFactory() {
+        this.connectionPool = new SimpleWpsClientConnectionPool();
+    }
 
     @Override
     public WpsClient create() {
-        return new SimpleWpsClient();
+        return new SimpleWpsClient(connectionPool);
+    }
+
+    /**
+     * Closes the shared connection pool.
+     */
+    @Override
+    public void close() {
+        connectionPool.close();
     }
 
 }
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.simple;
+
+import java.io.InputStream;
+import java.io.Reader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Classifies a WPS response with a StAX pull parser. The parser stops as soon
+ * as it is decided whether the response is an exception report; no DOM is
+ * built and no content is retained except the ExceptionText elements.
+ *
+ * The decision is made if a) an ExceptionReport element, which contains
+ * ExceptionText elements, ends, or b) the ProcessOutputs element of an
+ * ExecuteResponse starts, or c) the end of the document is reached. If the
+ * response is not well-formed XML up to the decision point, a
+ * {@link NoWpsResponse} exception is thrown.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+final class WpsResponseClassifier {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    /**
+     * The factory is expensive to create and is thread-safe once configured.
+     */
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    private WpsResponseClassifier() {
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+
+        return factory;
+    }
+
+    /**
+     * Looks for ExceptionText elements in the given stream. The stream is not
+     * closed and not necessarily read to the end.
+     *
+     * @param in Response body stream
+     * @return null if the response is no exception report, otherwise the
+     * concatenated exception texts (maybe empty)
+     * @throws NoWpsResponse If the response isn't well-formed XML
+     */
+    static String findExceptionText(final InputStream in) throws NoWpsResponse {
+        try {
+            return scan(INPUT_FACTORY.createXMLStreamReader(in));
+        } catch (XMLStreamException ex) {
+            LOG.debug("StAX Exception occourd at parse WPS Response.", ex);
+        }
+
+        LOG.debug("Exception occured while parsing the WpsResponse body. Interpreting as ConnectionError.");
+        throw new NoWpsResponse();
+    }
+
+    /**
+     * Looks for ExceptionText elements in the given reader.
+     *
+     * @param reader Response body reader
+     * @return null if the response is no exception report, otherwise the
+     * concatenated exception texts (maybe empty)
+     * @throws NoWpsResponse If the response isn't well-formed XML
+     */
+    static String findExceptionText(final Reader reader) throws NoWpsResponse {
+        try {
+            return scan(INPUT_FACTORY.createXMLStreamReader(reader));
+        } catch (XMLStreamException ex) {
+            LOG.debug("StAX Exception occourd at parse WPS Response.", ex);
+        }
+
+        LOG.debug("Exception occured while parsing the WpsResponse body. Interpreting as ConnectionError.");
+        throw new NoWpsResponse();
+    }
+
+    private static String scan(final XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder message = null;
+        StringBuilder currentText = null;
+        int depth = 0;
+        int reportDepth = -1;
+
+        try {
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        depth++;
+
+                        String name = reader.getLocalName();
+
+                        if ("ExceptionReport".equals(name) && reportDepth == -1) {
+                            reportDepth = depth;
+                        } else if ("ExceptionText".equals(name)) {
+                            currentText = new StringBuilder();
+                        } else if ("ProcessOutputs".equals(name) && message == null) {
+                            // only payload follows
+                            return null;
+                        }
+                        break;
+
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                        if (currentText != null) {
+                            currentText.append(reader.getText());
+                        }
+                        break;
+
+                    case XMLStreamConstants.END_ELEMENT:
+                        if (currentText != null && "ExceptionText".equals(reader.getLocalName())) {
+                            if (message == null) {
+                                message = new StringBuilder();
+                            }
+
+                            message.append(currentText);
+                            message.append("\n----\n");
+                            currentText = null;
+                        }
+
+                        if (depth == reportDepth && message != null) {
+                            return message.toString();
+                        }
+
+                        depth--;
+                        break;
+
+                    default:
+                        break;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return message == null ? null : message.toString();
+    }
+}
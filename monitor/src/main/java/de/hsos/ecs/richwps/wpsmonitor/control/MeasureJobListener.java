@@ -22,6 +22,7 @@ import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDaoFactory;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDataAccess;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
 import de.hsos.ecs.richwps.wpsmonitor.measurement.MeasureJob;
+import de.hsos.ecs.richwps.wpsmonitor.measurement.MeasureJobCallback;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.quartz.JobExecutionContext;
@@ -85,10 +86,12 @@ public class MeasureJobListener implements JobListener {
     }
 
     /**
-     * Starts a new worker thread which handles the jobWasExecuted-Event because
-     * within this event some DataAcces-interactions are happening which can
-     * slow down the system because the listener runs in the mainthread and the
-     * jobs runs in its own thread.
+     * Fires the scheduler.wpsjob.wasexecuted-Event asynchronously over the
+     * {@link MonitorEventHandler}, because the listeners may do some
+     * DataAccess-interactions, which shouldn't slow down the measurement
+     * threads. Asynchronous jobs are not completed if this method is called;
+     * so the event is fired after the job has completed. The rare case that a
+     * job can't measure is handled in the thread which completes the job.
      *
      * @param context JobExecutionContext contexten, injected by quartz
      * @param jobException JobExecutionException injected by quartz
@@ -103,37 +106,40 @@ public class MeasureJobListener implements JobListener {
                     throw new AssertionError(jobException.getMessage(), jobException);
                 }
 
-                Thread worker = new Thread() {
+                specificJob.whenCompleted(new MeasureJobCallback() {
                     @Override
-                    public void run() {
-                        
-                        WpsProcessEntity process = specificJob.getProcessEntity();
+                    public void completed(final MeasureJob job) {
+                        WpsProcessEntity process = job.getProcessEntity();
 
                         LOG.debug("MeasureJobListener: Fire scheduler.job.wasexecuted Event!");
                         eventHandler
-                                .fireEvent(new MonitorEvent("scheduler.wpsjob.wasexecuted", process));
+                                .fireEventAsync(new MonitorEvent("scheduler.wpsjob.wasexecuted", process));
 
-                        if (specificJob.cantMeasure()) {
+                        if (job.cantMeasure()) {
                             try (WpsProcessDataAccess wpsProcessDao = wpsProcessDaoFactory.create()) {
                                 Scheduler scheduler = context.getScheduler();
 
                                 handleCantMeasure(wpsProcessDao, scheduler, process);
                             } catch (CreateException ex) {
-                                throw new AssertionError("Can't create Exception in Measure layer.", ex);
+                                // the callback may run in the completing thread of
+                                // the wps client, where the exception would be lost
+                                exitMonitor(new AssertionError("Can't create Exception in Measure layer.", ex));
                             }
                         }
                     }
-                };
-
-                worker.start();
+                });
             }
         } catch (AssertionError ex) {
-            // not clean, but save
-            LOG.fatal("AssertionError occurred in Measure Layer. Can't throw this exception to main-Method. Exit the monitor here.", ex);
-            System.exit(1);
+            exitMonitor(ex);
         }
     }
 
+    private void exitMonitor(final AssertionError ex) {
+        // not clean, but save
+        LOG.fatal("AssertionError occurred in Measure Layer. Can't throw this exception to main-Method. Exit the monitor here.", ex);
+        System.exit(1);
+    }
+
     private void handleCantMeasure(final WpsProcessDataAccess wpsProcessDao, final Scheduler scheduler,
             final WpsProcessEntity wpsProcess) {
 
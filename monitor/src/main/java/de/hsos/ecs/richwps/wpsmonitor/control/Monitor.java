@@ -16,24 +16,32 @@
 package de.hsos.ecs.richwps.wpsmonitor.control;
 
 import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsClientFactory;
+import de.hsos.ecs.richwps.wpsmonitor.control.event.AsyncEventDispatcher;
 import de.hsos.ecs.richwps.wpsmonitor.control.event.MonitorEvent;
+import de.hsos.ecs.richwps.wpsmonitor.control.event.EventNotFoundException;
 import de.hsos.ecs.richwps.wpsmonitor.control.event.MonitorEventHandler;
+import de.hsos.ecs.richwps.wpsmonitor.control.event.MonitorEventListener;
 import de.hsos.ecs.richwps.wpsmonitor.control.threadsave.ThreadSaveMonitorControlService;
 import de.hsos.ecs.richwps.wpsmonitor.control.scheduler.JobFactoryService;
-import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
 import de.hsos.ecs.richwps.wpsmonitor.data.config.MonitorConfig;
 import de.hsos.ecs.richwps.wpsmonitor.data.config.MonitorConfigException;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDaoFactory;
-import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDaoFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
 import de.hsos.ecs.richwps.wpsmonitor.measurement.MeasureJob;
 import de.hsos.ecs.richwps.wpsmonitor.measurement.MeasureJobFactory;
+import de.hsos.ecs.richwps.wpsmonitor.measurement.MeasuredDataWriter;
 import de.hsos.ecs.richwps.wpsmonitor.measurement.ProbeService;
 import de.hsos.ecs.richwps.wpsmonitor.measurement.clean.CleanUpJob;
 import de.hsos.ecs.richwps.wpsmonitor.measurement.clean.CleanUpJobFactory;
+import de.hsos.ecs.richwps.wpsmonitor.measurement.clean.RetentionPolicy;
+import de.hsos.ecs.richwps.wpsmonitor.measurement.rollup.RollupJob;
+import de.hsos.ecs.richwps.wpsmonitor.measurement.rollup.RollupJobFactory;
 import de.hsos.ecs.richwps.wpsmonitor.creation.BuilderException;
 import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
 import java.util.Calendar;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -41,6 +49,7 @@ import org.quartz.CalendarIntervalScheduleBuilder;
 import org.quartz.DateBuilder;
 import org.quartz.JobKey;
 import org.quartz.SchedulerException;
+import org.quartz.SimpleScheduleBuilder;
 import org.quartz.Trigger;
 import org.quartz.TriggerBuilder;
 import org.quartz.TriggerKey;
@@ -52,8 +61,9 @@ import org.quartz.TriggerKey;
  to start or stop the monitor. The monitor fires a monitor.shutdown-event if
  shutdown() is called. shutdown() will be called through a shutdownHook if the
  monitor is not shut down already. Also a cleanUp-job is registred, which will
- try to clean up old measurements. This behavior can be configured in the
- monitor.properties file.
+ try to clean up old measurements, and a rollup-job, which aggregates the
+ measurements into minute, hour and day rollups. This behavior can be
+ configured in the monitor.properties file.
 
  This instance initializt the Monitor with the MonitorBuilder instance.
  *
@@ -67,14 +77,19 @@ public class Monitor {
     private MonitorBuilder builderInstance;
     private MonitorConfig config;
     private MonitorEventHandler eventHandler;
+    private MeasuredDataWriter measuredDataWriter;
+    private AsyncEventDispatcher eventDispatcher;
+    private volatile MeasureJobFactory measureJobFactory;
     private final Set<AutoCloseable> shutdownCalls;
 
     public Monitor(final MonitorBuilder builder) throws MonitorConfigException {
         Validate.notNull(builder, "builder");
-        shutdownCalls = new HashSet<>();
+        // keep the order; e.g. pending work must be flushed before the jpa instance is closed
+        shutdownCalls = new LinkedHashSet<>();
 
         initMonitorWithBuilder(builder);
         prepareShutdown();
+        setupMeasureJobFactoryInvalidation();
     }
 
     /**
@@ -118,6 +133,14 @@ public class Monitor {
                 LOG.warn("Exception occured at try to shut down the scheduler.");
             }
 
+            // no more jobs are running; drain the outstanding measurements
+            measuredDataWriter.close();
+
+            // fire the outstanding events of the measurements
+            if (eventDispatcher != null) {
+                eventDispatcher.close();
+            }
+
             for (AutoCloseable c : shutdownCalls) {
                 try {
                     c.close();
@@ -157,6 +180,8 @@ public class Monitor {
             this.monitorControl = builder.buildMonitorControl();
             this.builderInstance = builder;
             this.config = builder.getMonitorConfig();
+            this.measuredDataWriter = builder.getMeasuredDataWriter();
+            this.eventDispatcher = builder.getEventDispatcher();
 
             // to prevent that all listeners must be reregistred after a restart
             MonitorEventHandler tmpEventHandler = builder.getEventHandler();
@@ -245,9 +270,56 @@ public class Monitor {
                 ).build();
     }
 
+    private void rollupJob() {
+        try {
+            SchedulerControlService schedulerControl = monitorControl.getSchedulerControl();
+            String schedulerName = schedulerControl.getScheduler()
+                    .getSchedulerName();
+
+            JobKey jobKey = new JobKey("rollupQosData", schedulerName);
+            TriggerKey triggerKey = new TriggerKey("rollupQosData", schedulerName);
+
+            Trigger rollupTrigger = TriggerBuilder.newTrigger()
+                    .withIdentity(triggerKey)
+                    .forJob(jobKey)
+                    .startNow()
+                    .withSchedule(SimpleScheduleBuilder.simpleSchedule()
+                            .withIntervalInMinutes(config.getQosRollupInterval())
+                            .repeatForever()
+                    ).build();
+
+            if (!schedulerControl.isJobRegistred(jobKey)) {
+                schedulerControl
+                        .addJob(jobKey, RollupJob.class);
+            }
+
+            if (!schedulerControl.isTriggerRegistred(triggerKey)) {
+                schedulerControl.getScheduler()
+                        .scheduleJob(rollupTrigger);
+            }
+            schedulerControl.getScheduler()
+                    .rescheduleJob(triggerKey, rollupTrigger);
+
+            if (!config.isQosRollupActive()) {
+                schedulerControl.pauseJob(jobKey);
+            }
+        } catch (SchedulerException ex) {
+            LOG.error("Exception occourd at configuring the RollupJob.", ex);
+        }
+    }
+
     private void prepareStart() {
         setupJobFactories();
         cleanupJob();
+        rollupJob();
+
+        if (config.isQosWriterActive()) {
+            measuredDataWriter.start();
+        }
+
+        if (eventDispatcher != null) {
+            eventDispatcher.start();
+        }
     }
 
     private void setupJobFactories() {
@@ -258,24 +330,91 @@ public class Monitor {
 
             ProbeService probeService = builderInstance
                     .getProbeService();
-            WpsProcessDataAccess wpsProcessDao = builderInstance
-                    .getWpsProcessDaoFactory().create();
+            WpsProcessDaoFactory wpsProcessDaoFactory = builderInstance
+                    .getWpsProcessDaoFactory();
             QosDaoFactory qosDaoFactory = builderInstance
                     .getQosDaoFactory();
             WpsClientFactory wpsClientFactory = builderInstance
                     .getWpsClientFactory();
 
-            MeasureJobFactory measureJobFactory = new MeasureJobFactory(probeService, wpsProcessDao, qosDaoFactory, wpsClientFactory);
+            measureJobFactory = new MeasureJobFactory(probeService, wpsProcessDaoFactory, qosDaoFactory, wpsClientFactory, measuredDataWriter);
+            measureJobFactory.warmUp();
 
-            CleanUpJobFactory cleanupJobFactory = new CleanUpJobFactory(qosDaoFactory, config.getDeleteIntervalInDays());
+            RetentionPolicy retentionPolicy = new RetentionPolicy(config.getDeleteIntervalInDays(),
+                    config.getMinuteRollupRetentionInDays(),
+                    config.getHourRollupRetentionInDays(),
+                    config.getDayRollupRetentionInDays(),
+                    config.isQosRollupActive(),
+                    config.getQosArchiveAfterDays());
+            CleanUpJobFactory cleanupJobFactory = new CleanUpJobFactory(qosDaoFactory, retentionPolicy,
+                    eventHandler, config.getDeleteBatchSize(), config.getDeleteRowsPerSecond());
 
             jobFactoryService.register(MeasureJob.class, measureJobFactory);
+            // measurements are persisted after the request has finished
+            Long rollupLag = config.getWpsClientTimeout().longValue()
+                    + config.getQosWriterFlushInterval()
+                    + 60000L;
+            RollupJobFactory rollupJobFactory = new RollupJobFactory(qosDaoFactory, rollupLag);
+
             jobFactoryService.register(CleanUpJob.class, cleanupJobFactory);
-        } catch (CreateException | BuilderException ex) {
+            jobFactoryService.register(RollupJob.class, rollupJobFactory);
+        } catch (BuilderException ex) {
             throw new AssertionError("Can't setup the Jobfactories. Execution aborted.", ex);
         }
     }
 
+    /**
+     * The MeasureJobFactory caches the process entities of the jobs; so it
+     * must be informed about changes of processes and wps. The factory
+     * instance changes at every start, the listener is registered once.
+     */
+    private void setupMeasureJobFactoryInvalidation() {
+        MonitorEventListener invalidation = new MonitorEventListener() {
+
+            @Override
+            public void execute(final MonitorEvent event) {
+                MeasureJobFactory factory = measureJobFactory;
+
+                if (factory == null) {
+                    return;
+                }
+
+                Object msg = event.getMsg();
+
+                if (msg instanceof WpsProcessEntity && hasWpsId(((WpsProcessEntity) msg).getWps())) {
+                    WpsProcessEntity process = (WpsProcessEntity) msg;
+
+                    factory.invalidate(process.getWps().getId(), process.getIdentifier());
+                } else if (msg instanceof WpsEntity && hasWpsId((WpsEntity) msg)) {
+                    factory.invalidateWps(((WpsEntity) msg).getId());
+                } else {
+                    // e.g. endpoint changes
+                    factory.clear();
+                }
+            }
+
+            private Boolean hasWpsId(final WpsEntity wps) {
+                return wps != null && wps.getId() != null;
+            }
+        };
+
+        String[] eventNames = new String[]{
+            "monitorcontrol.updateWps",
+            "monitorcontrol.deleteWps",
+            "monitorcontrol.deleteProcess",
+            "monitorcontrol.setTestRequest",
+            "monitorcontrol.resumeMonitoring"
+        };
+
+        try {
+            for (String eventName : eventNames) {
+                eventHandler.registerListener(eventName, invalidation);
+            }
+        } catch (EventNotFoundException ex) {
+            throw new AssertionError("Can't register the MeasureJobFactory invalidation. Execution aborted.", ex);
+        }
+    }
+
     /**
      * Gets the MonitorControlService.
      *
@@ -321,6 +460,27 @@ public class Monitor {
         return config;
     }
 
+    /**
+     * Gets the MeasuredDataWriter instance, e.g. to read out the queue depth
+     * and flush latency.
+     *
+     * @return MeasuredDataWriter instance
+     */
+    public MeasuredDataWriter getMeasuredDataWriter() {
+        return measuredDataWriter;
+    }
+
+    /**
+     * Gets the AsyncEventDispatcher instance, e.g. to read out the queue depth
+     * and the backpressure.
+     *
+     * @return AsyncEventDispatcher instance; null if all events are fired
+     * synchronously
+     */
+    public AsyncEventDispatcher getEventDispatcher() {
+        return eventDispatcher;
+    }
+
     /**
      * Gets the ProbeService instance.
      *
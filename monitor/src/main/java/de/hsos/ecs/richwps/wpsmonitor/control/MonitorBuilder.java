@@ -18,14 +18,21 @@ package de.hsos.ecs.richwps.wpsmonitor.control;
 import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsClient;
 import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsClientConfig;
 import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsClientFactory;
+import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.simple.SimpleAsyncWpsClientFactory;
 import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.simple.SimpleWpsClientFactory;
 import de.hsos.ecs.richwps.wpsmonitor.control.MeasureJobListener;
 import de.hsos.ecs.richwps.wpsmonitor.control.Monitor;
 import de.hsos.ecs.richwps.wpsmonitor.control.SchedulerControlService;
+import de.hsos.ecs.richwps.wpsmonitor.control.event.AsyncEventDispatcher;
+import de.hsos.ecs.richwps.wpsmonitor.control.event.EventNotFoundException;
+import de.hsos.ecs.richwps.wpsmonitor.control.event.MonitorEvent;
 import de.hsos.ecs.richwps.wpsmonitor.control.event.MonitorEventHandler;
+import de.hsos.ecs.richwps.wpsmonitor.control.event.MonitorEventListener;
 import de.hsos.ecs.richwps.wpsmonitor.control.threadsave.ThreadSaveMonitorControlService;
+import de.hsos.ecs.richwps.wpsmonitor.control.threadsave.WpsMetadataRegistry;
 import de.hsos.ecs.richwps.wpsmonitor.control.scheduler.JobFactoryService;
 import de.hsos.ecs.richwps.wpsmonitor.control.scheduler.SchedulerFactory;
+import de.hsos.ecs.richwps.wpsmonitor.control.scheduler.TriggerSpreading;
 import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
 import de.hsos.ecs.richwps.wpsmonitor.creation.Factory;
 import de.hsos.ecs.richwps.wpsmonitor.data.config.MonitorConfig;
@@ -36,10 +43,22 @@ import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDaoFactory;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDataAccess;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDaoFactory;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.archive.ArchiveStore;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.archive.ArchivedQosDaoFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.cache.CachedQosDaoFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.cache.MeasuredDataCache;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.Jpa;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.compact.CompactQosDaoFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.mapped.MappedQosDaoFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.mapped.MappedQosStore;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.partition.PartitionManager;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.partition.PartitionedQosDaoFactory;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.QosDaoDefaultFactory;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.WpsDaoDefaultFactory;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.WpsProcessDaoDefaultFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import de.hsos.ecs.richwps.wpsmonitor.measurement.MeasuredDataWriter;
 import de.hsos.ecs.richwps.wpsmonitor.measurement.ProbeService;
 import de.hsos.ecs.richwps.wpsmonitor.creation.BuilderException;
 import java.io.File;
@@ -93,6 +112,38 @@ public class MonitorBuilder {
      */
     private MeasureJobListener jobListener;
 
+    /**
+     * Write-behind queue for measured data
+     */
+    private MeasuredDataWriter measuredDataWriter;
+
+    /**
+     * Dispatcher for asynchronous events; null if all events are fired
+     * synchronously.
+     */
+    private AsyncEventDispatcher eventDispatcher;
+
+    /**
+     * MeasuredDataCache instance; null if the cache is disabled.
+     */
+    private volatile MeasuredDataCache measuredDataCache;
+
+    /**
+     * Registry of the WPS and process metadata; it changes at every
+     * reconfiguration.
+     */
+    private volatile WpsMetadataRegistry metadataRegistry;
+
+    /**
+     * PartitionManager instance; null if the measurements are not partitioned.
+     */
+    private PartitionManager partitionManager;
+
+    /**
+     * ArchiveStore instance; null if the measurements are not archived.
+     */
+    private ArchiveStore archiveStore;
+
     /**
      * Creates a MonitorBuilder instance which can be used to configure and
      * create a Monitor instance.
@@ -111,6 +162,7 @@ public class MonitorBuilder {
      */
     public Monitor build() throws BuilderException {
         try {
+            selectWpsClientFactory(buildMonitorConfig());
             buildAllPieces();
             storage.addJobListener(jobListener);
 
@@ -122,6 +174,27 @@ public class MonitorBuilder {
 
             Monitor m = new Monitor(this);
 
+            // the monitorcontrol events are registered by the monitor instance
+            setupMeasuredDataCacheInvalidation();
+            setupMetadataRegistryUpdates();
+            setupPartitionCleanUp();
+
+            // e.g. to close shared connection pools; before jpa, because
+            // asynchronous clients may persist outstanding measurements
+            Factory<WpsClient> wpsDefaultClientFactory = storage.getWpsDefaultClientFactory();
+            if (wpsDefaultClientFactory instanceof AutoCloseable) {
+                m.addShutdownRoutine((AutoCloseable) wpsDefaultClientFactory);
+            }
+
+            Factory<QosDataAccess> qosDefaultDaoFactory = storage.getQosDefaultDaoFactory();
+            if (qosDefaultDaoFactory instanceof AutoCloseable) {
+                m.addShutdownRoutine((AutoCloseable) qosDefaultDaoFactory);
+            }
+
+            if (partitionManager != null) {
+                m.addShutdownRoutine(partitionManager);
+            }
+
             if (isJpaUsed()) {
                 m.addShutdownRoutine(jpaInstance);
             }
@@ -162,15 +235,30 @@ public class MonitorBuilder {
 
     private MonitorBuilder buildAllPieces() throws BuilderException {
         monitorConfig = buildMonitorConfig();
+        measuredDataCache = buildMeasuredDataCache(monitorConfig);
         qosDaoFactory = buildQosDaoFactory();
         wpsDaoFactory = buildWpsDaoFactory();
         wpsProcessDaoFactory = buildWpsProcessDaoFactory();
+        metadataRegistry = new WpsMetadataRegistry(wpsDaoFactory, wpsProcessDaoFactory);
         wpsClientFactory = buildWpsClientFactory(buildWpsClientConfig(monitorConfig));
+        measuredDataWriter = buildMeasuredDataWriter(monitorConfig, qosDaoFactory);
+        eventDispatcher = buildEventDispatcher(monitorConfig);
         jobListener = buildMeasureJobListener();
 
         return this;
     }
 
+    /**
+     * Replaces the default WpsClientFactory by the asynchronous one, if
+     * wpsclient.async.active is set. Only done at build time, because the
+     * factory is closed by a shutdown routine of the monitor.
+     */
+    private void selectWpsClientFactory(final MonitorConfig config) throws BuilderException {
+        if (config.isWpsClientAsyncActive() && storage.getWpsDefaultClientFactory() instanceof SimpleWpsClientFactory) {
+            withDefaultAsyncWpsDefaultClientFactory();
+        }
+    }
+
     private Jpa getJpaInstance() throws BuilderException {
         if (jpaInstance == null) {
             jpaInstance = new Jpa(storage.getPersistenceUnit());
@@ -439,6 +527,20 @@ public class MonitorBuilder {
         return withWpsDefaultClientFactory(new SimpleWpsClientFactory());
     }
 
+    /**
+     * Sets the asynchronous WpsClientFactory. The
+     * {@link de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.simple.SimpleAsyncWpsClient}
+     * implementation is used, so that MeasureJobs only submit their requests
+     * and don't block the worker threads of the scheduler. It is also used
+     * instead of the default WpsClientFactory, if wpsclient.async.active is
+     * set in the properties file.
+     *
+     * @return MonitorBuilder instance
+     */
+    public MonitorBuilder withDefaultAsyncWpsDefaultClientFactory() {
+        return withWpsDefaultClientFactory(new SimpleAsyncWpsClientFactory());
+    }
+
     /**
      * Sets the default {@link QosDataAccess} factory instance. By default,
      * {@link QosDaoDefaultFactory} is used and the {@link Jpa} class will be
@@ -453,6 +555,21 @@ public class MonitorBuilder {
         return withQosDefaultDaoFactory(new QosDaoDefaultFactory(getJpaInstance()));
     }
 
+    /**
+     * Sets a {@link MappedQosDaoFactory} as default {@link QosDataAccess}
+     * factory instance. The measurements are stored in memory-mapped segment
+     * files in the given directory; the wps and process entities and the
+     * rollups are still stored by the {@link Jpa} instance.
+     *
+     * @param directory Directory of the segment files
+     * @return MonitorBuilder instance
+     * @throws BuilderException
+     */
+    public MonitorBuilder withMappedQosDaoFactory(final File directory) throws BuilderException {
+        return withQosDefaultDaoFactory(new MappedQosDaoFactory(new MappedQosStore(directory),
+                new QosDaoDefaultFactory(getJpaInstance()), new WpsProcessDaoDefaultFactory(getJpaInstance())));
+    }
+
     /**
      * Sets the default {@link WpsDataAccess} factory instance. By default,
      * {@link WpsDaoDefaultFactory} is used and the {@link Jpa} class will be
@@ -520,7 +637,30 @@ public class MonitorBuilder {
      * @throws BuilderException
      */
     public QosDaoFactory buildQosDaoFactory() throws BuilderException {
-        return new QosDaoFactory(storage.getQosDefaultDaoFactory());
+        Factory<QosDataAccess> defaultFactory = storage.getQosDefaultDaoFactory();
+        Boolean defaultJpaUsed = defaultFactory instanceof QosDaoDefaultFactory && isJpaUsed();
+
+        // the compact layout is an alternative to the default jpa data access objects
+        if (monitorConfig.isQosStorageCompact() && defaultJpaUsed) {
+            defaultFactory = new CompactQosDaoFactory(getJpaInstance());
+        }
+
+        // partitions are only supported by the default jpa data access objects
+        if (monitorConfig.isQosPartitionActive() && defaultJpaUsed) {
+            defaultFactory = new PartitionedQosDaoFactory(defaultFactory, getPartitionManager(),
+                    storage.getWpsDefaultDaoFactory());
+        }
+
+        if (monitorConfig.getQosArchiveAfterDays() > 0) {
+            defaultFactory = new ArchivedQosDaoFactory(defaultFactory, getArchiveStore(),
+                    storage.getWpsProcessDefaultDaoFactory());
+        }
+
+        if (measuredDataCache != null) {
+            defaultFactory = new CachedQosDaoFactory(defaultFactory, measuredDataCache);
+        }
+
+        return new QosDaoFactory(defaultFactory);
     }
 
     /**
@@ -541,6 +681,33 @@ public class MonitorBuilder {
         return new WpsProcessDaoFactory(storage.getWpsProcessDefaultDaoFactory());
     }
 
+    private MeasuredDataCache buildMeasuredDataCache(final MonitorConfig config) {
+        if (!config.isQosCacheActive()) {
+            return null;
+        }
+
+        return new MeasuredDataCache(config.getQosCacheSize());
+    }
+
+    private MeasuredDataWriter buildMeasuredDataWriter(final MonitorConfig config, final QosDaoFactory qosDaoFactory) {
+        return new MeasuredDataWriter(qosDaoFactory, config.getQosWriterCapacity(),
+                config.getQosWriterBatchSize(), config.getQosWriterFlushInterval());
+    }
+
+    private AsyncEventDispatcher buildEventDispatcher(final MonitorConfig config) throws BuilderException {
+        AsyncEventDispatcher dispatcher = null;
+
+        if (config.isEventDispatcherActive()) {
+            dispatcher = new AsyncEventDispatcher(storage.getEventHandler(), config.getEventDispatcherThreads(),
+                    config.getEventDispatcherCapacity());
+        }
+
+        storage.getEventHandler()
+                .setDispatcher(dispatcher);
+
+        return dispatcher;
+    }
+
     private MeasureJobListener buildMeasureJobListener() throws BuilderException {
         return new MeasureJobListener(buildWpsProcessDaoFactory(), storage.getEventHandler());
     }
@@ -553,12 +720,17 @@ public class MonitorBuilder {
         }
     }
 
+    private TriggerSpreading buildTriggerSpreading(final MonitorConfig config) {
+        return new TriggerSpreading(config.isSchedulerSpreadingActive(), config.getSchedulerSpreadingWindow().longValue(),
+                config.getSchedulerSpreadingJitter().longValue());
+    }
+
     private SchedulerControlService buildSchedulerControl() throws BuilderException {
         SchedulerFactory schedulerFactory = new SchedulerFactory(storage.getJobFactoryService(), storage.getJobListeners());
 
         try {
             Scheduler scheduler = schedulerFactory.create();
-            return new SchedulerControlService(scheduler, storage.getJobFactoryService());
+            return new SchedulerControlService(scheduler, storage.getJobFactoryService(), buildTriggerSpreading(monitorConfig));
         } catch (CreateException ex) {
             throw new BuilderException(ex);
         }
@@ -573,12 +745,22 @@ public class MonitorBuilder {
      * @throws BuilderException
      */
     public ThreadSaveMonitorControlService buildMonitorControl() throws BuilderException {
-        return new ThreadSaveMonitorControlService(buildSchedulerControl(), storage.getEventHandler(), qosDaoFactory, wpsDaoFactory, wpsProcessDaoFactory);
+        metadataRegistry.load();
+
+        return new ThreadSaveMonitorControlService(buildSchedulerControl(), storage.getEventHandler(), qosDaoFactory, wpsDaoFactory, wpsProcessDaoFactory, metadataRegistry);
     }
 
     private WpsClientConfig buildWpsClientConfig(final MonitorConfig config) throws BuilderException {
         WpsClientConfig wpsClientConfig = new WpsClientConfig();
         wpsClientConfig.setConnectionTimeout(config.getWpsClientTimeout());
+        wpsClientConfig.setMaxConnectionsTotal(config.getWpsClientMaxConnections());
+        wpsClientConfig.setMaxConnectionsPerRoute(config.getWpsClientMaxConnectionsPerRoute());
+        wpsClientConfig.setIdleConnectionTimeout(config.getWpsClientIdleTimeout());
+        wpsClientConfig.setKeepAliveDuration(config.getWpsClientKeepAlive());
+        wpsClientConfig.setColdConnection(config.isWpsClientColdConnection());
+        wpsClientConfig.setAsyncWorkers(config.getWpsClientAsyncWorkers());
+        wpsClientConfig.setAsyncQueueCapacity(config.getWpsClientAsyncCapacity());
+        wpsClientConfig.setMaxResponseBodySize(config.getWpsClientMaxBodySize());
 
         return wpsClientConfig;
     }
@@ -594,6 +776,140 @@ public class MonitorBuilder {
                 .registerEvent("monitor.restart");
         storage.getEventHandler()
                 .registerEvent("monitor.shutdown");
+        storage.getEventHandler()
+                .registerEvent("measurement.cleanup.progress");
+        storage.getEventHandler()
+                .registerEvent("measurement.cleanup.finished");
+    }
+
+    /**
+     * Processes and wps entities are deleted by their data access objects
+     * (cascade); so the cache must be informed through the events.
+     */
+    private void setupMeasuredDataCacheInvalidation() throws BuilderException {
+        MonitorEventListener invalidation = new MonitorEventListener() {
+
+            @Override
+            public void execute(final MonitorEvent event) {
+                // the cache instance changes at every reconfiguration
+                MeasuredDataCache cache = measuredDataCache;
+
+                if (cache == null) {
+                    return;
+                }
+
+                Object msg = event.getMsg();
+
+                if (msg instanceof WpsProcessEntity && hasWpsId(((WpsProcessEntity) msg).getWps())) {
+                    WpsProcessEntity process = (WpsProcessEntity) msg;
+
+                    cache.invalidate(process.getWps().getId(), process.getIdentifier());
+                } else if (msg instanceof WpsEntity && hasWpsId((WpsEntity) msg)) {
+                    cache.invalidateWps(((WpsEntity) msg).getId());
+                } else {
+                    cache.clear();
+                }
+            }
+
+            private Boolean hasWpsId(final WpsEntity wps) {
+                return wps != null && wps.getId() != null;
+            }
+        };
+
+        try {
+            storage.getEventHandler()
+                    .registerListener("monitorcontrol.deleteProcess", invalidation);
+            storage.getEventHandler()
+                    .registerListener("monitorcontrol.deleteWps", invalidation);
+        } catch (EventNotFoundException ex) {
+            throw new BuilderException(ex);
+        }
+    }
+
+    /**
+     * Keeps the metadata registry up to date; WPS and processes are created,
+     * updated and deleted by the MonitorControlService, which fires the
+     * events.
+     */
+    private void setupMetadataRegistryUpdates() throws BuilderException {
+        MonitorEventListener update = new MonitorEventListener() {
+
+            @Override
+            public void execute(final MonitorEvent event) {
+                metadataRegistry.execute(event);
+            }
+        };
+
+        String[] eventNames = new String[]{
+            "monitorcontrol.createWps",
+            "monitorcontrol.createAndScheduleProcess",
+            "monitorcontrol.updateWps",
+            "monitorcontrol.deleteWps",
+            "monitorcontrol.deleteProcess"
+        };
+
+        try {
+            for (String eventName : eventNames) {
+                storage.getEventHandler()
+                        .registerListener(eventName, update);
+            }
+        } catch (EventNotFoundException ex) {
+            throw new BuilderException(ex);
+        }
+    }
+
+    /**
+     * The partitions hold copies of the wps and process entities; so they
+     * must be removed too.
+     */
+    private void setupPartitionCleanUp() throws BuilderException {
+        if (partitionManager == null) {
+            return;
+        }
+
+        MonitorEventListener cleanUp = new MonitorEventListener() {
+
+            @Override
+            public void execute(final MonitorEvent event) {
+                Object msg = event.getMsg();
+
+                if (msg instanceof WpsProcessEntity) {
+                    WpsProcessEntity process = (WpsProcessEntity) msg;
+
+                    if (process.getWps() != null && process.getWps().getId() != null) {
+                        partitionManager.removeProcess(process.getWps().getId(), process.getIdentifier());
+                    }
+                } else if (msg instanceof WpsEntity && ((WpsEntity) msg).getId() != null) {
+                    partitionManager.removeWps(((WpsEntity) msg).getId());
+                }
+            }
+        };
+
+        try {
+            storage.getEventHandler()
+                    .registerListener("monitorcontrol.deleteProcess", cleanUp);
+            storage.getEventHandler()
+                    .registerListener("monitorcontrol.deleteWps", cleanUp);
+        } catch (EventNotFoundException ex) {
+            throw new BuilderException(ex);
+        }
+    }
+
+    private PartitionManager getPartitionManager() throws BuilderException {
+        if (partitionManager == null) {
+            partitionManager = new PartitionManager(storage.getPersistenceUnit(), new File("Database"), "MonitoredData_");
+            partitionManager.open();
+        }
+
+        return partitionManager;
+    }
+
+    private ArchiveStore getArchiveStore() {
+        if (archiveStore == null) {
+            archiveStore = new ArchiveStore(new File("Database", "Archive"));
+        }
+
+        return archiveStore;
     }
 
     private Boolean isJpaUsed() {
@@ -636,6 +952,43 @@ public class MonitorBuilder {
         return wpsProcessDaoFactory;
     }
 
+    /**
+     * Gets the configured MeasuredDataWriter instance.
+     *
+     * @return MeasuredDataWriter instance
+     */
+    public MeasuredDataWriter getMeasuredDataWriter() {
+        return measuredDataWriter;
+    }
+
+    /**
+     * Gets the configured AsyncEventDispatcher instance.
+     *
+     * @return AsyncEventDispatcher instance; null if all events are fired
+     * synchronously
+     */
+    public AsyncEventDispatcher getEventDispatcher() {
+        return eventDispatcher;
+    }
+
+    /**
+     * Gets the configured MeasuredDataCache instance.
+     *
+     * @return MeasuredDataCache instance; null if the cache is disabled
+     */
+    public MeasuredDataCache getMeasuredDataCache() {
+        return measuredDataCache;
+    }
+
+    /**
+     * Gets the WpsMetadataRegistry instance.
+     *
+     * @return WpsMetadataRegistry instance
+     */
+    public WpsMetadataRegistry getMetadataRegistry() {
+        return metadataRegistry;
+    }
+
     /**
      * Gets the configured WpsClientFactory instance.
      *
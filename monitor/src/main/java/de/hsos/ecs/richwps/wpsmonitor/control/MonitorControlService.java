@@ -16,10 +16,19 @@
 package de.hsos.ecs.richwps.wpsmonitor.control;
 
 import de.hsos.ecs.richwps.wpsmonitor.control.scheduler.TriggerConfig;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Cursor;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosRecord;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Range;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessSummary;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataRollupEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.RollupGranularity;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.exchange.ExchangeFormat;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.net.URL;
 import java.util.Date;
 import java.util.List;
@@ -69,6 +78,36 @@ public interface MonitorControlService {
      */
     public Boolean createAndScheduleProcess(final WpsProcessEntity processEntity);
 
+    /**
+     * Creates and stores a {@link WpsProcessEntity} instance for each of the
+     * given process identifiers and registers their Jobs in the scheduler,
+     * like createAndScheduleProcess. All processes are stored in one
+     * transaction and all jobs are registered with one scheduler call; so
+     * thousands of processes can be added at once. Identifiers which already
+     * exist are skipped.
+     *
+     * @param endpoint The Endpoint of the WPS
+     * @param processIdentifiers WpsProcessEntity identifiers
+     * @return List of the created WpsProcessEntity instances; empty if the
+     * transaction failed or null if the wps doesn't exist
+     */
+    public List<WpsProcessEntity> createAndScheduleProcesses(final URL endpoint, final List<String> processIdentifiers);
+
+    /**
+     * Creates and stores a {@link WpsProcessEntity} instance for each of the
+     * given process identifiers and registers their Jobs in the scheduler,
+     * like createAndScheduleProcess. All processes are stored in one
+     * transaction and all jobs are registered with one scheduler call; so
+     * thousands of processes can be added at once. Identifiers which already
+     * exist are skipped.
+     *
+     * @param wpsId The intern Database ID of the WPS
+     * @param processIdentifiers WpsProcessEntity identifiers
+     * @return List of the created WpsProcessEntity instances; empty if the
+     * transaction failed or null if the wps doesn't exist
+     */
+    public List<WpsProcessEntity> createAndScheduleProcesses(final Long wpsId, final List<String> processIdentifiers);
+
     /**
      * Stores a {@link WpsEntity} instance. Fires a "monitorcontrol.createWps"
      * event.
@@ -250,6 +289,68 @@ public interface MonitorControlService {
      */
     public List<MeasuredDataEntity> getMeasuredData(final Long wpsId, final String processIdentifier, final Range range);
 
+    /**
+     * Gets at most "limit" {@link MeasuredDataEntity} instances of the specific
+     * {@link WpsProcessEntity} which are older as the given {@link Cursor}
+     * position, newest first. Other than a {@link Range}, every page costs the
+     * same, no matter how deep the caller pages.
+     *
+     * @param wpsId The intern Database ID of the WPS
+     * @param processIdentifier WpsProcessEntity identifier
+     * @param before {@link Cursor} instance; null for the first page
+     * @param limit Max. amount of MeasuredDataEntity instances
+     * @return List of MeasuredDataEntity instances
+     */
+    public List<MeasuredDataEntity> getMeasuredData(final Long wpsId, final String processIdentifier,
+            final Cursor before, final Integer limit);
+
+    /**
+     * Gets the {@link QosRecord}s of the same measurements as
+     * getMeasuredData(wpsId, processIdentifier, before, limit). Records hold
+     * only the qos entities and the createTime, so this is the cheap way to
+     * calculate metrics.
+     *
+     * @param wpsId The intern Database ID of the WPS
+     * @param processIdentifier WpsProcessEntity identifier
+     * @param before {@link Cursor} instance; null for the first page
+     * @param limit Max. amount of measurements
+     * @return List of QosRecord instances, newest measurement first
+     */
+    public List<QosRecord> getMeasuredRecords(final Long wpsId, final String processIdentifier,
+            final Cursor before, final Integer limit);
+
+    /**
+     * Streams the measured data of the specific {@link WpsProcessEntity}
+     * into the given writer, newest first. The memory usage doesn't depend on
+     * the amount of measured data.
+     *
+     * @param wpsId The intern Database ID of the WPS
+     * @param processIdentifier WpsProcessEntity identifier
+     * @param since Only measured data which is not older is exported; null
+     * for all
+     * @param format {@link ExchangeFormat} of the lines
+     * @param writer Writer instance; it is not closed
+     * @return Amount of exported measurements
+     * @throws IOException if the writer fails
+     */
+    public Integer exportMeasuredData(final Long wpsId, final String processIdentifier, final Date since,
+            final ExchangeFormat format, final Writer writer) throws IOException;
+
+    /**
+     * Imports measured data which was exported by exportMeasuredData into
+     * the specific {@link WpsProcessEntity}. The measurements are stored in
+     * batches; invalid lines are skipped.
+     *
+     * @param wpsId The intern Database ID of the WPS
+     * @param processIdentifier WpsProcessEntity identifier
+     * @param format {@link ExchangeFormat} of the lines
+     * @param reader Reader instance; it is not closed
+     * @return Amount of imported measurements
+     * @throws IOException if the reader fails
+     */
+    public Integer importMeasuredData(final Long wpsId, final String processIdentifier,
+            final ExchangeFormat format, final Reader reader) throws IOException;
+
     /**
      * Gets all {@link MeasuredDataEntity} instances which were stored in the
      * Jobs' measure process of the given {@link WpsProcessEntity}.
@@ -283,6 +384,21 @@ public interface MonitorControlService {
      */
     public List<MeasuredDataEntity> getMeasuredData(final WpsProcessEntity processEntity, final Range range);
 
+    /**
+     * Gets all {@link MeasuredDataRollupEntity} instances of the specific
+     * {@link WpsProcessEntity} which is identified by wpsId and
+     * processIdentifier, whose bucket starts in the interval [from, to).
+     *
+     * @param wpsId The intern Database ID of the WPS
+     * @param processIdentifier WpsProcessEntity identifier
+     * @param granularity {@link RollupGranularity} of the buckets
+     * @param from Inclusive start
+     * @param to Exclusive end
+     * @return List of MeasuredDataRollupEntity instances
+     */
+    public List<MeasuredDataRollupEntity> getRollups(final Long wpsId, final String processIdentifier,
+            final RollupGranularity granularity, final Date from, final Date to);
+
     /**
      * Gets an WpsProcessEntity instance which matches the given WPS endpoint 
      * and Process identifier.
@@ -330,6 +446,28 @@ public interface MonitorControlService {
      */
     public List<WpsProcessEntity> getProcesses(final WpsEntity wpsEntity);
 
+    /**
+     * Gets the {@link WpsProcessSummary} instances of all processes of the
+     * {@link WpsEntity} which is identified by the endpoint. In contrast to
+     * getProcesses, the test requests are not loaded.
+     *
+     * @param endpoint WPS Endpoint
+     * @return List of WpsProcessSummary instances or null if the wps doesn't
+     * exist
+     */
+    public List<WpsProcessSummary> getProcessSummaries(final URL endpoint);
+
+    /**
+     * Gets the {@link WpsProcessSummary} instances of all processes of the
+     * {@link WpsEntity} which is identified by wpsId. In contrast to
+     * getProcesses, the test requests are not loaded.
+     *
+     * @param wpsId The intern Database ID of the WPS
+     * @return List of WpsProcessSummary instances or null if the wps doesn't
+     * exist
+     */
+    public List<WpsProcessSummary> getProcessSummaries(final Long wpsId);
+
     /**
      * Gets all {@link TriggerConfig} instances of a specific Job.
      *
@@ -539,6 +677,41 @@ public interface MonitorControlService {
      */
     public TriggerConfig saveTrigger(final WpsProcessEntity processEntity, final TriggerConfig config);
 
+    /**
+     * Creates a new trigger with the given config for each of the given
+     * processes with one scheduler call. Unknown process identifiers are
+     * skipped.
+     *
+     * @param endpoint WPS endpoint
+     * @param processIdentifiers WpsProcessEntity identifiers
+     * @param config {@link TriggerConfig} instance
+     * @return List of the created {@link TriggerConfig} instances; null if the
+     * wps doesn't exist
+     */
+    public List<TriggerConfig> saveTriggers(final URL endpoint, final List<String> processIdentifiers, final TriggerConfig config);
+
+    /**
+     * Creates a new trigger with the given config for each of the given
+     * processes with one scheduler call. Unknown process identifiers are
+     * skipped.
+     *
+     * @param wpsId The intern Database ID of the WPS
+     * @param processIdentifiers WpsProcessEntity identifiers
+     * @param config {@link TriggerConfig} instance
+     * @return List of the created {@link TriggerConfig} instances; null if the
+     * wps doesn't exist
+     */
+    public List<TriggerConfig> saveTriggers(final Long wpsId, final List<String> processIdentifiers, final TriggerConfig config);
+
+    /**
+     * Moves the start times of all registred triggers, which are not spread
+     * yet, so that the triggers of the processes don't fire at the same time.
+     * The triggers keep their keys.
+     *
+     * @return List of the moved {@link TriggerConfig} instances
+     */
+    public List<TriggerConfig> rebalanceTriggers();
+
     /**
      * Sets a test request string to {@link WpsProcessEntity} instance which
      * matches the given WPS endpoint and processIdentifier.
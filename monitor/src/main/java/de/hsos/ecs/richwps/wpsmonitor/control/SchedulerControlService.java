@@ -17,14 +17,25 @@ package de.hsos.ecs.richwps.wpsmonitor.control;
 
 import de.hsos.ecs.richwps.wpsmonitor.control.scheduler.JobFactoryService;
 import de.hsos.ecs.richwps.wpsmonitor.control.scheduler.TriggerConfig;
+import de.hsos.ecs.richwps.wpsmonitor.control.scheduler.TriggerSpreading;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
 import de.hsos.ecs.richwps.wpsmonitor.measurement.MeasureJob;
 import de.hsos.ecs.richwps.wpsmonitor.measurement.MeasureJobFactory;
 import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.quartz.CalendarIntervalScheduleBuilder;
 import org.quartz.CalendarIntervalTrigger;
 import org.quartz.DateBuilder;
@@ -44,16 +55,90 @@ import org.quartz.impl.triggers.CalendarIntervalTriggerImpl;
  * Holds a Quartz-{@link Scheduler} instance and delegates some complex
  * interactions.
  *
+ * The Scheduler itself is thread-safe; the locks of this class only keep the
+ * compound interactions (e.g. read the job and add a trigger) consistent.
+ * Every job group (the wps id) is guarded by a read/write lock of a fixed set
+ * of lock stripes, so calls for different WPS don't wait for each other.
+ * Mutations of a group take the write lock, reads take the read lock.
+ *
+ * The start times of new triggers are spread by a {@link TriggerSpreading}
+ * policy, so that the triggers of many processes don't fire at once.
+ *
  * @author Florian Vogelpohl <floriantobias@gmail.com>
  */
 public final class SchedulerControlService {
 
+    /**
+     * Amount of lock stripes for the job groups.
+     */
+    private static final Integer LOCK_STRIPES = 32;
+
     protected final Scheduler scheduler;
     protected final JobFactoryService jobFactoryService;
 
+    private final ReadWriteLock[] groupLocks;
+
+    private volatile TriggerSpreading spreading;
+
     public SchedulerControlService(final Scheduler scheduler, final JobFactoryService jobFactoryService) {
+        this(scheduler, jobFactoryService, TriggerSpreading.none());
+    }
+
+    public SchedulerControlService(final Scheduler scheduler, final JobFactoryService jobFactoryService,
+            final TriggerSpreading spreading) {
         this.scheduler = Validate.notNull(scheduler, "scheduler");
         this.jobFactoryService = Validate.notNull(jobFactoryService, "jobFactoryService");
+        this.spreading = Validate.notNull(spreading, "spreading");
+        this.groupLocks = new ReadWriteLock[LOCK_STRIPES];
+
+        for (int i = 0; i < groupLocks.length; i++) {
+            groupLocks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * Gets the lock stripe of the given job or trigger group.
+     *
+     * @param group Group name
+     * @return ReadWriteLock instance
+     */
+    private ReadWriteLock lockOf(final String group) {
+        return groupLocks[stripeOf(group)];
+    }
+
+    private Integer stripeOf(final String group) {
+        return (group.hashCode() & Integer.MAX_VALUE) % groupLocks.length;
+    }
+
+    /**
+     * Takes the write locks of all given groups; always in the order of the
+     * stripes, so two batches can't deadlock each other.
+     *
+     * @param groups Group names
+     * @return The taken locks, for unlockAll
+     */
+    private List<Lock> lockAll(final Collection<String> groups) {
+        Set<Integer> stripes = new TreeSet<>();
+
+        for (String group : groups) {
+            stripes.add(stripeOf(group));
+        }
+
+        List<Lock> locks = new ArrayList<>();
+
+        for (Integer stripe : stripes) {
+            Lock lock = groupLocks[stripe].writeLock();
+            lock.lock();
+            locks.add(lock);
+        }
+
+        return locks;
+    }
+
+    private void unlockAll(final List<Lock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
     }
 
     /**
@@ -83,13 +168,19 @@ public final class SchedulerControlService {
      * @return jobKey
      * @throws SchedulerException
      */
-    public synchronized JobKey addJob(final JobKey jobKey, final Class<? extends Job> jobClass) throws SchedulerException {
+    public JobKey addJob(final JobKey jobKey, final Class<? extends Job> jobClass) throws SchedulerException {
         JobDetail newJob = org.quartz.JobBuilder.newJob(jobClass)
                 .storeDurably()
-                .withIdentity(jobKey)
+                .withIdentity(Validate.notNull(jobKey, "jobKey"))
                 .build();
 
-        scheduler.addJob(newJob, true);
+        Lock lock = lockOf(jobKey.getGroup()).writeLock();
+        lock.lock();
+        try {
+            scheduler.addJob(newJob, true);
+        } finally {
+            lock.unlock();
+        }
 
         return newJob.getKey();
     }
@@ -100,8 +191,14 @@ public final class SchedulerControlService {
      * @param job
      * @throws SchedulerException
      */
-    public synchronized void pauseJob(final JobKey job) throws SchedulerException {
-        scheduler.pauseJob(job);
+    public void pauseJob(final JobKey job) throws SchedulerException {
+        Lock lock = lockOf(Validate.notNull(job, "job").getGroup()).writeLock();
+        lock.lock();
+        try {
+            scheduler.pauseJob(job);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -111,7 +208,7 @@ public final class SchedulerControlService {
      * @return The jobKey, name = wpsProcess identifier, group = wps identifier
      * @throws SchedulerException
      */
-    public synchronized JobKey addWpsAsJob(final WpsProcessEntity process) throws SchedulerException {
+    public JobKey addWpsAsJob(final WpsProcessEntity process) throws SchedulerException {
         Long wpsId = process.getWps().getId(); 
         String processIdentifier = process.getIdentifier();
         
@@ -123,6 +220,108 @@ public final class SchedulerControlService {
         return addJob(wpsJobKey, MeasureJob.class);
     }
 
+    /**
+     * Adds the measurement jobs of the given processes with one scheduler
+     * call (and so in one job store transaction). Existing jobs are replaced,
+     * like by addWpsAsJob.
+     *
+     * @param processes WpsProcessEntity instances
+     * @return The jobKeys, name = wpsProcess identifier, group = wps id
+     * @throws SchedulerException
+     */
+    public List<JobKey> addWpsAsJobs(final List<WpsProcessEntity> processes) throws SchedulerException {
+        Map<JobDetail, Set<? extends Trigger>> jobs = new LinkedHashMap<>();
+        Set<String> groups = new HashSet<>();
+
+        for (WpsProcessEntity process : Validate.notNull(processes, "processes")) {
+            Long wpsId = Validate.notNull(process.getWps().getId(), "wpsId");
+            String processIdentifier = Validate.notNull(process.getIdentifier(), "processIdentifier");
+
+            JobDetail newJob = org.quartz.JobBuilder.newJob(MeasureJob.class)
+                    .storeDurably()
+                    .withIdentity(new JobKey(processIdentifier, wpsId.toString()))
+                    .build();
+
+            jobs.put(newJob, Collections.<Trigger>emptySet());
+            groups.add(wpsId.toString());
+        }
+
+        List<JobKey> result = new ArrayList<>();
+
+        if (!jobs.isEmpty()) {
+            List<Lock> locks = lockAll(groups);
+            try {
+                scheduler.scheduleJobs(jobs, true);
+            } finally {
+                unlockAll(locks);
+            }
+
+            for (JobDetail job : jobs.keySet()) {
+                result.add(job.getKey());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Adds a trigger with the given config to each of the given jobs with one
+     * scheduler call (and so in one job store transaction). No trigger is
+     * added, if one of the jobs doesn't exist.
+     *
+     * @param jobKeys To these jobs are the triggers added
+     * @param config Config with schedule informations
+     * @return New TriggerConfig instances based on the given one but with a
+     * triggerkey; in the order of the jobKeys
+     * @throws SchedulerException
+     */
+    public List<TriggerConfig> addTriggerToJobs(final List<JobKey> jobKeys, final TriggerConfig config) throws SchedulerException {
+        Validate.notNull(config, "config");
+
+        Set<String> groups = new HashSet<>();
+
+        for (JobKey jobKey : Validate.notNull(jobKeys, "jobKeys")) {
+            groups.add(Validate.notNull(jobKey, "jobKey").getGroup());
+        }
+
+        List<TriggerConfig> result = new ArrayList<>();
+        List<Lock> locks = lockAll(groups);
+
+        try {
+            Map<JobDetail, Set<? extends Trigger>> jobs = new LinkedHashMap<>();
+            Map<JobKey, Set<Trigger>> triggersOfJob = new LinkedHashMap<>();
+
+            for (JobKey jobKey : jobKeys) {
+                JobDetail forJob = scheduler.getJobDetail(jobKey);
+
+                if (forJob == null) {
+                    throw new SchedulerException("addTriggerToJobs failed because no job was found for the given JobKey: " + jobKey.toString());
+                }
+
+                if (!triggersOfJob.containsKey(jobKey)) {
+                    triggersOfJob.put(jobKey, new HashSet<Trigger>());
+                    jobs.put(forJob, triggersOfJob.get(jobKey));
+                }
+
+                Trigger newTrigger = createTriggerWithStartAndEnd(forJob, config);
+                triggersOfJob.get(jobKey).add(newTrigger);
+
+                TriggerConfig newConfig = new TriggerConfig(config);
+                newConfig.setStart(newTrigger.getStartTime());
+                newConfig.setTriggerKey(newTrigger.getKey().getName(), newTrigger.getKey().getGroup());
+                result.add(newConfig);
+            }
+
+            if (!jobs.isEmpty()) {
+                // the jobs are stored again, because the job store expects the details
+                scheduler.scheduleJobs(jobs, true);
+            }
+        } finally {
+            unlockAll(locks);
+        }
+
+        return result;
+    }
 
     /**
      * Adds a trigger to a job; internally calendarIntervalSchedule is used.
@@ -133,19 +332,28 @@ public final class SchedulerControlService {
      * triggerkey
      * @throws SchedulerException
      */
-    public synchronized TriggerConfig addTriggerToJob(final JobKey jobKey, final TriggerConfig config) throws SchedulerException {
-        // Get JobDetail
-        JobDetail forJob = scheduler.getJobDetail(Validate.notNull(jobKey, "jobKey"));
+    public TriggerConfig addTriggerToJob(final JobKey jobKey, final TriggerConfig config) throws SchedulerException {
+        Lock lock = lockOf(Validate.notNull(jobKey, "jobKey").getGroup()).writeLock();
+        Trigger newTrigger;
 
-        if (forJob == null) {
-            throw new SchedulerException("addTriggerToJob failed because no job was found for the given JobKey: " + jobKey.toString());
-        }
+        lock.lock();
+        try {
+            // Get JobDetail
+            JobDetail forJob = scheduler.getJobDetail(jobKey);
+
+            if (forJob == null) {
+                throw new SchedulerException("addTriggerToJob failed because no job was found for the given JobKey: " + jobKey.toString());
+            }
 
-        Trigger newTrigger = createTriggerWithStartAndEnd(forJob, config);
+            newTrigger = createTriggerWithStartAndEnd(forJob, config);
 
-        scheduler.scheduleJob(newTrigger);
+            scheduler.scheduleJob(newTrigger);
+        } finally {
+            lock.unlock();
+        }
 
         TriggerConfig newConfig = new TriggerConfig(config);
+        newConfig.setStart(newTrigger.getStartTime());
         newConfig.setTriggerKey(newTrigger.getKey().getName(), newTrigger.getKey().getGroup());
 
         return newConfig;
@@ -159,21 +367,8 @@ public final class SchedulerControlService {
      * otherwise false
      * @throws SchedulerException
      */
-    public synchronized Boolean isTriggerRegistred(final TriggerKey triggerKey) throws SchedulerException {
-        List<String> triggerGroupNames = scheduler.getTriggerGroupNames();
-        Boolean matched = false;
-
-        for (String triggerGroupName : triggerGroupNames) {
-            Set<TriggerKey> triggerKeys = scheduler.getTriggerKeys(GroupMatcher.triggerGroupEquals(triggerGroupName));
-
-            for (TriggerKey k : triggerKeys) {
-                if (triggerKey.equals(k)) {
-                    matched = true;
-                }
-            }
-        }
-
-        return matched;
+    public Boolean isTriggerRegistred(final TriggerKey triggerKey) throws SchedulerException {
+        return scheduler.checkExists(Validate.notNull(triggerKey, "triggerKey"));
     }
 
     /**
@@ -184,21 +379,8 @@ public final class SchedulerControlService {
      * @return True if the jobKey is already registred in the scheduler
      * @throws SchedulerException
      */
-    public synchronized Boolean isJobRegistred(final JobKey jobKey) throws SchedulerException {
-        List<String> jobGroupNames = scheduler.getJobGroupNames();
-        Boolean matched = false;
-
-        for (String jobGroupName : jobGroupNames) {
-            Set<JobKey> jobKeys = scheduler.getJobKeys(GroupMatcher.jobGroupEquals(jobGroupName));
-
-            for (JobKey k : jobKeys) {
-                if (jobKey.equals(k)) {
-                    matched = true;
-                }
-            }
-        }
-
-        return matched;
+    public Boolean isJobRegistred(final JobKey jobKey) throws SchedulerException {
+        return scheduler.checkExists(Validate.notNull(jobKey, "jobKey"));
     }
 
     // TODO Not necessary yet because the change of use wps ids instead of wpsidentifier
@@ -232,27 +414,32 @@ public final class SchedulerControlService {
     }*/
 
     /**
-     * Creates a trigger by the given {@link TriggerConfig}.
+     * Creates a trigger by the given {@link TriggerConfig}; the start is
+     * spread by the {@link TriggerSpreading} policy.
      *
      * @param forJob For which job
      * @param config TriggerConfig instance
      * @return Trigger Object
      */
-    private synchronized Trigger createTriggerWithStartAndEnd(final JobDetail forJob, final TriggerConfig config) {
+    private Trigger createTriggerWithStartAndEnd(final JobDetail forJob, final TriggerConfig config) {
         Validate.notNull(forJob, "forJob");
         Validate.notNull(config, "config");
 
-        Trigger newTrigger;
-
         String jGroup = forJob.getKey().getGroup();
         String tName = UUID.randomUUID().toString();
 
+        return createTrigger(forJob.getKey(), new TriggerKey(tName, jGroup), spreading.spread(forJob.getKey(), config), config);
+    }
+
+    private Trigger createTrigger(final JobKey forJob, final TriggerKey triggerKey, final Date start, final TriggerConfig config) {
+        Trigger newTrigger;
+
         // Build Trigger
         TriggerBuilder builder = org.quartz.TriggerBuilder.newTrigger()
                 .forJob(forJob)
-                .startAt(config.getStart())
+                .startAt(start)
                 .endAt(config.getEnd())
-                .withIdentity(tName, jGroup);
+                .withIdentity(triggerKey);
 
         ScheduleBuilder scheduleBuilder = getScheduleBuilder(config);
 
@@ -309,14 +496,97 @@ public final class SchedulerControlService {
         return scheduleBuilder;
     }
 
+    /**
+     * Moves the start of all registred triggers, which are not spread yet, to
+     * the phase of their job. The triggers keep their keys, interval and end;
+     * the new start is not in the past, so the rebalancing doesn't cause
+     * misfires. Paused triggers stay paused.
+     *
+     * @return The configs of the moved triggers
+     * @throws SchedulerException
+     */
+    public List<TriggerConfig> rebalanceTriggers() throws SchedulerException {
+        List<TriggerConfig> result = new ArrayList<>();
+
+        if (!spreading.isActive()) {
+            return result;
+        }
+
+        for (String group : scheduler.getTriggerGroupNames()) {
+            Lock lock = lockOf(group).writeLock();
+
+            lock.lock();
+            try {
+                for (TriggerKey triggerKey : scheduler.getTriggerKeys(GroupMatcher.triggerGroupEquals(group))) {
+                    TriggerConfig moved = rebalanceTrigger(triggerKey);
+
+                    if (moved != null) {
+                        result.add(moved);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        return result;
+    }
+
+    private TriggerConfig rebalanceTrigger(final TriggerKey triggerKey) throws SchedulerException {
+        Trigger trigger = scheduler.getTrigger(triggerKey);
+
+        if (trigger == null || trigger.getNextFireTime() == null) {
+            return null;
+        }
+
+        TriggerConfig config = getConfigOfTrigger(trigger);
+
+        if (config == null) {
+            return null;
+        }
+
+        // a started trigger is in phase if its next fire time is
+        TriggerConfig next = new TriggerConfig(config);
+        next.setStart(trigger.getNextFireTime());
+
+        if (spreading.isSpread(trigger.getJobKey(), next)) {
+            return null;
+        }
+
+        TriggerConfig moved = new TriggerConfig(config);
+        moved.setStart(spreading.spread(trigger.getJobKey(), next, new Date()));
+
+        if (!spreading.isSpread(trigger.getJobKey(), moved)) {
+            // can't be spread, e.g. because the end is too close
+            return null;
+        }
+
+        Boolean paused = scheduler.getTriggerState(triggerKey) == Trigger.TriggerState.PAUSED;
+        Trigger newOne = createTrigger(trigger.getJobKey(), triggerKey, moved.getStart(), config);
+
+        scheduler.rescheduleJob(triggerKey, newOne);
+
+        if (paused) {
+            scheduler.pauseTrigger(triggerKey);
+        }
+
+        return moved;
+    }
+
     /**
      * Removes a trigger which is identified by the given {@link TriggerKey}.
      *
      * @param triggerKey {@link TriggerKey} instance
      * @throws SchedulerException
      */
-    public synchronized void removeTrigger(final TriggerKey triggerKey) throws SchedulerException {
-        scheduler.unscheduleJob(triggerKey);
+    public void removeTrigger(final TriggerKey triggerKey) throws SchedulerException {
+        Lock lock = lockOf(Validate.notNull(triggerKey, "triggerKey").getGroup()).writeLock();
+        lock.lock();
+        try {
+            scheduler.unscheduleJob(triggerKey);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -325,7 +595,7 @@ public final class SchedulerControlService {
      * @param triggerConfig {@link TriggerConfig} instance
      * @throws SchedulerException
      */
-    public synchronized void removeTrigger(final TriggerConfig triggerConfig) throws SchedulerException {
+    public void removeTrigger(final TriggerConfig triggerConfig) throws SchedulerException {
         Validate.notNull(triggerConfig, "triggerConfig");
         if (triggerConfig.getTriggerKey() != null) {
             TriggerKey key = new TriggerKey(triggerConfig.getTriggerName(), triggerConfig.getTriggerGroup());
@@ -339,8 +609,14 @@ public final class SchedulerControlService {
      * @param jobKey JobKey instance
      * @throws SchedulerException
      */
-    public synchronized void removeJob(final JobKey jobKey) throws SchedulerException {
-        scheduler.deleteJob(jobKey);
+    public void removeJob(final JobKey jobKey) throws SchedulerException {
+        Lock lock = lockOf(Validate.notNull(jobKey, "jobKey").getGroup()).writeLock();
+        lock.lock();
+        try {
+            scheduler.deleteJob(jobKey);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -350,14 +626,22 @@ public final class SchedulerControlService {
      * @return true if is sucessfully removed
      * @throws SchedulerException
      */
-    public synchronized Boolean removeWpsJobs(final Long wpsId) throws SchedulerException {
-        Set<JobKey> jobKeys = scheduler.getJobKeys(GroupMatcher.jobGroupEquals(wpsId.toString()));
+    public Boolean removeWpsJobs(final Long wpsId) throws SchedulerException {
+        String group = Validate.notNull(wpsId, "wpsId").toString();
+        Lock lock = lockOf(group).writeLock();
         Boolean result = false;
 
-        if (!jobKeys.isEmpty()) {
-            List<JobKey> toDelete = new ArrayList<>(jobKeys);
+        lock.lock();
+        try {
+            Set<JobKey> jobKeys = scheduler.getJobKeys(GroupMatcher.jobGroupEquals(group));
+
+            if (!jobKeys.isEmpty()) {
+                List<JobKey> toDelete = new ArrayList<>(jobKeys);
 
-            result = scheduler.deleteJobs(toDelete);
+                result = scheduler.deleteJobs(toDelete);
+            }
+        } finally {
+            lock.unlock();
         }
 
         return result;
@@ -371,22 +655,30 @@ public final class SchedulerControlService {
      * @return The new TriggerConfig
      * @throws SchedulerException
      */
-    public synchronized TriggerConfig updateTrigger(final TriggerConfig config) throws SchedulerException {
+    public TriggerConfig updateTrigger(final TriggerConfig config) throws SchedulerException {
         Validate.notNull(config, "config");
         Validate.notNull(config.getTriggerKey(), "config's TriggerKey");
 
         TriggerKey key = new TriggerKey(config.getTriggerName(), config.getTriggerGroup());
-
-        JobDetail jobDetail = scheduler.getJobDetail(scheduler
-                .getTrigger(key)
-                .getJobKey()
-        );
-
-        // replace old trigger with a new one
-        Trigger newOne = createTriggerWithStartAndEnd(jobDetail, config);
-        scheduler.rescheduleJob(key, newOne);
+        Lock lock = lockOf(key.getGroup()).writeLock();
+        Trigger newOne;
+
+        lock.lock();
+        try {
+            JobDetail jobDetail = scheduler.getJobDetail(scheduler
+                    .getTrigger(key)
+                    .getJobKey()
+            );
+
+            // replace old trigger with a new one
+            newOne = createTriggerWithStartAndEnd(jobDetail, config);
+            scheduler.rescheduleJob(key, newOne);
+        } finally {
+            lock.unlock();
+        }
 
         TriggerConfig updatedTrigger = new TriggerConfig(config);
+        updatedTrigger.setStart(newOne.getStartTime());
         updatedTrigger.setTriggerKey(newOne.getKey().getName(), newOne.getKey().getGroup());
 
         return updatedTrigger;
@@ -400,7 +692,7 @@ public final class SchedulerControlService {
      * @return List of TriggerKey-instances that matches the given JobKey
      * @throws SchedulerException
      */
-    public synchronized List<TriggerKey> getTriggerKeysOfJob(final JobKey jobKey) throws SchedulerException {
+    public List<TriggerKey> getTriggerKeysOfJob(final JobKey jobKey) throws SchedulerException {
         List<TriggerKey> result = new ArrayList<>();
 
         for (Trigger t : getTriggers(jobKey)) {
@@ -422,8 +714,14 @@ public final class SchedulerControlService {
      * @return List of triggers
      * @throws SchedulerException
      */
-    private synchronized List<? extends Trigger> getTriggers(final JobKey jobKey) throws SchedulerException {
-        return scheduler.getTriggersOfJob(jobKey);
+    private List<? extends Trigger> getTriggers(final JobKey jobKey) throws SchedulerException {
+        Lock lock = lockOf(Validate.notNull(jobKey, "jobKey").getGroup()).readLock();
+        lock.lock();
+        try {
+            return scheduler.getTriggersOfJob(jobKey);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -451,8 +749,16 @@ public final class SchedulerControlService {
      * @return TriggerConfig instance
      * @throws SchedulerException
      */
-    public synchronized TriggerConfig getConfigOfTrigger(final TriggerKey triggerKey) throws SchedulerException {
-        Trigger trigger = scheduler.getTrigger(triggerKey);
+    public TriggerConfig getConfigOfTrigger(final TriggerKey triggerKey) throws SchedulerException {
+        Lock lock = lockOf(Validate.notNull(triggerKey, "triggerKey").getGroup()).readLock();
+        Trigger trigger;
+
+        lock.lock();
+        try {
+            trigger = scheduler.getTrigger(triggerKey);
+        } finally {
+            lock.unlock();
+        }
 
         return getConfigOfTrigger(trigger);
     }
@@ -464,7 +770,7 @@ public final class SchedulerControlService {
      * @param trigger Trigger instance
      * @return TriggerConfig instance
      */
-    private synchronized TriggerConfig getConfigOfTrigger(final Trigger trigger) {
+    private TriggerConfig getConfigOfTrigger(final Trigger trigger) {
         TriggerConfig triggerConfig = null;
 
         // save cast!
@@ -493,14 +799,20 @@ public final class SchedulerControlService {
      * @return true if paused, otherwise false
      * @throws SchedulerException
      */
-    public synchronized Boolean isPaused(final JobKey jobKey) throws SchedulerException {
-        List<? extends Trigger> triggersOfJob = scheduler.getTriggersOfJob(jobKey);
-
-        for (Trigger t : triggersOfJob) {
-            if (scheduler.getTriggerState(t.getKey()) == Trigger.TriggerState.PAUSED) {
-                return true;
+    public Boolean isPaused(final JobKey jobKey) throws SchedulerException {
+        Lock lock = lockOf(Validate.notNull(jobKey, "jobKey").getGroup()).readLock();
+        lock.lock();
+        try {
+            List<? extends Trigger> triggersOfJob = scheduler.getTriggersOfJob(jobKey);
+
+            for (Trigger t : triggersOfJob) {
+                if (scheduler.getTriggerState(t.getKey()) == Trigger.TriggerState.PAUSED) {
+                    return true;
+                }
             }
-        } 
+        } finally {
+            lock.unlock();
+        }
 
         return false;
     }
@@ -511,8 +823,33 @@ public final class SchedulerControlService {
      * @param jobKey JobKey instance
      * @throws SchedulerException
      */
-    public synchronized void resume(final JobKey jobKey) throws SchedulerException {
-        scheduler.resumeJob(jobKey);
+    public void resume(final JobKey jobKey) throws SchedulerException {
+        Lock lock = lockOf(Validate.notNull(jobKey, "jobKey").getGroup()).writeLock();
+        lock.lock();
+        try {
+            scheduler.resumeJob(jobKey);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the {@link TriggerSpreading} policy for new triggers.
+     *
+     * @return TriggerSpreading instance
+     */
+    public TriggerSpreading getSpreading() {
+        return spreading;
+    }
+
+    /**
+     * Sets the {@link TriggerSpreading} policy for new triggers; already
+     * registred triggers are only moved by rebalanceTriggers.
+     *
+     * @param spreading TriggerSpreading instance
+     */
+    public void setSpreading(final TriggerSpreading spreading) {
+        this.spreading = Validate.notNull(spreading, "spreading");
     }
 
     /**
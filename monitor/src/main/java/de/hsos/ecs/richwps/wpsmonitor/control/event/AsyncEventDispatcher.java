@@ -0,0 +1,229 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.control.event;
+
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Fires {@link MonitorEvent}s asynchronously over a {@link MonitorEventHandler}.
+ * The events are queued in a bounded queue which is drained by a small, fixed
+ * amount of threads; so a high measurement rate doesn't end up in one thread
+ * per event.
+ *
+ * If the queue is full, the event is fired in the thread of the caller
+ * (backpressure); the caller is slowed down instead of losing the event. If
+ * the dispatcher is not running, dispatch returns false and the caller should
+ * fire the event itself. close() stops the dispatcher and drains the queue.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class AsyncEventDispatcher implements AutoCloseable {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    /**
+     * Max. time in ms to wait for the queued events at close()
+     */
+    private static final Long TERMINATION_TIMEOUT = 30000L;
+
+    private final MonitorEventHandler eventHandler;
+    private final Integer threads;
+    private final Integer capacity;
+
+    private final AtomicLong dispatchedCount;
+    private final AtomicLong callerRunsCount;
+    private final AtomicLong lastDispatchLatency;
+
+    private volatile ThreadPoolExecutor executor;
+
+    /**
+     * Creates a new AsyncEventDispatcher instance.
+     *
+     * @param eventHandler MonitorEventHandler instance which fires the events
+     * @param threads Amount of dispatcher threads
+     * @param capacity Max. amount of queued events
+     */
+    public AsyncEventDispatcher(final MonitorEventHandler eventHandler, final Integer threads, final Integer capacity) {
+        this.eventHandler = Validate.notNull(eventHandler, "eventHandler");
+        this.threads = Validate.notNull(threads, "threads");
+        this.capacity = Validate.notNull(capacity, "capacity");
+
+        if (threads <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("threads and capacity must be greater than 0.");
+        }
+
+        this.dispatchedCount = new AtomicLong();
+        this.callerRunsCount = new AtomicLong();
+        this.lastDispatchLatency = new AtomicLong();
+    }
+
+    /**
+     * Starts the dispatcher threads, if not already running.
+     */
+    public synchronized void start() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>(capacity), new DispatcherThreadFactory(),
+                    new RejectedExecutionHandler() {
+
+                        @Override
+                        public void rejectedExecution(final Runnable r, final ThreadPoolExecutor e) {
+                            // queue is full or the dispatcher is closing; fire in the caller thread
+                            if (!e.isShutdown()) {
+                                callerRunsCount.incrementAndGet();
+                                LOG.debug("Event queue is full ({} events); fire the event in the caller thread.", capacity);
+                            }
+
+                            r.run();
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Queues the given event; the event is fired by one of the dispatcher
+     * threads.
+     *
+     * @param event MonitorEvent instance
+     * @return true if the event was dispatched; false if the dispatcher is not
+     * running
+     */
+    public Boolean dispatch(final MonitorEvent event) {
+        Validate.notNull(event, "event");
+
+        ThreadPoolExecutor current = executor;
+
+        if (current == null) {
+            return false;
+        }
+
+        final Long queuedAt = System.nanoTime();
+
+        current.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                lastDispatchLatency.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queuedAt));
+                eventHandler.fireEvent(event);
+                dispatchedCount.incrementAndGet();
+            }
+        });
+
+        return true;
+    }
+
+    /**
+     * Gets the amount of queued events.
+     *
+     * @return Integer
+     */
+    public Integer getQueueDepth() {
+        ThreadPoolExecutor current = executor;
+
+        return current == null ? 0 : current.getQueue().size();
+    }
+
+    /**
+     * Gets the max. amount of queued events.
+     *
+     * @return Integer
+     */
+    public Integer getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the amount of fired events, including the events which were fired
+     * in the caller thread.
+     *
+     * @return Long
+     */
+    public Long getDispatchedCount() {
+        return dispatchedCount.get();
+    }
+
+    /**
+     * Gets the amount of events which were fired in the caller thread because
+     * the queue was full.
+     *
+     * @return Long
+     */
+    public Long getCallerRunsCount() {
+        return callerRunsCount.get();
+    }
+
+    /**
+     * Gets the time in ms the last event has waited in the queue.
+     *
+     * @return Long
+     */
+    public Long getLastDispatchLatency() {
+        return lastDispatchLatency.get();
+    }
+
+    /**
+     * Checks if the dispatcher accepts events; false after close().
+     *
+     * @return true if running, otherwise false
+     */
+    public Boolean isRunning() {
+        return executor != null;
+    }
+
+    /**
+     * Stops accepting new events and waits until the queue is drained.
+     */
+    @Override
+    public synchronized void close() {
+        ThreadPoolExecutor current = executor;
+
+        if (current != null) {
+            executor = null;
+            current.shutdown();
+
+            try {
+                if (!current.awaitTermination(TERMINATION_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                    LOG.warn("AsyncEventDispatcher is not drained after {} ms. {} events are outstanding.",
+                            TERMINATION_TIMEOUT, current.getQueue().size());
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class DispatcherThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            Thread thread = new Thread(r, "monitor-event-dispatcher-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.control.event;
+
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Coalesces the events for a delegate listener. The first event of a key
+ * opens a time window; all events with the same key which arrive within the
+ * window replace each other, and only the latest one is passed to the
+ * delegate when the window ends. So the delegate is executed at most once per
+ * key and window, no matter how many events are fired.
+ *
+ * The delegate is executed by the given ScheduledExecutorService and not in
+ * the thread which fired the event. Instances are created by
+ * {@link MonitorEventHandler#registerCoalescingListener}.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class CoalescingEventListener implements MonitorEventListener {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    /**
+     * Placeholder for the null key, because the map can't hold null keys.
+     */
+    private static final Object NULL_KEY = new Object();
+
+    private final MonitorEventListener delegate;
+    private final EventKeyResolver keyResolver;
+    private final Long window;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Latest event per key of the open windows.
+     */
+    private final ConcurrentMap<Object, MonitorEvent> pending;
+
+    private final AtomicLong receivedCount;
+    private final AtomicLong deliveredCount;
+
+    /**
+     * Creates a new CoalescingEventListener instance.
+     *
+     * @param delegate Listener which receives the coalesced events
+     * @param keyResolver Resolves the key of an event
+     * @param window Time window in ms
+     * @param scheduler ScheduledExecutorService which executes the delegate
+     */
+    public CoalescingEventListener(final MonitorEventListener delegate, final EventKeyResolver keyResolver,
+            final Long window, final ScheduledExecutorService scheduler) {
+
+        this.delegate = Validate.notNull(delegate, "delegate");
+        this.keyResolver = Validate.notNull(keyResolver, "keyResolver");
+        this.window = Validate.notNull(window, "window");
+        this.scheduler = Validate.notNull(scheduler, "scheduler");
+
+        if (window < 0) {
+            throw new IllegalArgumentException("window must not be negative.");
+        }
+
+        this.pending = new ConcurrentHashMap<>();
+        this.receivedCount = new AtomicLong();
+        this.deliveredCount = new AtomicLong();
+    }
+
+    @Override
+    public void execute(final MonitorEvent event) {
+        Object resolved = keyResolver.getKey(event);
+        final Object key = resolved == null ? NULL_KEY : resolved;
+
+        receivedCount.incrementAndGet();
+
+        // only the first event of a window schedules the delivery
+        if (pending.put(key, event) == null) {
+            scheduler.schedule(new Runnable() {
+
+                @Override
+                public void run() {
+                    deliver(key);
+                }
+            }, window, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void deliver(final Object key) {
+        MonitorEvent latest = pending.remove(key);
+
+        if (latest == null) {
+            return;
+        }
+
+        try {
+            delegate.execute(latest);
+            deliveredCount.incrementAndGet();
+        } catch (RuntimeException ex) {
+            LOG.error("EventHandler: Coalescing listener {} of event {} failed.",
+                    delegate.getClass().getName(), latest.getEventName(), ex);
+        }
+    }
+
+    /**
+     * Gets the listener which receives the coalesced events.
+     *
+     * @return MonitorEventListener instance
+     */
+    public MonitorEventListener getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Gets the amount of keys with an open window.
+     *
+     * @return Integer
+     */
+    public Integer getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Gets the amount of received events.
+     *
+     * @return Long
+     */
+    public Long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    /**
+     * Gets the amount of events passed to the delegate.
+     *
+     * @return Long
+     */
+    public Long getDeliveredCount() {
+        return deliveredCount.get();
+    }
+
+    /**
+     * Discards the events of the open windows; e.g. if the listener is
+     * removed.
+     */
+    public void discard() {
+        pending.clear();
+    }
+}
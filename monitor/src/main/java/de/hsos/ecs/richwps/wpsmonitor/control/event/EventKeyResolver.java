@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.control.event;
+
+/**
+ * Resolves the key of a {@link MonitorEvent} for a
+ * {@link CoalescingEventListener}; events with equal keys are coalesced.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public interface EventKeyResolver {
+
+    /**
+     * Gets the key of the given event, e.g. the process of the message.
+     *
+     * @param event MonitorEvent-instance
+     * @return Key; null coalesces the event with all events of the same name
+     */
+    public Object getKey(MonitorEvent event);
+}
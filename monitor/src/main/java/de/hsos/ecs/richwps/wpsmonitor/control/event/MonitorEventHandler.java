@@ -16,31 +16,76 @@
 package de.hsos.ecs.richwps.wpsmonitor.control.event;
 
 import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
  * EventHandler system for monitor events, like shutdown.
  *
+ * The listeners are held in copy-on-write lists; so events can be fired and
+ * listeners registered from different threads. An exception of a listener is
+ * logged and doesn't prevent the other listeners from being executed.
+ *
+ * fireEvent executes the listeners synchronously in the caller thread.
+ * fireEventAsync hands the event over to the {@link AsyncEventDispatcher}, if
+ * one is set and running; otherwise the event is fired synchronously, too.
+ *
+ * Listeners of high-frequency events, e.g. GUI panels, can be registered as
+ * coalescing listeners; they receive only the latest event per key within a
+ * time window (see {@link CoalescingEventListener}).
+ *
  * @author Florian Vogelpohl <floriantobias@gmail.com>
  */
 public class MonitorEventHandler {
 
     private static final Logger LOG = LogManager.getLogger();
+
+    /**
+     * Resolves the message of an event as key, e.g. the WpsProcessEntity.
+     */
+    private static final EventKeyResolver MESSAGE_KEY = new EventKeyResolver() {
+
+        @Override
+        public Object getKey(final MonitorEvent event) {
+            return event.getMsg();
+        }
+    };
+
     /**
      * Map that maps eventlisteners to their specific eventnames.
      */
-    private final Map<String, List<MonitorEventListener>> events;
+    private final ConcurrentMap<String, List<MonitorEventListener>> events;
+
+    /**
+     * Amount of exceptions thrown by listeners.
+     */
+    private final AtomicLong listenerErrorCount;
+
+    /**
+     * Dispatcher for fireEventAsync; null for synchronous mode.
+     */
+    private volatile AsyncEventDispatcher dispatcher;
+
+    /**
+     * Executes the delegates of the coalescing listeners; created at the
+     * first registration.
+     */
+    private ScheduledExecutorService coalescingScheduler;
 
     /**
      * Default constructor.
      */
     public MonitorEventHandler() {
-        events = new HashMap<>();
+        events = new ConcurrentHashMap<>();
+        listenerErrorCount = new AtomicLong();
     }
 
     /**
@@ -50,9 +95,7 @@ public class MonitorEventHandler {
      */
     public void registerEvent(final String eventName) {
         if (eventName != null) {
-            if (!events.containsKey(eventName)) {
-                events.put(eventName, new ArrayList<MonitorEventListener>());
-
+            if (events.putIfAbsent(eventName, new CopyOnWriteArrayList<MonitorEventListener>()) == null) {
                 LOG.debug("EventHandler: Register new event {}", eventName);
             } else {
                 LOG.debug("EventHandler: This EventManager already contains an event with name {}.", eventName);
@@ -68,17 +111,40 @@ public class MonitorEventHandler {
      * @param event MonitorEvent-instance
      */
     public void fireEvent(final MonitorEvent event) {
-        if (events.containsKey(event.getEventName())) {
-            for (MonitorEventListener listener : events.get(event.getEventName())) {
-                listener.execute(event);
+        List<MonitorEventListener> listeners = events.get(event.getEventName());
+
+        if (listeners != null) {
+            for (MonitorEventListener listener : listeners) {
+                try {
+                    listener.execute(event);
 
-                LOG.debug("EventHandler: Event {} fired! Execute: {}", event.getEventName(), listener.getClass().getName());
+                    LOG.debug("EventHandler: Event {} fired! Execute: {}", event.getEventName(), listener.getClass().getName());
+                } catch (RuntimeException ex) {
+                    listenerErrorCount.incrementAndGet();
+
+                    LOG.error("EventHandler: Listener {} of event {} failed.", listener.getClass().getName(), event.getEventName(), ex);
+                }
             }
         } else {
             LOG.debug("EventHandler: No event with the given name {} is registred.", event.getEventName());
         }
     }
 
+    /**
+     * Fires an event asynchronously by the {@link AsyncEventDispatcher}. If no
+     * dispatcher is set or the dispatcher isn't running, the event is fired
+     * synchronously.
+     *
+     * @param event MonitorEvent-instance
+     */
+    public void fireEventAsync(final MonitorEvent event) {
+        AsyncEventDispatcher current = dispatcher;
+
+        if (current == null || !current.dispatch(event)) {
+            fireEvent(event);
+        }
+    }
+
     /**
      * Registers a listener for a specific event.
      *
@@ -100,7 +166,68 @@ public class MonitorEventHandler {
     }
 
     /**
-     * Removes a given listener from the eventname.
+     * Registers a listener which receives the events coalesced by their
+     * message (e.g. the WpsProcessEntity); only the latest event per message
+     * within the window is passed to the listener.
+     *
+     * @param eventName name of the event which the listener should listen
+     * @param eventToRegister EventListener instance
+     * @param window Time window in ms
+     * @return The registered CoalescingEventListener instance
+     * @throws EventNotFoundException If the event is not found
+     */
+    public CoalescingEventListener registerCoalescingListener(final String eventName,
+            final MonitorEventListener eventToRegister, final Long window) throws EventNotFoundException {
+
+        return registerCoalescingListener(eventName, eventToRegister, MESSAGE_KEY, window);
+    }
+
+    /**
+     * Registers a listener which receives the events coalesced by the key of
+     * the given EventKeyResolver; only the latest event per key within the
+     * window is passed to the listener. The listener is executed in a
+     * separate thread and can be removed by removeListener.
+     *
+     * @param eventName name of the event which the listener should listen
+     * @param eventToRegister EventListener instance
+     * @param keyResolver Resolves the key of an event
+     * @param window Time window in ms
+     * @return The registered CoalescingEventListener instance
+     * @throws EventNotFoundException If the event is not found
+     */
+    public CoalescingEventListener registerCoalescingListener(final String eventName,
+            final MonitorEventListener eventToRegister, final EventKeyResolver keyResolver, final Long window)
+            throws EventNotFoundException {
+
+        CoalescingEventListener coalescing = new CoalescingEventListener(
+                Validate.notNull(eventToRegister, "eventToRegister"), keyResolver, window, getCoalescingScheduler());
+
+        registerListener(eventName, coalescing);
+
+        return coalescing;
+    }
+
+    private synchronized ScheduledExecutorService getCoalescingScheduler() {
+        if (coalescingScheduler == null) {
+            coalescingScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+                @Override
+                public Thread newThread(final Runnable r) {
+                    Thread thread = new Thread(r, "monitor-event-coalescer");
+                    thread.setDaemon(true);
+
+                    return thread;
+                }
+            });
+        }
+
+        return coalescingScheduler;
+    }
+
+    /**
+     * Removes a given listener from the eventname. A listener which was
+     * registered as coalescing listener is removed, too; its pending events
+     * are discarded.
      *
      * @param eventName name of the event
      * @param listenerToRemove Eventlistener object which should be removed
@@ -113,8 +240,20 @@ public class MonitorEventHandler {
             throw new EventNotFoundException(eventName);
         }
 
-        events.get(eventName)
-                .remove(Validate.notNull(listenerToRemove, "eventToRemove"));
+        Validate.notNull(listenerToRemove, "eventToRemove");
+
+        for (MonitorEventListener listener : events.get(eventName)) {
+            if (listener == listenerToRemove || (listener instanceof CoalescingEventListener
+                    && ((CoalescingEventListener) listener).getDelegate() == listenerToRemove)) {
+
+                events.get(eventName)
+                        .remove(listener);
+
+                if (listener instanceof CoalescingEventListener) {
+                    ((CoalescingEventListener) listener).discard();
+                }
+            }
+        }
 
         LOG.debug("EventHandler: Remove Listener: {}", listenerToRemove.getClass().getName());
     }
@@ -126,5 +265,37 @@ public class MonitorEventHandler {
      */
     public void merge(MonitorEventHandler toMerge) {
         events.putAll(toMerge.events);
+
+        if (toMerge.dispatcher != null) {
+            dispatcher = toMerge.dispatcher;
+        }
+    }
+
+    /**
+     * Sets the dispatcher for fireEventAsync; null to fire all events
+     * synchronously.
+     *
+     * @param dispatcher AsyncEventDispatcher instance or null
+     */
+    public void setDispatcher(final AsyncEventDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Gets the dispatcher for fireEventAsync.
+     *
+     * @return AsyncEventDispatcher instance or null in synchronous mode
+     */
+    public AsyncEventDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    /**
+     * Gets the amount of exceptions thrown by listeners.
+     *
+     * @return Long
+     */
+    public Long getListenerErrorCount() {
+        return listenerErrorCount.get();
     }
 }
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.control.scheduler;
+
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import org.quartz.JobKey;
+
+/**
+ * Spreads the start times of triggers, so that the triggers of many jobs with
+ * the same start (users usually pick round times) and interval don't fire in
+ * the same second.
+ *
+ * Every job gets a fixed phase in the spreading window, which is hashed from
+ * its {@link JobKey}; the start of a trigger is moved to the next point in
+ * time with this phase. The window is the interval of the trigger, but at
+ * most maxWindow milliseconds. Optionally a random jitter of up to maxJitter
+ * milliseconds is added. Spreading an already spread start doesn't move it
+ * again, so triggers can be updated or rebalanced without drifting.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class TriggerSpreading {
+
+    private final Boolean active;
+    private final Long maxWindow;
+    private final Long maxJitter;
+
+    /**
+     * Constructor.
+     *
+     * @param active false if the start times should not be changed
+     * @param maxWindow Maximum size of the spreading window in milliseconds
+     * @param maxJitter Maximum random jitter in milliseconds; 0 for none
+     */
+    public TriggerSpreading(final Boolean active, final Long maxWindow, final Long maxJitter) {
+        this.active = Validate.notNull(active, "active");
+        this.maxWindow = Validate.notNull(maxWindow, "maxWindow");
+        this.maxJitter = Validate.notNull(maxJitter, "maxJitter");
+
+        if (maxWindow < 0 || maxJitter < 0) {
+            throw new IllegalArgumentException("maxWindow and maxJitter must not be negative.");
+        }
+    }
+
+    /**
+     * Creates a TriggerSpreading instance which doesn't change the start
+     * times.
+     *
+     * @return TriggerSpreading instance
+     */
+    public static TriggerSpreading none() {
+        return new TriggerSpreading(false, 0L, 0L);
+    }
+
+    /**
+     * Gets the spread start of a trigger of the given job.
+     *
+     * @param jobKey Key of the job which is fired by the trigger
+     * @param config Config of the trigger
+     * @return The spread start; the start of the config if the trigger can't
+     * be spread (e.g. the spread start would be after the end)
+     */
+    public Date spread(final JobKey jobKey, final TriggerConfig config) {
+        return spread(jobKey, config, config.getStart());
+    }
+
+    /**
+     * Gets the spread start of a trigger of the given job, which is not
+     * before notBefore (or the start of the config, if it is later).
+     *
+     * @param jobKey Key of the job which is fired by the trigger
+     * @param config Config of the trigger
+     * @param notBefore The spread start is not before this date
+     * @return The spread start; notBefore or the start of the config if the
+     * trigger can't be spread (e.g. the spread start would be after the end)
+     */
+    public Date spread(final JobKey jobKey, final TriggerConfig config, final Date notBefore) {
+        Validate.notNull(jobKey, "jobKey");
+        Validate.notNull(config, "config");
+
+        Date start = config.getStart();
+
+        if (notBefore != null && (start == null || notBefore.after(start))) {
+            start = notBefore;
+        }
+
+        if (!active || start == null || config.getInterval() == null || config.getIntervalType() == null) {
+            return start;
+        }
+
+        final Long window = getWindow(config);
+
+        if (window <= 1) {
+            return start;
+        }
+
+        final Long jitterBound = getJitterBound(window);
+        final Long phase = phaseOf(jobKey, window);
+        final Long from = start.getTime() - jitterBound;
+
+        Long aligned = from - floorMod(from, window) + phase;
+
+        if (aligned < from) {
+            aligned += window;
+        }
+
+        Long jitter = 0L;
+
+        if (jitterBound > 0) {
+            jitter = ThreadLocalRandom.current().nextLong(jitterBound + 1);
+        }
+
+        // aligned may be up to jitterBound before start; so the clamped start is still in phase
+        final Date spread = new Date(Math.max(aligned + jitter, start.getTime()));
+
+        if (config.getEnd() != null && !spread.before(config.getEnd())) {
+            return start;
+        }
+
+        return spread;
+    }
+
+    /**
+     * Checks if the start of the given config is already spread for the given
+     * job; i.e. spread would not move it (apart from the jitter).
+     *
+     * @param jobKey Key of the job which is fired by the trigger
+     * @param config Config of the trigger
+     * @return true if the start is in the phase of the job or the trigger
+     * can't be spread, otherwise false
+     */
+    public Boolean isSpread(final JobKey jobKey, final TriggerConfig config) {
+        Validate.notNull(jobKey, "jobKey");
+        Validate.notNull(config, "config");
+
+        if (!active || config.getStart() == null || config.getInterval() == null || config.getIntervalType() == null) {
+            return true;
+        }
+
+        final Long window = getWindow(config);
+
+        if (window <= 1) {
+            return true;
+        }
+
+        final Long offset = floorMod(config.getStart().getTime() - phaseOf(jobKey, window), window);
+
+        return offset <= getJitterBound(window);
+    }
+
+    private Long getWindow(final TriggerConfig config) {
+        return Math.min(getIntervalInMillis(config), maxWindow);
+    }
+
+    private Long getJitterBound(final Long window) {
+        // the jitter stays below the window; so a jittered start is found again
+        return Math.min(maxJitter, window - 1);
+    }
+
+    /**
+     * Gets the phase of the given job in a window of the given size.
+     *
+     * @param jobKey JobKey instance
+     * @param window Size of the window in milliseconds
+     * @return Phase in [0, window)
+     */
+    public static Long phaseOf(final JobKey jobKey, final Long window) {
+        // mix the bits; the hashCodes of similar names (process1, process2) differ only slightly
+        long h = jobKey.getGroup().hashCode() * 31L + jobKey.getName().hashCode();
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+
+        return floorMod(h, window);
+    }
+
+    private static Long floorMod(final Long value, final Long divisor) {
+        return ((value % divisor) + divisor) % divisor;
+    }
+
+    /**
+     * Gets the approximate length of the interval of the given config in
+     * milliseconds; months and years are calendar based and have no fixed
+     * length.
+     *
+     * @param config TriggerConfig instance
+     * @return Interval in milliseconds
+     */
+    private static Long getIntervalInMillis(final TriggerConfig config) {
+        final Long interval = config.getInterval().longValue();
+
+        switch (config.getIntervalType()) {
+            case MILLISECOND:
+                return interval;
+            case SECOND:
+                return interval * 1000L;
+            case MINUTE:
+                return interval * 60000L;
+            case HOUR:
+                return interval * 3600000L;
+            case DAY:
+                return interval * 86400000L;
+            case WEEK:
+                return interval * 604800000L;
+            case MONTH:
+                return interval * 28L * 86400000L;
+            case YEAR:
+                return interval * 365L * 86400000L;
+            default:
+                throw new AssertionError(config.getIntervalType().name());
+        }
+    }
+
+    public Boolean isActive() {
+        return active;
+    }
+
+    public Long getMaxWindow() {
+        return maxWindow;
+    }
+
+    public Long getMaxJitter() {
+        return maxJitter;
+    }
+}
@@ -21,21 +21,35 @@ import de.hsos.ecs.richwps.wpsmonitor.control.event.MonitorEvent;
 import de.hsos.ecs.richwps.wpsmonitor.control.event.MonitorEventHandler;
 import de.hsos.ecs.richwps.wpsmonitor.control.scheduler.TriggerConfig;
 import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Cursor;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDaoFactory;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosRecord;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Range;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDaoFactory;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDataAccess;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDaoFactory;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessSummary;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataRollupEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.RollupGranularity;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.exchange.ExchangeFormat;
+import de.hsos.ecs.richwps.wpsmonitor.data.exchange.MeasurementExporter;
+import de.hsos.ecs.richwps.wpsmonitor.data.exchange.MeasurementImporter;
 import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.quartz.JobKey;
@@ -59,6 +73,7 @@ public class ThreadSaveMonitorControlService implements MonitorControlService {
     private final MonitorControlValidator validator;
     private final WpsDaoFactory wpsDaoFactory;
     private final WpsProcessDaoFactory wpsProcessDaoFactory;
+    private final WpsMetadataRegistry registry;
 
     /**
      * Constructor.
@@ -68,23 +83,27 @@ public class ThreadSaveMonitorControlService implements MonitorControlService {
      * @param qosDao {@link QosDaoFactory} instance.
      * @param wpsDao {@link WpsDaoFactory} instance.
      * @param wpsProcessDao {@link WpsProcessDaoFactory} instance.
+     * @param registry {@link WpsMetadataRegistry} instance; used to resolve
+     * endpoints, identifiers and ids without queries.
      */
     public ThreadSaveMonitorControlService(final SchedulerControlService scheduler, final MonitorEventHandler eventHandler,
-            final QosDaoFactory qosDao, final WpsDaoFactory wpsDao, final WpsProcessDaoFactory wpsProcessDao) {
+            final QosDaoFactory qosDao, final WpsDaoFactory wpsDao, final WpsProcessDaoFactory wpsProcessDao,
+            final WpsMetadataRegistry registry) {
 
         this.schedulerControl = Validate.notNull(scheduler, "scheduler");
         this.qosDaoFactory = Validate.notNull(qosDao, "qosDao");
         this.wpsDaoFactory = Validate.notNull(wpsDao, "wpsDao");
         this.wpsProcessDaoFactory = Validate.notNull(wpsProcessDao, "wpsProcessDao");
         this.eventHandler = Validate.notNull(eventHandler, "eventHandler");
+        this.registry = Validate.notNull(registry, "registry");
 
         this.validator = new MonitorControlValidator(3L, 255L);
 
         initMonitorControlEvents();
     }
 
-    private void checkEndpointUnique(final List<WpsEntity> wpsEntities, final URL compare) {
-        if (isWpsEndpoindAlreadyExists(wpsEntities, compare)) {
+    private void checkEndpointUnique(final URL compare) {
+        if (registry.getWpsId(compare) != null) {
             throw new IllegalArgumentException("A WPS Server with the same endpoint already exists.");
         }
     }
@@ -97,11 +116,11 @@ public class ThreadSaveMonitorControlService implements MonitorControlService {
         Validate.notNull(endpoint, "endpoint");
         validator.validateStringParam(endpoint.toString(), processIdentifier);
         
-        WpsEntity wps = getWps(endpoint);
+        Long wpsId = registry.getWpsId(endpoint);
         JobKey result = null;
 
-        if (wps != null) {
-            result = getJobKey(wps.getId(), processIdentifier);
+        if (wpsId != null) {
+            result = getJobKey(wpsId, processIdentifier);
         }
 
         return result;
@@ -130,19 +149,25 @@ public class ThreadSaveMonitorControlService implements MonitorControlService {
         Validate.notNull(endpoint, "endpoint");
         validator.validateStringParam(endpoint.toString());
 
-        try (WpsDataAccess wpsDao = wpsDaoFactory.create()) {
-            return wpsDao.find(endpoint);
-        } catch (CreateException ex) {
-            throw new AssertionError("Can't create wpsDao. Execution aborted.", ex);
-        }
+        Long wpsId = registry.getWpsId(endpoint);
+
+        return wpsId == null ? null : getWps(wpsId);
     }
 
     @Override
     public WpsEntity getWps(final Long wpsId) {
         Validate.notNull(wpsId, "wpsid");
 
+        // primary key lookups are served by the shared cache of the
+        // persistence provider
         try (WpsDataAccess wpsDao = wpsDaoFactory.create()) {
-            return wpsDao.find(wpsId);
+            WpsEntity wps = wpsDao.find(wpsId);
+
+            if (wps == null) {
+                registry.removeWps(wpsId);
+            }
+
+            return wps;
         } catch (CreateException ex) {
             throw new AssertionError("Can't create wpsDao. Execution aborted.", ex);
         }
@@ -152,26 +177,27 @@ public class ThreadSaveMonitorControlService implements MonitorControlService {
         Validate.notNull(endpoint, "endpoint");
         validator.validateStringParam(endpoint.toString(), processIdentifier);
 
-        WpsProcessEntity result = null;
+        Long wpsId = registry.getWpsId(endpoint);
 
-        try (WpsProcessDataAccess wpsProcessDao = wpsProcessDaoFactory.create()) {
-            result = wpsProcessDao.find(endpoint, processIdentifier);
-        } catch (CreateException ex) {
-            throw new AssertionError("Can't create wpsProcessDao. Execution aborted.", ex);
-        }
-
-        return result;
+        return wpsId == null ? null : getWpsProcessEntity(wpsId, processIdentifier);
     }
 
     private WpsProcessEntity getWpsProcessEntity(final Long wpsId, final String processIdentifier) {
         validator.validateStringParam(processIdentifier);
 
+        Long processId = registry.getProcessId(wpsId, processIdentifier);
         WpsProcessEntity result = null;
 
-        try (WpsProcessDataAccess wpsProcessDao = wpsProcessDaoFactory.create()) {
-            result = wpsProcessDao.find(wpsId, processIdentifier);
-        } catch (CreateException ex) {
-            throw new AssertionError("Can't create wpsProcessDao. Execution aborted.", ex);
+        if (processId != null) {
+            try (WpsProcessDataAccess wpsProcessDao = wpsProcessDaoFactory.create()) {
+                result = wpsProcessDao.find(processId);
+            } catch (CreateException ex) {
+                throw new AssertionError("Can't create wpsProcessDao. Execution aborted.", ex);
+            }
+
+            if (result == null) {
+                registry.removeProcess(wpsId, processIdentifier);
+            }
         }
 
         return result;
@@ -199,18 +225,6 @@ public class ThreadSaveMonitorControlService implements MonitorControlService {
         }
     }
 
-    private Boolean isWpsEndpoindAlreadyExists(final List<WpsEntity> elements, final URL compare) {
-        Boolean result = false;
-
-        for (WpsEntity e : elements) {
-            if (e.getEndpoint().equals(compare)) {
-                return true;
-            }
-        }
-
-        return result;
-    }
-
     private void removeWpsJob(final WpsEntity wpsEntity) {
         validator.validateWpsEntity(wpsEntity, true);
 
@@ -298,6 +312,82 @@ public class ThreadSaveMonitorControlService implements MonitorControlService {
         return isPersisted;
     }
 
+    @Override
+    public List<WpsProcessEntity> createAndScheduleProcesses(final URL endpoint, final List<String> processIdentifiers) {
+        Validate.notNull(endpoint, "endpoint");
+        validator.validateStringParam(endpoint.toString());
+
+        Long wpsId = registry.getWpsId(endpoint);
+
+        if (wpsId == null) {
+            return null;
+        }
+
+        return createAndScheduleProcesses(wpsId, processIdentifiers);
+    }
+
+    @Override
+    public List<WpsProcessEntity> createAndScheduleProcesses(final Long wpsId, final List<String> processIdentifiers) {
+        Validate.notNull(processIdentifiers, "processIdentifiers");
+
+        WpsEntity wps = getWps(wpsId);
+
+        if (wps == null) {
+            return null;
+        }
+
+        List<WpsProcessEntity> processes = new ArrayList<>();
+
+        try (WpsProcessDataAccess wpsProcessDao = wpsProcessDaoFactory.create()) {
+            // one query for the existing processes instead of one per identifier
+            Set<String> existing = new HashSet<>();
+
+            for (WpsProcessSummary summary : wpsProcessDao.getSummaries(wps.getId())) {
+                existing.add(summary.getIdentifier());
+            }
+
+            for (String processIdentifier : new LinkedHashSet<>(processIdentifiers)) {
+                validator.validateStringParam(processIdentifier);
+
+                if (!existing.contains(processIdentifier)) {
+                    processes.add(new WpsProcessEntity(processIdentifier, wps));
+                }
+            }
+
+            if (processes.isEmpty()) {
+                return processes;
+            }
+
+            wpsProcessDao.setAutoCommit(false);
+
+            for (WpsProcessEntity process : processes) {
+                wpsProcessDao.persist(process);
+            }
+
+            if (!wpsProcessDao.commit()) {
+                wpsProcessDao.rollback();
+                LOG.error("Can't commit {} new processes of wps {}.", processes.size(), wpsId);
+
+                return new ArrayList<>();
+            }
+        } catch (CreateException ex) {
+            throw new AssertionError("Can't create wpsProcessDao. Execution aborted.", ex);
+        }
+
+        try {
+            schedulerControl.addWpsAsJobs(processes);
+        } catch (SchedulerException ex) {
+            LOG.warn("MonitorControl: {}", ex);
+        }
+
+        for (WpsProcessEntity process : processes) {
+            eventHandler
+                    .fireEvent(new MonitorEvent("monitorcontrol.createAndScheduleProcess", process));
+        }
+
+        return processes;
+    }
+
     @Override
     public Boolean createWps(final WpsEntity wpsEntity) {
         validator.validateWpsEntity(wpsEntity);
@@ -313,7 +403,7 @@ public class ThreadSaveMonitorControlService implements MonitorControlService {
         Boolean result = false;
 
         try (WpsDataAccess wpsDao = wpsDaoFactory.create()) {
-            checkEndpointUnique(wpsDao.getAll(), endpoint);
+            checkEndpointUnique(endpoint);
             result = wpsDao.persist(wps);
 
             eventHandler
@@ -356,10 +446,10 @@ public class ThreadSaveMonitorControlService implements MonitorControlService {
         Validate.notNull(endpoint, "endpoint");
         validator.validateStringParam(processIdentifier, endpoint.toString());
 
-        WpsEntity wps = getWps(endpoint);
+        Long wpsId = registry.getWpsId(endpoint);
 
-        if (wps != null) {
-            deleteMeasuredDataOfProcess(wps.getId(), processIdentifier, olderAs);
+        if (wpsId != null) {
+            deleteMeasuredDataOfProcess(wpsId, processIdentifier, olderAs);
         }
     }
 
@@ -585,35 +675,97 @@ public class ThreadSaveMonitorControlService implements MonitorControlService {
         return measuredData;
     }
 
+    @Override
+    public List<MeasuredDataEntity> getMeasuredData(final Long wpsId, final String processIdentifier,
+            final Cursor before, final Integer limit) {
+        Validate.notNull(wpsId, "wpsId");
+        Validate.notNull(limit, "limit");
+        validator.validateStringParam(processIdentifier);
+
+        List<MeasuredDataEntity> measuredData = null;
+        try (QosDataAccess qosDao = qosDaoFactory.create()) {
+            measuredData = qosDao
+                    .getByProcess(wpsId, processIdentifier, before, limit);
+        } catch (CreateException ex) {
+            throw new AssertionError("Can't create qosDao. Execution aborted.", ex);
+        }
+
+        return measuredData;
+    }
+
+    @Override
+    public List<QosRecord> getMeasuredRecords(final Long wpsId, final String processIdentifier,
+            final Cursor before, final Integer limit) {
+        Validate.notNull(wpsId, "wpsId");
+        Validate.notNull(limit, "limit");
+        validator.validateStringParam(processIdentifier);
+
+        List<QosRecord> records = null;
+        try (QosDataAccess qosDao = qosDaoFactory.create()) {
+            records = qosDao
+                    .getRecordsByProcess(wpsId, processIdentifier, before, limit);
+        } catch (CreateException ex) {
+            throw new AssertionError("Can't create qosDao. Execution aborted.", ex);
+        }
+
+        return records;
+    }
+
+    @Override
+    public Integer exportMeasuredData(final Long wpsId, final String processIdentifier, final Date since,
+            final ExchangeFormat format, final Writer writer) throws IOException {
+        Validate.notNull(wpsId, "wpsId");
+        validator.validateStringParam(processIdentifier);
+
+        return new MeasurementExporter(qosDaoFactory)
+                .export(wpsId, processIdentifier, since, format, writer);
+    }
+
+    @Override
+    public Integer importMeasuredData(final Long wpsId, final String processIdentifier,
+            final ExchangeFormat format, final Reader reader) throws IOException {
+        Validate.notNull(wpsId, "wpsId");
+        validator.validateStringParam(processIdentifier);
+
+        return new MeasurementImporter(qosDaoFactory, wpsProcessDaoFactory)
+                .importFrom(wpsId, processIdentifier, format, reader);
+    }
+
+    @Override
+    public List<MeasuredDataRollupEntity> getRollups(final Long wpsId, final String processIdentifier,
+            final RollupGranularity granularity, final Date from, final Date to) {
+        Validate.notNull(wpsId, "wpsId");
+        Validate.notNull(granularity, "granularity");
+        Validate.notNull(from, "from");
+        Validate.notNull(to, "to");
+        validator.validateStringParam(processIdentifier);
+
+        List<MeasuredDataRollupEntity> rollups = null;
+        try (QosDataAccess qosDao = qosDaoFactory.create()) {
+            rollups = qosDao
+                    .getRollups(wpsId, processIdentifier, granularity, from, to);
+        } catch (CreateException ex) {
+            throw new AssertionError("Can't create qosDao. Execution aborted.", ex);
+        }
+
+        return rollups;
+    }
+
     @Override
     public WpsProcessEntity getProcess(final URL endpoint, final String identifier) {
         Validate.notNull(endpoint, "endpoint");
         validator.validateStringParam(endpoint.toString());
         validator.validateStringParam(identifier);
-        
-        WpsProcessEntity result = null;
-        try(WpsProcessDataAccess processDao = wpsProcessDaoFactory.create()) {
-            result = processDao.find(endpoint, identifier);
-        } catch (CreateException ex) {
-            throw new AssertionError("Can't create processDao. Execution aborted.", ex);
-        }
-        
-        return result;
+
+        return getWpsProcessEntity(endpoint, identifier);
     }
     
     @Override
     public WpsProcessEntity getProcess(final Long wpsId, final String identifier) {
         Validate.notNull(wpsId, "endpoint");
         validator.validateStringParam(identifier);
-        
-        WpsProcessEntity result = null;
-        try(WpsProcessDataAccess processDao = wpsProcessDaoFactory.create()) {
-            result = processDao.find(wpsId, identifier);
-        } catch (CreateException ex) {
-            throw new AssertionError("Can't create processDao. Execution aborted.", ex);
-        }
-        
-        return result;
+
+        return getWpsProcessEntity(wpsId, identifier);
     }
 
     @Override
@@ -660,6 +812,38 @@ public class ThreadSaveMonitorControlService implements MonitorControlService {
         return processes;
     }
 
+    @Override
+    public List<WpsProcessSummary> getProcessSummaries(final URL endpoint) {
+        Validate.notNull(endpoint, "endpoint");
+        validator.validateStringParam(endpoint.toString());
+
+        Long wpsId = registry.getWpsId(endpoint);
+
+        if (wpsId == null) {
+            return null;
+        }
+
+        return getProcessSummaries(wpsId);
+    }
+
+    @Override
+    public List<WpsProcessSummary> getProcessSummaries(final Long wpsId) {
+        Validate.notNull(wpsId, "wpsId");
+
+        if (registry.getEndpoint(wpsId) == null) {
+            return null;
+        }
+
+        List<WpsProcessSummary> summaries = null;
+        try (WpsProcessDataAccess wpsProcessDao = wpsProcessDaoFactory.create()) {
+            summaries = wpsProcessDao.getSummaries(wpsId);
+        } catch (CreateException ex) {
+            throw new AssertionError("Can't create wpsProcessDao. Execution aborted.", ex);
+        }
+
+        return summaries;
+    }
+
     public SchedulerControlService getSchedulerControl() {
         return schedulerControl;
     }
@@ -733,19 +917,7 @@ public class ThreadSaveMonitorControlService implements MonitorControlService {
         Validate.notNull(endpoint, "endpoint");
         validator.validateStringParam(endpoint.toString());
         
-        Long result = null;
-        
-        try(WpsDataAccess wpsDao = wpsDaoFactory.create()) {
-            WpsEntity find = wpsDao.find(endpoint);
-            
-            if(find != null) {
-                result = find.getId();
-            }
-        } catch (CreateException ex) {
-            throw new AssertionError("Can't create wpsDao. Execution aborted.", ex);
-        }
-        
-        return result;
+        return registry.getWpsId(endpoint);
     }
 
     @Override
@@ -766,18 +938,7 @@ public class ThreadSaveMonitorControlService implements MonitorControlService {
         Validate.notNull(endpoint, "endpoint");
         validator.validateStringParam(processIdentifier, endpoint.toString());
         
-        Long result = null;
-        try(WpsProcessDataAccess wpsProcessDao = wpsProcessDaoFactory.create()) {
-            WpsProcessEntity find = wpsProcessDao.find(endpoint, processIdentifier);
-            
-            if(find != null) {
-                result = find.getId();
-            }
-        } catch (CreateException ex) {
-            throw new AssertionError("Can't create wpsProcessDao. Execution aborted.", ex);
-        }
-        
-        return result;
+        return registry.getProcessId(endpoint, processIdentifier);
     }
 
     @Override
@@ -785,9 +946,9 @@ public class ThreadSaveMonitorControlService implements MonitorControlService {
         Validate.notNull(endpoint, "endpoint");
         validator.validateStringParam(endpoint.toString());
         
-        WpsEntity wps = getWps(endpoint);
+        Long wpsId = registry.getWpsId(endpoint);
 
-        return wps != null && isMonitoringPaused(wps.getId(), processIdentifier);
+        return wpsId != null && isMonitoringPaused(wpsId, processIdentifier);
     }
 
     @Override
@@ -828,7 +989,7 @@ public class ThreadSaveMonitorControlService implements MonitorControlService {
         Validate.notNull(endpoint, "endpoint");  
         validator.validateStringParam(processIdentifier, endpoint.toString());
 
-        return getWpsProcessEntity(endpoint, processIdentifier) != null;
+        return registry.getProcessId(endpoint, processIdentifier) != null;
     }
 
     @Override
@@ -846,7 +1007,7 @@ public class ThreadSaveMonitorControlService implements MonitorControlService {
         validator.validateStringParam(processIdentifier);
         Validate.notNull(wpsId, "WPS ID");
 
-        return getWpsProcessEntity(wpsId, processIdentifier) != null;
+        return registry.getProcessId(wpsId, processIdentifier) != null;
     }
 
     @Override
@@ -892,12 +1053,12 @@ public class ThreadSaveMonitorControlService implements MonitorControlService {
         Validate.notNull(endpoint, "endpoint");
         validator.validateStringParam(endpoint.toString());
         
-        return getWps(endpoint) != null;
+        return registry.getWpsId(endpoint) != null;
     }
 
     @Override
     public Boolean isWpsExists(final Long wpsId) {
-        return getWps(wpsId) != null;
+        return registry.getEndpoint(wpsId) != null;
     }
 
     @Override
@@ -1048,6 +1209,78 @@ public class ThreadSaveMonitorControlService implements MonitorControlService {
         return saveTrigger(wpsProcessEntity, config);
     }
 
+    @Override
+    public List<TriggerConfig> saveTriggers(final URL endpoint, final List<String> processIdentifiers, final TriggerConfig config) {
+        Validate.notNull(endpoint, "endpoint");
+        validator.validateStringParam(endpoint.toString());
+
+        Long wpsId = registry.getWpsId(endpoint);
+
+        if (wpsId == null) {
+            return null;
+        }
+
+        return saveTriggers(wpsId, processIdentifiers, config);
+    }
+
+    @Override
+    public List<TriggerConfig> saveTriggers(final Long wpsId, final List<String> processIdentifiers, final TriggerConfig config) {
+        Validate.notNull(wpsId, "WPS ID");
+        Validate.notNull(processIdentifiers, "processIdentifiers");
+        Validate.notNull(config, "config");
+
+        if (registry.getEndpoint(wpsId) == null) {
+            return null;
+        }
+
+        List<JobKey> jobKeys = new ArrayList<>();
+
+        for (String processIdentifier : new LinkedHashSet<>(processIdentifiers)) {
+            validator.validateStringParam(processIdentifier);
+
+            if (registry.getProcessId(wpsId, processIdentifier) != null) {
+                jobKeys.add(getJobKey(wpsId, processIdentifier));
+            }
+        }
+
+        List<TriggerConfig> newConfigs = new ArrayList<>();
+
+        if (jobKeys.isEmpty()) {
+            return newConfigs;
+        }
+
+        try {
+            newConfigs = schedulerControl.addTriggerToJobs(jobKeys, config);
+
+            for (TriggerConfig newConfig : newConfigs) {
+                eventHandler
+                        .fireEvent(new MonitorEvent("monitorcontrol.saveTrigger", newConfig));
+            }
+        } catch (SchedulerException ex) {
+            LOG.error("Can't save triggers because of Scheduler Exception.", ex);
+        }
+
+        return newConfigs;
+    }
+
+    @Override
+    public List<TriggerConfig> rebalanceTriggers() {
+        List<TriggerConfig> moved = new ArrayList<>();
+
+        try {
+            moved = schedulerControl.rebalanceTriggers();
+
+            for (TriggerConfig config : moved) {
+                eventHandler
+                        .fireEvent(new MonitorEvent("monitorcontrol.saveTrigger", config));
+            }
+        } catch (SchedulerException ex) {
+            LOG.error("Can't rebalance triggers because of Scheduler Exception.", ex);
+        }
+
+        return moved;
+    }
+
     @Override
     public Boolean setTestRequest(final URL endpoint, final String processIdentifier, final String testRequest) {
         validator.validateStringParam(processIdentifier);
@@ -1107,7 +1340,7 @@ public class ThreadSaveMonitorControlService implements MonitorControlService {
         }
 
         try (WpsDataAccess wpsDao = wpsDaoFactory.create()) {
-            checkEndpointUnique(wpsDao.getAll(), newEndpoint);
+            checkEndpointUnique(newEndpoint);
 
             wps.setEndpoint(newEndpoint);
             wpsDao.update(wps);
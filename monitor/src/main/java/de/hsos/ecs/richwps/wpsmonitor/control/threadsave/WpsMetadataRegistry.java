@@ -0,0 +1,369 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.control.threadsave;
+
+import de.hsos.ecs.richwps.wpsmonitor.control.event.MonitorEvent;
+import de.hsos.ecs.richwps.wpsmonitor.control.event.MonitorEventListener;
+import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDaoFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDaoFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * In-memory registry of the ids, endpoints and identifiers of all WPS and
+ * processes. The registry is loaded at startup and updated by the
+ * monitorcontrol events, so the lookups of the MonitorControlService are
+ * map reads instead of queries.
+ *
+ * Lookups which are not found in the registry (e.g. entities which are stored
+ * directly through a DataAccess instance) fall back to the database and are
+ * registered afterwards.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class WpsMetadataRegistry implements MonitorEventListener {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private final WpsDaoFactory wpsDaoFactory;
+    private final WpsProcessDaoFactory wpsProcessDaoFactory;
+
+    /**
+     * Endpoint to WPS id; the string representation is used as key, because
+     * URL.equals resolves the host names.
+     */
+    private final ConcurrentMap<String, Long> wpsIds;
+
+    /**
+     * WPS id to endpoint.
+     */
+    private final ConcurrentMap<Long, URL> endpoints;
+
+    /**
+     * WPS id to process identifier to process id.
+     */
+    private final ConcurrentMap<Long, ConcurrentMap<String, Long>> processIds;
+
+    /**
+     * Constructor.
+     *
+     * @param wpsDaoFactory {@link WpsDaoFactory} instance
+     * @param wpsProcessDaoFactory {@link WpsProcessDaoFactory} instance
+     */
+    public WpsMetadataRegistry(final WpsDaoFactory wpsDaoFactory, final WpsProcessDaoFactory wpsProcessDaoFactory) {
+        this.wpsDaoFactory = Validate.notNull(wpsDaoFactory, "wpsDaoFactory");
+        this.wpsProcessDaoFactory = Validate.notNull(wpsProcessDaoFactory, "wpsProcessDaoFactory");
+        this.wpsIds = new ConcurrentHashMap<>();
+        this.endpoints = new ConcurrentHashMap<>();
+        this.processIds = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Loads all WPS and processes of the database into the registry.
+     */
+    public void load() {
+        clear();
+
+        try (WpsDataAccess wpsDao = wpsDaoFactory.create();
+                WpsProcessDataAccess wpsProcessDao = wpsProcessDaoFactory.create()) {
+
+            for (WpsEntity wps : wpsDao.getAll()) {
+                putWps(wps);
+            }
+
+            for (WpsProcessEntity process : wpsProcessDao.get(null)) {
+                putProcess(process);
+            }
+        } catch (CreateException ex) {
+            throw new AssertionError("Can't create dao. Execution aborted.", ex);
+        }
+
+        LOG.debug("WpsMetadataRegistry: {} WPS loaded.", endpoints.size());
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        wpsIds.clear();
+        endpoints.clear();
+        processIds.clear();
+    }
+
+    /**
+     * Gets the id of the WPS with the given endpoint.
+     *
+     * @param endpoint Endpoint of the WPS
+     * @return WPS id or null if the WPS doesn't exist
+     */
+    public Long getWpsId(final URL endpoint) {
+        Validate.notNull(endpoint, "endpoint");
+
+        Long wpsId = wpsIds.get(endpoint.toString());
+
+        if (wpsId == null) {
+            try (WpsDataAccess wpsDao = wpsDaoFactory.create()) {
+                WpsEntity wps = wpsDao.find(endpoint);
+
+                if (wps != null) {
+                    putWps(wps);
+                    wpsId = wps.getId();
+                }
+            } catch (CreateException ex) {
+                throw new AssertionError("Can't create wpsDao. Execution aborted.", ex);
+            }
+        }
+
+        return wpsId;
+    }
+
+    /**
+     * Gets the endpoint of the WPS with the given id.
+     *
+     * @param wpsId WPS id
+     * @return Endpoint or null if the WPS doesn't exist
+     */
+    public URL getEndpoint(final Long wpsId) {
+        Validate.notNull(wpsId, "wpsId");
+
+        URL endpoint = endpoints.get(wpsId);
+
+        if (endpoint == null) {
+            try (WpsDataAccess wpsDao = wpsDaoFactory.create()) {
+                WpsEntity wps = wpsDao.find(wpsId);
+
+                if (wps != null) {
+                    putWps(wps);
+                    endpoint = wps.getEndpoint();
+                }
+            } catch (CreateException ex) {
+                throw new AssertionError("Can't create wpsDao. Execution aborted.", ex);
+            }
+        }
+
+        return endpoint;
+    }
+
+    /**
+     * Gets the id of the process with the given identifier.
+     *
+     * @param wpsId WPS id
+     * @param processIdentifier Identifier of the process
+     * @return Process id or null if the process doesn't exist
+     */
+    public Long getProcessId(final Long wpsId, final String processIdentifier) {
+        Validate.notNull(wpsId, "wpsId");
+        Validate.notNull(processIdentifier, "processIdentifier");
+
+        ConcurrentMap<String, Long> processesOfWps = processIds.get(wpsId);
+        Long processId = processesOfWps == null ? null : processesOfWps.get(processIdentifier);
+
+        if (processId == null) {
+            try (WpsProcessDataAccess wpsProcessDao = wpsProcessDaoFactory.create()) {
+                WpsProcessEntity process = wpsProcessDao.find(wpsId, processIdentifier);
+
+                if (process != null) {
+                    putProcess(process);
+                    processId = process.getId();
+                }
+            } catch (CreateException ex) {
+                throw new AssertionError("Can't create wpsProcessDao. Execution aborted.", ex);
+            }
+        }
+
+        return processId;
+    }
+
+    /**
+     * Gets the id of the process with the given identifier.
+     *
+     * @param endpoint Endpoint of the WPS
+     * @param processIdentifier Identifier of the process
+     * @return Process id or null if the process doesn't exist
+     */
+    public Long getProcessId(final URL endpoint, final String processIdentifier) {
+        Long wpsId = getWpsId(endpoint);
+
+        return wpsId == null ? null : getProcessId(wpsId, processIdentifier);
+    }
+
+    /**
+     * Registers the given WPS; does nothing if the WPS isn't persisted.
+     *
+     * @param wps WpsEntity instance
+     */
+    public void putWps(final WpsEntity wps) {
+        if (wps == null || wps.getId() == null || wps.getEndpoint() == null) {
+            return;
+        }
+
+        URL old = endpoints.put(wps.getId(), wps.getEndpoint());
+
+        if (old != null && !old.toString().equals(wps.getEndpoint().toString())) {
+            wpsIds.remove(old.toString(), wps.getId());
+        }
+
+        wpsIds.put(wps.getEndpoint().toString(), wps.getId());
+    }
+
+    /**
+     * Registers the given process and its WPS; does nothing if the process
+     * isn't persisted.
+     *
+     * @param process WpsProcessEntity instance
+     */
+    public void putProcess(final WpsProcessEntity process) {
+        if (process == null || process.getId() == null
+                || process.getWps() == null || process.getWps().getId() == null) {
+            return;
+        }
+
+        putWps(process.getWps());
+
+        Long wpsId = process.getWps().getId();
+        ConcurrentMap<String, Long> processesOfWps = processIds.get(wpsId);
+
+        if (processesOfWps == null) {
+            ConcurrentMap<String, Long> created = new ConcurrentHashMap<>();
+            processesOfWps = processIds.putIfAbsent(wpsId, created);
+
+            if (processesOfWps == null) {
+                processesOfWps = created;
+            }
+        }
+
+        processesOfWps.put(process.getIdentifier(), process.getId());
+    }
+
+    /**
+     * Changes the endpoint of a registered WPS.
+     *
+     * @param oldEndpoint Old endpoint
+     * @param newEndpoint New endpoint
+     */
+    public void updateEndpoint(final URL oldEndpoint, final URL newEndpoint) {
+        Validate.notNull(oldEndpoint, "oldEndpoint");
+        Validate.notNull(newEndpoint, "newEndpoint");
+
+        Long wpsId = wpsIds.remove(oldEndpoint.toString());
+
+        if (wpsId != null) {
+            endpoints.put(wpsId, newEndpoint);
+            wpsIds.put(newEndpoint.toString(), wpsId);
+        }
+    }
+
+    /**
+     * Removes the WPS and all of its processes.
+     *
+     * @param wpsId WPS id
+     */
+    public void removeWps(final Long wpsId) {
+        Validate.notNull(wpsId, "wpsId");
+
+        URL endpoint = endpoints.remove(wpsId);
+
+        if (endpoint != null) {
+            wpsIds.remove(endpoint.toString(), wpsId);
+        }
+
+        processIds.remove(wpsId);
+    }
+
+    /**
+     * Removes the process.
+     *
+     * @param wpsId WPS id
+     * @param processIdentifier Identifier of the process
+     */
+    public void removeProcess(final Long wpsId, final String processIdentifier) {
+        Validate.notNull(wpsId, "wpsId");
+
+        ConcurrentMap<String, Long> processesOfWps = processIds.get(wpsId);
+
+        if (processesOfWps != null && processIdentifier != null) {
+            processesOfWps.remove(processIdentifier);
+        }
+    }
+
+    /**
+     * Updates the registry by the monitorcontrol events create, update and
+     * delete of WPS and processes. The messages of the delete events are the
+     * given entities, so their ids can be missing.
+     *
+     * @param event MonitorEvent instance
+     */
+    @Override
+    public void execute(final MonitorEvent event) {
+        Object msg = event.getMsg();
+
+        switch (event.getEventName()) {
+            case "monitorcontrol.createWps":
+                putWps((WpsEntity) msg);
+                break;
+
+            case "monitorcontrol.createAndScheduleProcess":
+                putProcess((WpsProcessEntity) msg);
+                break;
+
+            case "monitorcontrol.updateWps":
+                URL[] endpointChange = (URL[]) msg;
+                updateEndpoint(endpointChange[0], endpointChange[1]);
+                break;
+
+            case "monitorcontrol.deleteWps":
+                Long wpsId = getRegisteredWpsId((WpsEntity) msg);
+
+                if (wpsId != null) {
+                    removeWps(wpsId);
+                }
+                break;
+
+            case "monitorcontrol.deleteProcess":
+                WpsProcessEntity process = (WpsProcessEntity) msg;
+                Long processWpsId = getRegisteredWpsId(process.getWps());
+
+                if (processWpsId != null) {
+                    removeProcess(processWpsId, process.getIdentifier());
+                }
+                break;
+
+            default:
+                LOG.debug("WpsMetadataRegistry: Event {} ignored.", event.getEventName());
+        }
+    }
+
+    private Long getRegisteredWpsId(final WpsEntity wps) {
+        if (wps == null) {
+            return null;
+        }
+
+        if (wps.getId() != null) {
+            return wps.getId();
+        }
+
+        return wps.getEndpoint() == null ? null : wpsIds.get(wps.getEndpoint().toString());
+    }
+}
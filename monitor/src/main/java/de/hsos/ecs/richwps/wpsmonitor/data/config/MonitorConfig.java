@@ -52,12 +52,74 @@ public final class MonitorConfig implements AutoCloseable {
         DEFAULT_PROPERTIES.setProperty("qos.delete.attime", "9:00");
         DEFAULT_PROPERTIES.setProperty("qos.delete", "true");
         DEFAULT_PROPERTIES.setProperty("wpsclient.timeout", "600000");
+        DEFAULT_PROPERTIES.setProperty("wpsclient.pool.maxtotal", "200");
+        DEFAULT_PROPERTIES.setProperty("wpsclient.pool.maxperroute", "20");
+        DEFAULT_PROPERTIES.setProperty("wpsclient.pool.idletimeout", "60000");
+        DEFAULT_PROPERTIES.setProperty("wpsclient.keepalive", "30000");
+        DEFAULT_PROPERTIES.setProperty("wpsclient.coldconnection", "false");
+        DEFAULT_PROPERTIES.setProperty("wpsclient.async.active", "false");
+        DEFAULT_PROPERTIES.setProperty("wpsclient.async.workers", "2");
+        DEFAULT_PROPERTIES.setProperty("wpsclient.async.capacity", "1000");
+        DEFAULT_PROPERTIES.setProperty("qos.writer.active", "true");
+        DEFAULT_PROPERTIES.setProperty("qos.writer.batchsize", "100");
+        DEFAULT_PROPERTIES.setProperty("qos.writer.flushinterval", "1000");
+        DEFAULT_PROPERTIES.setProperty("qos.writer.capacity", "10000");
+        DEFAULT_PROPERTIES.setProperty("wpsclient.maxbodysize", "1048576");
+        DEFAULT_PROPERTIES.setProperty("qos.cache.active", "true");
+        DEFAULT_PROPERTIES.setProperty("qos.cache.size", "1000");
+        DEFAULT_PROPERTIES.setProperty("qos.rollup.active", "true");
+        DEFAULT_PROPERTIES.setProperty("qos.rollup.interval", "5");
+        DEFAULT_PROPERTIES.setProperty("qos.rollup.minute.afterdays", "30");
+        DEFAULT_PROPERTIES.setProperty("qos.rollup.hour.afterdays", "365");
+        DEFAULT_PROPERTIES.setProperty("qos.rollup.day.afterdays", "0");
+        DEFAULT_PROPERTIES.setProperty("qos.delete.batchsize", "500");
+        DEFAULT_PROPERTIES.setProperty("qos.delete.rowspersecond", "2000");
+        DEFAULT_PROPERTIES.setProperty("qos.partition.active", "false");
+        DEFAULT_PROPERTIES.setProperty("qos.storage.compact", "false");
+        DEFAULT_PROPERTIES.setProperty("qos.archive.afterdays", "0");
+        DEFAULT_PROPERTIES.setProperty("event.dispatcher.active", "true");
+        DEFAULT_PROPERTIES.setProperty("event.dispatcher.threads", "2");
+        DEFAULT_PROPERTIES.setProperty("event.dispatcher.capacity", "1000");
+        DEFAULT_PROPERTIES.setProperty("scheduler.spreading.active", "false");
+        DEFAULT_PROPERTIES.setProperty("scheduler.spreading.window", "3600000");
+        DEFAULT_PROPERTIES.setProperty("scheduler.spreading.jitter", "0");
     }
 
     private Integer deleteIntervalInDays;
     private Calendar deleteTime;
     private Boolean deleteJobActiv;
     private Integer wpsClientTimeout;
+    private Integer wpsClientMaxConnections;
+    private Integer wpsClientMaxConnectionsPerRoute;
+    private Integer wpsClientIdleTimeout;
+    private Integer wpsClientKeepAlive;
+    private Boolean wpsClientColdConnection;
+    private Boolean wpsClientAsyncActive;
+    private Integer wpsClientAsyncWorkers;
+    private Integer wpsClientAsyncCapacity;
+    private Boolean qosWriterActive;
+    private Integer qosWriterBatchSize;
+    private Integer qosWriterFlushInterval;
+    private Integer qosWriterCapacity;
+    private Integer wpsClientMaxBodySize;
+    private Boolean qosCacheActive;
+    private Integer qosCacheSize;
+    private Boolean qosRollupActive;
+    private Integer qosRollupInterval;
+    private Integer minuteRollupRetentionInDays;
+    private Integer hourRollupRetentionInDays;
+    private Integer dayRollupRetentionInDays;
+    private Integer deleteBatchSize;
+    private Integer deleteRowsPerSecond;
+    private Boolean qosPartitionActive;
+    private Boolean qosStorageCompact;
+    private Integer qosArchiveAfterDays;
+    private Boolean eventDispatcherActive;
+    private Integer eventDispatcherThreads;
+    private Integer eventDispatcherCapacity;
+    private Boolean schedulerSpreadingActive;
+    private Integer schedulerSpreadingWindow;
+    private Integer schedulerSpreadingJitter;
 
     private final Properties properties;
     private final File propertiesFile;
@@ -97,6 +159,37 @@ public final class MonitorConfig implements AutoCloseable {
         Calendar atTime = properties.getCalendarProperty("qos.delete.attime", "HH:mm");
         Boolean cleanupJobActive = properties.getBooleanProperty("qos.delete");
         Integer wpsTimeout = properties.getIntegerProperty("wpsclient.timeout");
+        Integer maxConnections = properties.getIntegerProperty("wpsclient.pool.maxtotal");
+        Integer maxConnectionsPerRoute = properties.getIntegerProperty("wpsclient.pool.maxperroute");
+        Integer idleTimeout = properties.getIntegerProperty("wpsclient.pool.idletimeout");
+        Integer keepAlive = properties.getIntegerProperty("wpsclient.keepalive");
+        Boolean coldConnection = properties.getBooleanProperty("wpsclient.coldconnection");
+        Boolean asyncActive = properties.getBooleanProperty("wpsclient.async.active");
+        Integer asyncWorkers = properties.getIntegerProperty("wpsclient.async.workers");
+        Integer asyncCapacity = properties.getIntegerProperty("wpsclient.async.capacity");
+        Boolean writerActive = properties.getBooleanProperty("qos.writer.active");
+        Integer writerBatchSize = properties.getIntegerProperty("qos.writer.batchsize");
+        Integer writerFlushInterval = properties.getIntegerProperty("qos.writer.flushinterval");
+        Integer writerCapacity = properties.getIntegerProperty("qos.writer.capacity");
+        Integer maxBodySize = properties.getIntegerProperty("wpsclient.maxbodysize");
+        Boolean cacheActive = properties.getBooleanProperty("qos.cache.active");
+        Integer cacheSize = properties.getIntegerProperty("qos.cache.size");
+        Boolean rollupActive = properties.getBooleanProperty("qos.rollup.active");
+        Integer rollupInterval = properties.getIntegerProperty("qos.rollup.interval");
+        Integer minuteRetention = properties.getIntegerProperty("qos.rollup.minute.afterdays");
+        Integer hourRetention = properties.getIntegerProperty("qos.rollup.hour.afterdays");
+        Integer dayRetention = properties.getIntegerProperty("qos.rollup.day.afterdays");
+        Integer deleteBatchSize = properties.getIntegerProperty("qos.delete.batchsize");
+        Integer deleteRowsPerSecond = properties.getIntegerProperty("qos.delete.rowspersecond");
+        Boolean qosPartitionActive = properties.getBooleanProperty("qos.partition.active");
+        Boolean qosStorageCompact = properties.getBooleanProperty("qos.storage.compact");
+        Integer qosArchiveAfterDays = properties.getIntegerProperty("qos.archive.afterdays");
+        Boolean dispatcherActive = properties.getBooleanProperty("event.dispatcher.active");
+        Integer dispatcherThreads = properties.getIntegerProperty("event.dispatcher.threads");
+        Integer dispatcherCapacity = properties.getIntegerProperty("event.dispatcher.capacity");
+        Boolean spreadingActive = properties.getBooleanProperty("scheduler.spreading.active");
+        Integer spreadingWindow = properties.getIntegerProperty("scheduler.spreading.window");
+        Integer spreadingJitter = properties.getIntegerProperty("scheduler.spreading.jitter");
 
         if (afterDays == null) {
             throw new MonitorConfigException("Properties error: qos.delete.afterdays needs to be an integer value");
@@ -114,10 +207,157 @@ public final class MonitorConfig implements AutoCloseable {
             throw new MonitorConfigException("Properties error:wpsclient.timeout needs to be a Integer value");
         }
 
+        if (maxConnections == null || maxConnectionsPerRoute == null) {
+            throw new MonitorConfigException("Properties error:wpsclient.pool.maxtotal and wpsclient.pool.maxperroute need to be Integer values");
+        }
+
+        if (idleTimeout == null || keepAlive == null) {
+            throw new MonitorConfigException("Properties error:wpsclient.pool.idletimeout and wpsclient.keepalive need to be Integer values");
+        }
+
+        if (coldConnection == null) {
+            throw new MonitorConfigException("Properties error:wpsclient.coldconnection needs to be a boolean value");
+        }
+
+        if (asyncActive == null) {
+            throw new MonitorConfigException("Properties error:wpsclient.async.active needs to be a boolean value");
+        }
+
+        if (asyncWorkers == null) {
+            throw new MonitorConfigException("Properties error:wpsclient.async.workers needs to be a Integer value");
+        }
+
+        if (asyncCapacity == null) {
+            throw new MonitorConfigException("Properties error:wpsclient.async.capacity needs to be a Integer value");
+        }
+
+        if (writerActive == null) {
+            throw new MonitorConfigException("Properties error:qos.writer.active needs to be a boolean value");
+        }
+
+        if (writerBatchSize == null) {
+            throw new MonitorConfigException("Properties error:qos.writer.batchsize needs to be a Integer value");
+        }
+
+        if (writerFlushInterval == null) {
+            throw new MonitorConfigException("Properties error:qos.writer.flushinterval needs to be a Integer value");
+        }
+
+        if (writerCapacity == null) {
+            throw new MonitorConfigException("Properties error:qos.writer.capacity needs to be a Integer value");
+        }
+
+        if (maxBodySize == null) {
+            throw new MonitorConfigException("Properties error:wpsclient.maxbodysize needs to be a Integer value");
+        }
+
+        if (cacheActive == null) {
+            throw new MonitorConfigException("Properties error:qos.cache.active needs to be a boolean value");
+        }
+
+        if (cacheSize == null) {
+            throw new MonitorConfigException("Properties error:qos.cache.size needs to be a Integer value");
+        }
+
+        if (rollupActive == null) {
+            throw new MonitorConfigException("Properties error:qos.rollup.active needs to be a boolean value");
+        }
+
+        if (rollupInterval == null) {
+            throw new MonitorConfigException("Properties error:qos.rollup.interval needs to be a Integer value");
+        }
+
+        if (minuteRetention == null) {
+            throw new MonitorConfigException("Properties error:qos.rollup.minute.afterdays needs to be a Integer value");
+        }
+
+        if (hourRetention == null) {
+            throw new MonitorConfigException("Properties error:qos.rollup.hour.afterdays needs to be a Integer value");
+        }
+
+        if (dayRetention == null) {
+            throw new MonitorConfigException("Properties error:qos.rollup.day.afterdays needs to be a Integer value");
+        }
+
+        if (deleteBatchSize == null) {
+            throw new MonitorConfigException("Properties error:qos.delete.batchsize needs to be a Integer value");
+        }
+
+        if (deleteRowsPerSecond == null) {
+            throw new MonitorConfigException("Properties error:qos.delete.rowspersecond needs to be a Integer value");
+        }
+
+        if (qosPartitionActive == null) {
+            throw new MonitorConfigException("Properties error:qos.partition.active needs to be a boolean value");
+        }
+
+        if (qosStorageCompact == null) {
+            throw new MonitorConfigException("Properties error:qos.storage.compact needs to be a boolean value");
+        }
+
+        if (qosArchiveAfterDays == null) {
+            throw new MonitorConfigException("Properties error:qos.archive.afterdays needs to be an integer value");
+        }
+
+        if (dispatcherActive == null) {
+            throw new MonitorConfigException("Properties error:event.dispatcher.active needs to be a boolean value");
+        }
+
+        if (dispatcherThreads == null) {
+            throw new MonitorConfigException("Properties error:event.dispatcher.threads needs to be a Integer value");
+        }
+
+        if (dispatcherCapacity == null) {
+            throw new MonitorConfigException("Properties error:event.dispatcher.capacity needs to be a Integer value");
+        }
+
+        if (spreadingActive == null) {
+            throw new MonitorConfigException("Properties error:scheduler.spreading.active needs to be a boolean value");
+        }
+
+        if (spreadingWindow == null) {
+            throw new MonitorConfigException("Properties error:scheduler.spreading.window needs to be a Integer value");
+        }
+
+        if (spreadingJitter == null) {
+            throw new MonitorConfigException("Properties error:scheduler.spreading.jitter needs to be a Integer value");
+        }
+
         setDeleteIntervalInDays(afterDays);
         setDeleteJobActiv(cleanupJobActive);
         setDeleteTime(atTime);
         setWpsClientTimeout(wpsTimeout);
+        setWpsClientMaxConnections(maxConnections);
+        setWpsClientMaxConnectionsPerRoute(maxConnectionsPerRoute);
+        setWpsClientIdleTimeout(idleTimeout);
+        setWpsClientKeepAlive(keepAlive);
+        setWpsClientColdConnection(coldConnection);
+        setWpsClientAsyncActive(asyncActive);
+        setWpsClientAsyncWorkers(asyncWorkers);
+        setWpsClientAsyncCapacity(asyncCapacity);
+        setQosWriterActive(writerActive);
+        setQosWriterBatchSize(writerBatchSize);
+        setQosWriterFlushInterval(writerFlushInterval);
+        setQosWriterCapacity(writerCapacity);
+        setWpsClientMaxBodySize(maxBodySize);
+        setQosCacheActive(cacheActive);
+        setQosCacheSize(cacheSize);
+        setQosRollupActive(rollupActive);
+        setQosRollupInterval(rollupInterval);
+        setMinuteRollupRetentionInDays(minuteRetention);
+        setHourRollupRetentionInDays(hourRetention);
+        setDayRollupRetentionInDays(dayRetention);
+        setDeleteBatchSize(deleteBatchSize);
+        setDeleteRowsPerSecond(deleteRowsPerSecond);
+        setQosPartitionActive(qosPartitionActive);
+        setQosStorageCompact(qosStorageCompact);
+        setQosArchiveAfterDays(qosArchiveAfterDays);
+        setEventDispatcherActive(dispatcherActive);
+        setEventDispatcherThreads(dispatcherThreads);
+        setEventDispatcherCapacity(dispatcherCapacity);
+        setSchedulerSpreadingActive(spreadingActive);
+        setSchedulerSpreadingWindow(spreadingWindow);
+        setSchedulerSpreadingJitter(spreadingJitter);
     }
 
     private void assignVarsToPropertieObj() {
@@ -128,6 +368,37 @@ public final class MonitorConfig implements AutoCloseable {
         properties.setProperty("qos.delete.attime", hour.toString() + ":" + minute.toString());
         properties.setProperty("qos.delete", deleteJobActiv ? "true" : "false");
         properties.setProperty("wpsclient.timeout", wpsClientTimeout.toString());
+        properties.setProperty("wpsclient.pool.maxtotal", wpsClientMaxConnections.toString());
+        properties.setProperty("wpsclient.pool.maxperroute", wpsClientMaxConnectionsPerRoute.toString());
+        properties.setProperty("wpsclient.pool.idletimeout", wpsClientIdleTimeout.toString());
+        properties.setProperty("wpsclient.keepalive", wpsClientKeepAlive.toString());
+        properties.setProperty("wpsclient.coldconnection", wpsClientColdConnection ? "true" : "false");
+        properties.setProperty("wpsclient.async.active", wpsClientAsyncActive ? "true" : "false");
+        properties.setProperty("wpsclient.async.workers", wpsClientAsyncWorkers.toString());
+        properties.setProperty("wpsclient.async.capacity", wpsClientAsyncCapacity.toString());
+        properties.setProperty("qos.writer.active", qosWriterActive ? "true" : "false");
+        properties.setProperty("qos.writer.batchsize", qosWriterBatchSize.toString());
+        properties.setProperty("qos.writer.flushinterval", qosWriterFlushInterval.toString());
+        properties.setProperty("qos.writer.capacity", qosWriterCapacity.toString());
+        properties.setProperty("wpsclient.maxbodysize", wpsClientMaxBodySize.toString());
+        properties.setProperty("qos.cache.active", qosCacheActive ? "true" : "false");
+        properties.setProperty("qos.cache.size", qosCacheSize.toString());
+        properties.setProperty("qos.rollup.active", qosRollupActive ? "true" : "false");
+        properties.setProperty("qos.rollup.interval", qosRollupInterval.toString());
+        properties.setProperty("qos.rollup.minute.afterdays", minuteRollupRetentionInDays.toString());
+        properties.setProperty("qos.rollup.hour.afterdays", hourRollupRetentionInDays.toString());
+        properties.setProperty("qos.rollup.day.afterdays", dayRollupRetentionInDays.toString());
+        properties.setProperty("qos.delete.batchsize", deleteBatchSize.toString());
+        properties.setProperty("qos.delete.rowspersecond", deleteRowsPerSecond.toString());
+        properties.setProperty("qos.partition.active", qosPartitionActive ? "true" : "false");
+        properties.setProperty("qos.storage.compact", qosStorageCompact ? "true" : "false");
+        properties.setProperty("qos.archive.afterdays", qosArchiveAfterDays.toString());
+        properties.setProperty("event.dispatcher.active", eventDispatcherActive ? "true" : "false");
+        properties.setProperty("event.dispatcher.threads", eventDispatcherThreads.toString());
+        properties.setProperty("event.dispatcher.capacity", eventDispatcherCapacity.toString());
+        properties.setProperty("scheduler.spreading.active", schedulerSpreadingActive ? "true" : "false");
+        properties.setProperty("scheduler.spreading.window", schedulerSpreadingWindow.toString());
+        properties.setProperty("scheduler.spreading.jitter", schedulerSpreadingJitter.toString());
     }
 
     /**
@@ -256,6 +527,645 @@ public final class MonitorConfig implements AutoCloseable {
         }
     }
 
+    /**
+     * Gets the maximum amount of pooled WpsClient connections.
+     *
+     * @return Integer instance
+     */
+    public Integer getWpsClientMaxConnections() {
+        return wpsClientMaxConnections;
+    }
+
+    /**
+     * Sets the maximum amount of pooled WpsClient connections.
+     *
+     * @param wpsClientMaxConnections Integer instance
+     */
+    public synchronized void setWpsClientMaxConnections(final Integer wpsClientMaxConnections) {
+        if (wpsClientMaxConnections != null && wpsClientMaxConnections > 0) {
+            this.wpsClientMaxConnections = wpsClientMaxConnections;
+        }
+    }
+
+    /**
+     * Gets the maximum amount of pooled WpsClient connections per WPS-Server.
+     *
+     * @return Integer instance
+     */
+    public Integer getWpsClientMaxConnectionsPerRoute() {
+        return wpsClientMaxConnectionsPerRoute;
+    }
+
+    /**
+     * Sets the maximum amount of pooled WpsClient connections per WPS-Server.
+     *
+     * @param wpsClientMaxConnectionsPerRoute Integer instance
+     */
+    public synchronized void setWpsClientMaxConnectionsPerRoute(final Integer wpsClientMaxConnectionsPerRoute) {
+        if (wpsClientMaxConnectionsPerRoute != null && wpsClientMaxConnectionsPerRoute > 0) {
+            this.wpsClientMaxConnectionsPerRoute = wpsClientMaxConnectionsPerRoute;
+        }
+    }
+
+    /**
+     * Gets the time in ms after which idle pooled connections are evicted.
+     *
+     * @return Integer instance
+     */
+    public Integer getWpsClientIdleTimeout() {
+        return wpsClientIdleTimeout;
+    }
+
+    /**
+     * Sets the time in ms after which idle pooled connections are evicted.
+     *
+     * @param wpsClientIdleTimeout Integer instance
+     */
+    public synchronized void setWpsClientIdleTimeout(final Integer wpsClientIdleTimeout) {
+        if (wpsClientIdleTimeout != null && wpsClientIdleTimeout > 0) {
+            this.wpsClientIdleTimeout = wpsClientIdleTimeout;
+        }
+    }
+
+    /**
+     * Gets the keep-alive duration in ms, which is used if a WPS-Server sends
+     * no Keep-Alive header.
+     *
+     * @return Integer instance
+     */
+    public Integer getWpsClientKeepAlive() {
+        return wpsClientKeepAlive;
+    }
+
+    /**
+     * Sets the keep-alive duration in ms, which is used if a WPS-Server sends
+     * no Keep-Alive header.
+     *
+     * @param wpsClientKeepAlive Integer instance
+     */
+    public synchronized void setWpsClientKeepAlive(final Integer wpsClientKeepAlive) {
+        if (wpsClientKeepAlive != null && wpsClientKeepAlive > 0) {
+            this.wpsClientKeepAlive = wpsClientKeepAlive;
+        }
+    }
+
+    /**
+     * Checks if the WpsClient should open a new connection for every request.
+     *
+     * @return true if cold connections are used, otherwise false
+     */
+    public Boolean isWpsClientColdConnection() {
+        return wpsClientColdConnection;
+    }
+
+    /**
+     * Sets if the WpsClient should open a new connection for every request, to
+     * measure the full connect cost.
+     *
+     * @param wpsClientColdConnection true for cold connections, otherwise false
+     */
+    public synchronized void setWpsClientColdConnection(final Boolean wpsClientColdConnection) {
+        if (wpsClientColdConnection != null) {
+            this.wpsClientColdConnection = wpsClientColdConnection;
+        }
+    }
+
+    /**
+     * Checks if the asynchronous WpsClient is used instead of the default
+     * WpsClient; read at the start of the monitor.
+     *
+     * @return true if active, otherwise false
+     */
+    public Boolean isWpsClientAsyncActive() {
+        return wpsClientAsyncActive;
+    }
+
+    /**
+     * Sets if the asynchronous WpsClient is used instead of the default
+     * WpsClient.
+     *
+     * @param wpsClientAsyncActive true for active, otherwise false
+     */
+    public synchronized void setWpsClientAsyncActive(final Boolean wpsClientAsyncActive) {
+        if (wpsClientAsyncActive != null) {
+            this.wpsClientAsyncActive = wpsClientAsyncActive;
+        }
+    }
+
+    /**
+     * Gets the amount of threads which process the responses of asynchronous
+     * WpsClients.
+     *
+     * @return Integer instance
+     */
+    public Integer getWpsClientAsyncWorkers() {
+        return wpsClientAsyncWorkers;
+    }
+
+    /**
+     * Sets the amount of threads which process the responses of asynchronous
+     * WpsClients.
+     *
+     * @param wpsClientAsyncWorkers Integer instance
+     */
+    public synchronized void setWpsClientAsyncWorkers(final Integer wpsClientAsyncWorkers) {
+        if (wpsClientAsyncWorkers != null && wpsClientAsyncWorkers > 0) {
+            this.wpsClientAsyncWorkers = wpsClientAsyncWorkers;
+        }
+    }
+
+    /**
+     * Gets the max. amount of responses of asynchronous WpsClients which wait
+     * for a worker thread.
+     *
+     * @return Integer instance
+     */
+    public Integer getWpsClientAsyncCapacity() {
+        return wpsClientAsyncCapacity;
+    }
+
+    /**
+     * Sets the max. amount of responses of asynchronous WpsClients which wait
+     * for a worker thread.
+     *
+     * @param wpsClientAsyncCapacity Integer instance
+     */
+    public synchronized void setWpsClientAsyncCapacity(final Integer wpsClientAsyncCapacity) {
+        if (wpsClientAsyncCapacity != null && wpsClientAsyncCapacity > 0) {
+            this.wpsClientAsyncCapacity = wpsClientAsyncCapacity;
+        }
+    }
+
+    /**
+     * Checks if measured data is persisted through the write-behind queue.
+     *
+     * @return true if active, otherwise false
+     */
+    public Boolean isQosWriterActive() {
+        return qosWriterActive;
+    }
+
+    /**
+     * Sets if measured data is persisted through the write-behind queue.
+     *
+     * @param qosWriterActive true for active, otherwise false
+     */
+    public synchronized void setQosWriterActive(final Boolean qosWriterActive) {
+        if (qosWriterActive != null) {
+            this.qosWriterActive = qosWriterActive;
+        }
+    }
+
+    /**
+     * Gets the max. amount of measurements which are persisted in one transaction.
+     *
+     * @return Integer instance
+     */
+    public Integer getQosWriterBatchSize() {
+        return qosWriterBatchSize;
+    }
+
+    /**
+     * Sets the max. amount of measurements which are persisted in one transaction.
+     *
+     * @param qosWriterBatchSize Integer instance
+     */
+    public synchronized void setQosWriterBatchSize(final Integer qosWriterBatchSize) {
+        if (qosWriterBatchSize != null && qosWriterBatchSize > 0) {
+            this.qosWriterBatchSize = qosWriterBatchSize;
+        }
+    }
+
+    /**
+     * Gets the max. time in ms a measurement waits in the write-behind queue for its batch.
+     *
+     * @return Integer instance
+     */
+    public Integer getQosWriterFlushInterval() {
+        return qosWriterFlushInterval;
+    }
+
+    /**
+     * Sets the max. time in ms a measurement waits in the write-behind queue for its batch.
+     *
+     * @param qosWriterFlushInterval Integer instance
+     */
+    public synchronized void setQosWriterFlushInterval(final Integer qosWriterFlushInterval) {
+        if (qosWriterFlushInterval != null && qosWriterFlushInterval > 0) {
+            this.qosWriterFlushInterval = qosWriterFlushInterval;
+        }
+    }
+
+    /**
+     * Gets the capacity of the write-behind queue.
+     *
+     * @return Integer instance
+     */
+    public Integer getQosWriterCapacity() {
+        return qosWriterCapacity;
+    }
+
+    /**
+     * Sets the capacity of the write-behind queue.
+     *
+     * @param qosWriterCapacity Integer instance
+     */
+    public synchronized void setQosWriterCapacity(final Integer qosWriterCapacity) {
+        if (qosWriterCapacity != null && qosWriterCapacity > 0) {
+            this.qosWriterCapacity = qosWriterCapacity;
+        }
+    }
+
+    /**
+     * Gets the max. amount of bytes of a WPS response body which are retained in memory; 0 means unlimited.
+     *
+     * @return Integer instance
+     */
+    public Integer getWpsClientMaxBodySize() {
+        return wpsClientMaxBodySize;
+    }
+
+    /**
+     * Sets the max. amount of bytes of a WPS response body which are retained in memory; 0 means unlimited.
+     *
+     * @param wpsClientMaxBodySize Integer instance
+     */
+    public synchronized void setWpsClientMaxBodySize(final Integer wpsClientMaxBodySize) {
+        if (wpsClientMaxBodySize != null && wpsClientMaxBodySize >= 0) {
+            this.wpsClientMaxBodySize = wpsClientMaxBodySize;
+        }
+    }
+
+    /**
+     * Checks if the newest measurements of each process are held in memory.
+     *
+     * @return true if active, otherwise false
+     */
+    public Boolean isQosCacheActive() {
+        return qosCacheActive;
+    }
+
+    /**
+     * Sets if the newest measurements of each process are held in memory.
+     *
+     * @param qosCacheActive true for active, otherwise false
+     */
+    public synchronized void setQosCacheActive(final Boolean qosCacheActive) {
+        if (qosCacheActive != null) {
+            this.qosCacheActive = qosCacheActive;
+        }
+    }
+
+    /**
+     * Gets the max. amount of measurements per process which are held in memory.
+     *
+     * @return Integer instance
+     */
+    public Integer getQosCacheSize() {
+        return qosCacheSize;
+    }
+
+    /**
+     * Sets the max. amount of measurements per process which are held in memory.
+     *
+     * @param qosCacheSize Integer instance
+     */
+    public synchronized void setQosCacheSize(final Integer qosCacheSize) {
+        if (qosCacheSize != null && qosCacheSize > 0) {
+            this.qosCacheSize = qosCacheSize;
+        }
+    }
+
+    /**
+     * Checks if the measured data is aggregated into minute, hour and day rollups.
+     *
+     * @return true if active, otherwise false
+     */
+    public Boolean isQosRollupActive() {
+        return qosRollupActive;
+    }
+
+    /**
+     * Sets if the measured data is aggregated into minute, hour and day rollups.
+     *
+     * @param qosRollupActive true for active, otherwise false
+     */
+    public synchronized void setQosRollupActive(final Boolean qosRollupActive) {
+        if (qosRollupActive != null) {
+            this.qosRollupActive = qosRollupActive;
+        }
+    }
+
+    /**
+     * Gets the interval in minutes in which the rollups are updated.
+     *
+     * @return Integer instance
+     */
+    public Integer getQosRollupInterval() {
+        return qosRollupInterval;
+    }
+
+    /**
+     * Sets the interval in minutes in which the rollups are updated.
+     *
+     * @param qosRollupInterval Integer instance
+     */
+    public synchronized void setQosRollupInterval(final Integer qosRollupInterval) {
+        if (qosRollupInterval != null && qosRollupInterval > 0) {
+            this.qosRollupInterval = qosRollupInterval;
+        }
+    }
+
+    /**
+     * Gets after how many days minute rollups are deleted; 0 keeps them
+     * forever. Minute rollups are kept at least as long as the raw
+     * measurements.
+     *
+     * @return Integer instance
+     */
+    public Integer getMinuteRollupRetentionInDays() {
+        return minuteRollupRetentionInDays;
+    }
+
+    /**
+     * Sets after how many days minute rollups are deleted; 0 keeps them
+     * forever. Minute rollups are kept at least as long as the raw
+     * measurements.
+     *
+     * @param minuteRollupRetentionInDays Integer instance
+     */
+    public synchronized void setMinuteRollupRetentionInDays(final Integer minuteRollupRetentionInDays) {
+        if (minuteRollupRetentionInDays != null && minuteRollupRetentionInDays >= 0) {
+            this.minuteRollupRetentionInDays = minuteRollupRetentionInDays;
+        }
+    }
+
+    /**
+     * Gets after how many days hour rollups are deleted; 0 keeps them forever.
+     *
+     * @return Integer instance
+     */
+    public Integer getHourRollupRetentionInDays() {
+        return hourRollupRetentionInDays;
+    }
+
+    /**
+     * Sets after how many days hour rollups are deleted; 0 keeps them forever.
+     *
+     * @param hourRollupRetentionInDays Integer instance
+     */
+    public synchronized void setHourRollupRetentionInDays(final Integer hourRollupRetentionInDays) {
+        if (hourRollupRetentionInDays != null && hourRollupRetentionInDays >= 0) {
+            this.hourRollupRetentionInDays = hourRollupRetentionInDays;
+        }
+    }
+
+    /**
+     * Gets after how many days day rollups are deleted; 0 keeps them forever.
+     *
+     * @return Integer instance
+     */
+    public Integer getDayRollupRetentionInDays() {
+        return dayRollupRetentionInDays;
+    }
+
+    /**
+     * Sets after how many days day rollups are deleted; 0 keeps them forever.
+     *
+     * @param dayRollupRetentionInDays Integer instance
+     */
+    public synchronized void setDayRollupRetentionInDays(final Integer dayRollupRetentionInDays) {
+        if (dayRollupRetentionInDays != null && dayRollupRetentionInDays >= 0) {
+            this.dayRollupRetentionInDays = dayRollupRetentionInDays;
+        }
+    }
+
+    /**
+     * Gets the max. amount of measurements which are deleted in one transaction by the cleanup job.
+     *
+     * @return Integer instance
+     */
+    public Integer getDeleteBatchSize() {
+        return deleteBatchSize;
+    }
+
+    /**
+     * Sets the max. amount of measurements which are deleted in one transaction by the cleanup job.
+     *
+     * @param deleteBatchSize Integer instance
+     */
+    public synchronized void setDeleteBatchSize(final Integer deleteBatchSize) {
+        if (deleteBatchSize != null && deleteBatchSize > 0) {
+            this.deleteBatchSize = deleteBatchSize;
+        }
+    }
+
+    /**
+     * Gets the max. amount of measurements per second which are deleted by the cleanup job; 0 disables the throttle.
+     *
+     * @return Integer instance
+     */
+    public Integer getDeleteRowsPerSecond() {
+        return deleteRowsPerSecond;
+    }
+
+    /**
+     * Sets the max. amount of measurements per second which are deleted by the cleanup job; 0 disables the throttle.
+     *
+     * @param deleteRowsPerSecond Integer instance
+     */
+    public synchronized void setDeleteRowsPerSecond(final Integer deleteRowsPerSecond) {
+        if (deleteRowsPerSecond != null && deleteRowsPerSecond >= 0) {
+            this.deleteRowsPerSecond = deleteRowsPerSecond;
+        }
+    }
+
+    /**
+     * Checks if the measurements are stored in monthly partitions.
+     *
+     * @return true if active, otherwise false
+     */
+    public Boolean isQosPartitionActive() {
+        return qosPartitionActive;
+    }
+
+    /**
+     * Sets if the measurements are stored in monthly partitions.
+     *
+     * @param qosPartitionActive true for active, otherwise false
+     */
+    public synchronized void setQosPartitionActive(final Boolean qosPartitionActive) {
+        if (qosPartitionActive != null) {
+            this.qosPartitionActive = qosPartitionActive;
+        }
+    }
+
+    /**
+     * Checks if the measurements are stored in the compact single-row layout.
+     *
+     * @return true if active, otherwise false
+     */
+    public Boolean isQosStorageCompact() {
+        return qosStorageCompact;
+    }
+
+    /**
+     * Sets if the measurements are stored in the compact single-row layout.
+     *
+     * @param qosStorageCompact true for active, otherwise false
+     */
+    public synchronized void setQosStorageCompact(final Boolean qosStorageCompact) {
+        if (qosStorageCompact != null) {
+            this.qosStorageCompact = qosStorageCompact;
+        }
+    }
+
+    /**
+     * Gets the age in days after which measurements are moved into the
+     * archive; 0 disables the archive.
+     *
+     * @return Integer instance
+     */
+    public Integer getQosArchiveAfterDays() {
+        return qosArchiveAfterDays;
+    }
+
+    /**
+     * Sets the age in days after which measurements are moved into the
+     * archive; 0 disables the archive.
+     *
+     * @param qosArchiveAfterDays Integer instance
+     */
+    public synchronized void setQosArchiveAfterDays(final Integer qosArchiveAfterDays) {
+        if (qosArchiveAfterDays != null && qosArchiveAfterDays >= 0) {
+            this.qosArchiveAfterDays = qosArchiveAfterDays;
+        }
+    }
+
+    /**
+     * Checks if the monitor events of the measurements are fired
+     * asynchronously by the event dispatcher.
+     *
+     * @return true if active, otherwise false
+     */
+    public Boolean isEventDispatcherActive() {
+        return eventDispatcherActive;
+    }
+
+    /**
+     * Sets if the monitor events of the measurements are fired
+     * asynchronously by the event dispatcher.
+     *
+     * @param eventDispatcherActive true for active, otherwise false
+     */
+    public synchronized void setEventDispatcherActive(final Boolean eventDispatcherActive) {
+        if (eventDispatcherActive != null) {
+            this.eventDispatcherActive = eventDispatcherActive;
+        }
+    }
+
+    /**
+     * Gets the amount of threads of the event dispatcher.
+     *
+     * @return Integer instance
+     */
+    public Integer getEventDispatcherThreads() {
+        return eventDispatcherThreads;
+    }
+
+    /**
+     * Sets the amount of threads of the event dispatcher.
+     *
+     * @param eventDispatcherThreads Integer instance
+     */
+    public synchronized void setEventDispatcherThreads(final Integer eventDispatcherThreads) {
+        if (eventDispatcherThreads != null && eventDispatcherThreads > 0) {
+            this.eventDispatcherThreads = eventDispatcherThreads;
+        }
+    }
+
+    /**
+     * Gets the max. amount of queued events of the event dispatcher.
+     *
+     * @return Integer instance
+     */
+    public Integer getEventDispatcherCapacity() {
+        return eventDispatcherCapacity;
+    }
+
+    /**
+     * Sets the max. amount of queued events of the event dispatcher.
+     *
+     * @param eventDispatcherCapacity Integer instance
+     */
+    public synchronized void setEventDispatcherCapacity(final Integer eventDispatcherCapacity) {
+        if (eventDispatcherCapacity != null && eventDispatcherCapacity > 0) {
+            this.eventDispatcherCapacity = eventDispatcherCapacity;
+        }
+    }
+
+    /**
+     * Checks if the start times of new triggers are spread over the interval.
+     * It's off by default, because a spread trigger doesn't start at the
+     * configured start time.
+     *
+     * @return true if active, otherwise false
+     */
+    public Boolean isSchedulerSpreadingActive() {
+        return schedulerSpreadingActive;
+    }
+
+    /**
+     * Sets if the start times of new triggers are spread over the interval.
+     *
+     * @param schedulerSpreadingActive true for active, otherwise false
+     */
+    public synchronized void setSchedulerSpreadingActive(final Boolean schedulerSpreadingActive) {
+        if (schedulerSpreadingActive != null) {
+            this.schedulerSpreadingActive = schedulerSpreadingActive;
+        }
+    }
+
+    /**
+     * Gets the maximum window in milliseconds over which the start times of triggers are spread.
+     *
+     * @return Integer instance
+     */
+    public Integer getSchedulerSpreadingWindow() {
+        return schedulerSpreadingWindow;
+    }
+
+    /**
+     * Sets the maximum window in milliseconds over which the start times of triggers are spread.
+     *
+     * @param schedulerSpreadingWindow Integer instance
+     */
+    public synchronized void setSchedulerSpreadingWindow(final Integer schedulerSpreadingWindow) {
+        if (schedulerSpreadingWindow != null && schedulerSpreadingWindow >= 0) {
+            this.schedulerSpreadingWindow = schedulerSpreadingWindow;
+        }
+    }
+
+    /**
+     * Gets the maximum random jitter in milliseconds which is added to the start times of triggers.
+     *
+     * @return Integer instance
+     */
+    public Integer getSchedulerSpreadingJitter() {
+        return schedulerSpreadingJitter;
+    }
+
+    /**
+     * Sets the maximum random jitter in milliseconds which is added to the start times of triggers.
+     *
+     * @param schedulerSpreadingJitter Integer instance
+     */
+    public synchronized void setSchedulerSpreadingJitter(final Integer schedulerSpreadingJitter) {
+        if (schedulerSpreadingJitter != null && schedulerSpreadingJitter >= 0) {
+            this.schedulerSpreadingJitter = schedulerSpreadingJitter;
+        }
+    }
+
     @Override
     public void close() throws Exception {
         save();
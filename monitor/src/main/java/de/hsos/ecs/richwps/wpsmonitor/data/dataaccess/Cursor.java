@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.util.Date;
+
+/**
+ * Position in a list of measurements which is ordered by createTime and id,
+ * newest first. Unlike the offset of a {@link Range}, the database can seek to
+ * this position through the createTime index, so every page costs the same,
+ * no matter how deep the client has paged.
+ *
+ * A Cursor can be encoded as an opaque, URL-safe token.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class Cursor {
+
+    private static final Integer RADIX = Character.MAX_RADIX;
+    private static final String SEPARATOR = "_";
+
+    /**
+     * createTime of the last delivered measurement
+     */
+    private final Date createTime;
+
+    /**
+     * Id of the last delivered measurement
+     */
+    private final Long id;
+
+    /**
+     * Constructor.
+     *
+     * @param createTime createTime of the last delivered measurement
+     * @param id Id of the last delivered measurement
+     */
+    public Cursor(final Date createTime, final Long id) {
+        this.createTime = new Date(Validate.notNull(createTime, "createTime").getTime());
+        this.id = Validate.notNull(id, "id");
+    }
+
+    /**
+     * Creates a Cursor which points behind the given measurement.
+     *
+     * @param measuredData MeasuredDataEntity instance
+     * @return Cursor instance
+     */
+    public static Cursor after(final MeasuredDataEntity measuredData) {
+        Validate.notNull(measuredData, "measuredData");
+
+        return new Cursor(measuredData.getCreateTime(), measuredData.getId());
+    }
+
+    /**
+     * Creates a Cursor which points behind the measurement of the given
+     * record.
+     *
+     * @param record QosRecord instance
+     * @return Cursor instance
+     */
+    public static Cursor after(final QosRecord record) {
+        Validate.notNull(record, "record");
+
+        return new Cursor(record.getCreateTime(), record.getMeasuredDataId());
+    }
+
+    /**
+     * Decodes a token which was created by {@link #encode()}.
+     *
+     * @param token Token string
+     * @return Cursor instance
+     * @throws IllegalArgumentException if the token is not valid
+     */
+    public static Cursor decode(final String token) {
+        Validate.notEmpty(token, "token");
+
+        String[] parts = token.split(SEPARATOR);
+
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Invalid cursor token: " + token);
+        }
+
+        try {
+            return new Cursor(new Date(Long.parseLong(parts[0], RADIX)), Long.parseLong(parts[1], RADIX));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid cursor token: " + token, ex);
+        }
+    }
+
+    /**
+     * Encodes this Cursor as URL-safe token.
+     *
+     * @return Token string
+     */
+    public String encode() {
+        return Long.toString(createTime.getTime(), RADIX) + SEPARATOR + Long.toString(id, RADIX);
+    }
+
+    public Date getCreateTime() {
+        return new Date(createTime.getTime());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "Cursor{" + "createTime=" + createTime + ", id=" + id + '}';
+    }
+}
@@ -17,6 +17,9 @@ package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess;
 
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.AbstractQosEntity;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataRollupEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.RollupGranularity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
 import java.net.URL;
 import java.util.Date;
 import java.util.List;
@@ -110,6 +113,48 @@ public interface QosDataAccess extends GenericDataAccess<MeasuredDataEntity> {
      */
     public List<MeasuredDataEntity> getByWps(final URL endpoint, final Range range);
 
+    /**
+     * Gets at most "limit" {@link MeasuredDataEntity}-Objects of the given
+     * process which are older as the cursor position, newest first. Use
+     * {@link Cursor#after(MeasuredDataEntity)} of the last element to get the
+     * next page.
+     *
+     * @param wpsId Wps entity id
+     * @param processIdentifier Process entity identifier
+     * @param before Cursor instance; null for the first page
+     * @param limit Max. amount of elements
+     * @return List of MeasuredDataEntity-Objects
+     */
+    public List<MeasuredDataEntity> getByProcess(final Long wpsId, final String processIdentifier,
+            final Cursor before, final Integer limit);
+
+    /**
+     * Gets at most "limit" {@link MeasuredDataEntity}-Objects of the given wps
+     * which are older as the cursor position, newest first.
+     *
+     * @param wpsId WPS ID
+     * @param before Cursor instance; null for the first page
+     * @param limit Max. amount of elements
+     * @return List of MeasuredDataEntity-Objects
+     */
+    public List<MeasuredDataEntity> getByWps(final Long wpsId, final Cursor before, final Integer limit);
+
+    /**
+     * Gets the {@link QosRecord}s of the same measurements as
+     * getByProcess(wpsId, processIdentifier, before, limit), newest first. No
+     * MeasuredDataEntity or process is loaded; this is the cheap way to
+     * calculate metrics. Only committed measurements are read, also inside of
+     * a transaction; the entities of the records must not be modified.
+     *
+     * @param wpsId Wps entity id
+     * @param processIdentifier Process entity identifier
+     * @param before Cursor instance; null for the first page
+     * @param limit Max. amount of measurements
+     * @return List of QosRecord instances, grouped by measurement
+     */
+    public List<QosRecord> getRecordsByProcess(final Long wpsId, final String processIdentifier,
+            final Cursor before, final Integer limit);
+
     /**
      * Deletes all measured Qos-Data that match the given Wps process which is
      * identified by WPS ID and processIdentifier.
@@ -160,5 +205,97 @@ public interface QosDataAccess extends GenericDataAccess<MeasuredDataEntity> {
      */
     public Integer deleteAllOlderAs(final Date date);
 
+    /**
+     * Deletes the oldest measured Qos-Data which are older as "date". At most
+     * "limit" measurements are deleted, in one transaction; so this method can
+     * be called repeatedly until it returns less than "limit".
+     *
+     * @param date Date instance
+     * @param limit Max. amount of measurements to delete
+     * @return Amount of deleted measurements
+     */
+    public Integer deleteAllOlderAs(final Date date, final Integer limit);
+
+    /**
+     * Moves the measured Qos-Data which are older as "date" into the archive.
+     * Archived Qos-Data is still returned by the read methods.
+     *
+     * @param date Date instance
+     * @return Amount of archived measurements; 0 if there is no archive
+     */
+    public Integer archiveOlderAs(final Date date);
+
     public AbstractQosEntity findAbstractQosEntityByid(final Long id);
+
+    /**
+     * Gets all {@link MeasuredDataEntity}-Objects which are created in the
+     * interval [from, to), ordered by their createTime.
+     *
+     * @param from Inclusive start
+     * @param to Exclusive end
+     * @return List of MeasuredDataEntity-Objects
+     */
+    public List<MeasuredDataEntity> getBetween(final Date from, final Date to);
+
+    /**
+     * Gets the createTime of the oldest measured Qos-Data which is not older
+     * as the given date.
+     *
+     * @param since Date instance
+     * @return Date instance, or null if no such Qos-Data is stored
+     */
+    public Date getOldestCreateTime(final Date since);
+
+    /**
+     * Gets all {@link MeasuredDataRollupEntity}-Objects of the given process
+     * and granularity whose bucket starts in the interval [from, to), ordered
+     * by the bucket start.
+     *
+     * @param wpsId WPS ID
+     * @param processIdentifier WpsProcess entity identifier
+     * @param granularity RollupGranularity of the buckets
+     * @param from Inclusive start
+     * @param to Exclusive end
+     * @return List of MeasuredDataRollupEntity-Objects
+     */
+    public List<MeasuredDataRollupEntity> getRollups(final Long wpsId, final String processIdentifier,
+            final RollupGranularity granularity, final Date from, final Date to);
+
+    /**
+     * Finds a specific rollup bucket.
+     *
+     * @param process WpsProcessEntity instance
+     * @param entityName Name of the aggregated qos entity type
+     * @param granularity RollupGranularity of the bucket
+     * @param bucketStart Start of the bucket
+     * @return MeasuredDataRollupEntity instance, or null if not found
+     */
+    public MeasuredDataRollupEntity findRollup(final WpsProcessEntity process, final String entityName,
+            final RollupGranularity granularity, final Date bucketStart);
+
+    /**
+     * Stores a new or updates an existing rollup bucket.
+     *
+     * @param rollup MeasuredDataRollupEntity instance
+     * @return The managed MeasuredDataRollupEntity instance
+     */
+    public MeasuredDataRollupEntity storeRollup(final MeasuredDataRollupEntity rollup);
+
+    /**
+     * Gets the start of the newest rollup bucket with the given granularity.
+     *
+     * @param granularity RollupGranularity instance
+     * @return Date instance, or null if no bucket exists
+     */
+    public Date getNewestRollupBucket(final RollupGranularity granularity);
+
+    /**
+     * Deletes all rollups with the given granularity whose bucket starts
+     * before "date".
+     *
+     * @param granularity RollupGranularity instance
+     * @param date Date instance
+     * @return Affected rows
+     */
+    public Integer deleteRollupsOlderAs(final RollupGranularity granularity, final Date date);
 }
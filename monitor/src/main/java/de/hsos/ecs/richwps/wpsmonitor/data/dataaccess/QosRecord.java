@@ -0,0 +1,110 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.AbstractQosEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Lightweight projection of a measurement: one {@link AbstractQosEntity} with
+ * the id and createTime of its {@link MeasuredDataEntity}. Metrics only need
+ * these values; the process (with its raw request) is not loaded.
+ *
+ * A measurement without qos entities is represented by a single QosRecord
+ * whose entity is null.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class QosRecord {
+
+    private final Long measuredDataId;
+    private final Date createTime;
+    private final AbstractQosEntity entity;
+
+    /**
+     * Constructor.
+     *
+     * @param measuredDataId Id of the MeasuredDataEntity; null if not
+     * persisted
+     * @param createTime createTime of the MeasuredDataEntity
+     * @param entity AbstractQosEntity instance; can be null
+     */
+    public QosRecord(final Long measuredDataId, final Date createTime, final AbstractQosEntity entity) {
+        this.measuredDataId = measuredDataId;
+        this.createTime = Validate.notNull(createTime, "createTime");
+        this.entity = entity;
+    }
+
+    /**
+     * Creates the records of the given measurements; the order is kept.
+     *
+     * @param measuredData List of MeasuredDataEntity instances
+     * @return List of QosRecord instances
+     */
+    public static List<QosRecord> of(final List<MeasuredDataEntity> measuredData) {
+        Validate.notNull(measuredData, "measuredData");
+
+        List<QosRecord> records = new ArrayList<>();
+
+        for (MeasuredDataEntity m : measuredData) {
+            if (m.getData() == null || m.getData().isEmpty()) {
+                records.add(new QosRecord(m.getId(), m.getCreateTime(), null));
+            } else {
+                for (AbstractQosEntity entity : m.getData()) {
+                    records.add(new QosRecord(m.getId(), m.getCreateTime(), entity));
+                }
+            }
+        }
+
+        return records;
+    }
+
+    /**
+     * Counts the different measurements of the given persisted records.
+     *
+     * @param records List of QosRecord instances, grouped by measurement
+     * @return Amount of measurements
+     */
+    public static Integer countMeasurements(final List<QosRecord> records) {
+        Integer count = 0;
+        Long last = null;
+
+        for (QosRecord record : records) {
+            if (count == 0 || !record.getMeasuredDataId().equals(last)) {
+                last = record.getMeasuredDataId();
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    public Long getMeasuredDataId() {
+        return measuredDataId;
+    }
+
+    public Date getCreateTime() {
+        return createTime;
+    }
+
+    public AbstractQosEntity getEntity() {
+        return entity;
+    }
+}
@@ -62,6 +62,15 @@ public interface WpsProcessDataAccess extends GenericDataAccess<WpsProcessEntity
      */
     public List<WpsProcessEntity> getAll(final URL endpoint);
 
+    /**
+     * Gets the summaries of all processes of the given wps. The test requests
+     * are not loaded.
+     *
+     * @param wpsId WPS ID
+     * @return List of WpsProcessSummary instances, ordered by identifier
+     */
+    public List<WpsProcessSummary> getSummaries(final Long wpsId);
+
     /**
      * Deletes all processes from the wps that match the given WPS ID.
      *
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+
+/**
+ * Lightweight projection of a {@link WpsProcessEntity} without its test
+ * request, e.g. for process lists. The full entity is only needed to execute
+ * or edit the test request.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class WpsProcessSummary {
+
+    private final Long id;
+    private final String identifier;
+    private final Boolean wpsException;
+    private final WpsEntity wps;
+
+    /**
+     * Constructor.
+     *
+     * @param id Id of the process
+     * @param identifier Identifier of the process
+     * @param wpsException true if the last measurement caused a wps exception
+     * @param wps WpsEntity of the process
+     */
+    public WpsProcessSummary(final Long id, final String identifier, final Boolean wpsException, final WpsEntity wps) {
+        this.id = id;
+        this.identifier = identifier;
+        this.wpsException = wpsException;
+        this.wps = wps;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public Boolean isWpsException() {
+        return wpsException;
+    }
+
+    public WpsEntity getWps() {
+        return wps;
+    }
+
+    @Override
+    public String toString() {
+        return "WpsProcessSummary{" + "id=" + id + ", identifier=" + identifier + ", wps=" + wps + '}';
+    }
+}
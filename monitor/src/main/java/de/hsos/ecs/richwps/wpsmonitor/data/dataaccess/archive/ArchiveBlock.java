@@ -0,0 +1,161 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.archive;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Index entry of a block in an archive file. The header is stored
+ * uncompressed in front of the block data:
+ *
+ * [length int | count int | firstTime long | lastTime long | minId long |
+ * maxId long]
+ *
+ * So the index of an archive file can be built without decompressing any
+ * block.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+final class ArchiveBlock {
+
+    static final Integer HEADER_SIZE = 40;
+
+    private final Long offset;
+    private final Integer length;
+    private final Integer count;
+    private final Long firstTime;
+    private final Long lastTime;
+    private final Long minId;
+    private final Long maxId;
+
+    private ArchiveBlock(final Long offset, final Integer length, final Integer count, final Long firstTime,
+            final Long lastTime, final Long minId, final Long maxId) {
+        this.offset = offset;
+        this.length = length;
+        this.count = count;
+        this.firstTime = firstTime;
+        this.lastTime = lastTime;
+        this.minId = minId;
+        this.maxId = maxId;
+    }
+
+    /**
+     * Creates the index entry of a new block.
+     *
+     * @param offset Position of the header in the file
+     * @param length Length of the compressed data
+     * @param measurements Measurements of the block, oldest first
+     * @return ArchiveBlock instance
+     */
+    static ArchiveBlock of(final Long offset, final Integer length, final List<MeasuredDataEntity> measurements) {
+        Long minId = Long.MAX_VALUE;
+        Long maxId = Long.MIN_VALUE;
+
+        for (MeasuredDataEntity measuredData : measurements) {
+            minId = Math.min(minId, measuredData.getId());
+            maxId = Math.max(maxId, measuredData.getId());
+        }
+
+        return new ArchiveBlock(offset, length, measurements.size(),
+                measurements.get(0).getCreateTime().getTime(),
+                measurements.get(measurements.size() - 1).getCreateTime().getTime(),
+                minId, maxId);
+    }
+
+    /**
+     * Reads the header at the current position.
+     *
+     * @param in DataInput instance
+     * @param offset Current position
+     * @return ArchiveBlock instance
+     * @throws IOException if the header can't be read
+     */
+    static ArchiveBlock read(final DataInput in, final Long offset) throws IOException {
+        Integer length = in.readInt();
+        Integer count = in.readInt();
+
+        return new ArchiveBlock(offset, length, count, in.readLong(), in.readLong(), in.readLong(), in.readLong());
+    }
+
+    /**
+     * Writes the header.
+     *
+     * @param out DataOutput instance
+     * @throws IOException if the header can't be written
+     */
+    void write(final DataOutput out) throws IOException {
+        out.writeInt(length);
+        out.writeInt(count);
+        out.writeLong(firstTime);
+        out.writeLong(lastTime);
+        out.writeLong(minId);
+        out.writeLong(maxId);
+    }
+
+    /**
+     * Creates a copy of this entry for another position.
+     *
+     * @param newOffset New position of the header
+     * @return ArchiveBlock instance
+     */
+    ArchiveBlock moveTo(final Long newOffset) {
+        return new ArchiveBlock(newOffset, length, count, firstTime, lastTime, minId, maxId);
+    }
+
+    /**
+     * Checks if the block may contain measurements of the interval [from,
+     * to).
+     *
+     * @param from Inclusive start; null for unbounded
+     * @param to Exclusive end; null for unbounded
+     * @return true if the intervals overlap
+     */
+    Boolean overlaps(final Long from, final Long to) {
+        return (from == null || lastTime >= from) && (to == null || firstTime < to);
+    }
+
+    Boolean mayContain(final Long id) {
+        return minId <= id && id <= maxId;
+    }
+
+    Long getDataOffset() {
+        return offset + HEADER_SIZE;
+    }
+
+    Long getEnd() {
+        return getDataOffset() + length;
+    }
+
+    Integer getLength() {
+        return length;
+    }
+
+    Integer getCount() {
+        return count;
+    }
+
+    Long getFirstTime() {
+        return firstTime;
+    }
+
+    Long getLastTime() {
+        return lastTime;
+    }
+}
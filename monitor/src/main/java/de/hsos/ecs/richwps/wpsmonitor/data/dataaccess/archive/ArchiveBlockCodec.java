@@ -0,0 +1,329 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.archive;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.compact.QosDataCodec;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.AbstractQosEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.ArchivableQos;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Encodes the measurements of one archive block. The block is stored column
+ * by column and compressed afterwards:
+ *
+ * count, class names, (id delta, time delta) per measurement, kind bitmap,
+ * availability bitmap, values
+ *
+ * The measurements are sorted by createTime, so the time deltas are small
+ * positive varints. Measurements which consist of a single
+ * {@link ArchivableQos} entity are stored as class index and value; the
+ * availability bit is cleared if the value is null. All other measurements
+ * are stored as encoded by the {@link QosDataCodec}.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+final class ArchiveBlockCodec {
+
+    private static final Logger LOG = LogManager.getLogger();
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Orders the measurements by createTime and id, oldest first.
+     */
+    static final Comparator<MeasuredDataEntity> OLDEST_FIRST = new Comparator<MeasuredDataEntity>() {
+
+        @Override
+        public int compare(final MeasuredDataEntity o1, final MeasuredDataEntity o2) {
+            int result = o1.getCreateTime().compareTo(o2.getCreateTime());
+
+            return (result != 0) ? result : o1.getId().compareTo(o2.getId());
+        }
+    };
+
+    private final QosDataCodec qosCodec;
+
+    ArchiveBlockCodec() {
+        this.qosCodec = new QosDataCodec();
+    }
+
+    /**
+     * Encodes and compresses the given measurements.
+     *
+     * @param measurements List of MeasuredDataEntity instances, sorted by
+     * {@link #OLDEST_FIRST}
+     * @return Compressed block
+     * @throws IOException if the block can't be written
+     */
+    byte[] encode(final List<MeasuredDataEntity> measurements) throws IOException {
+        Integer count = measurements.size();
+        List<String> classNames = new ArrayList<>();
+        Map<String, Integer> classIndex = new HashMap<>();
+        byte[] kinds = new byte[bitmapSize(count)];
+        byte[] available = new byte[bitmapSize(count)];
+
+        for (int i = 0; i < count; i++) {
+            ArchivableQos value = getArchivable(measurements.get(i));
+
+            if (value != null) {
+                setBit(kinds, i);
+
+                if (value.getRollupValue() != null) {
+                    setBit(available, i);
+                }
+
+                String className = value.getClass().getName();
+
+                if (!classIndex.containsKey(className)) {
+                    classIndex.put(className, classNames.size());
+                    classNames.add(className);
+                }
+            }
+        }
+
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        writeVarLong(raw, count);
+        writeVarLong(raw, classNames.size());
+
+        for (String className : classNames) {
+            writeString(raw, className);
+        }
+
+        long lastId = 0;
+        long lastTime = 0;
+
+        for (MeasuredDataEntity measuredData : measurements) {
+            writeVarLong(raw, zigZag(measuredData.getId() - lastId));
+            writeVarLong(raw, measuredData.getCreateTime().getTime() - lastTime);
+
+            lastId = measuredData.getId();
+            lastTime = measuredData.getCreateTime().getTime();
+        }
+
+        raw.write(kinds);
+        raw.write(available);
+
+        for (int i = 0; i < count; i++) {
+            ArchivableQos value = getArchivable(measurements.get(i));
+
+            if (value == null) {
+                writeString(raw, qosCodec.encode(measurements.get(i).getData()));
+            } else {
+                writeVarLong(raw, classIndex.get(value.getClass().getName()));
+
+                if (value.getRollupValue() != null) {
+                    writeVarLong(raw, zigZag(value.getRollupValue()));
+                }
+            }
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+
+        try (DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater)) {
+            raw.writeTo(out);
+        } finally {
+            deflater.end();
+        }
+
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Decompresses and decodes the given block. Qos entities of unknown
+     * classes are skipped; the process of the measurements is not set.
+     *
+     * @param block Compressed block, as returned by encode
+     * @return List of MeasuredDataEntity instances, oldest first
+     * @throws IOException if the block is corrupt
+     */
+    List<MeasuredDataEntity> decode(final byte[] block) throws IOException {
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(block))) {
+            Integer count = (int) readVarLong(in);
+            List<Class<? extends AbstractQosEntity>> classes = new ArrayList<>();
+            Integer classCount = (int) readVarLong(in);
+
+            for (int i = 0; i < classCount; i++) {
+                classes.add(loadClass(readString(in)));
+            }
+
+            List<MeasuredDataEntity> result = new ArrayList<>();
+            long lastId = 0;
+            long lastTime = 0;
+
+            for (int i = 0; i < count; i++) {
+                lastId += unZigZag(readVarLong(in));
+                lastTime += readVarLong(in);
+
+                MeasuredDataEntity measuredData = new MeasuredDataEntity();
+                measuredData.setId(lastId);
+                measuredData.setCreateTime(new Date(lastTime));
+                result.add(measuredData);
+            }
+
+            byte[] kinds = readFully(in, bitmapSize(count));
+            byte[] available = readFully(in, bitmapSize(count));
+
+            for (int i = 0; i < count; i++) {
+                List<AbstractQosEntity> data;
+
+                if (isBitSet(kinds, i)) {
+                    Class<? extends AbstractQosEntity> entityClass = classes.get((int) readVarLong(in));
+                    Long value = isBitSet(available, i) ? unZigZag(readVarLong(in)) : null;
+
+                    data = new ArrayList<>();
+
+                    if (entityClass != null) {
+                        data.add(newEntity(entityClass, value));
+                    }
+                } else {
+                    data = qosCodec.decode(readString(in));
+                }
+
+                result.get(i).setData(data);
+            }
+
+            return result;
+        }
+    }
+
+    private ArchivableQos getArchivable(final MeasuredDataEntity measuredData) {
+        List<AbstractQosEntity> data = measuredData.getData();
+
+        if (data != null && data.size() == 1 && data.get(0) instanceof ArchivableQos) {
+            return (ArchivableQos) data.get(0);
+        }
+
+        return null;
+    }
+
+    private Class<? extends AbstractQosEntity> loadClass(final String className) {
+        try {
+            return Class.forName(className).asSubclass(AbstractQosEntity.class);
+        } catch (ClassNotFoundException | ClassCastException ex) {
+            LOG.warn("Can't decode qos entity of unknown type {}.", className);
+
+            return null;
+        }
+    }
+
+    private AbstractQosEntity newEntity(final Class<? extends AbstractQosEntity> entityClass, final Long value)
+            throws IOException {
+        try {
+            AbstractQosEntity entity = entityClass.newInstance();
+            ((ArchivableQos) entity).setRollupValue(value);
+
+            return entity;
+        } catch (InstantiationException | IllegalAccessException | ClassCastException ex) {
+            throw new IOException("Can't create qos entity of type " + entityClass.getName(), ex);
+        }
+    }
+
+    private static Integer bitmapSize(final Integer count) {
+        return (count + 7) / 8;
+    }
+
+    private static void setBit(final byte[] bitmap, final int index) {
+        bitmap[index / 8] |= 1 << (index % 8);
+    }
+
+    private static Boolean isBitSet(final byte[] bitmap, final int index) {
+        return (bitmap[index / 8] & (1 << (index % 8))) != 0;
+    }
+
+    private static long zigZag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(final OutputStream out, final long value) throws IOException {
+        long remaining = value;
+
+        while ((remaining & ~0x7FL) != 0) {
+            out.write((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+
+        out.write((int) remaining);
+    }
+
+    private static long readVarLong(final InputStream in) throws IOException {
+        long result = 0;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+
+            if (b < 0) {
+                throw new EOFException("Unexpected end of archive block.");
+            }
+
+            result |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+
+        throw new IOException("Malformed varint in archive block.");
+    }
+
+    private static void writeString(final OutputStream out, final String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final InputStream in) throws IOException {
+        return new String(readFully(in, (int) readVarLong(in)), UTF8);
+    }
+
+    private static byte[] readFully(final InputStream in, final Integer length) throws IOException {
+        byte[] result = new byte[length];
+        int read = 0;
+
+        while (read < length) {
+            int n = in.read(result, read, length - read);
+
+            if (n < 0) {
+                throw new EOFException("Unexpected end of archive block.");
+            }
+
+            read += n;
+        }
+
+        return result;
+    }
+}
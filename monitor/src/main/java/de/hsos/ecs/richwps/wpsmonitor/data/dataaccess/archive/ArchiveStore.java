@@ -0,0 +1,619 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.archive;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Cursor;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Archive of cold measurements. Every process has its own archive file (named
+ * by the process id) which consists of compressed blocks of up to blockSize
+ * measurements; see {@link ArchiveBlockCodec} for the block format. The
+ * uncompressed block headers form the block index, which is read on open and
+ * kept in memory. Reads only decompress the blocks whose time or id range
+ * matches the request.
+ *
+ * The archive is written rarely: appends add new blocks at the end of the
+ * file; deletes drop whole blocks or rewrite the file. A store is shared by
+ * all threads and must be opened before use.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class ArchiveStore {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    /**
+     * Default number of measurements per block.
+     */
+    public static final Integer DEFAULT_BLOCK_SIZE = 1024;
+
+    private static final Integer MAGIC = 0x5750_4d41;
+    private static final Integer FILE_HEADER_SIZE = 4;
+    private static final String SUFFIX = ".arc";
+
+    private static final Comparator<ArchiveBlock> NEWEST_BLOCK_FIRST = new Comparator<ArchiveBlock>() {
+
+        @Override
+        public int compare(final ArchiveBlock o1, final ArchiveBlock o2) {
+            return o2.getLastTime().compareTo(o1.getLastTime());
+        }
+    };
+
+    private final File directory;
+    private final Integer blockSize;
+    private final ArchiveBlockCodec codec;
+    private final Map<Long, List<ArchiveBlock>> index;
+    private Boolean open;
+
+    /**
+     * Creates a new ArchiveStore instance with the default block size.
+     *
+     * @param directory Directory of the archive
+     */
+    public ArchiveStore(final File directory) {
+        this(directory, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a new ArchiveStore instance.
+     *
+     * @param directory Directory of the archive
+     * @param blockSize Max. number of measurements per block
+     */
+    public ArchiveStore(final File directory, final Integer blockSize) {
+        this.directory = Validate.notNull(directory, "directory");
+        this.blockSize = Validate.notNull(blockSize, "blockSize");
+
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be greater than 0.");
+        }
+
+        this.codec = new ArchiveBlockCodec();
+        this.index = new HashMap<>();
+        this.open = false;
+    }
+
+    /**
+     * Reads the block index of the existing archive files. Incomplete blocks
+     * at the end of a file, e.g. of an interrupted append, are cut off.
+     *
+     * @throws IOException if the directory can't be created or a file can't
+     * be read
+     */
+    public synchronized void open() throws IOException {
+        if (open) {
+            return;
+        }
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create directory " + directory + ".");
+        }
+
+        File[] files = directory.listFiles();
+
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+
+                if (file.isFile() && name.matches("^\\d+" + SUFFIX.replace(".", "\\.") + "$")) {
+                    Long processId = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+                    index.put(processId, readIndex(file));
+                }
+            }
+        }
+
+        open = true;
+    }
+
+    public synchronized Boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Appends the given measurements of a process to its archive file and
+     * forces them to the disk. Measurements which are already archived, e.g.
+     * by an interrupted earlier run, are skipped.
+     *
+     * @param processId Id of the process
+     * @param measurements MeasuredDataEntity instances with id and createTime
+     * @return Amount of appended measurements
+     * @throws IOException if the archive file can't be written
+     */
+    public synchronized Integer append(final Long processId, final List<MeasuredDataEntity> measurements)
+            throws IOException {
+        Validate.notNull(processId, "processId");
+        Validate.notNull(measurements, "measurements");
+        checkOpen();
+
+        if (measurements.isEmpty()) {
+            return 0;
+        }
+
+        List<MeasuredDataEntity> sorted = new ArrayList<>(measurements);
+        Collections.sort(sorted, ArchiveBlockCodec.OLDEST_FIRST);
+        sorted = withoutArchived(processId, sorted);
+
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+
+        List<ArchiveBlock> blocks = getBlocks(processId);
+
+        try (RandomAccessFile file = new RandomAccessFile(getFile(processId), "rw")) {
+            if (file.length() == 0) {
+                file.writeInt(MAGIC);
+            }
+
+            file.seek(file.length());
+
+            for (int from = 0; from < sorted.size(); from += blockSize) {
+                blocks.add(writeBlock(file, sorted.subList(from, Math.min(from + blockSize, sorted.size()))));
+            }
+
+            file.getFD().sync();
+        }
+
+        index.put(processId, blocks);
+
+        return sorted.size();
+    }
+
+    /**
+     * Reads the archived measurements of a process which were created in the
+     * interval [from, to) and are older as the cursor position, newest first.
+     * The process of the measurements is not set. Corrupt blocks are skipped.
+     *
+     * @param processId Id of the process
+     * @param from Inclusive start; null for unbounded
+     * @param to Exclusive end; null for unbounded
+     * @param before Cursor instance; null for unbounded
+     * @param limit Max. amount of measurements; null for all
+     * @return List of MeasuredDataEntity instances
+     */
+    public synchronized List<MeasuredDataEntity> read(final Long processId, final Date from, final Date to,
+            final Cursor before, final Integer limit) {
+        Validate.notNull(processId, "processId");
+        checkOpen();
+
+        if (limit != null && limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        Long fromTime = (from == null) ? null : from.getTime();
+        Long toTime = (to == null) ? null : to.getTime();
+
+        if (before != null) {
+            // the cursor time itself is needed for measurements with a smaller id
+            Long cursorEnd = before.getCreateTime().getTime() + 1;
+            toTime = (toTime == null) ? cursorEnd : Math.min(toTime, cursorEnd);
+        }
+
+        List<ArchiveBlock> blocks = new ArrayList<>();
+
+        for (ArchiveBlock block : getBlocks(processId)) {
+            if (block.overlaps(fromTime, toTime)) {
+                blocks.add(block);
+            }
+        }
+
+        Collections.sort(blocks, NEWEST_BLOCK_FIRST);
+
+        List<MeasuredDataEntity> result = new ArrayList<>();
+        Comparator<MeasuredDataEntity> newestFirst = Collections.reverseOrder(ArchiveBlockCodec.OLDEST_FIRST);
+
+        for (ArchiveBlock block : blocks) {
+            if (limit != null && result.size() >= limit
+                    && block.getLastTime() < result.get(limit - 1).getCreateTime().getTime()) {
+                break;
+            }
+
+            for (MeasuredDataEntity measuredData : readBlock(processId, block)) {
+                if (matches(measuredData, fromTime, toTime, before)) {
+                    result.add(measuredData);
+                }
+            }
+
+            Collections.sort(result, newestFirst);
+
+            if (limit != null && result.size() > limit) {
+                result = new ArrayList<>(result.subList(0, limit));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Finds an archived measurement of a process by its id. The process of
+     * the measurement is not set.
+     *
+     * @param processId Id of the process
+     * @param id Id of the measurement
+     * @return MeasuredDataEntity instance, or null if not found
+     */
+    public synchronized MeasuredDataEntity find(final Long processId, final Long id) {
+        Validate.notNull(processId, "processId");
+        Validate.notNull(id, "id");
+        checkOpen();
+
+        for (ArchiveBlock block : getBlocks(processId)) {
+            if (block.mayContain(id)) {
+                for (MeasuredDataEntity measuredData : readBlock(processId, block)) {
+                    if (measuredData.getId().equals(id)) {
+                        return measuredData;
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Deletes the archived measurements which are older as the given date.
+     * Blocks which are older as the date are dropped as a whole; the file is
+     * rewritten.
+     *
+     * @param processId Id of the process; null for all processes
+     * @param olderThan Date instance; null deletes all measurements
+     * @return Amount of deleted measurements
+     * @throws IOException if an archive file can't be rewritten
+     */
+    public synchronized Integer delete(final Long processId, final Date olderThan) throws IOException {
+        checkOpen();
+
+        List<Long> processIds = (processId == null) ? getProcessIds() : Collections.singletonList(processId);
+        Integer deleted = 0;
+
+        for (Long id : processIds) {
+            if (olderThan == null) {
+                for (ArchiveBlock block : getBlocks(id)) {
+                    deleted += block.getCount();
+                }
+
+                deleteFile(id);
+            } else {
+                deleted += deleteOlderAs(id, olderThan.getTime());
+            }
+        }
+
+        return deleted;
+    }
+
+    /**
+     * Removes a single archived measurement; its block is rewritten.
+     *
+     * @param processId Id of the process
+     * @param id Id of the measurement
+     * @return true if the measurement was found and removed
+     * @throws IOException if the archive file can't be rewritten
+     */
+    public synchronized Boolean remove(final Long processId, final Long id) throws IOException {
+        Validate.notNull(processId, "processId");
+        Validate.notNull(id, "id");
+        checkOpen();
+
+        for (ArchiveBlock block : getBlocks(processId)) {
+            if (block.mayContain(id)) {
+                List<MeasuredDataEntity> measurements = readBlock(processId, block);
+                List<MeasuredDataEntity> kept = new ArrayList<>();
+
+                for (MeasuredDataEntity measuredData : measurements) {
+                    if (!measuredData.getId().equals(id)) {
+                        kept.add(measuredData);
+                    }
+                }
+
+                if (kept.size() < measurements.size()) {
+                    Map<ArchiveBlock, List<MeasuredDataEntity>> changes = new HashMap<>();
+                    changes.put(block, kept);
+                    rewrite(processId, changes);
+
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Gets the createTime of the oldest archived measurement which is not
+     * older as the given date.
+     *
+     * @param since Date instance
+     * @return Date instance, or null if no such measurement is archived
+     */
+    public synchronized Date getOldestCreateTime(final Date since) {
+        Validate.notNull(since, "since");
+        checkOpen();
+
+        Long oldest = null;
+
+        for (Long processId : index.keySet()) {
+            for (ArchiveBlock block : getBlocks(processId)) {
+                if (block.getLastTime() < since.getTime()
+                        || (oldest != null && block.getFirstTime() >= oldest)) {
+                    continue;
+                }
+
+                if (block.getFirstTime() >= since.getTime()) {
+                    oldest = block.getFirstTime();
+                } else {
+                    for (MeasuredDataEntity measuredData : readBlock(processId, block)) {
+                        Long time = measuredData.getCreateTime().getTime();
+
+                        if (time >= since.getTime() && (oldest == null || time < oldest)) {
+                            oldest = time;
+                        }
+                    }
+                }
+            }
+        }
+
+        return (oldest == null) ? null : new Date(oldest);
+    }
+
+    /**
+     * Gets the createTime of the newest archived measurement of a process.
+     *
+     * @param processId Id of the process
+     * @return Date instance, or null if nothing is archived
+     */
+    public synchronized Date getNewestCreateTime(final Long processId) {
+        Validate.notNull(processId, "processId");
+        checkOpen();
+
+        Long newest = null;
+
+        for (ArchiveBlock block : getBlocks(processId)) {
+            if (newest == null || block.getLastTime() > newest) {
+                newest = block.getLastTime();
+            }
+        }
+
+        return (newest == null) ? null : new Date(newest);
+    }
+
+    /**
+     * Gets the ids of all processes which have archived measurements.
+     *
+     * @return List of process ids
+     */
+    public synchronized List<Long> getProcessIds() {
+        checkOpen();
+
+        return new ArrayList<>(index.keySet());
+    }
+
+    private Integer deleteOlderAs(final Long processId, final Long olderThan) throws IOException {
+        Map<ArchiveBlock, List<MeasuredDataEntity>> changes = new HashMap<>();
+        Integer deleted = 0;
+
+        for (ArchiveBlock block : getBlocks(processId)) {
+            if (block.getLastTime() < olderThan) {
+                changes.put(block, new ArrayList<MeasuredDataEntity>());
+                deleted += block.getCount();
+            } else if (block.getFirstTime() < olderThan) {
+                List<MeasuredDataEntity> kept = new ArrayList<>();
+
+                for (MeasuredDataEntity measuredData : readBlock(processId, block)) {
+                    if (measuredData.getCreateTime().getTime() >= olderThan) {
+                        kept.add(measuredData);
+                    }
+                }
+
+                changes.put(block, kept);
+                deleted += block.getCount() - kept.size();
+            }
+        }
+
+        if (!changes.isEmpty()) {
+            rewrite(processId, changes);
+        }
+
+        return deleted;
+    }
+
+    /**
+     * Rewrites the archive file of a process. Blocks which are not in the
+     * changes are copied; changed blocks are encoded again, or dropped if they
+     * become empty.
+     */
+    private void rewrite(final Long processId, final Map<ArchiveBlock, List<MeasuredDataEntity>> changes)
+            throws IOException {
+        File file = getFile(processId);
+        File temp = new File(directory, file.getName() + ".tmp");
+        List<ArchiveBlock> blocks = new ArrayList<>();
+
+        try (RandomAccessFile in = new RandomAccessFile(file, "r");
+                RandomAccessFile out = new RandomAccessFile(temp, "rw")) {
+            out.setLength(0);
+            out.writeInt(MAGIC);
+
+            for (ArchiveBlock block : getBlocks(processId)) {
+                if (!changes.containsKey(block)) {
+                    ArchiveBlock moved = block.moveTo(out.getFilePointer());
+                    moved.write(out);
+                    out.write(readData(in, block));
+                    blocks.add(moved);
+                } else if (!changes.get(block).isEmpty()) {
+                    blocks.add(writeBlock(out, changes.get(block)));
+                }
+            }
+
+            out.getFD().sync();
+        }
+
+        if (blocks.isEmpty()) {
+            Files.delete(temp.toPath());
+            deleteFile(processId);
+        } else {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            index.put(processId, blocks);
+        }
+    }
+
+    private ArchiveBlock writeBlock(final RandomAccessFile file, final List<MeasuredDataEntity> measurements)
+            throws IOException {
+        byte[] data = codec.encode(measurements);
+        ArchiveBlock block = ArchiveBlock.of(file.getFilePointer(), data.length, measurements);
+
+        block.write(file);
+        file.write(data);
+
+        return block;
+    }
+
+    private List<MeasuredDataEntity> readBlock(final Long processId, final ArchiveBlock block) {
+        try (RandomAccessFile file = new RandomAccessFile(getFile(processId), "r")) {
+            return codec.decode(readData(file, block));
+        } catch (IOException ex) {
+            LOG.error("Can't read archive block of process {} at {}.", processId, block.getDataOffset(), ex);
+
+            return new ArrayList<>();
+        }
+    }
+
+    private byte[] readData(final RandomAccessFile file, final ArchiveBlock block) throws IOException {
+        byte[] data = new byte[block.getLength()];
+        file.seek(block.getDataOffset());
+        file.readFully(data);
+
+        return data;
+    }
+
+    private List<ArchiveBlock> readIndex(final File file) throws IOException {
+        List<ArchiveBlock> blocks = new ArrayList<>();
+
+        try (RandomAccessFile in = new RandomAccessFile(file, "rw")) {
+            if (in.length() < FILE_HEADER_SIZE || in.readInt() != MAGIC) {
+                throw new IOException(file + " is not an archive file.");
+            }
+
+            Long position = in.getFilePointer();
+
+            while (position < in.length()) {
+                try {
+                    ArchiveBlock block = ArchiveBlock.read(in, position);
+
+                    if (block.getEnd() > in.length()) {
+                        throw new EOFException();
+                    }
+
+                    blocks.add(block);
+                    position = block.getEnd();
+                    in.seek(position);
+                } catch (EOFException ex) {
+                    LOG.warn("Incomplete block at the end of {}; it is cut off.", file);
+                    in.setLength(position);
+                }
+            }
+        }
+
+        return blocks;
+    }
+
+    /**
+     * Removes the measurements which are already archived; only the blocks
+     * which overlap the time range of the given measurements are read.
+     */
+    private List<MeasuredDataEntity> withoutArchived(final Long processId, final List<MeasuredDataEntity> sorted) {
+        Long first = sorted.get(0).getCreateTime().getTime();
+        Long last = sorted.get(sorted.size() - 1).getCreateTime().getTime();
+        Set<Long> archived = new HashSet<>();
+
+        for (ArchiveBlock block : getBlocks(processId)) {
+            if (block.overlaps(first, last + 1)) {
+                for (MeasuredDataEntity measuredData : readBlock(processId, block)) {
+                    archived.add(measuredData.getId());
+                }
+            }
+        }
+
+        if (archived.isEmpty()) {
+            return sorted;
+        }
+
+        List<MeasuredDataEntity> result = new ArrayList<>();
+
+        for (MeasuredDataEntity measuredData : sorted) {
+            if (!archived.contains(measuredData.getId())) {
+                result.add(measuredData);
+            }
+        }
+
+        return result;
+    }
+
+    private Boolean matches(final MeasuredDataEntity measuredData, final Long from, final Long to,
+            final Cursor before) {
+        Long time = measuredData.getCreateTime().getTime();
+
+        if ((from != null && time < from) || (to != null && time >= to)) {
+            return false;
+        }
+
+        if (before != null) {
+            Long beforeTime = before.getCreateTime().getTime();
+
+            return time < beforeTime || (time.equals(beforeTime) && measuredData.getId() < before.getId());
+        }
+
+        return true;
+    }
+
+    private void deleteFile(final Long processId) throws IOException {
+        Files.deleteIfExists(getFile(processId).toPath());
+        index.remove(processId);
+    }
+
+    private List<ArchiveBlock> getBlocks(final Long processId) {
+        List<ArchiveBlock> blocks = index.get(processId);
+
+        return (blocks == null) ? new ArrayList<ArchiveBlock>() : new ArrayList<>(blocks);
+    }
+
+    private File getFile(final Long processId) {
+        return new File(directory, processId + SUFFIX);
+    }
+
+    private void checkOpen() {
+        if (!open) {
+            throw new IllegalStateException("The archive store is not open.");
+        }
+    }
+}
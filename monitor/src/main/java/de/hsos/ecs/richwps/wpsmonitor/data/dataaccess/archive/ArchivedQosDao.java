@@ -0,0 +1,563 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.archive;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Cursor;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosRecord;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Range;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.AbstractQosEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataRollupEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.RollupGranularity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * QosDataAccess implementation which moves cold measurements from the given
+ * main QosDataAccess into an {@link ArchiveStore}. The read methods merge the
+ * measurements of the main QosDataAccess and the archive; the archive is only
+ * read if the main result doesn't suffice or may be interleaved with
+ * archived measurements.
+ *
+ * New measurements and the rollups are always stored through the main
+ * QosDataAccess. Archived measurements can't be updated; their qos entities
+ * have no id, so findAbstractQosEntityByid only searches the main
+ * QosDataAccess.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class ArchivedQosDao implements QosDataAccess {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    /**
+     * Measurements are moved in windows of one hour, so a window fits into
+     * memory.
+     */
+    private static final Long ARCHIVE_WINDOW = 60L * 60 * 1000;
+
+    private static final Comparator<MeasuredDataEntity> NEWEST_FIRST
+            = Collections.reverseOrder(ArchiveBlockCodec.OLDEST_FIRST);
+
+    private static final Comparator<QosRecord> NEWEST_RECORD_FIRST = new Comparator<QosRecord>() {
+
+        @Override
+        public int compare(final QosRecord o1, final QosRecord o2) {
+            int result = o2.getCreateTime().compareTo(o1.getCreateTime());
+
+            return (result != 0) ? result : o2.getMeasuredDataId().compareTo(o1.getMeasuredDataId());
+        }
+    };
+
+    private final QosDataAccess mainDao;
+    private final ArchiveStore store;
+    private final WpsProcessDataAccess processDao;
+
+    /**
+     * Creates a new ArchivedQosDao instance.
+     *
+     * @param mainDao QosDataAccess instance which stores the new measurements
+     * @param store Opened ArchiveStore instance
+     * @param processDao WpsProcessDataAccess instance to resolve the processes
+     */
+    public ArchivedQosDao(final QosDataAccess mainDao, final ArchiveStore store,
+            final WpsProcessDataAccess processDao) {
+        this.mainDao = Validate.notNull(mainDao, "mainDao");
+        this.store = Validate.notNull(store, "store");
+        this.processDao = Validate.notNull(processDao, "processDao");
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByProcess(final Long wpsId, final String processIdentifier) {
+        return getByProcess(wpsId, processIdentifier, (Range) null);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByProcess(final URL endpoint, final String processIdentifier) {
+        return getByProcess(endpoint, processIdentifier, null);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByWps(final Long wpsId) {
+        return getByWps(wpsId, (Range) null);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByWps(final URL endpoint) {
+        return getByWps(endpoint, null);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByProcess(final Long wpsId, final String processIdentifier, final Range range) {
+        Validate.notNull(wpsId, "WPS ID");
+        Validate.notNull(processIdentifier, "processIdentifier");
+
+        Integer limit = getLimit(range);
+        List<MeasuredDataEntity> main = mainDao.getByProcess(wpsId, processIdentifier, toMainRange(limit));
+
+        return slice(merge(main, toList(processDao.find(wpsId, processIdentifier)), null, limit), range);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByProcess(final URL endpoint, final String processIdentifier, final Range range) {
+        Validate.notNull(endpoint, "endpoint");
+        Validate.notNull(processIdentifier, "processIdentifier");
+
+        Integer limit = getLimit(range);
+        List<MeasuredDataEntity> main = mainDao.getByProcess(endpoint, processIdentifier, toMainRange(limit));
+
+        return slice(merge(main, toList(processDao.find(endpoint, processIdentifier)), null, limit), range);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByWps(final Long wpsId, final Range range) {
+        Validate.notNull(wpsId, "WPS ID");
+
+        Integer limit = getLimit(range);
+        List<MeasuredDataEntity> main = mainDao.getByWps(wpsId, toMainRange(limit));
+
+        return slice(merge(main, processDao.getAll(wpsId), null, limit), range);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByWps(final URL endpoint, final Range range) {
+        Validate.notNull(endpoint, "endpoint");
+
+        Integer limit = getLimit(range);
+        List<MeasuredDataEntity> main = mainDao.getByWps(endpoint, toMainRange(limit));
+
+        return slice(merge(main, processDao.getAll(endpoint), null, limit), range);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByProcess(final Long wpsId, final String processIdentifier,
+            final Cursor before, final Integer limit) {
+        Validate.notNull(wpsId, "WPS ID");
+        Validate.notNull(processIdentifier, "processIdentifier");
+        Validate.notNull(limit, "limit");
+
+        List<MeasuredDataEntity> main = mainDao.getByProcess(wpsId, processIdentifier, before, limit);
+
+        return merge(main, toList(processDao.find(wpsId, processIdentifier)), before, limit);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByWps(final Long wpsId, final Cursor before, final Integer limit) {
+        Validate.notNull(wpsId, "WPS ID");
+        Validate.notNull(limit, "limit");
+
+        List<MeasuredDataEntity> main = mainDao.getByWps(wpsId, before, limit);
+
+        return merge(main, processDao.getAll(wpsId), before, limit);
+    }
+
+    @Override
+    public List<QosRecord> getRecordsByProcess(final Long wpsId, final String processIdentifier,
+            final Cursor before, final Integer limit) {
+        Validate.notNull(wpsId, "WPS ID");
+        Validate.notNull(processIdentifier, "processIdentifier");
+        Validate.notNull(limit, "limit");
+
+        List<QosRecord> main = nonNull(mainDao.getRecordsByProcess(wpsId, processIdentifier, before, limit));
+        WpsProcessEntity process = processDao.find(wpsId, processIdentifier);
+        Date oldest = main.isEmpty() ? null : main.get(main.size() - 1).getCreateTime();
+
+        if (process == null || !needsArchive(process.getId(), QosRecord.countMeasurements(main), oldest, limit)) {
+            return main;
+        }
+
+        List<QosRecord> records = new ArrayList<>(main);
+        records.addAll(QosRecord.of(store.read(process.getId(), null, null, before, limit)));
+
+        // stable sort; the records of a measurement stay together
+        Collections.sort(records, NEWEST_RECORD_FIRST);
+
+        List<QosRecord> result = new ArrayList<>();
+        Integer measurements = 0;
+        Long last = null;
+
+        for (QosRecord record : records) {
+            if (!record.getMeasuredDataId().equals(last)) {
+                if (measurements.equals(limit)) {
+                    break;
+                }
+
+                last = record.getMeasuredDataId();
+                measurements++;
+            }
+
+            result.add(record);
+        }
+
+        return result;
+    }
+
+    @Override
+    public Integer deleteByProcess(final Long wpsId, final String processIdentifier) {
+        return deleteByProcess(wpsId, processIdentifier, null);
+    }
+
+    @Override
+    public Integer deleteByProcess(final URL endpoint, final String processIdentifier) {
+        return deleteByProcess(endpoint, processIdentifier, null);
+    }
+
+    @Override
+    public Integer deleteByProcess(final Long wpsId, final String processIdentifier, final Date olderDate) {
+        Integer deleted = mainDao.deleteByProcess(wpsId, processIdentifier, olderDate);
+        WpsProcessEntity process = processDao.find(wpsId, processIdentifier);
+
+        return (process == null) ? deleted : deleted + deleteArchived(process.getId(), olderDate);
+    }
+
+    @Override
+    public Integer deleteByProcess(final URL endpoint, final String processIdentifier, final Date olderDate) {
+        Integer deleted = mainDao.deleteByProcess(endpoint, processIdentifier, olderDate);
+        WpsProcessEntity process = processDao.find(endpoint, processIdentifier);
+
+        return (process == null) ? deleted : deleted + deleteArchived(process.getId(), olderDate);
+    }
+
+    @Override
+    public Integer deleteAllOlderAs(final Date date) {
+        Validate.notNull(date, "date");
+
+        return mainDao.deleteAllOlderAs(date) + deleteArchived(null, date);
+    }
+
+    /**
+     * Deletes at most "limit" expired measurements of the main QosDataAccess.
+     * If less are deleted, the expired blocks of the archive are deleted as a
+     * whole, regardless of the limit.
+     *
+     * @param date Date instance
+     * @param limit Max. amount of measurements to delete from the main
+     * QosDataAccess
+     * @return Amount of deleted measurements
+     */
+    @Override
+    public Integer deleteAllOlderAs(final Date date, final Integer limit) {
+        Validate.notNull(date, "date");
+        Validate.notNull(limit, "limit");
+
+        Integer deleted = mainDao.deleteAllOlderAs(date, limit);
+
+        return (deleted < limit) ? deleted + deleteArchived(null, date) : deleted;
+    }
+
+    /**
+     * Moves the measurements of the main QosDataAccess which are older as
+     * "date" into the archive, window by window. Each window is forced to the
+     * disk before it is deleted from the main QosDataAccess; if the archive
+     * can't be written, the remaining measurements stay where they are.
+     *
+     * @param date Date instance
+     * @return Amount of archived measurements
+     */
+    @Override
+    public Integer archiveOlderAs(final Date date) {
+        Validate.notNull(date, "date");
+
+        Integer archived = 0;
+        Date windowStart = mainDao.getOldestCreateTime(new Date(0));
+
+        while (windowStart != null && windowStart.before(date)) {
+            Date windowEnd = new Date(Math.min(windowStart.getTime() + ARCHIVE_WINDOW, date.getTime()));
+            Map<Long, List<MeasuredDataEntity>> byProcess = new LinkedHashMap<>();
+
+            for (MeasuredDataEntity measuredData : mainDao.getBetween(windowStart, windowEnd)) {
+                Long processId = measuredData.getProcess().getId();
+
+                if (!byProcess.containsKey(processId)) {
+                    byProcess.put(processId, new ArrayList<MeasuredDataEntity>());
+                }
+
+                byProcess.get(processId).add(measuredData);
+            }
+
+            for (List<MeasuredDataEntity> measurements : byProcess.values()) {
+                WpsProcessEntity process = measurements.get(0).getProcess();
+
+                try {
+                    store.append(process.getId(), measurements);
+                } catch (IOException ex) {
+                    LOG.error("Can't archive the measurements of process {}.", process.getIdentifier(), ex);
+
+                    return archived;
+                }
+
+                mainDao.deleteByProcess(process.getWps().getId(), process.getIdentifier(), windowEnd);
+                archived += measurements.size();
+            }
+
+            windowStart = mainDao.getOldestCreateTime(windowEnd);
+        }
+
+        return archived;
+    }
+
+    @Override
+    public AbstractQosEntity findAbstractQosEntityByid(final Long id) {
+        return mainDao.findAbstractQosEntityByid(id);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getBetween(final Date from, final Date to) {
+        Validate.notNull(from, "from");
+        Validate.notNull(to, "to");
+
+        List<MeasuredDataEntity> result = new ArrayList<>(mainDao.getBetween(from, to));
+
+        for (Long processId : store.getProcessIds()) {
+            WpsProcessEntity process = processDao.find(processId);
+
+            if (process != null) {
+                result.addAll(withProcess(store.read(processId, from, to, null, null), process));
+            }
+        }
+
+        Collections.sort(result, ArchiveBlockCodec.OLDEST_FIRST);
+
+        return result;
+    }
+
+    @Override
+    public Date getOldestCreateTime(final Date since) {
+        Date oldest = mainDao.getOldestCreateTime(since);
+        Date archived = store.getOldestCreateTime(since);
+
+        return (oldest == null || (archived != null && archived.before(oldest))) ? archived : oldest;
+    }
+
+    @Override
+    public MeasuredDataEntity find(final Long primaryKey) {
+        MeasuredDataEntity found = mainDao.find(primaryKey);
+
+        return (found != null) ? found : findArchived(primaryKey);
+    }
+
+    @Override
+    public Boolean persist(final MeasuredDataEntity entityObject) {
+        return mainDao.persist(entityObject);
+    }
+
+    @Override
+    public MeasuredDataEntity update(final MeasuredDataEntity entityObject) {
+        return mainDao.update(entityObject);
+    }
+
+    @Override
+    public void remove(final MeasuredDataEntity o) {
+        Validate.notNull(o, "o");
+        Validate.notNull(o.getId(), "id");
+
+        if (mainDao.find(o.getId()) != null) {
+            mainDao.remove(o);
+        }
+
+        for (Long processId : store.getProcessIds()) {
+            try {
+                store.remove(processId, o.getId());
+            } catch (IOException ex) {
+                LOG.error("Can't remove the archived measurement {}.", o.getId(), ex);
+            }
+        }
+    }
+
+    @Override
+    public List<MeasuredDataEntity> get(final Range range) {
+        return mainDao.get(range);
+    }
+
+    @Override
+    public List<MeasuredDataRollupEntity> getRollups(final Long wpsId, final String processIdentifier,
+            final RollupGranularity granularity, final Date from, final Date to) {
+        return mainDao.getRollups(wpsId, processIdentifier, granularity, from, to);
+    }
+
+    @Override
+    public MeasuredDataRollupEntity findRollup(final WpsProcessEntity process, final String entityName,
+            final RollupGranularity granularity, final Date bucketStart) {
+        return mainDao.findRollup(process, entityName, granularity, bucketStart);
+    }
+
+    @Override
+    public MeasuredDataRollupEntity storeRollup(final MeasuredDataRollupEntity rollup) {
+        return mainDao.storeRollup(rollup);
+    }
+
+    @Override
+    public Date getNewestRollupBucket(final RollupGranularity granularity) {
+        return mainDao.getNewestRollupBucket(granularity);
+    }
+
+    @Override
+    public Integer deleteRollupsOlderAs(final RollupGranularity granularity, final Date date) {
+        return mainDao.deleteRollupsOlderAs(granularity, date);
+    }
+
+    @Override
+    public Boolean commit() {
+        return mainDao.commit();
+    }
+
+    @Override
+    public void rollback() {
+        mainDao.rollback();
+    }
+
+    @Override
+    public void setAutoCommit(final Boolean value) {
+        mainDao.setAutoCommit(value);
+    }
+
+    /**
+     * Closes the data access objects; the store is shared and stays open.
+     */
+    @Override
+    public void close() {
+        mainDao.close();
+        processDao.close();
+    }
+
+    /**
+     * Merges the given main result (newest first) with the archived
+     * measurements of the given processes which are older as the cursor.
+     */
+    private List<MeasuredDataEntity> merge(final List<MeasuredDataEntity> main,
+            final List<WpsProcessEntity> processes, final Cursor before, final Integer limit) {
+
+        List<MeasuredDataEntity> result = new ArrayList<>(nonNull(main));
+        Date oldest = result.isEmpty() ? null : result.get(result.size() - 1).getCreateTime();
+        Boolean merged = false;
+
+        for (WpsProcessEntity process : processes) {
+            if (needsArchive(process.getId(), result.size(), oldest, limit)) {
+                result.addAll(withProcess(store.read(process.getId(), null, null, before, limit), process));
+                merged = true;
+            }
+        }
+
+        if (merged) {
+            Collections.sort(result, NEWEST_FIRST);
+        }
+
+        if (limit != null && result.size() > limit) {
+            result = new ArrayList<>(result.subList(0, limit));
+        }
+
+        return result;
+    }
+
+    /**
+     * Checks if archived measurements of the process may belong to a result
+     * of the main QosDataAccess with "count" measurements, the oldest created
+     * at "oldest".
+     */
+    private Boolean needsArchive(final Long processId, final Integer count, final Date oldest, final Integer limit) {
+        Date newest = store.getNewestCreateTime(processId);
+
+        if (newest == null) {
+            return false;
+        }
+
+        return limit == null || count < limit || !newest.before(oldest);
+    }
+
+    private MeasuredDataEntity findArchived(final Long id) {
+        for (Long processId : store.getProcessIds()) {
+            MeasuredDataEntity found = store.find(processId, id);
+
+            if (found != null) {
+                WpsProcessEntity process = processDao.find(processId);
+
+                if (process == null) {
+                    return null;
+                }
+
+                found.setProcess(process);
+
+                return found;
+            }
+        }
+
+        return null;
+    }
+
+    private Integer deleteArchived(final Long processId, final Date olderDate) {
+        try {
+            return store.delete(processId, olderDate);
+        } catch (IOException ex) {
+            LOG.error("Can't delete archived measurements.", ex);
+
+            return 0;
+        }
+    }
+
+    private List<MeasuredDataEntity> withProcess(final List<MeasuredDataEntity> measurements,
+            final WpsProcessEntity process) {
+        for (MeasuredDataEntity measuredData : measurements) {
+            measuredData.setProcess(process);
+        }
+
+        return measurements;
+    }
+
+    private Integer getLimit(final Range range) {
+        if (range == null || range.getCount() == null) {
+            return null;
+        }
+
+        return ((range.getOffset() == null) ? 0 : range.getOffset()) + range.getCount();
+    }
+
+    private Range toMainRange(final Integer limit) {
+        return (limit == null) ? null : new Range(null, limit);
+    }
+
+    private List<MeasuredDataEntity> slice(final List<MeasuredDataEntity> measurements, final Range range) {
+        Integer offset = (range == null || range.getOffset() == null) ? 0 : range.getOffset();
+
+        return new ArrayList<>(measurements.subList(Math.min(offset, measurements.size()), measurements.size()));
+    }
+
+    private <T> List<T> nonNull(final List<T> list) {
+        return (list == null) ? new ArrayList<T>() : list;
+    }
+
+    private List<WpsProcessEntity> toList(final WpsProcessEntity process) {
+        List<WpsProcessEntity> result = new ArrayList<>();
+
+        if (process != null) {
+            result.add(process);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.archive;
+
+import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
+import de.hsos.ecs.richwps.wpsmonitor.creation.Factory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.io.IOException;
+
+/**
+ * Factory for ArchivedQosDao instances. The store is opened on the first
+ * create call.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class ArchivedQosDaoFactory implements Factory<QosDataAccess> {
+
+    private final Factory<QosDataAccess> mainDaoFactory;
+    private final ArchiveStore store;
+    private final Factory<WpsProcessDataAccess> processDaoFactory;
+
+    /**
+     * Creates a new ArchivedQosDaoFactory instance.
+     *
+     * @param mainDaoFactory Factory for the QosDataAccess which stores the new
+     * measurements
+     * @param store ArchiveStore instance
+     * @param processDaoFactory Factory for the WpsProcessDataAccess to resolve
+     * the processes
+     */
+    public ArchivedQosDaoFactory(final Factory<QosDataAccess> mainDaoFactory, final ArchiveStore store,
+            final Factory<WpsProcessDataAccess> processDaoFactory) {
+        this.mainDaoFactory = Validate.notNull(mainDaoFactory, "mainDaoFactory");
+        this.store = Validate.notNull(store, "store");
+        this.processDaoFactory = Validate.notNull(processDaoFactory, "processDaoFactory");
+    }
+
+    @Override
+    public QosDataAccess create() throws CreateException {
+        if (!store.isOpen()) {
+            try {
+                store.open();
+            } catch (IOException ex) {
+                throw new CreateException(ex);
+            }
+        }
+
+        return new ArchivedQosDao(mainDaoFactory.create(), store, processDaoFactory.create());
+    }
+}
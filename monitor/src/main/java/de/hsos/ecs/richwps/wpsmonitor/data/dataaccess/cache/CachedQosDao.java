@@ -0,0 +1,342 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.cache;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Cursor;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosRecord;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Range;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.AbstractQosEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataRollupEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.RollupGranularity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * QosDataAccess decorator which keeps a {@link MeasuredDataCache} up to date
+ * and answers getByProcess-requests from memory, if possible. All other calls
+ * are delegated.
+ *
+ * Persisted measurements are added to the cache if they are commited; so the
+ * cache never contains measurements which are rolled back.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class CachedQosDao implements QosDataAccess {
+
+    private final QosDataAccess dao;
+    private final MeasuredDataCache cache;
+    private final List<MeasuredDataEntity> uncommited;
+    private Boolean autoCommit;
+
+    /**
+     * Creates a new CachedQosDao instance.
+     *
+     * @param dao QosDataAccess instance which is decorated
+     * @param cache MeasuredDataCache instance
+     */
+    public CachedQosDao(final QosDataAccess dao, final MeasuredDataCache cache) {
+        this.dao = Validate.notNull(dao, "dao");
+        this.cache = Validate.notNull(cache, "cache");
+        this.uncommited = new ArrayList<>();
+        this.autoCommit = true;
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByProcess(final Long wpsId, final String processIdentifier, final Range range) {
+        if (wpsId == null || processIdentifier == null || !cache.isServable(range)) {
+            return dao.getByProcess(wpsId, processIdentifier, range);
+        }
+
+        List<MeasuredDataEntity> result = cache.get(wpsId, processIdentifier, range);
+
+        if (result == null) {
+            List<MeasuredDataEntity> newest = dao.getByProcess(wpsId, processIdentifier, new Range(null, cache.getCapacity()));
+
+            if (newest == null) {
+                return null;
+            }
+
+            cache.load(wpsId, processIdentifier, newest);
+            result = cache.get(wpsId, processIdentifier, range);
+        }
+
+        return result;
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByProcess(final Long wpsId, final String processIdentifier) {
+        return dao.getByProcess(wpsId, processIdentifier);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByProcess(final URL endpoint, final String processIdentifier) {
+        return dao.getByProcess(endpoint, processIdentifier);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByProcess(final URL endpoint, final String processIdentifier, final Range range) {
+        return dao.getByProcess(endpoint, processIdentifier, range);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByWps(final Long wpsId) {
+        return dao.getByWps(wpsId);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByWps(final URL endpoint) {
+        return dao.getByWps(endpoint);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByWps(final Long wpsId, final Range range) {
+        return dao.getByWps(wpsId, range);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByWps(final URL endpoint, final Range range) {
+        return dao.getByWps(endpoint, range);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByProcess(final Long wpsId, final String processIdentifier,
+            final Cursor before, final Integer limit) {
+        // the first page is the same as the range [0, limit)
+        if (before == null && limit != null) {
+            return getByProcess(wpsId, processIdentifier, new Range(null, limit));
+        }
+
+        return dao.getByProcess(wpsId, processIdentifier, before, limit);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByWps(final Long wpsId, final Cursor before, final Integer limit) {
+        return dao.getByWps(wpsId, before, limit);
+    }
+
+    @Override
+    public List<QosRecord> getRecordsByProcess(final Long wpsId, final String processIdentifier,
+            final Cursor before, final Integer limit) {
+        if (before != null || limit == null || wpsId == null || processIdentifier == null
+                || !cache.isServable(new Range(null, limit))) {
+            return dao.getRecordsByProcess(wpsId, processIdentifier, before, limit);
+        }
+
+        Range range = new Range(null, limit);
+        List<QosRecord> result = cache.getRecords(wpsId, processIdentifier, range);
+
+        if (result == null) {
+            // loads the window of the process
+            List<MeasuredDataEntity> newest = getByProcess(wpsId, processIdentifier, range);
+            result = cache.getRecords(wpsId, processIdentifier, range);
+
+            if (result == null && newest != null) {
+                result = QosRecord.of(newest);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public Integer deleteByProcess(final Long wpsId, final String processIdentifier) {
+        try {
+            return dao.deleteByProcess(wpsId, processIdentifier);
+        } finally {
+            cache.invalidate(wpsId, processIdentifier);
+        }
+    }
+
+    @Override
+    public Integer deleteByProcess(final URL endpoint, final String processIdentifier) {
+        try {
+            return dao.deleteByProcess(endpoint, processIdentifier);
+        } finally {
+            // the cache is organized by wps ids
+            cache.clear();
+        }
+    }
+
+    @Override
+    public Integer deleteByProcess(final Long wpsId, final String processIdentifier, final Date olderDate) {
+        try {
+            return dao.deleteByProcess(wpsId, processIdentifier, olderDate);
+        } finally {
+            cache.invalidate(wpsId, processIdentifier);
+        }
+    }
+
+    @Override
+    public Integer deleteByProcess(final URL endpoint, final String processIdentifierfinal, final Date olderDate) {
+        try {
+            return dao.deleteByProcess(endpoint, processIdentifierfinal, olderDate);
+        } finally {
+            cache.clear();
+        }
+    }
+
+    @Override
+    public Integer deleteAllOlderAs(final Date date) {
+        try {
+            return dao.deleteAllOlderAs(date);
+        } finally {
+            cache.removeOlderAs(date);
+        }
+    }
+
+    @Override
+    public Integer deleteAllOlderAs(final Date date, final Integer limit) {
+        try {
+            return dao.deleteAllOlderAs(date, limit);
+        } finally {
+            cache.removeOlderAs(date);
+        }
+    }
+
+    @Override
+    public Integer archiveOlderAs(final Date date) {
+        return dao.archiveOlderAs(date);
+    }
+
+    @Override
+    public AbstractQosEntity findAbstractQosEntityByid(final Long id) {
+        return dao.findAbstractQosEntityByid(id);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getBetween(final Date from, final Date to) {
+        return dao.getBetween(from, to);
+    }
+
+    @Override
+    public Date getOldestCreateTime(final Date since) {
+        return dao.getOldestCreateTime(since);
+    }
+
+    @Override
+    public List<MeasuredDataRollupEntity> getRollups(final Long wpsId, final String processIdentifier,
+            final RollupGranularity granularity, final Date from, final Date to) {
+        return dao.getRollups(wpsId, processIdentifier, granularity, from, to);
+    }
+
+    @Override
+    public MeasuredDataRollupEntity findRollup(final WpsProcessEntity process, final String entityName,
+            final RollupGranularity granularity, final Date bucketStart) {
+        return dao.findRollup(process, entityName, granularity, bucketStart);
+    }
+
+    @Override
+    public MeasuredDataRollupEntity storeRollup(final MeasuredDataRollupEntity rollup) {
+        return dao.storeRollup(rollup);
+    }
+
+    @Override
+    public Date getNewestRollupBucket(final RollupGranularity granularity) {
+        return dao.getNewestRollupBucket(granularity);
+    }
+
+    @Override
+    public Integer deleteRollupsOlderAs(final RollupGranularity granularity, final Date date) {
+        return dao.deleteRollupsOlderAs(granularity, date);
+    }
+
+    @Override
+    public MeasuredDataEntity find(final Long primaryKey) {
+        return dao.find(primaryKey);
+    }
+
+    @Override
+    public Boolean persist(final MeasuredDataEntity entityObject) {
+        Boolean persisted = dao.persist(entityObject);
+
+        if (persisted) {
+            if (autoCommit) {
+                cache.add(entityObject);
+            } else {
+                uncommited.add(entityObject);
+            }
+        }
+
+        return persisted;
+    }
+
+    @Override
+    public MeasuredDataEntity update(final MeasuredDataEntity entityObject) {
+        try {
+            return dao.update(entityObject);
+        } finally {
+            cache.invalidate(entityObject);
+        }
+    }
+
+    @Override
+    public void remove(final MeasuredDataEntity o) {
+        try {
+            dao.remove(o);
+        } finally {
+            cache.invalidate(o);
+        }
+    }
+
+    @Override
+    public List<MeasuredDataEntity> get(final Range range) {
+        return dao.get(range);
+    }
+
+    @Override
+    public Boolean commit() {
+        Boolean commited = dao.commit();
+
+        if (commited) {
+            for (MeasuredDataEntity data : uncommited) {
+                cache.add(data);
+            }
+        }
+
+        uncommited.clear();
+
+        return commited;
+    }
+
+    @Override
+    public void rollback() {
+        uncommited.clear();
+
+        dao.rollback();
+    }
+
+    @Override
+    public void setAutoCommit(final Boolean value) {
+        if (value != null) {
+            autoCommit = value;
+        }
+
+        dao.setAutoCommit(value);
+    }
+
+    @Override
+    public void close() {
+        uncommited.clear();
+
+        dao.close();
+    }
+}
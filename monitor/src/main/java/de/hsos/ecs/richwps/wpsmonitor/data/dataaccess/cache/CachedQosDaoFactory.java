@@ -0,0 +1,47 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.cache;
+
+import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
+import de.hsos.ecs.richwps.wpsmonitor.creation.Factory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+
+/**
+ * Decorates the QosDataAccess instances of the given factory with a
+ * {@link CachedQosDao}; all instances share the same {@link MeasuredDataCache}.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class CachedQosDaoFactory implements Factory<QosDataAccess> {
+
+    private final Factory<QosDataAccess> defaultFactory;
+    private final MeasuredDataCache cache;
+
+    public CachedQosDaoFactory(final Factory<QosDataAccess> defaultFactory, final MeasuredDataCache cache) {
+        this.defaultFactory = Validate.notNull(defaultFactory, "defaultFactory");
+        this.cache = Validate.notNull(cache, "cache");
+    }
+
+    @Override
+    public QosDataAccess create() throws CreateException {
+        return new CachedQosDao(defaultFactory.create(), cache);
+    }
+
+    public MeasuredDataCache getCache() {
+        return cache;
+    }
+}
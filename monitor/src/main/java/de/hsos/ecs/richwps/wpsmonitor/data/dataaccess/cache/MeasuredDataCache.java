@@ -0,0 +1,473 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.cache;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosRecord;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Range;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.AbstractQosEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import de.hsos.ecs.richwps.wpsmonitor.util.Pair;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the newest measurements of each process in memory, to answer the
+ * frequent "last n measurements" requests (e.g. of the REST interface)
+ * without a database roundtrip.
+ *
+ * The window of a process is loaded lazily from the database at the first
+ * request and is updated afterwards with every persisted measurement. The
+ * returned lists are immutable snapshots; the same snapshot instance is
+ * returned as long as the window doesn't change.
+ *
+ * The cache stores detached copies, because the windows are read by many
+ * threads at once and the entities of a persistence context must not be
+ * shared. The processes of the copies carry no test request.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class MeasuredDataCache {
+
+    /**
+     * Max. amount of different snapshot sizes which are remembered per
+     * process.
+     */
+    private static final int MAX_SNAPSHOTS = 16;
+
+    private final Integer capacity;
+    private final ConcurrentMap<Pair<Long, String>, ProcessWindow> windows;
+
+    /**
+     * Creates a new MeasuredDataCache instance.
+     *
+     * @param capacity Max. amount of measurements per process
+     */
+    public MeasuredDataCache(final Integer capacity) {
+        Validate.notNull(capacity, "capacity");
+
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity need to be greater than zero.");
+        }
+
+        this.capacity = capacity;
+        this.windows = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Indicates if the cache is able to answer a request with the given range.
+     * Only ranges which start at the newest measurement and don't exceed the
+     * capacity can be served.
+     *
+     * @param range Range instance; can be null
+     * @return true if the range can be served from memory
+     */
+    public Boolean isServable(final Range range) {
+        return range != null
+                && (range.getOffset() == null || range.getOffset() == 0)
+                && range.getCount() != null
+                && range.getCount() <= capacity;
+    }
+
+    /**
+     * Gets the newest measurements of the given process.
+     *
+     * @param wpsId Wps entity id
+     * @param processIdentifier Process entity identifier
+     * @param range Range instance; see isServable
+     * @return Immutable list, newest measurement first; null if the window of
+     * the process is not loaded yet or the range can't be served
+     */
+    public List<MeasuredDataEntity> get(final Long wpsId, final String processIdentifier, final Range range) {
+        if (!isServable(range)) {
+            return null;
+        }
+
+        ProcessWindow window = windows.get(new Pair<>(wpsId, processIdentifier));
+
+        return window == null ? null : window.snapshot(range.getCount());
+    }
+
+    /**
+     * Gets the records of the newest measurements of the given process. The
+     * same list instance is returned as long as the window doesn't change.
+     *
+     * @param wpsId Wps entity id
+     * @param processIdentifier Process entity identifier
+     * @param range Range instance; see isServable
+     * @return Immutable list, newest measurement first; null if the window of
+     * the process is not loaded yet or the range can't be served
+     */
+    public List<QosRecord> getRecords(final Long wpsId, final String processIdentifier, final Range range) {
+        if (!isServable(range)) {
+            return null;
+        }
+
+        ProcessWindow window = windows.get(new Pair<>(wpsId, processIdentifier));
+
+        return window == null ? null : window.records(range.getCount());
+    }
+
+    /**
+     * Loads the window of the given process; measurements which are added
+     * before, but which are not part of the given list, are kept.
+     *
+     * @param wpsId Wps entity id
+     * @param processIdentifier Process entity identifier
+     * @param newestFirst The newest measurements of the process (at most
+     * capacity), ordered by createTime descending
+     */
+    public void load(final Long wpsId, final String processIdentifier, final List<MeasuredDataEntity> newestFirst) {
+        Validate.notNull(newestFirst, "newestFirst");
+
+        List<MeasuredDataEntity> copies = new ArrayList<>();
+
+        for (MeasuredDataEntity data : newestFirst) {
+            copies.add(detach(data));
+        }
+
+        getOrCreateWindow(new Pair<>(wpsId, processIdentifier))
+                .load(copies);
+    }
+
+    /**
+     * Adds a persisted measurement to the window of its process.
+     *
+     * @param data MeasuredDataEntity instance
+     */
+    public void add(final MeasuredDataEntity data) {
+        Pair<Long, String> key = getKey(data);
+
+        if (key != null) {
+            getOrCreateWindow(key).add(detach(data));
+        }
+    }
+
+    /**
+     * Drops the window of the given process; it will be reloaded at the next
+     * request.
+     *
+     * @param wpsId Wps entity id
+     * @param processIdentifier Process entity identifier
+     */
+    public void invalidate(final Long wpsId, final String processIdentifier) {
+        if (wpsId != null && processIdentifier != null) {
+            windows.remove(new Pair<>(wpsId, processIdentifier));
+        }
+    }
+
+    /**
+     * Drops the window of the process of the given measurement.
+     *
+     * @param data MeasuredDataEntity instance
+     */
+    public void invalidate(final MeasuredDataEntity data) {
+        Pair<Long, String> key = getKey(data);
+
+        if (key != null) {
+            windows.remove(key);
+        }
+    }
+
+    /**
+     * Drops the windows of all processes of the given wps.
+     *
+     * @param wpsId Wps entity id
+     */
+    public void invalidateWps(final Long wpsId) {
+        Iterator<Pair<Long, String>> it = windows.keySet().iterator();
+
+        while (it.hasNext()) {
+            if (it.next().getLeft().equals(wpsId)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all measurements which are older than the given date. The
+     * windows remain loaded, because the database doesn't contain these
+     * measurements anymore, too.
+     *
+     * @param date Date instance
+     */
+    public void removeOlderAs(final Date date) {
+        Validate.notNull(date, "date");
+
+        for (ProcessWindow window : windows.values()) {
+            window.removeOlderAs(date);
+        }
+    }
+
+    /**
+     * Drops all windows.
+     */
+    public void clear() {
+        windows.clear();
+    }
+
+    public Integer getCapacity() {
+        return capacity;
+    }
+
+    private ProcessWindow getOrCreateWindow(final Pair<Long, String> key) {
+        ProcessWindow window = windows.get(key);
+
+        if (window == null) {
+            ProcessWindow newWindow = new ProcessWindow(capacity);
+            window = windows.putIfAbsent(key, newWindow);
+
+            if (window == null) {
+                window = newWindow;
+            }
+        }
+
+        return window;
+    }
+
+    /**
+     * Copies the given measurement without any reference to a persistence
+     * context.
+     *
+     * @param data MeasuredDataEntity instance
+     * @return Detached copy
+     */
+    private static MeasuredDataEntity detach(final MeasuredDataEntity data) {
+        MeasuredDataEntity copy = new MeasuredDataEntity();
+        copy.setId(data.getId());
+        copy.setCreateTime(data.getCreateTime() == null ? null : new Date(data.getCreateTime().getTime()));
+        copy.setProcess(detach(data.getProcess()));
+
+        if (data.getData() != null) {
+            for (AbstractQosEntity qos : data.getData()) {
+                copy.add(copyOf(qos));
+            }
+        }
+
+        return copy;
+    }
+
+    private static WpsProcessEntity detach(final WpsProcessEntity process) {
+        if (process == null) {
+            return null;
+        }
+
+        WpsEntity wps = null;
+
+        if (process.getWps() != null) {
+            wps = new WpsEntity();
+            wps.setId(process.getWps().getId());
+
+            if (process.getWps().getEndpoint() != null) {
+                wps.setEndpoint(process.getWps().getEndpoint());
+            }
+        }
+
+        WpsProcessEntity copy = new WpsProcessEntity(process.getIdentifier(), wps);
+        copy.setId(process.getId());
+        copy.setWpsException(process.isWpsException());
+
+        return copy;
+    }
+
+    /**
+     * Copies a qos entity by serialization; the concrete types are provided by
+     * the measurement plugins.
+     *
+     * @param qos AbstractQosEntity instance
+     * @return Deep copy
+     */
+    private static AbstractQosEntity copyOf(final AbstractQosEntity qos) {
+        if (qos == null) {
+            return null;
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(qos);
+            }
+
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                return (AbstractQosEntity) in.readObject();
+            }
+        } catch (IOException | ClassNotFoundException ex) {
+            throw new IllegalStateException("Can't copy the qos entity " + qos.getEntityName() + ".", ex);
+        }
+    }
+
+    private Pair<Long, String> getKey(final MeasuredDataEntity data) {
+        if (data == null || data.getProcess() == null) {
+            return null;
+        }
+
+        WpsProcessEntity process = data.getProcess();
+
+        if (process.getWps() == null || process.getWps().getId() == null || process.getIdentifier() == null) {
+            return null;
+        }
+
+        return new Pair<>(process.getWps().getId(), process.getIdentifier());
+    }
+
+    /**
+     * The newest measurements of one process, newest first.
+     */
+    private static final class ProcessWindow {
+
+        private final int capacity;
+        private final LinkedList<MeasuredDataEntity> entries;
+        private final Map<Integer, List<MeasuredDataEntity>> snapshots;
+        private final Map<Integer, List<QosRecord>> recordSnapshots;
+        private boolean loaded;
+
+        ProcessWindow(final int capacity) {
+            this.capacity = capacity;
+            this.entries = new LinkedList<>();
+            this.snapshots = new HashMap<>();
+            this.recordSnapshots = new HashMap<>();
+            this.loaded = false;
+        }
+
+        synchronized void load(final List<MeasuredDataEntity> newestFirst) {
+            // measurements which are added meanwhile are newer than the loaded ones
+            List<MeasuredDataEntity> added = new ArrayList<>(entries);
+            Date newestLoaded = newestFirst.isEmpty() ? null : newestFirst.get(0).getCreateTime();
+
+            entries.clear();
+            entries.addAll(newestFirst);
+
+            for (int i = added.size() - 1; i >= 0; i--) {
+                MeasuredDataEntity data = added.get(i);
+
+                if (newestLoaded == null || data.getCreateTime().after(newestLoaded)) {
+                    insert(data);
+                }
+            }
+
+            trim();
+            loaded = true;
+            clearSnapshots();
+        }
+
+        synchronized void add(final MeasuredDataEntity data) {
+            insert(data);
+            trim();
+            clearSnapshots();
+        }
+
+        synchronized void removeOlderAs(final Date date) {
+            Boolean changed = false;
+
+            while (!entries.isEmpty() && entries.getLast().getCreateTime().before(date)) {
+                entries.removeLast();
+                changed = true;
+            }
+
+            if (changed) {
+                clearSnapshots();
+            }
+        }
+
+        synchronized List<QosRecord> records(final int count) {
+            List<MeasuredDataEntity> snapshot = snapshot(count);
+
+            if (snapshot == null) {
+                return null;
+            }
+
+            List<QosRecord> records = recordSnapshots.get(snapshot.size());
+
+            if (records == null) {
+                records = Collections.unmodifiableList(QosRecord.of(snapshot));
+
+                if (recordSnapshots.size() >= MAX_SNAPSHOTS) {
+                    recordSnapshots.clear();
+                }
+
+                recordSnapshots.put(snapshot.size(), records);
+            }
+
+            return records;
+        }
+
+        private void clearSnapshots() {
+            snapshots.clear();
+            recordSnapshots.clear();
+        }
+
+        synchronized List<MeasuredDataEntity> snapshot(final int count) {
+            if (!loaded) {
+                return null;
+            }
+
+            int size = Math.min(count, entries.size());
+            List<MeasuredDataEntity> snapshot = snapshots.get(size);
+
+            if (snapshot == null) {
+                snapshot = Collections.unmodifiableList(new ArrayList<>(entries.subList(0, size)));
+
+                if (snapshots.size() >= MAX_SNAPSHOTS) {
+                    snapshots.clear();
+                }
+
+                snapshots.put(size, snapshot);
+            }
+
+            return snapshot;
+        }
+
+        /**
+         * Inserts ordered by createTime; usually at the head, but a batched
+         * writer can persist measurements slightly out of order.
+         */
+        private void insert(final MeasuredDataEntity data) {
+            ListIterator<MeasuredDataEntity> it = entries.listIterator();
+
+            while (it.hasNext()) {
+                if (!it.next().getCreateTime().after(data.getCreateTime())) {
+                    it.previous();
+                    break;
+                }
+            }
+
+            it.add(data);
+        }
+
+        private void trim() {
+            while (entries.size() > capacity) {
+                entries.removeLast();
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.compact;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Cursor;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosRecord;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Range;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.Jpa;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.QosDao;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.AbstractQosEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.CompactMeasurementEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.NoResultException;
+import javax.persistence.TypedQuery;
+
+/**
+ * QosDataAccess implementation which stores every measurement as a single
+ * {@link CompactMeasurementEntity} row. The qos.* queries of QosDao are
+ * replaced by their compactQos.* counterparts and the results are returned
+ * as detached MeasuredDataEntity instances, so the callers don't notice the
+ * different layout. The decoded qos entities have no id; therefore
+ * findAbstractQosEntityByid always returns null. The rollups are stored as
+ * usual.
+ *
+ * Existing measurements can be moved into this layout with
+ * {@link CompactStorageMigration}.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class CompactQosDao extends QosDao {
+
+    private static final String QUERY_PREFIX = "qos.";
+    private static final String COMPACT_QUERY_PREFIX = "compactQos.";
+
+    private final QosDataCodec codec;
+
+    public CompactQosDao(final Jpa jpa) {
+        super(jpa);
+
+        this.codec = new QosDataCodec();
+    }
+
+    @Override
+    public MeasuredDataEntity find(final Long primaryKey) {
+        CompactMeasurementEntity compact = getEntityManager()
+                .find(CompactMeasurementEntity.class, primaryKey);
+
+        return (compact == null) ? null : toMeasuredData(compact);
+    }
+
+    @Override
+    public Boolean persist(final MeasuredDataEntity o) {
+        Validate.notNull(o, "o");
+
+        CompactMeasurementEntity compact = toCompact(o);
+        Boolean result = true;
+
+        beginTransaction();
+
+        getEntityManager()
+                .persist(compact);
+
+        // the id is assigned by persist and is needed for cursors
+        o.setId(compact.getId());
+
+        Boolean commitResult = requestCommit();
+
+        if (commitResult != null) {
+            result = commitResult;
+        }
+
+        return result;
+    }
+
+    @Override
+    public MeasuredDataEntity update(final MeasuredDataEntity t) {
+        Validate.notNull(t, "t");
+
+        beginTransaction();
+
+        CompactMeasurementEntity merged = getEntityManager()
+                .merge(toCompact(t));
+
+        requestCommit();
+
+        return toMeasuredData(merged);
+    }
+
+    @Override
+    public void remove(final MeasuredDataEntity o) {
+        Validate.notNull(o, "o");
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("ids", Arrays.asList(o.getId()));
+
+        doNamedQuery("qos.deleteByIds", parameters);
+    }
+
+    @Override
+    public List<QosRecord> getRecordsByProcess(final Long wpsId, final String processIdentifier,
+            final Cursor before, final Integer limit) {
+
+        // the qos entities are part of the row, so no separate record query is needed
+        return QosRecord.of(getByProcess(wpsId, processIdentifier, before, limit));
+    }
+
+    @Override
+    public Integer deleteAllOlderAs(final Date date, final Integer limit) {
+        Validate.notNull(date, "date");
+        Validate.notNull(limit, "limit");
+
+        List<Long> ids = getEntityManager()
+                .createNamedQuery("compactQos.getIdsOlderAs", Long.class)
+                .setParameter("date", date)
+                .setMaxResults(limit)
+                .getResultList();
+
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("ids", ids);
+
+        return doNamedQuery("qos.deleteByIds", parameters);
+    }
+
+    @Override
+    public AbstractQosEntity findAbstractQosEntityByid(final Long id) {
+        Validate.notNull(id, "id");
+
+        return null;
+    }
+
+    @Override
+    public Date getOldestCreateTime(final Date since) {
+        Validate.notNull(since, "since");
+
+        return getEntityManager()
+                .createNamedQuery("compactQos.getOldestCreateTime", Date.class)
+                .setParameter("date", since)
+                .getSingleResult();
+    }
+
+    /**
+     * Executes the compactQos.* counterpart of the given qos.* query and
+     * converts the results to MeasuredDataEntity instances.
+     *
+     * @param queryName Name of the qos.* named query
+     * @param parameters Parameter Map with &lt;ParameterNameInNamedQuery,
+     * Parameter>
+     * @param range Range instance
+     * @return List of MeasuredDataEntity instances
+     */
+    @Override
+    protected List<MeasuredDataEntity> getBy(final String queryName,
+            final Map<String, Object> parameters,
+            final Range range) {
+
+        TypedQuery<CompactMeasurementEntity> query = getEntityManager()
+                .createNamedQuery(toCompactQueryName(queryName), CompactMeasurementEntity.class);
+
+        if (parameters != null) {
+            for (Map.Entry<String, Object> e : parameters.entrySet()) {
+                query.setParameter(e.getKey(), e.getValue());
+            }
+        }
+
+        if (range != null) {
+            if (range.getOffset() != null) {
+                query.setFirstResult(range.getOffset());
+            }
+
+            if (range.getCount() != null) {
+                query.setMaxResults(range.getCount());
+            }
+        }
+
+        List<MeasuredDataEntity> result = new ArrayList<>();
+
+        try {
+            for (CompactMeasurementEntity compact : query.getResultList()) {
+                result.add(toMeasuredData(compact));
+            }
+        } catch (NoResultException ex) {
+            // empty result
+        }
+
+        return result;
+    }
+
+    /**
+     * Executes the compactQos.* counterpart of the given qos.* query.
+     *
+     * @param queryName Name of the qos.* named query
+     * @param parameters Parameter Map with &lt;ParameterNameInNamedQuery,
+     * Parameter>
+     * @return Number of effected rows
+     */
+    @Override
+    protected Integer doNamedQuery(final String queryName, final Map<String, Object> parameters) {
+        return super.doNamedQuery(toCompactQueryName(queryName), parameters);
+    }
+
+    private String toCompactQueryName(final String queryName) {
+        if (queryName.startsWith(QUERY_PREFIX)) {
+            return COMPACT_QUERY_PREFIX + queryName.substring(QUERY_PREFIX.length());
+        }
+
+        return queryName;
+    }
+
+    private CompactMeasurementEntity toCompact(final MeasuredDataEntity measuredData) {
+        CompactMeasurementEntity compact = new CompactMeasurementEntity();
+        compact.setId(measuredData.getId());
+        compact.setCreateTime(measuredData.getCreateTime());
+        compact.setProcess(measuredData.getProcess());
+        compact.setQosData(codec.encode(measuredData.getData()));
+
+        return compact;
+    }
+
+    private MeasuredDataEntity toMeasuredData(final CompactMeasurementEntity compact) {
+        MeasuredDataEntity measuredData = new MeasuredDataEntity(codec.decode(compact.getQosData()));
+        measuredData.setId(compact.getId());
+        measuredData.setCreateTime(compact.getCreateTime());
+        measuredData.setProcess(compact.getProcess());
+
+        return measuredData;
+    }
+}
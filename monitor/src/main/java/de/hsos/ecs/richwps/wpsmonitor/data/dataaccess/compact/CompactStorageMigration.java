@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.compact;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.Jpa;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.AbstractQosEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.CompactMeasurementEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.persistence.jpa.JpaEntityManager;
+
+/**
+ * One-time migration of the measurements into the compact storage layout.
+ * Every MeasuredDataEntity is copied into a CompactMeasurementEntity with the
+ * same id (so cursors of clients stay valid) and deleted afterwards. The
+ * migration works in batches, each in its own transaction; an interrupted
+ * migration can simply be started again.
+ *
+ * The monitor must not run while the migration is in progress.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class CompactStorageMigration {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    /**
+     * Default number of measurements which are migrated in one transaction.
+     */
+    public static final Integer DEFAULT_BATCH_SIZE = 500;
+
+    private final Jpa jpa;
+    private final Integer batchSize;
+    private final QosDataCodec codec;
+
+    public CompactStorageMigration(final Jpa jpa) {
+        this(jpa, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a new CompactStorageMigration instance.
+     *
+     * @param jpa Opened Jpa instance
+     * @param batchSize Number of measurements per transaction
+     */
+    public CompactStorageMigration(final Jpa jpa, final Integer batchSize) {
+        this.jpa = Validate.notNull(jpa, "jpa");
+        this.batchSize = Validate.notNull(batchSize, "batchSize");
+        this.codec = new QosDataCodec();
+
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be greater than 0.");
+        }
+    }
+
+    /**
+     * Migrates all measurements.
+     *
+     * @return Number of migrated measurements
+     */
+    public Integer migrate() {
+        EntityManager em = jpa.createEntityManager();
+        Integer migrated = 0;
+        Integer batch;
+
+        try {
+            do {
+                batch = migrateBatch(em);
+                migrated += batch;
+
+                if (batch > 0) {
+                    LOG.debug("{} measurements migrated to the compact storage.", migrated);
+                }
+            } while (batch > 0);
+
+            // the qos entities are deleted by the database (ON DELETE CASCADE)
+            em.unwrap(JpaEntityManager.class)
+                    .getActiveSession()
+                    .getIdentityMapAccessor()
+                    .invalidateClass(AbstractQosEntity.class);
+        } finally {
+            em.close();
+        }
+
+        LOG.info("{} measurements migrated to the compact storage.", migrated);
+
+        return migrated;
+    }
+
+    private Integer migrateBatch(final EntityManager em) {
+        em.getTransaction().begin();
+
+        try {
+            List<MeasuredDataEntity> measurements = em
+                    .createNamedQuery("qos.getAll", MeasuredDataEntity.class)
+                    .setMaxResults(batchSize)
+                    .getResultList();
+
+            if (measurements.isEmpty()) {
+                em.getTransaction().commit();
+
+                return 0;
+            }
+
+            List<Long> ids = new ArrayList<>();
+
+            for (MeasuredDataEntity measuredData : measurements) {
+                CompactMeasurementEntity compact = new CompactMeasurementEntity();
+                compact.setId(measuredData.getId());
+                compact.setCreateTime(measuredData.getCreateTime());
+                compact.setProcess(measuredData.getProcess());
+                compact.setQosData(codec.encode(measuredData.getData()));
+
+                em.persist(compact);
+                ids.add(measuredData.getId());
+            }
+
+            em.flush();
+            em.createNamedQuery("qos.deleteByIds")
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+
+            em.getTransaction().commit();
+            em.clear();
+
+            return measurements.size();
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+        }
+    }
+}
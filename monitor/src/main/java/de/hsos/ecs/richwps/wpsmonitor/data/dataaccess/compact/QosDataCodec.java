@@ -0,0 +1,152 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.compact;
+
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.AbstractQosEntity;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Encodes the qos entities of a measurement into a single string and back.
+ * The qos entities are defined by the probes and therefore unknown here, so
+ * every entity is stored with its class name and its own fields as JSON; the
+ * fields of AbstractQosEntity (the id) and fields added by the persistence
+ * provider are not stored.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class QosDataCodec {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private final Gson gson;
+
+    public QosDataCodec() {
+        this.gson = new GsonBuilder()
+                .setExclusionStrategies(new ExclusionStrategy() {
+
+                    @Override
+                    public boolean shouldSkipField(final FieldAttributes f) {
+                        return f.getDeclaringClass().equals(AbstractQosEntity.class)
+                                || f.getName().startsWith("_persistence");
+                    }
+
+                    @Override
+                    public boolean shouldSkipClass(final Class<?> clazz) {
+                        return false;
+                    }
+                })
+                .create();
+    }
+
+    /**
+     * Encodes the given qos entities.
+     *
+     * @param entities List of AbstractQosEntity instances; may be null
+     * @return Encoded string
+     */
+    public String encode(final List<AbstractQosEntity> entities) {
+        return gson.toJson(toJsonTree(entities));
+    }
+
+    /**
+     * Encodes the given qos entities as JSON array, e.g. to embed them into
+     * another JSON document.
+     *
+     * @param entities List of AbstractQosEntity instances; may be null
+     * @return JsonArray instance
+     */
+    public JsonArray toJsonTree(final List<AbstractQosEntity> entities) {
+        JsonArray result = new JsonArray();
+
+        if (entities != null) {
+            for (AbstractQosEntity entity : entities) {
+                JsonObject item = new JsonObject();
+                item.addProperty("type", entity.getClass().getName());
+                item.add("value", gson.toJsonTree(entity));
+
+                result.add(item);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Decodes the qos entities of the given string. Entities of unknown
+     * classes (e.g. of a removed probe) are skipped.
+     *
+     * @param encoded Encoded string, as returned by encode; may be null
+     * @return List of AbstractQosEntity instances
+     */
+    public List<AbstractQosEntity> decode(final String encoded) {
+        List<AbstractQosEntity> result = new ArrayList<>();
+
+        if (encoded == null || encoded.isEmpty()) {
+            return result;
+        }
+
+        try {
+            return decode(new JsonParser().parse(encoded));
+        } catch (JsonParseException ex) {
+            LOG.warn("Can't decode qos data {}.", encoded, ex);
+        }
+
+        return result;
+    }
+
+    /**
+     * Decodes the qos entities of the given JSON array, as returned by
+     * toJsonTree. Entities of unknown classes are skipped.
+     *
+     * @param encoded JsonElement instance
+     * @return List of AbstractQosEntity instances
+     */
+    public List<AbstractQosEntity> decode(final JsonElement encoded) {
+        List<AbstractQosEntity> result = new ArrayList<>();
+
+        try {
+            for (JsonElement element : encoded.getAsJsonArray()) {
+                JsonObject item = element.getAsJsonObject();
+                String type = item.get("type").getAsString();
+
+                try {
+                    Class<? extends AbstractQosEntity> entityClass = Class.forName(type)
+                            .asSubclass(AbstractQosEntity.class);
+
+                    result.add(gson.fromJson(item.get("value"), entityClass));
+                } catch (ClassNotFoundException | ClassCastException ex) {
+                    LOG.warn("Can't decode qos entity of unknown type {}.", type);
+                }
+            }
+        } catch (JsonParseException | IllegalStateException ex) {
+            LOG.warn("Can't decode qos data {}.", encoded, ex);
+        }
+
+        return result;
+    }
+}
@@ -17,6 +17,7 @@ package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa;
 
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.GenericDataAccess;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Range;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.AbstractQosEntity;
 import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
 import java.util.ArrayList;
 import java.util.List;
@@ -27,6 +28,7 @@ import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.eclipse.persistence.jpa.JpaEntityManager;
 
 /**
  * Implementation of some default operations with an EntityManager instance.
@@ -303,6 +305,19 @@ public abstract class AbstractDataAccess<T> implements GenericDataAccess<T> {
         return affectedRows;
     }
 
+    /**
+     * Invalidates the cached AbstractQosEntity instances. They are deleted by
+     * the database (ON DELETE CASCADE) when their MeasuredDataEntity is
+     * deleted by a query, which the persistence provider doesn't notice.
+     */
+    protected void invalidateCascaded() {
+        getEntityManager()
+                .unwrap(JpaEntityManager.class)
+                .getActiveSession()
+                .getIdentityMapAccessor()
+                .invalidateClass(AbstractQosEntity.class);
+    }
+
     /**
      * Helper method to assign the parameter map to a query.
      *
@@ -16,6 +16,8 @@
 package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa;
 
 import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.util.HashMap;
+import java.util.Map;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
@@ -36,11 +38,24 @@ public final class Jpa implements AutoCloseable {
     private static final Logger LOG = LogManager.getLogger();
 
     private final String puUnit;
+    private final Map<String, String> properties;
     private EntityManagerFactory emf;
     private ThreadLocal<EntityManager> entityStorage;
 
     public Jpa(final String persistenceUnit) {
+        this(persistenceUnit, new HashMap<String, String>());
+    }
+
+    /**
+     * Creates a Jpa instance whose EntityManagerFactory overrides properties
+     * of the persistence unit, e.g. javax.persistence.jdbc.url.
+     *
+     * @param persistenceUnit Name of the persistence unit
+     * @param properties Properties which override the persistence.xml
+     */
+    public Jpa(final String persistenceUnit, final Map<String, String> properties) {
         this.puUnit = Validate.notEmpty(persistenceUnit, "puUnit");
+        this.properties = Validate.notNull(properties, "properties");
     }
 
     /**
@@ -49,8 +64,10 @@ public final class Jpa implements AutoCloseable {
      */
     public void open() {
         if (emf == null || !emf.isOpen()) {
-            emf = Persistence.createEntityManagerFactory(puUnit);
+            emf = Persistence.createEntityManagerFactory(puUnit, properties);
             entityStorage = new ThreadLocal<>();
+
+            new SchemaMigration(this).migrate();
         }
     }
     
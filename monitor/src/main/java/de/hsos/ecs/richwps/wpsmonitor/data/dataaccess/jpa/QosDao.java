@@ -15,16 +15,25 @@
  */
 package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa;
 
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Cursor;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosRecord;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Range;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.AbstractQosEntity;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataRollupEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.RollupGranularity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
 import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import javax.persistence.TypedQuery;
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
 
 /**
  * Default implementation of a QosDataAccess-interface.
@@ -33,6 +42,11 @@ import java.util.Map;
  */
 public class QosDao extends AbstractDataAccess<MeasuredDataEntity> implements QosDataAccess {
 
+    /**
+     * Number of measurements which are deleted at once by deleteAllOlderAs.
+     */
+    private static final Integer DELETE_BATCH_SIZE = 1000;
+
     public QosDao(final Jpa jpa) {
         super(jpa, MeasuredDataEntity.class);
     }
@@ -59,6 +73,97 @@ public class QosDao extends AbstractDataAccess<MeasuredDataEntity> implements Qo
         return getBy("qos.getQosByProcess", parameter, range);
     }
 
+    @Override
+    public List<MeasuredDataEntity> getByProcess(final Long wpsId, final String processIdentifier,
+            final Cursor before, final Integer limit) {
+        Validate.notNull(processIdentifier, "processIdentifier");
+        Validate.notNull(wpsId, "WPS ID");
+        Validate.notNull(limit, "limit");
+
+        Map<String, Object> parameter = new HashMap<>();
+        parameter.put("processIdentifier", processIdentifier);
+        parameter.put("wpsId", wpsId);
+
+        if (before == null) {
+            return getBy("qos.getQosByProcess", parameter, new Range(null, limit));
+        }
+
+        parameter.put("createTime", before.getCreateTime());
+        parameter.put("id", before.getId());
+
+        return getBy("qos.getQosByProcessBefore", parameter, new Range(null, limit));
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByWps(final Long wpsId, final Cursor before, final Integer limit) {
+        Validate.notNull(wpsId, "WPS ID");
+        Validate.notNull(limit, "limit");
+
+        Map<String, Object> parameter = new HashMap<>();
+        parameter.put("wpsId", wpsId);
+
+        if (before == null) {
+            return getBy("qos.getQosByWps", parameter, new Range(null, limit));
+        }
+
+        parameter.put("createTime", before.getCreateTime());
+        parameter.put("id", before.getId());
+
+        return getBy("qos.getQosByWpsBefore", parameter, new Range(null, limit));
+    }
+
+    @Override
+    public List<QosRecord> getRecordsByProcess(final Long wpsId, final String processIdentifier,
+            final Cursor before, final Integer limit) {
+        Validate.notNull(processIdentifier, "processIdentifier");
+        Validate.notNull(wpsId, "WPS ID");
+        Validate.notNull(limit, "limit");
+
+        // first only the keys of the page, to get its bounds
+        TypedQuery<Object[]> keyQuery = getEntityManager()
+                .createNamedQuery(before == null ? "qos.getKeysByProcess" : "qos.getKeysByProcessBefore", Object[].class)
+                .setParameter("processIdentifier", processIdentifier)
+                .setParameter("wpsId", wpsId)
+                .setMaxResults(limit)
+                .setHint(QueryHints.READ_ONLY, HintValues.TRUE);
+
+        if (before != null) {
+            keyQuery.setParameter("createTime", before.getCreateTime())
+                    .setParameter("id", before.getId());
+        }
+
+        List<Object[]> keys = keyQuery.getResultList();
+        List<QosRecord> records = new ArrayList<>();
+
+        if (keys.isEmpty()) {
+            return records;
+        }
+
+        Object[] newest = keys.get(0);
+        Object[] oldest = keys.get(keys.size() - 1);
+
+        TypedQuery<Object[]> recordQuery = getEntityManager()
+                .createNamedQuery("qos.getRecordsByProcess", Object[].class)
+                .setParameter("processIdentifier", processIdentifier)
+                .setParameter("wpsId", wpsId)
+                .setParameter("newestTime", newest[0])
+                .setParameter("newestId", newest[1])
+                .setParameter("oldestTime", oldest[0])
+                .setParameter("oldestId", oldest[1]);
+
+        // the records are projections, so the entities are never registered
+        // in the persistence context; read-only queries read committed data
+        recordQuery.setHint(QueryHints.READ_ONLY, HintValues.TRUE);
+
+        List<Object[]> rows = recordQuery.getResultList();
+
+        for (Object[] row : rows) {
+            records.add(new QosRecord((Long) row[0], (Date) row[1], (AbstractQosEntity) row[2]));
+        }
+
+        return records;
+    }
+
     @Override
     public List<MeasuredDataEntity> get(final Range range) {
         // not needed here yet
@@ -109,75 +214,126 @@ public class QosDao extends AbstractDataAccess<MeasuredDataEntity> implements Qo
 
     @Override
     public Integer deleteByProcess(final URL endpoint, final String processIdentifier) {
-        Validate.notNull(endpoint, "endpoint");
-        Validate.notNull(processIdentifier, "processIdentifier");
-
-        Map<String, Object> parameters = new HashMap<>();
-        parameters.put("endpoint", endpoint.toString());
-        parameters.put("processIdentifier", processIdentifier);
-
-        doNamedQuery("abstractQos.deleteByWpsProcessEndpoint", parameters);
-        return doNamedQuery("qos.deleteByWpsProcessEndpoint", parameters);
+        return deleteByProcess(endpoint, processIdentifier, null);
     }
 
     @Override
     public Integer deleteByProcess(final URL endpoint, final String processIdentifier, final Date olderDate) {
-        if (olderDate == null) {
-            return deleteByProcess(endpoint, processIdentifier);
-        }
-
         Validate.notNull(endpoint, "endpoint");
         Validate.notNull(processIdentifier, "processIdentifier");
 
-        Map<String, Object> parameters = new HashMap<>();
-        parameters.put("endpoint", endpoint.toString());
-        parameters.put("processIdentifier", processIdentifier);
-        parameters.put("date", olderDate);
+        List<WpsProcessEntity> processes = getEntityManager()
+                .createNamedQuery("wpsprocess.getByEndpoint", WpsProcessEntity.class)
+                .setParameter("endpoint", endpoint.toString())
+                .setParameter("processIdentifier", processIdentifier)
+                .getResultList();
 
-        doNamedQuery("abstractQos.deleteByWpsProcessOlderAsEndpoint", parameters);
-        return doNamedQuery("qos.deleteByWpsProcessOlderAsEndpoint", parameters);
+        return deleteByProcess(processes, olderDate);
     }
 
     @Override
     public Integer deleteByProcess(final Long wpsId, final String processIdentifier) {
-        Validate.notNull(wpsId, "WPS ID");
-        Validate.notNull(processIdentifier, "processIdentifier");
-
-        Map<String, Object> parameters = new HashMap<>();
-        parameters.put("wpsId", wpsId);
-        parameters.put("processIdentifier", processIdentifier);
-
-        doNamedQuery("abstractQos.deleteByWpsProcess", parameters);
-        return doNamedQuery("qos.deleteByWpsProcess", parameters);
+        return deleteByProcess(wpsId, processIdentifier, null);
     }
 
     @Override
     public Integer deleteByProcess(final Long wpsId, final String processIdentifier, final Date olderDate) {
-        if (olderDate == null) {
-            return deleteByProcess(wpsId, processIdentifier);
-        }
-
         Validate.notNull(wpsId, "wpsId");
         Validate.notNull(processIdentifier, "processIdentifier");
 
+        List<WpsProcessEntity> processes = getEntityManager()
+                .createNamedQuery("wpsprocess.get", WpsProcessEntity.class)
+                .setParameter("wpsId", wpsId)
+                .setParameter("processIdentifier", processIdentifier)
+                .getResultList();
+
+        return deleteByProcess(processes, olderDate);
+    }
+
+    /**
+     * Deletes the measurements of the resolved process. The process is
+     * resolved first, so that the delete statement only filters by the
+     * indexed process column; a delete with a join is executed as a scan of
+     * the whole table.
+     *
+     * @param processes Result of the process query; may be empty
+     * @param olderDate Only older measurements are deleted; null for all
+     * @return Number of deleted measurements
+     */
+    private Integer deleteByProcess(final List<WpsProcessEntity> processes, final Date olderDate) {
+        if (processes.isEmpty()) {
+            return 0;
+        }
+
         Map<String, Object> parameters = new HashMap<>();
-        parameters.put("wpsId", wpsId);
-        parameters.put("processIdentifier", processIdentifier);
-        parameters.put("date", olderDate);
+        parameters.put("process", processes.get(0));
+
+        Integer deleted;
+
+        if (olderDate == null) {
+            deleted = doNamedQuery("qos.deleteByProcess", parameters);
+        } else {
+            parameters.put("date", olderDate);
+            deleted = doNamedQuery("qos.deleteByProcessOlderAs", parameters);
+        }
+
+        invalidateCascaded();
 
-        doNamedQuery("abstractQos.deleteByWpsProcessOlderAs", parameters);
-        return doNamedQuery("qos.deleteByWpsProcessOlderAs", parameters);
+        return deleted;
     }
 
     @Override
     public Integer deleteAllOlderAs(final Date date) {
         Validate.notNull(date, "date");
 
+        // Derby can't estimate an open range like "createTime < ?" and scans
+        // the whole table for it; the batches select their ids by index
+        Integer deleted = 0;
+        Integer batch;
+
+        do {
+            batch = deleteAllOlderAs(date, DELETE_BATCH_SIZE);
+            deleted += batch;
+        } while (batch > 0);
+
+        return deleted;
+    }
+
+    @Override
+    public Integer deleteAllOlderAs(final Date date, final Integer limit) {
+        Validate.notNull(date, "date");
+        Validate.notNull(limit, "limit");
+
+        List<Long> ids = getEntityManager()
+                .createNamedQuery("qos.getIdsOlderAs", Long.class)
+                .setParameter("date", date)
+                .setMaxResults(limit)
+                .getResultList();
+
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
         Map<String, Object> parameters = new HashMap<>();
-        parameters.put("date", date);
+        parameters.put("ids", ids);
+
+        Integer deleted = doNamedQuery("qos.deleteByIds", parameters);
+        invalidateCascaded();
 
-        doNamedQuery("abstractQos.deleteOlderAs", parameters);
-        return doNamedQuery("qos.deleteOlderAs", parameters);
+        return deleted;
+    }
+
+    /**
+     * The database has no archive; nothing is moved.
+     *
+     * @param date Date instance
+     * @return 0
+     */
+    @Override
+    public Integer archiveOlderAs(final Date date) {
+        Validate.notNull(date, "date");
+
+        return 0;
     }
 
     @Override
@@ -185,4 +341,113 @@ public class QosDao extends AbstractDataAccess<MeasuredDataEntity> implements Qo
         Validate.notNull(id, "id");
         return getEntityManager().find(AbstractQosEntity.class, id);
     }
+
+    @Override
+    public List<MeasuredDataEntity> getBetween(final Date from, final Date to) {
+        Validate.notNull(from, "from");
+        Validate.notNull(to, "to");
+
+        Map<String, Object> parameter = new HashMap<>();
+        parameter.put("from", from);
+        parameter.put("to", to);
+
+        return getBy("qos.getQosBetween", parameter, null);
+    }
+
+    @Override
+    public Date getOldestCreateTime(final Date since) {
+        Validate.notNull(since, "since");
+
+        return getEntityManager()
+                .createNamedQuery("qos.getOldestCreateTime", Date.class)
+                .setParameter("date", since)
+                .getSingleResult();
+    }
+
+    @Override
+    public List<MeasuredDataRollupEntity> getRollups(final Long wpsId, final String processIdentifier,
+            final RollupGranularity granularity, final Date from, final Date to) {
+
+        Validate.notNull(wpsId, "WPS ID");
+        Validate.notNull(processIdentifier, "processIdentifier");
+        Validate.notNull(granularity, "granularity");
+        Validate.notNull(from, "from");
+        Validate.notNull(to, "to");
+
+        return getEntityManager()
+                .createNamedQuery("rollup.getByProcess", MeasuredDataRollupEntity.class)
+                .setParameter("wpsId", wpsId)
+                .setParameter("processIdentifier", processIdentifier)
+                .setParameter("granularity", granularity)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+    }
+
+    @Override
+    public MeasuredDataRollupEntity findRollup(final WpsProcessEntity process, final String entityName,
+            final RollupGranularity granularity, final Date bucketStart) {
+
+        Validate.notNull(process, "process");
+        Validate.notNull(entityName, "entityName");
+        Validate.notNull(granularity, "granularity");
+        Validate.notNull(bucketStart, "bucketStart");
+
+        TypedQuery<MeasuredDataRollupEntity> query = getEntityManager()
+                .createNamedQuery("rollup.find", MeasuredDataRollupEntity.class)
+                .setParameter("process", process)
+                .setParameter("entityName", entityName)
+                .setParameter("granularity", granularity)
+                .setParameter("bucketStart", bucketStart);
+
+        List<MeasuredDataRollupEntity> result = query.getResultList();
+
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    @Override
+    public MeasuredDataRollupEntity storeRollup(final MeasuredDataRollupEntity rollup) {
+        Validate.notNull(rollup, "rollup");
+
+        beginTransaction();
+
+        MeasuredDataRollupEntity managed = rollup;
+
+        // merge copies only the persistent state
+        rollup.storeHistogram();
+
+        if (rollup.getId() == null) {
+            getEntityManager()
+                    .persist(rollup);
+        } else {
+            managed = getEntityManager()
+                    .merge(rollup);
+        }
+
+        requestCommit();
+
+        return managed;
+    }
+
+    @Override
+    public Date getNewestRollupBucket(final RollupGranularity granularity) {
+        Validate.notNull(granularity, "granularity");
+
+        return getEntityManager()
+                .createNamedQuery("rollup.getNewestBucket", Date.class)
+                .setParameter("granularity", granularity)
+                .getSingleResult();
+    }
+
+    @Override
+    public Integer deleteRollupsOlderAs(final RollupGranularity granularity, final Date date) {
+        Validate.notNull(granularity, "granularity");
+        Validate.notNull(date, "date");
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("granularity", granularity);
+        parameters.put("date", date);
+
+        return doNamedQuery("rollup.deleteOlderAs", parameters);
+    }
 }
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Creates the indexes of the measurement schema. The schema itself is
+ * generated by the persistence provider, but only if the tables don't exist
+ * yet; so existing databases never get new indexes that way. This migration
+ * runs at every start and creates all missing indexes, for new and existing
+ * databases alike.
+ *
+ * The foreign key columns (e.g. MEASUREDDATAENTITY.PROCESS_ID and
+ * ABSTRACTQOSENTITY.OWNER_ID) are indexed by Derby itself. Older databases
+ * lack the ON DELETE CASCADE of ABSTRACTQOSENTITY.OWNER_ID, which is added
+ * here, too.
+ *
+ * The test requests of older databases are stored uncompressed in the column
+ * WPSPROCESSENTITY.RAWREQUEST; they are copied into the table of the
+ * WpsProcessRequestEntity. The column itself is kept, so an older version
+ * can still be started on the database; it is only dropped on demand of the
+ * operator by {@link #dropRawRequestColumn()}.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class SchemaMigration {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    /**
+     * Index name, table and columns of all indexes.
+     */
+    private static final String[][] INDEXES = {
+        // qos.getQosByProcess(Before), qos.getKeysByProcess(Before), qos.getRecordsByProcess,
+        // qos.deleteByProcess(OlderAs)
+        {"IDX_QOS_PROCESS_TIME", "MEASUREDDATAENTITY", "PROCESS_ID, CREATETIME, MEASUREDDATA_ID"},
+        // qos.getQosBetween, qos.getOldestCreateTime, qos.getIdsOlderAs
+        {"IDX_QOS_TIME", "MEASUREDDATAENTITY", "CREATETIME"},
+        // compactQos.getQosByProcess(Before), compactQos.deleteByProcess(OlderAs)
+        {"IDX_COMPACT_PROCESS_TIME", "COMPACTMEASUREMENTENTITY", "PROCESS_ID, CREATETIME, ID"},
+        // compactQos.getQosBetween, compactQos.getOldestCreateTime, compactQos.getIdsOlderAs
+        {"IDX_COMPACT_TIME", "COMPACTMEASUREMENTENTITY", "CREATETIME"},
+        // rollup.getByProcess
+        {"IDX_ROLLUP_PROCESS_BUCKET", "MEASUREDDATAROLLUPENTITY", "PROCESS_ID, GRANULARITY, BUCKETSTART"},
+        // rollup.getNewestBucket, rollup.deleteOlderAs
+        {"IDX_ROLLUP_BUCKET", "MEASUREDDATAROLLUPENTITY", "GRANULARITY, BUCKETSTART"}
+    };
+
+    private final Jpa jpa;
+
+    /**
+     * Creates a new SchemaMigration instance.
+     *
+     * @param jpa Opened Jpa instance
+     */
+    public SchemaMigration(final Jpa jpa) {
+        this.jpa = Validate.notNull(jpa, "jpa");
+    }
+
+    /**
+     * Creates all missing indexes and the missing delete cascade and copies
+     * the uncompressed test requests. Errors of the indexes are logged,
+     * because the monitor works without indexes, too (only slower).
+     *
+     * @return Names of the created indexes and altered constraints
+     */
+    public List<String> migrate() {
+        List<String> created = new ArrayList<>();
+        EntityManager em = jpa.createEntityManager();
+
+        try {
+            String constraint = cascadeQosOwner(em);
+
+            if (constraint != null) {
+                created.add(constraint);
+            }
+
+            copyRawRequests(em);
+
+            for (String[] index : INDEXES) {
+                try {
+                    if (createIfMissing(em, index[0], index[1], index[2])) {
+                        created.add(index[0]);
+                    }
+                } catch (PersistenceException ex) {
+                    LOG.warn("Can't create index {}; queries may be slow.", index[0], ex);
+                }
+            }
+        } finally {
+            em.close();
+        }
+
+        if (!created.isEmpty()) {
+            LOG.info("Database schema migrated: {}", created);
+        }
+
+        return created;
+    }
+
+    /**
+     * Gets the names of all indexes which are managed by this migration.
+     *
+     * @return List of index names
+     */
+    public static List<String> getIndexNames() {
+        List<String> names = new ArrayList<>();
+
+        for (String[] index : INDEXES) {
+            names.add(index[0]);
+        }
+
+        return Collections.unmodifiableList(names);
+    }
+
+    private Boolean createIfMissing(final EntityManager em, final String name, final String table, final String columns) {
+        Number existing = (Number) em
+                .createNativeQuery("SELECT COUNT(*) FROM SYS.SYSCONGLOMERATES WHERE CONGLOMERATENAME = ?")
+                .setParameter(1, name)
+                .getSingleResult();
+
+        if (existing.intValue() > 0) {
+            return false;
+        }
+
+        em.getTransaction().begin();
+
+        try {
+            em.createNativeQuery("CREATE INDEX " + name + " ON " + table + " (" + columns + ")")
+                    .executeUpdate();
+            em.getTransaction().commit();
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Recreates the foreign key of ABSTRACTQOSENTITY.OWNER_ID with ON DELETE
+     * CASCADE, if it was created without. The qos deletes rely on it.
+     *
+     * @param em EntityManager instance
+     * @return Name of the altered constraint or null
+     */
+    private String cascadeQosOwner(final EntityManager em) {
+        List<?> foreignKeys = em
+                .createNativeQuery("SELECT c.CONSTRAINTNAME FROM SYS.SYSFOREIGNKEYS f "
+                        + "JOIN SYS.SYSCONSTRAINTS c ON f.CONSTRAINTID = c.CONSTRAINTID "
+                        + "JOIN SYS.SYSTABLES t ON c.TABLEID = t.TABLEID "
+                        + "JOIN SYS.SYSCONSTRAINTS k ON f.KEYCONSTRAINTID = k.CONSTRAINTID "
+                        + "JOIN SYS.SYSTABLES kt ON k.TABLEID = kt.TABLEID "
+                        + "WHERE t.TABLENAME = 'ABSTRACTQOSENTITY' AND kt.TABLENAME = 'MEASUREDDATAENTITY' "
+                        + "AND f.DELETERULE <> 'C'")
+                .getResultList();
+
+        if (foreignKeys.isEmpty()) {
+            return null;
+        }
+
+        String name = foreignKeys.get(0).toString();
+
+        em.getTransaction().begin();
+
+        try {
+            em.createNativeQuery("ALTER TABLE ABSTRACTQOSENTITY DROP CONSTRAINT \"" + name + "\"")
+                    .executeUpdate();
+            em.createNativeQuery("ALTER TABLE ABSTRACTQOSENTITY ADD CONSTRAINT \"" + name + "\" "
+                    + "FOREIGN KEY (OWNER_ID) REFERENCES MEASUREDDATAENTITY (MEASUREDDATA_ID) ON DELETE CASCADE")
+                    .executeUpdate();
+            em.getTransaction().commit();
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+        }
+
+        return name;
+    }
+
+    /**
+     * Drops the legacy column WPSPROCESSENTITY.RAWREQUEST, after the test
+     * requests which are not copied yet were copied. This can't be undone;
+     * older versions can't be started on the database afterwards.
+     *
+     * @return true if the column was dropped, false if it doesn't exist
+     */
+    public Boolean dropRawRequestColumn() {
+        EntityManager em = jpa.createEntityManager();
+
+        try {
+            if (!hasRawRequestColumn(em)) {
+                return false;
+            }
+
+            copyRawRequests(em);
+
+            em.getTransaction().begin();
+
+            try {
+                em.createNativeQuery("ALTER TABLE WPSPROCESSENTITY DROP COLUMN RAWREQUEST")
+                        .executeUpdate();
+                em.getTransaction().commit();
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+            }
+        } finally {
+            em.close();
+        }
+
+        LOG.info("Dropped the legacy column WPSPROCESSENTITY.RAWREQUEST.");
+
+        return true;
+    }
+
+    private Boolean hasRawRequestColumn(final EntityManager em) {
+        Number existing = (Number) em
+                .createNativeQuery("SELECT COUNT(*) FROM SYS.SYSCOLUMNS c "
+                        + "JOIN SYS.SYSTABLES t ON c.REFERENCEID = t.TABLEID "
+                        + "WHERE t.TABLENAME = 'WPSPROCESSENTITY' AND c.COLUMNNAME = 'RAWREQUEST'")
+                .getSingleResult();
+
+        return existing.intValue() > 0;
+    }
+
+    /**
+     * Copies the uncompressed test requests of the legacy column
+     * WPSPROCESSENTITY.RAWREQUEST into the WpsProcessRequestEntity table, if
+     * the process has no request there yet. The column is left untouched.
+     *
+     * @param em EntityManager instance
+     */
+    private void copyRawRequests(final EntityManager em) {
+        if (!hasRawRequestColumn(em)) {
+            return;
+        }
+
+        List<?> rows = em
+                .createNativeQuery("SELECT p.ID, p.RAWREQUEST FROM WPSPROCESSENTITY p WHERE p.RAWREQUEST IS NOT NULL "
+                        + "AND NOT EXISTS (SELECT 1 FROM WPSPROCESSREQUESTENTITY r WHERE r.PROCESS_ID = p.ID)")
+                .getResultList();
+
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        em.getTransaction().begin();
+
+        try {
+            for (Object row : rows) {
+                Object[] values = (Object[]) row;
+                WpsProcessEntity process = em.find(WpsProcessEntity.class, ((Number) values[0]).longValue());
+
+                if (process != null && process.getRawRequest() == null) {
+                    process.setRawRequest(toString(values[1]));
+                }
+            }
+
+            em.getTransaction().commit();
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+        }
+
+        LOG.info("Copied {} test requests into the compressed request table.", rows.size());
+    }
+
+    private static String toString(final Object value) {
+        if (value instanceof Clob) {
+            Clob clob = (Clob) value;
+
+            try {
+                return clob.getSubString(1, (int) clob.length());
+            } catch (SQLException ex) {
+                throw new PersistenceException("Can't read the legacy test request.", ex);
+            }
+        }
+
+        return value.toString();
+    }
+}
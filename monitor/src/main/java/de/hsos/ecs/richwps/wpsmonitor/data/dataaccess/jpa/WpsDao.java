@@ -18,6 +18,7 @@ package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Range;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDataAccess;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
 import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
 import java.net.URL;
 import java.util.HashMap;
@@ -55,11 +56,26 @@ public class WpsDao extends AbstractDataAccess<WpsEntity> implements WpsDataAcce
         parameters.put("wpsId", o.getId());
 
         beginTransaction();
-        // first remove from AbstractQosEntity
-        doNamedQuery("abstractQos.deleteByWps", parameters);
 
-        // remove from MeasuredDataEntity
-        doNamedQuery("qos.deleteByWps", parameters);
+        // remove the measurements and rollups process by process, so that
+        // the deletes can use the process index; the AbstractQosEntity rows
+        // are removed by the database (ON DELETE CASCADE)
+        List<WpsProcessEntity> processes = getEntityManager()
+                .createNamedQuery("wpsprocess.getAllOf", WpsProcessEntity.class)
+                .setParameter("wpsId", o.getId())
+                .getResultList();
+
+        for (WpsProcessEntity process : processes) {
+            Map<String, Object> processParameter = new HashMap<>();
+            processParameter.put("process", process);
+
+            doNamedQuery("qos.deleteByProcess", processParameter);
+            doNamedQuery("compactQos.deleteByProcess", processParameter);
+            doNamedQuery("rollup.deleteByProcess", processParameter);
+            doNamedQuery("processrequest.deleteByProcess", processParameter);
+        }
+
+        invalidateCascaded();
 
         // delete all processes of wps
         doNamedQuery("wpsprocess.deleteByWps", parameters);
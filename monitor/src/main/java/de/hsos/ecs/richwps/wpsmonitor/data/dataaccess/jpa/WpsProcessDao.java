@@ -17,6 +17,7 @@ package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa;
 
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Range;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessSummary;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
 import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
 import java.net.URL;
@@ -93,6 +94,8 @@ public class WpsProcessDao extends AbstractDataAccess<WpsProcessEntity> implemen
         Map<String, Object> parameters = new HashMap<>();
         parameters.put("wpsId", wpsId);
 
+        doNamedQuery("processrequest.deleteByWps", parameters);
+
         return doNamedQuery("wpsprocess.deleteByWps", parameters);
     }
 
@@ -116,15 +119,24 @@ public class WpsProcessDao extends AbstractDataAccess<WpsProcessEntity> implemen
             Validate.notNull(null, "Given WpsProcessEntity");
         }
 
-        Map<String, Object> parameters = new HashMap<>();
-        parameters.put("wpsId", o.getWps().getId());
-        parameters.put("processIdentifier", o.getIdentifier());
+        WpsProcessEntity process = find(o.getWps().getId(), o.getIdentifier());
+
+        if (process != null) {
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("process", process);
 
-        // first remove from AbstractQosEntity
-        doNamedQuery("abstractQos.deleteByWpsProcess", parameters);
+            // remove from MeasuredDataEntity; the AbstractQosEntity rows are
+            // removed by the database (ON DELETE CASCADE)
+            doNamedQuery("qos.deleteByProcess", parameters);
 
-        // remove from MeasuredDataEntity
-        doNamedQuery("qos.deleteByWpsProcess", parameters);
+            // remove from the compact storage
+            doNamedQuery("compactQos.deleteByProcess", parameters);
+
+            // remove the aggregated rollups
+            doNamedQuery("rollup.deleteByProcess", parameters);
+
+            invalidateCascaded();
+        }
 
         super.remove(o);
         requestCommit();
@@ -161,6 +173,16 @@ public class WpsProcessDao extends AbstractDataAccess<WpsProcessEntity> implemen
         return getBy("wpsprocess.getAllOfEndpoint", parameters);
     }
 
+    @Override
+    public List<WpsProcessSummary> getSummaries(final Long wpsId) {
+        Validate.notNull(wpsId, "WPS ID");
+
+        return getEntityManager()
+                .createNamedQuery("wpsprocess.getSummariesOf", WpsProcessSummary.class)
+                .setParameter("wpsId", wpsId)
+                .getResultList();
+    }
+
     @Override
     public Integer deleteProcessesOfWps(final URL endpoint) {
         Validate.notNull(endpoint, "endpoint");
@@ -168,6 +190,8 @@ public class WpsProcessDao extends AbstractDataAccess<WpsProcessEntity> implemen
         Map<String, Object> parameters = new HashMap<>();
         parameters.put("endpoint", endpoint.toString());
 
+        doNamedQuery("processrequest.deleteByWpsEndpoint", parameters);
+
         return doNamedQuery("wpsprocess.deleteByWpsEndpoint", parameters);
     }
 
@@ -0,0 +1,475 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.mapped;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Cursor;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosRecord;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Range;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.compact.QosDataCodec;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.AbstractQosEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataRollupEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.RollupGranularity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * QosDataAccess implementation which appends the measurements to a
+ * {@link MappedQosStore} instead of the database. The qos entities of a
+ * measurement are encoded into the fixed-width record; measurements whose
+ * encoded qos data exceeds the record size are not stored.
+ *
+ * The wps and process entities and the rollups remain in the database and are
+ * accessed through the given data access objects. Measurements of processes
+ * which no longer exist in the database are not returned; they expire with
+ * deleteAllOlderAs.
+ *
+ * Appended measurements are visible at once; they can't be rolled back.
+ * commit forces them to the disk, otherwise this is done by the operating
+ * system. The decoded qos entities have no id; therefore
+ * findAbstractQosEntityByid always returns null.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class MappedQosDao implements QosDataAccess {
+
+    private static final Logger LOG = LogManager.getLogger();
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final MappedQosStore store;
+    private final QosDataAccess rollupDao;
+    private final WpsProcessDataAccess processDao;
+    private final QosDataCodec codec;
+
+    /**
+     * Creates a new MappedQosDao instance.
+     *
+     * @param store Opened MappedQosStore instance
+     * @param rollupDao QosDataAccess instance which stores the rollups
+     * @param processDao WpsProcessDataAccess instance to resolve the processes
+     */
+    public MappedQosDao(final MappedQosStore store, final QosDataAccess rollupDao,
+            final WpsProcessDataAccess processDao) {
+        this.store = Validate.notNull(store, "store");
+        this.rollupDao = Validate.notNull(rollupDao, "rollupDao");
+        this.processDao = Validate.notNull(processDao, "processDao");
+        this.codec = new QosDataCodec();
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByProcess(final Long wpsId, final String processIdentifier) {
+        return getByProcess(wpsId, processIdentifier, (Range) null);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByProcess(final URL endpoint, final String processIdentifier) {
+        return getByProcess(endpoint, processIdentifier, null);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByWps(final Long wpsId) {
+        return getByWps(wpsId, (Range) null);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByWps(final URL endpoint) {
+        return getByWps(endpoint, null);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByProcess(final Long wpsId, final String processIdentifier, final Range range) {
+        Validate.notNull(wpsId, "WPS ID");
+        Validate.notNull(processIdentifier, "processIdentifier");
+
+        return get(toList(processDao.find(wpsId, processIdentifier)), range);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByProcess(final URL endpoint, final String processIdentifier, final Range range) {
+        Validate.notNull(endpoint, "endpoint");
+        Validate.notNull(processIdentifier, "processIdentifier");
+
+        return get(toList(processDao.find(endpoint, processIdentifier)), range);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByWps(final Long wpsId, final Range range) {
+        Validate.notNull(wpsId, "WPS ID");
+
+        return get(processDao.getAll(wpsId), range);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByWps(final URL endpoint, final Range range) {
+        Validate.notNull(endpoint, "endpoint");
+
+        return get(processDao.getAll(endpoint), range);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByProcess(final Long wpsId, final String processIdentifier,
+            final Cursor before, final Integer limit) {
+        Validate.notNull(wpsId, "WPS ID");
+        Validate.notNull(processIdentifier, "processIdentifier");
+        Validate.notNull(limit, "limit");
+
+        return select(toList(processDao.find(wpsId, processIdentifier)), before, limit);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByWps(final Long wpsId, final Cursor before, final Integer limit) {
+        Validate.notNull(wpsId, "WPS ID");
+        Validate.notNull(limit, "limit");
+
+        return select(processDao.getAll(wpsId), before, limit);
+    }
+
+    @Override
+    public List<QosRecord> getRecordsByProcess(final Long wpsId, final String processIdentifier,
+            final Cursor before, final Integer limit) {
+        return QosRecord.of(getByProcess(wpsId, processIdentifier, before, limit));
+    }
+
+    @Override
+    public Integer deleteByProcess(final Long wpsId, final String processIdentifier) {
+        return deleteByProcess(wpsId, processIdentifier, null);
+    }
+
+    @Override
+    public Integer deleteByProcess(final URL endpoint, final String processIdentifier) {
+        return deleteByProcess(endpoint, processIdentifier, null);
+    }
+
+    @Override
+    public Integer deleteByProcess(final Long wpsId, final String processIdentifier, final Date olderDate) {
+        Validate.notNull(wpsId, "wpsId");
+        Validate.notNull(processIdentifier, "processIdentifier");
+
+        return delete(processDao.find(wpsId, processIdentifier), olderDate);
+    }
+
+    @Override
+    public Integer deleteByProcess(final URL endpoint, final String processIdentifier, final Date olderDate) {
+        Validate.notNull(endpoint, "endpoint");
+        Validate.notNull(processIdentifier, "processIdentifier");
+
+        return delete(processDao.find(endpoint, processIdentifier), olderDate);
+    }
+
+    @Override
+    public Integer deleteAllOlderAs(final Date date) {
+        Validate.notNull(date, "date");
+
+        return store.delete(null, date.getTime(), null);
+    }
+
+    @Override
+    public Integer deleteAllOlderAs(final Date date, final Integer limit) {
+        Validate.notNull(date, "date");
+        Validate.notNull(limit, "limit");
+
+        return store.delete(null, date.getTime(), limit);
+    }
+
+    /**
+     * The store has no archive; nothing is moved.
+     *
+     * @param date Date instance
+     * @return 0
+     */
+    @Override
+    public Integer archiveOlderAs(final Date date) {
+        Validate.notNull(date, "date");
+
+        return 0;
+    }
+
+    @Override
+    public AbstractQosEntity findAbstractQosEntityByid(final Long id) {
+        Validate.notNull(id, "id");
+
+        return null;
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getBetween(final Date from, final Date to) {
+        Validate.notNull(from, "from");
+        Validate.notNull(to, "to");
+
+        List<MappedRecord> records = new ArrayList<>();
+        Map<Long, WpsProcessEntity> processes = new HashMap<>();
+
+        for (Long processId : store.getProcessIds()) {
+            WpsProcessEntity process = processDao.find(processId);
+
+            if (process != null) {
+                processes.put(processId, process);
+                records.addAll(store.scan(processId, from.getTime(), to.getTime(), null, null, null));
+            }
+        }
+
+        Collections.sort(records, MappedRecord.NEWEST_FIRST);
+        Collections.reverse(records);
+
+        return toEntities(records, processes);
+    }
+
+    @Override
+    public Date getOldestCreateTime(final Date since) {
+        Validate.notNull(since, "since");
+
+        Long oldest = store.getOldestCreateTime(since.getTime());
+
+        return (oldest == null) ? null : new Date(oldest);
+    }
+
+    @Override
+    public MeasuredDataEntity find(final Long primaryKey) {
+        Validate.notNull(primaryKey, "primaryKey");
+
+        MappedRecord record = store.find(primaryKey);
+
+        if (record == null) {
+            return null;
+        }
+
+        WpsProcessEntity process = processDao.find(record.getProcessId());
+
+        return (process == null) ? null : toEntity(record, process);
+    }
+
+    /**
+     * Appends the measurement to the store and assigns its id.
+     *
+     * @param entityObject MeasuredDataEntity instance
+     * @return true if stored, false if the encoded qos data is too large or
+     * the store can't be written
+     */
+    @Override
+    public Boolean persist(final MeasuredDataEntity entityObject) {
+        Validate.notNull(entityObject, "entityObject");
+        Validate.notNull(entityObject.getProcess(), "process");
+        Validate.notNull(entityObject.getProcess().getId(), "process id");
+        Validate.notNull(entityObject.getCreateTime(), "createTime");
+
+        byte[] payload = encode(entityObject);
+
+        if (payload.length > store.getMaxPayloadSize()) {
+            LOG.warn("Measurement of process {} not stored: the qos data exceeds {} bytes.",
+                    entityObject.getProcess().getIdentifier(), store.getMaxPayloadSize());
+
+            return false;
+        }
+
+        try {
+            entityObject.setId(store.append(entityObject.getProcess().getId(),
+                    entityObject.getCreateTime().getTime(), payload));
+        } catch (IOException ex) {
+            LOG.error("Can't append measurement to the store.", ex);
+
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Replaces the qos data of the stored measurement; the create time and
+     * process can't be changed.
+     *
+     * @param entityObject MeasuredDataEntity instance
+     * @return The given instance
+     */
+    @Override
+    public MeasuredDataEntity update(final MeasuredDataEntity entityObject) {
+        Validate.notNull(entityObject, "entityObject");
+        Validate.notNull(entityObject.getId(), "id");
+
+        MappedRecord record = store.find(entityObject.getId());
+
+        if (record != null) {
+            byte[] payload = encode(entityObject);
+            store.checkPayload(payload);
+            record.rewrite(payload);
+        }
+
+        return entityObject;
+    }
+
+    @Override
+    public void remove(final MeasuredDataEntity o) {
+        Validate.notNull(o, "o");
+        Validate.notNull(o.getId(), "id");
+
+        MappedRecord record = store.find(o.getId());
+
+        if (record != null) {
+            record.delete();
+        }
+    }
+
+    @Override
+    public List<MeasuredDataEntity> get(final Range range) {
+        // not needed here yet
+        return null;
+    }
+
+    @Override
+    public List<MeasuredDataRollupEntity> getRollups(final Long wpsId, final String processIdentifier,
+            final RollupGranularity granularity, final Date from, final Date to) {
+        return rollupDao.getRollups(wpsId, processIdentifier, granularity, from, to);
+    }
+
+    @Override
+    public MeasuredDataRollupEntity findRollup(final WpsProcessEntity process, final String entityName,
+            final RollupGranularity granularity, final Date bucketStart) {
+        return rollupDao.findRollup(process, entityName, granularity, bucketStart);
+    }
+
+    @Override
+    public MeasuredDataRollupEntity storeRollup(final MeasuredDataRollupEntity rollup) {
+        return rollupDao.storeRollup(rollup);
+    }
+
+    @Override
+    public Date getNewestRollupBucket(final RollupGranularity granularity) {
+        return rollupDao.getNewestRollupBucket(granularity);
+    }
+
+    @Override
+    public Integer deleteRollupsOlderAs(final RollupGranularity granularity, final Date date) {
+        return rollupDao.deleteRollupsOlderAs(granularity, date);
+    }
+
+    @Override
+    public Boolean commit() {
+        store.force();
+
+        return rollupDao.commit();
+    }
+
+    @Override
+    public void rollback() {
+        rollupDao.rollback();
+    }
+
+    @Override
+    public void setAutoCommit(final Boolean value) {
+        rollupDao.setAutoCommit(value);
+    }
+
+    /**
+     * Closes the data access objects; the store is shared and stays open.
+     */
+    @Override
+    public void close() {
+        rollupDao.close();
+        processDao.close();
+    }
+
+    private List<MeasuredDataEntity> get(final List<WpsProcessEntity> processes, final Range range) {
+        Integer offset = (range == null || range.getOffset() == null) ? 0 : range.getOffset();
+        Integer limit = (range == null || range.getCount() == null) ? null : offset + range.getCount();
+
+        List<MeasuredDataEntity> result = select(processes, null, limit);
+        Integer from = Math.min(offset, result.size());
+
+        return new ArrayList<>(result.subList(from, result.size()));
+    }
+
+    /**
+     * Selects the newest records of the given processes, older as the cursor
+     * position, and merges them.
+     */
+    private List<MeasuredDataEntity> select(final List<WpsProcessEntity> processes, final Cursor before,
+            final Integer limit) {
+
+        Long beforeTime = (before == null) ? null : before.getCreateTime().getTime();
+        Long beforeId = (before == null) ? null : before.getId();
+
+        List<MappedRecord> records = new ArrayList<>();
+        Map<Long, WpsProcessEntity> byId = new HashMap<>();
+
+        for (WpsProcessEntity process : processes) {
+            byId.put(process.getId(), process);
+            records.addAll(store.scan(process.getId(), null, null, beforeTime, beforeId, limit));
+        }
+
+        Collections.sort(records, MappedRecord.NEWEST_FIRST);
+
+        if (limit != null && records.size() > limit) {
+            records = records.subList(0, limit);
+        }
+
+        return toEntities(records, byId);
+    }
+
+    private Integer delete(final WpsProcessEntity process, final Date olderDate) {
+        if (process == null) {
+            return 0;
+        }
+
+        return store.delete(process.getId(), (olderDate == null) ? null : olderDate.getTime(), null);
+    }
+
+    private List<MeasuredDataEntity> toEntities(final List<MappedRecord> records,
+            final Map<Long, WpsProcessEntity> processes) {
+
+        List<MeasuredDataEntity> result = new ArrayList<>();
+
+        for (MappedRecord record : records) {
+            result.add(toEntity(record, processes.get(record.getProcessId())));
+        }
+
+        return result;
+    }
+
+    private MeasuredDataEntity toEntity(final MappedRecord record, final WpsProcessEntity process) {
+        MeasuredDataEntity measuredData = new MeasuredDataEntity(codec.decode(new String(record.readPayload(), UTF8)));
+        measuredData.setId(record.getId());
+        measuredData.setCreateTime(new Date(record.getCreateTime()));
+        measuredData.setProcess(process);
+
+        return measuredData;
+    }
+
+    private byte[] encode(final MeasuredDataEntity measuredData) {
+        return codec.encode(measuredData.getData()).getBytes(UTF8);
+    }
+
+    private List<WpsProcessEntity> toList(final WpsProcessEntity process) {
+        List<WpsProcessEntity> result = new ArrayList<>();
+
+        if (process != null) {
+            result.add(process);
+        }
+
+        return result;
+    }
+}
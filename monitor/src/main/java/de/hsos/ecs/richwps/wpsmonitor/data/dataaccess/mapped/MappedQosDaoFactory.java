@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.mapped;
+
+import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
+import de.hsos.ecs.richwps.wpsmonitor.creation.Factory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.io.IOException;
+
+/**
+ * Factory for MappedQosDao instances. The store is opened on the first
+ * create call and closed by close.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class MappedQosDaoFactory implements Factory<QosDataAccess>, AutoCloseable {
+
+    private final MappedQosStore store;
+    private final Factory<QosDataAccess> rollupDaoFactory;
+    private final Factory<WpsProcessDataAccess> processDaoFactory;
+
+    /**
+     * Creates a new MappedQosDaoFactory instance.
+     *
+     * @param store MappedQosStore instance
+     * @param rollupDaoFactory Factory for the QosDataAccess which stores the
+     * rollups
+     * @param processDaoFactory Factory for the WpsProcessDataAccess to resolve
+     * the processes
+     */
+    public MappedQosDaoFactory(final MappedQosStore store, final Factory<QosDataAccess> rollupDaoFactory,
+            final Factory<WpsProcessDataAccess> processDaoFactory) {
+        this.store = Validate.notNull(store, "store");
+        this.rollupDaoFactory = Validate.notNull(rollupDaoFactory, "rollupDaoFactory");
+        this.processDaoFactory = Validate.notNull(processDaoFactory, "processDaoFactory");
+    }
+
+    @Override
+    public QosDataAccess create() throws CreateException {
+        if (!store.isOpen()) {
+            try {
+                store.open();
+            } catch (IOException ex) {
+                throw new CreateException(ex);
+            }
+        }
+
+        return new MappedQosDao(store, rollupDaoFactory.create(), processDaoFactory.create());
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.mapped;
+
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Append-only store of measurement records in memory-mapped segment files.
+ * Every process has its own subdirectory (named by the process id) with
+ * segment files of fixed-width records. The ids of the records are unique
+ * within the store and ascending in the order of the appends.
+ *
+ * Appends don't lock, except when a segment is full and a new one is
+ * created. Reads work directly on the mapped files; the bounds of the create
+ * times of every segment serve as time index, so segments outside the
+ * requested range are skipped. Deleted records are only marked; segments
+ * without live records and segments which are older as the retention date
+ * are deleted as a whole.
+ *
+ * A store is shared by all threads and must be opened before use.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class MappedQosStore implements AutoCloseable {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    /**
+     * Default size of a record in bytes.
+     */
+    public static final Integer DEFAULT_RECORD_SIZE = 256;
+
+    /**
+     * Default number of records per segment file.
+     */
+    public static final Integer DEFAULT_SEGMENT_CAPACITY = 4096;
+
+    private static final Comparator<MappedSegment> NEWEST_SEGMENT_FIRST = new Comparator<MappedSegment>() {
+
+        @Override
+        public int compare(final MappedSegment o1, final MappedSegment o2) {
+            return o2.getMaxTime().compareTo(o1.getMaxTime());
+        }
+    };
+
+    private final File directory;
+    private final Integer recordSize;
+    private final Integer segmentCapacity;
+    private final ConcurrentMap<Long, ProcessLog> logs;
+    private final AtomicLong nextId;
+    private volatile Boolean open;
+
+    /**
+     * Creates a new MappedQosStore instance with the default record size and
+     * segment capacity.
+     *
+     * @param directory Directory of the store
+     */
+    public MappedQosStore(final File directory) {
+        this(directory, DEFAULT_RECORD_SIZE, DEFAULT_SEGMENT_CAPACITY);
+    }
+
+    /**
+     * Creates a new MappedQosStore instance. The record size of existing
+     * segments is kept.
+     *
+     * @param directory Directory of the store
+     * @param recordSize Size of a record in bytes; limits the size of the
+     * encoded qos data of a measurement
+     * @param segmentCapacity Number of records per segment file
+     */
+    public MappedQosStore(final File directory, final Integer recordSize, final Integer segmentCapacity) {
+        this.directory = Validate.notNull(directory, "directory");
+        this.recordSize = Validate.notNull(recordSize, "recordSize");
+        this.segmentCapacity = Validate.notNull(segmentCapacity, "segmentCapacity");
+
+        if (recordSize <= 32 || recordSize > Short.MAX_VALUE || segmentCapacity <= 0) {
+            throw new IllegalArgumentException("recordSize must be in (32, 32767] and segmentCapacity greater than 0.");
+        }
+
+        this.logs = new ConcurrentHashMap<>();
+        this.nextId = new AtomicLong(1);
+        this.open = false;
+    }
+
+    /**
+     * Opens the existing segments of the store directory.
+     *
+     * @throws IOException if the directory can't be created
+     */
+    public synchronized void open() throws IOException {
+        if (open) {
+            return;
+        }
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create directory " + directory + ".");
+        }
+
+        File[] files = directory.listFiles();
+        Long maxId = 0L;
+
+        if (files != null) {
+            for (File file : files) {
+                if (!file.isDirectory() || !file.getName().matches("^\\d+$")) {
+                    continue;
+                }
+
+                ProcessLog log = new ProcessLog(Long.parseLong(file.getName()), file, recordSize, segmentCapacity);
+                log.open();
+                logs.put(log.getProcessId(), log);
+
+                for (MappedSegment segment : log.getSegments()) {
+                    maxId = Math.max(maxId, segment.getMaxId());
+                }
+            }
+        }
+
+        nextId.set(maxId + 1);
+        open = true;
+
+        LOG.debug("MappedQosStore opened with {} processes.", logs.size());
+    }
+
+    public Boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Appends a measurement record.
+     *
+     * @param processId Id of the process
+     * @param createTime Create time of the measurement
+     * @param payload Encoded qos data
+     * @return Id of the record
+     * @throws IOException if a new segment file can't be created
+     * @throws IllegalArgumentException if the payload exceeds the record size
+     */
+    public Long append(final Long processId, final Long createTime, final byte[] payload) throws IOException {
+        Validate.notNull(processId, "processId");
+        Validate.notNull(createTime, "createTime");
+        checkPayload(payload);
+
+        Long id = nextId.getAndIncrement();
+        getLog(processId).append(id, createTime, payload);
+
+        return id;
+    }
+
+    /**
+     * Selects the records of a process, newest first.
+     *
+     * @param processId Id of the process
+     * @param from Lower bound of the create time (inclusive); may be null
+     * @param to Upper bound of the create time (exclusive); may be null
+     * @param beforeTime Only records older as the cursor position
+     * (beforeTime, beforeId); may be null
+     * @param beforeId Id of the cursor position; may be null
+     * @param limit Max. number of records; null for all
+     * @return List of MappedRecord instances
+     */
+    List<MappedRecord> scan(final Long processId, final Long from, final Long to,
+            final Long beforeTime, final Long beforeId, final Integer limit) {
+
+        List<MappedRecord> result = new ArrayList<>();
+        ProcessLog log = logs.get(processId);
+
+        if (log == null || (limit != null && limit <= 0)) {
+            return result;
+        }
+
+        Long upper = to;
+
+        if (beforeTime != null && (upper == null || beforeTime < upper)) {
+            upper = beforeTime;
+        }
+
+        List<MappedSegment> segments = log.getSegments();
+        Collections.sort(segments, NEWEST_SEGMENT_FIRST);
+
+        for (MappedSegment segment : segments) {
+            // stop as soon as the remaining segments only hold older records
+            if (limit != null && result.size() >= limit) {
+                Collections.sort(result, MappedRecord.NEWEST_FIRST);
+
+                if (result.get(limit - 1).getCreateTime() > segment.getMaxTime()) {
+                    break;
+                }
+            }
+
+            if (segment.overlaps(from, upper)) {
+                segment.collect(result, from, to, beforeTime, beforeId);
+            }
+        }
+
+        Collections.sort(result, MappedRecord.NEWEST_FIRST);
+
+        return (limit == null || result.size() <= limit) ? result : new ArrayList<>(result.subList(0, limit));
+    }
+
+    /**
+     * Finds the live record with the given id.
+     *
+     * @param id Id of the record
+     * @return MappedRecord instance or null
+     */
+    MappedRecord find(final Long id) {
+        for (ProcessLog log : logs.values()) {
+            for (MappedSegment segment : log.getSegments()) {
+                MappedRecord found = segment.find(id);
+
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Deletes the records which are older as the given date. Segments which
+     * only hold such records are deleted as a whole.
+     *
+     * @param processId Id of the process; null for all processes
+     * @param olderThan Date; null for all records
+     * @param limit Max. number of records to delete; null for no limit
+     * @return Number of deleted records
+     */
+    public Integer delete(final Long processId, final Long olderThan, final Integer limit) {
+        Integer deleted = 0;
+        List<ProcessLog> selected = new ArrayList<>();
+
+        if (processId == null) {
+            selected.addAll(logs.values());
+        } else if (logs.containsKey(processId)) {
+            selected.add(logs.get(processId));
+        }
+
+        for (ProcessLog log : selected) {
+            for (MappedSegment segment : log.getSegments()) {
+                Integer remaining = (limit == null) ? null : limit - deleted;
+
+                if (remaining != null && remaining <= 0) {
+                    return deleted;
+                }
+
+                Integer live = segment.getLiveCount();
+
+                if ((olderThan == null || segment.getMaxTime() < olderThan)
+                        && (remaining == null || live <= remaining) && log.drop(segment)) {
+                    deleted += live;
+                    continue;
+                }
+
+                if (!segment.overlaps(null, (olderThan == null) ? null : olderThan - 1)) {
+                    continue;
+                }
+
+                List<MappedRecord> records = new ArrayList<>();
+                segment.collect(records, null, olderThan, null, null);
+
+                for (MappedRecord record : records) {
+                    if (remaining != null && remaining <= 0) {
+                        break;
+                    }
+
+                    if (record.delete()) {
+                        deleted++;
+                        remaining = (remaining == null) ? null : remaining - 1;
+                    }
+                }
+
+                if (segment.getLiveCount() == 0) {
+                    log.drop(segment);
+                }
+            }
+        }
+
+        return deleted;
+    }
+
+    /**
+     * Gets the create time of the oldest record which is not older as the
+     * given date.
+     *
+     * @param since Date
+     * @return Create time or null, if there is no such record
+     */
+    public Long getOldestCreateTime(final Long since) {
+        Long oldest = null;
+
+        for (ProcessLog log : logs.values()) {
+            for (MappedSegment segment : log.getSegments()) {
+                if (!segment.overlaps(since, null) || (oldest != null && segment.getMinTime() >= oldest)) {
+                    continue;
+                }
+
+                List<MappedRecord> records = new ArrayList<>();
+                segment.collect(records, since, oldest, null, null);
+
+                for (MappedRecord record : records) {
+                    if (oldest == null || record.getCreateTime() < oldest) {
+                        oldest = record.getCreateTime();
+                    }
+                }
+            }
+        }
+
+        return oldest;
+    }
+
+    /**
+     * Gets the ids of all processes with records.
+     *
+     * @return Set of process ids
+     */
+    public Set<Long> getProcessIds() {
+        return Collections.unmodifiableSet(logs.keySet());
+    }
+
+    /**
+     * Gets the max. size of the encoded qos data of a measurement.
+     *
+     * @return Size in bytes
+     */
+    public Integer getMaxPayloadSize() {
+        return recordSize - MappedSegment.RECORD_HEADER_SIZE;
+    }
+
+    /**
+     * Forces all written records to the disk.
+     */
+    public void force() {
+        for (ProcessLog log : logs.values()) {
+            log.force();
+        }
+    }
+
+    /**
+     * Forces all written records to the disk. The mappings are released by
+     * the garbage collector.
+     */
+    @Override
+    public synchronized void close() {
+        if (open) {
+            force();
+            logs.clear();
+            open = false;
+        }
+    }
+
+    void checkPayload(final byte[] payload) {
+        Validate.notNull(payload, "payload");
+
+        if (payload.length > getMaxPayloadSize()) {
+            throw new IllegalArgumentException("The qos data of the measurement exceeds "
+                    + getMaxPayloadSize() + " bytes.");
+        }
+    }
+
+    private ProcessLog getLog(final Long processId) {
+        if (!open) {
+            throw new IllegalStateException("MappedQosStore is not opened.");
+        }
+
+        ProcessLog log = logs.get(processId);
+
+        if (log == null) {
+            ProcessLog created = new ProcessLog(processId, new File(directory, processId.toString()),
+                    recordSize, segmentCapacity);
+            log = logs.putIfAbsent(processId, created);
+
+            if (log == null) {
+                log = created;
+            }
+        }
+
+        return log;
+    }
+}
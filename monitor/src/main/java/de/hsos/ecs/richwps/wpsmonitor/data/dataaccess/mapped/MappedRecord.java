@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.mapped;
+
+import java.util.Comparator;
+
+/**
+ * Position and key of a record within a {@link MappedSegment}. The payload is
+ * only read on demand.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+class MappedRecord {
+
+    /**
+     * Orders records by createTime and id, newest first; the order of the
+     * cursor based queries.
+     */
+    static final Comparator<MappedRecord> NEWEST_FIRST = new Comparator<MappedRecord>() {
+
+        @Override
+        public int compare(final MappedRecord o1, final MappedRecord o2) {
+            int result = o2.createTime.compareTo(o1.createTime);
+
+            return (result != 0) ? result : o2.id.compareTo(o1.id);
+        }
+    };
+
+    private final MappedSegment segment;
+    private final Integer slot;
+    private final Long id;
+    private final Long createTime;
+
+    MappedRecord(final MappedSegment segment, final Integer slot, final Long id, final Long createTime) {
+        this.segment = segment;
+        this.slot = slot;
+        this.id = id;
+        this.createTime = createTime;
+    }
+
+    byte[] readPayload() {
+        return segment.readPayload(slot);
+    }
+
+    Boolean delete() {
+        return segment.delete(slot);
+    }
+
+    void rewrite(final byte[] payload) {
+        segment.rewrite(slot, payload);
+    }
+
+    Long getProcessId() {
+        return segment.getProcessId();
+    }
+
+    Long getId() {
+        return id;
+    }
+
+    Long getCreateTime() {
+        return createTime;
+    }
+}
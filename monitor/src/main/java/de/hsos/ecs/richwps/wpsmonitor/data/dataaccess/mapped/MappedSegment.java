@@ -0,0 +1,404 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.mapped;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memory-mapped file of fixed-width measurement records of a single process.
+ * The file starts with a header (magic number, record size) which is followed
+ * by the records:
+ *
+ * <pre>
+ * id (long) | createTime (long) | payload length (short) | payload (bytes)
+ * </pre>
+ *
+ * An id of 0 marks a record which is not written yet; deleted records get a
+ * negative id. A record slot is reserved by an atomic counter, so appends of
+ * several threads don't block each other. Records are published in slot
+ * order; readers only see published records. The segment keeps the bounds of
+ * the create times and ids of its records, which are used to skip the whole
+ * segment.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+class MappedSegment {
+
+    private static final Integer MAGIC = 0x51534731;
+    private static final Integer HEADER_SIZE = 8;
+    /**
+     * Size of id, createTime and payload length of a record.
+     */
+    static final Integer RECORD_HEADER_SIZE = 18;
+
+    private final File file;
+    private final Long processId;
+    private final Long sequence;
+    private final Integer recordSize;
+    private final Integer capacity;
+    private final MappedByteBuffer buffer;
+
+    private final AtomicInteger reserved;
+    private final AtomicInteger published;
+    private final AtomicInteger deleted;
+    private final AtomicLong minTime;
+    private final AtomicLong maxTime;
+    private final AtomicLong minId;
+    private final AtomicLong maxId;
+
+    private MappedSegment(final File file, final Long processId, final Long sequence,
+            final Integer recordSize, final MappedByteBuffer buffer) {
+        this.file = file;
+        this.processId = processId;
+        this.sequence = sequence;
+        this.recordSize = recordSize;
+        this.capacity = (buffer.capacity() - HEADER_SIZE) / recordSize;
+        this.buffer = buffer;
+
+        this.reserved = new AtomicInteger(0);
+        this.published = new AtomicInteger(0);
+        this.deleted = new AtomicInteger(0);
+        this.minTime = new AtomicLong(Long.MAX_VALUE);
+        this.maxTime = new AtomicLong(Long.MIN_VALUE);
+        this.minId = new AtomicLong(Long.MAX_VALUE);
+        this.maxId = new AtomicLong(Long.MIN_VALUE);
+    }
+
+    /**
+     * Creates a new, empty segment file.
+     *
+     * @param file Segment file; must not exist
+     * @param processId Id of the process
+     * @param sequence Sequence number of the segment within the process
+     * @param recordSize Size of a record in bytes
+     * @param capacity Number of records
+     * @return MappedSegment instance
+     * @throws IOException
+     */
+    static MappedSegment create(final File file, final Long processId, final Long sequence,
+            final Integer recordSize, final Integer capacity) throws IOException {
+
+        MappedByteBuffer buffer = map(file, HEADER_SIZE + (long) recordSize * capacity);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, recordSize);
+
+        return new MappedSegment(file, processId, sequence, recordSize, buffer);
+    }
+
+    /**
+     * Opens an existing segment file and restores the bounds of its records.
+     *
+     * @param file Segment file
+     * @param processId Id of the process
+     * @param sequence Sequence number of the segment within the process
+     * @return MappedSegment instance
+     * @throws IOException if the file is not a segment file
+     */
+    static MappedSegment open(final File file, final Long processId, final Long sequence) throws IOException {
+        MappedByteBuffer buffer = map(file, file.length());
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) <= RECORD_HEADER_SIZE) {
+            throw new IOException("Invalid segment file " + file + ".");
+        }
+
+        MappedSegment segment = new MappedSegment(file, processId, sequence, buffer.getInt(4), buffer);
+        segment.restore();
+
+        return segment;
+    }
+
+    private static MappedByteBuffer map(final File file, final Long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(size);
+
+            // the mapping stays valid after the channel is closed
+            return raf.getChannel()
+                    .map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private void restore() {
+        Integer count = 0;
+
+        for (int slot = 0; slot < capacity; slot++) {
+            long id = readId(slot);
+
+            if (id != 0) {
+                count = slot + 1;
+            }
+
+            if (id > 0) {
+                updateBounds(id, readCreateTime(slot));
+            }
+        }
+
+        for (int slot = 0; slot < count; slot++) {
+            if (readId(slot) <= 0) {
+                deleted.incrementAndGet();
+            }
+        }
+
+        reserved.set(count);
+        published.set(count);
+    }
+
+    /**
+     * Appends a record, if the segment isn't full.
+     *
+     * @param id Id of the measurement
+     * @param createTime Create time of the measurement
+     * @param payload Encoded qos data; at most getMaxPayloadSize() bytes
+     * @return true if appended, false if the segment is full
+     */
+    Boolean append(final Long id, final Long createTime, final byte[] payload) {
+        int slot = reserved.getAndIncrement();
+
+        if (slot >= capacity) {
+            return false;
+        }
+
+        try {
+            int offset = offset(slot);
+            ByteBuffer view = buffer.duplicate();
+
+            view.putLong(offset + 8, createTime);
+            view.putShort(offset + 16, (short) payload.length);
+            view.position(offset + RECORD_HEADER_SIZE);
+            view.put(payload);
+
+            // the id is written last; a record without id is skipped
+            view.putLong(offset, id);
+            updateBounds(id, createTime);
+        } finally {
+            // publish in slot order; waits only for appends of other threads
+            // which reserved a lower slot and are still writing
+            while (!published.compareAndSet(slot, slot + 1)) {
+                Thread.yield();
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Overwrites the payload of a record.
+     *
+     * @param slot Slot of the record
+     * @param payload Encoded qos data; at most getMaxPayloadSize() bytes
+     */
+    void rewrite(final Integer slot, final byte[] payload) {
+        int offset = offset(slot);
+        ByteBuffer view = buffer.duplicate();
+
+        view.putShort(offset + 16, (short) payload.length);
+        view.position(offset + RECORD_HEADER_SIZE);
+        view.put(payload);
+    }
+
+    /**
+     * Marks a record as deleted.
+     *
+     * @param slot Slot of the record
+     * @return true if the record was deleted, false if it was already deleted
+     */
+    Boolean delete(final Integer slot) {
+        long id = readId(slot);
+
+        if (id <= 0) {
+            return false;
+        }
+
+        buffer.putLong(offset(slot), -id);
+        deleted.incrementAndGet();
+
+        return true;
+    }
+
+    /**
+     * Adds all live records in [from, to) which are older as the cursor
+     * position (beforeTime, beforeId) to the given list.
+     *
+     * @param result List to add to
+     * @param from Lower bound of the create time (inclusive); may be null
+     * @param to Upper bound of the create time (exclusive); may be null
+     * @param beforeTime Create time of the cursor; may be null
+     * @param beforeId Id of the cursor; may be null
+     */
+    void collect(final List<MappedRecord> result, final Long from, final Long to,
+            final Long beforeTime, final Long beforeId) {
+
+        Integer count = published.get();
+
+        for (int slot = 0; slot < count; slot++) {
+            long id = readId(slot);
+
+            if (id <= 0) {
+                continue;
+            }
+
+            long createTime = readCreateTime(slot);
+
+            if ((from != null && createTime < from) || (to != null && createTime >= to)) {
+                continue;
+            }
+
+            if (beforeTime != null && (createTime > beforeTime || (createTime == beforeTime && id >= beforeId))) {
+                continue;
+            }
+
+            result.add(new MappedRecord(this, slot, id, createTime));
+        }
+    }
+
+    /**
+     * Finds the live record with the given id.
+     *
+     * @param id Id of the measurement
+     * @return MappedRecord instance or null
+     */
+    MappedRecord find(final Long id) {
+        if (id < minId.get() || id > maxId.get()) {
+            return null;
+        }
+
+        Integer count = published.get();
+
+        for (int slot = 0; slot < count; slot++) {
+            if (readId(slot) == id) {
+                return new MappedRecord(this, slot, id, readCreateTime(slot));
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Reads the payload of a record.
+     *
+     * @param slot Slot of the record
+     * @return Payload bytes
+     */
+    byte[] readPayload(final Integer slot) {
+        int offset = offset(slot);
+        ByteBuffer view = buffer.duplicate();
+        byte[] payload = new byte[view.getShort(offset + 16)];
+
+        view.position(offset + RECORD_HEADER_SIZE);
+        view.get(payload);
+
+        return payload;
+    }
+
+    /**
+     * Checks if the segment may hold records in [from, to].
+     *
+     * @param from Lower bound (inclusive); may be null
+     * @param to Upper bound (inclusive); may be null
+     * @return true if the segment may hold such records
+     */
+    Boolean overlaps(final Long from, final Long to) {
+        return getLiveCount() > 0
+                && (from == null || maxTime.get() >= from)
+                && (to == null || minTime.get() <= to);
+    }
+
+    /**
+     * Forces the written records to the disk.
+     */
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Deletes the segment file. The segment must not be used afterwards.
+     *
+     * @return true if the file was deleted
+     */
+    Boolean deleteFile() {
+        return file.delete();
+    }
+
+    Integer getLiveCount() {
+        return published.get() - deleted.get();
+    }
+
+    Integer getMaxPayloadSize() {
+        return recordSize - RECORD_HEADER_SIZE;
+    }
+
+    Long getMinTime() {
+        return minTime.get();
+    }
+
+    Long getMaxTime() {
+        return maxTime.get();
+    }
+
+    Long getMaxId() {
+        return maxId.get();
+    }
+
+    Long getProcessId() {
+        return processId;
+    }
+
+    Long getSequence() {
+        return sequence;
+    }
+
+    private long readId(final int slot) {
+        return buffer.getLong(offset(slot));
+    }
+
+    private long readCreateTime(final int slot) {
+        return buffer.getLong(offset(slot) + 8);
+    }
+
+    private int offset(final int slot) {
+        return HEADER_SIZE + slot * recordSize;
+    }
+
+    private void updateBounds(final long id, final long createTime) {
+        lowerTo(minTime, createTime);
+        raiseTo(maxTime, createTime);
+        lowerTo(minId, id);
+        raiseTo(maxId, id);
+    }
+
+    private static void lowerTo(final AtomicLong bound, final long value) {
+        long current = bound.get();
+
+        while (value < current && !bound.compareAndSet(current, value)) {
+            current = bound.get();
+        }
+    }
+
+    private static void raiseTo(final AtomicLong bound, final long value) {
+        long current = bound.get();
+
+        while (value > current && !bound.compareAndSet(current, value)) {
+            current = bound.get();
+        }
+    }
+}
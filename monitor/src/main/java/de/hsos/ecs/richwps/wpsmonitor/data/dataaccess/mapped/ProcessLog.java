@@ -0,0 +1,184 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.mapped;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The segments of a single process, oldest first. Records are appended to the
+ * newest (active) segment; only if it is full, a new segment is created under
+ * a lock.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+class ProcessLog {
+
+    private static final Logger LOG = LogManager.getLogger();
+    private static final Pattern SEGMENT_NAME = Pattern.compile("^(\\d+)\\.seg$");
+
+    private final Long processId;
+    private final File directory;
+    private final Integer recordSize;
+    private final Integer segmentCapacity;
+    private final List<MappedSegment> segments;
+    private volatile MappedSegment active;
+
+    ProcessLog(final Long processId, final File directory, final Integer recordSize, final Integer segmentCapacity) {
+        this.processId = processId;
+        this.directory = directory;
+        this.recordSize = recordSize;
+        this.segmentCapacity = segmentCapacity;
+        this.segments = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Opens the existing segments of the directory. Invalid segment files are
+     * skipped.
+     */
+    void open() {
+        File[] files = directory.listFiles();
+        List<MappedSegment> opened = new ArrayList<>();
+
+        if (files != null) {
+            for (File file : files) {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getName());
+
+                if (!matcher.matches()) {
+                    continue;
+                }
+
+                try {
+                    opened.add(MappedSegment.open(file, processId, Long.parseLong(matcher.group(1))));
+                } catch (IOException ex) {
+                    LOG.warn("Can't open segment {}; skipped.", file, ex);
+                }
+            }
+        }
+
+        // oldest first
+        Collections.sort(opened, new Comparator<MappedSegment>() {
+
+            @Override
+            public int compare(final MappedSegment o1, final MappedSegment o2) {
+                return o1.getSequence().compareTo(o2.getSequence());
+            }
+        });
+
+        segments.addAll(opened);
+        active = opened.isEmpty() ? null : opened.get(opened.size() - 1);
+    }
+
+    /**
+     * Appends a record to the active segment. A new segment is created if the
+     * active one is full or was created with a smaller record size.
+     *
+     * @param id Id of the measurement
+     * @param createTime Create time of the measurement
+     * @param payload Encoded qos data
+     * @throws IOException if a new segment can't be created
+     */
+    void append(final Long id, final Long createTime, final byte[] payload) throws IOException {
+        MappedSegment segment = active;
+
+        while (segment == null || payload.length > segment.getMaxPayloadSize()
+                || !segment.append(id, createTime, payload)) {
+            segment = roll(segment);
+        }
+    }
+
+    /**
+     * Replaces the full segment by a new one; if another thread already did
+     * this, its segment is returned.
+     */
+    private synchronized MappedSegment roll(final MappedSegment full) throws IOException {
+        if (active != full) {
+            return active;
+        }
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create directory " + directory + ".");
+        }
+
+        Long sequence = (full == null) ? nextSequence() : full.getSequence() + 1;
+        File file = new File(directory, String.format("%010d.seg", sequence));
+        MappedSegment created = MappedSegment.create(file, processId, sequence, recordSize, segmentCapacity);
+
+        segments.add(created);
+        active = created;
+
+        return created;
+    }
+
+    private Long nextSequence() {
+        Long sequence = 0L;
+
+        for (MappedSegment segment : segments) {
+            sequence = Math.max(sequence, segment.getSequence() + 1);
+        }
+
+        return sequence;
+    }
+
+    /**
+     * Removes the given segment and deletes its file. The active segment is
+     * never dropped, because other threads may still append to it.
+     *
+     * @param segment MappedSegment instance of this log
+     * @return true if dropped
+     */
+    synchronized Boolean drop(final MappedSegment segment) {
+        if (segment == active) {
+            return false;
+        }
+
+        segments.remove(segment);
+
+        if (!segment.deleteFile()) {
+            LOG.warn("Can't delete segment file of process {}.", processId);
+        }
+
+        return true;
+    }
+
+    /**
+     * Gets a snapshot of the segments, oldest first.
+     *
+     * @return List of MappedSegment instances
+     */
+    List<MappedSegment> getSegments() {
+        return new ArrayList<>(segments);
+    }
+
+    void force() {
+        for (MappedSegment segment : segments) {
+            segment.force();
+        }
+    }
+
+    Long getProcessId() {
+        return processId;
+    }
+}
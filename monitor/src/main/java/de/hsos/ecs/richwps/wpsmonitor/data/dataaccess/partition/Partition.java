@@ -0,0 +1,191 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.partition;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.Jpa;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.io.File;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.persistence.EntityManager;
+
+/**
+ * One monthly partition of the measured data; an own embedded database which
+ * holds all measurements created in [start, end).
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class Partition implements Comparable<Partition> {
+
+    private final Integer period;
+    private final File directory;
+    private final Jpa jpa;
+    private final Date start;
+    private final Date end;
+    private final Set<Long> replicated;
+    private volatile Boolean dropped;
+
+    /**
+     * Creates a new Partition instance.
+     *
+     * @param period Period of the partition as yyyyMM value
+     * @param directory Directory of the embedded database
+     * @param jpa Jpa instance for the database of this partition
+     */
+    public Partition(final Integer period, final File directory, final Jpa jpa) {
+        this.period = Validate.notNull(period, "period");
+        this.directory = Validate.notNull(directory, "directory");
+        this.jpa = Validate.notNull(jpa, "jpa");
+
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(period / 100, period % 100 - 1, 1);
+        this.start = cal.getTime();
+
+        cal.add(Calendar.MONTH, 1);
+        this.end = cal.getTime();
+
+        this.replicated = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+        this.dropped = false;
+    }
+
+    /**
+     * Gets the period (yyyyMM) of the given date.
+     *
+     * @param date Date instance
+     * @return Period value
+     */
+    public static Integer periodOf(final Date date) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(date);
+
+        return cal.get(Calendar.YEAR) * 100 + cal.get(Calendar.MONTH) + 1;
+    }
+
+    /**
+     * Copies the given process and its wps into the database of this
+     * partition, so measurements of the process can be stored here. The copy
+     * is done in the current transaction of the thread's EntityManager and
+     * only once per process; call {@link #forgetReplicas()} if the
+     * transaction is rolled back or the copies are removed.
+     *
+     * @param process WpsProcessEntity instance of the main database
+     */
+    public void replicate(final WpsProcessEntity process) {
+        Validate.notNull(process, "process");
+        Validate.notNull(process.getWps(), "wps");
+
+        if (process.getId() != null && replicated.contains(process.getId())) {
+            return;
+        }
+
+        EntityManager em = jpa.getThreadEntityManager();
+
+        if (!em.getTransaction().isActive()) {
+            em.getTransaction().begin();
+        }
+
+        em.merge(process.getWps());
+        em.merge(process);
+
+        if (process.getId() != null) {
+            replicated.add(process.getId());
+        }
+    }
+
+    /**
+     * Forgets which processes are already copied into this partition, so the
+     * next {@link #replicate(WpsProcessEntity)} copies them again.
+     */
+    public void forgetReplicas() {
+        replicated.clear();
+    }
+
+    /**
+     * Checks if the partition was dropped by the {@link PartitionManager};
+     * the Jpa instance of a dropped partition is closed and must not be used
+     * anymore.
+     *
+     * @return true if dropped
+     */
+    public Boolean isDropped() {
+        return dropped;
+    }
+
+    void markDropped() {
+        dropped = true;
+    }
+
+    /**
+     * Checks if the partition overlaps the interval [from, to).
+     *
+     * @param from Inclusive start; null for unbounded
+     * @param to Exclusive end; null for unbounded
+     * @return true if overlapping
+     */
+    public Boolean overlaps(final Date from, final Date to) {
+        return (from == null || end.after(from))
+                && (to == null || start.before(to));
+    }
+
+    public Integer getPeriod() {
+        return period;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public Jpa getJpa() {
+        return jpa;
+    }
+
+    public Date getStart() {
+        return start;
+    }
+
+    public Date getEnd() {
+        return end;
+    }
+
+    @Override
+    public int compareTo(final Partition o) {
+        return period.compareTo(o.period);
+    }
+
+    @Override
+    public int hashCode() {
+        return period.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Partition)) {
+            return false;
+        }
+
+        return period.equals(((Partition) obj).period);
+    }
+
+    @Override
+    public String toString() {
+        return "Partition{" + "period=" + period + ", directory=" + directory + '}';
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.partition;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.Jpa;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.WpsDao;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.WpsProcessDao;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.persistence.EntityManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Manages the monthly {@link Partition}s of the measured data. Every
+ * partition is an own embedded Derby database in the given directory, named
+ * by the prefix and the period (e.g. MonitoredData_201410). Partitions are
+ * created on demand and dropped as a whole; dropping costs the same no matter
+ * how much data the partition holds.
+ *
+ * Data access objects which work on the partitions enclose their work in
+ * {@link #beginUse()} and {@link #endUse()}; a partition is only dropped
+ * while no one uses the partitions, and is marked as dropped afterwards.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class PartitionManager implements AutoCloseable {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    /**
+     * Ids of a partition start at period * ID_OFFSET, so ids are unique across
+     * all partitions. The sequence table of EclipseLink stores 15 digits.
+     */
+    private static final Long ID_OFFSET = 1000000000L;
+
+    private final String persistenceUnit;
+    private final File directory;
+    private final String prefix;
+    private final Pattern namePattern;
+    private final TreeMap<Integer, Partition> partitions;
+    private final ReadWriteLock useLock;
+
+    /**
+     * Creates a new PartitionManager instance.
+     *
+     * @param persistenceUnit Persistence unit which is used for the
+     * partitions
+     * @param directory Directory of the partition databases
+     * @param prefix Name prefix of the partition databases
+     */
+    public PartitionManager(final String persistenceUnit, final File directory, final String prefix) {
+        this.persistenceUnit = Validate.notEmpty(persistenceUnit, "persistenceUnit");
+        this.directory = Validate.notNull(directory, "directory");
+        this.prefix = Validate.notEmpty(prefix, "prefix");
+        this.namePattern = Pattern.compile(Pattern.quote(prefix) + "(\\d{6})");
+        this.partitions = new TreeMap<>();
+        this.useLock = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Marks the begin of a use of the partitions; no partition is dropped
+     * until {@link #endUse()} is called. Calls can be nested, but a thread
+     * which uses the partitions must not drop partitions.
+     */
+    public void beginUse() {
+        useLock.readLock().lock();
+    }
+
+    /**
+     * Marks the end of a use of the partitions which was started by
+     * {@link #beginUse()}.
+     */
+    public void endUse() {
+        useLock.readLock().unlock();
+    }
+
+    /**
+     * Opens all partitions which already exist in the directory.
+     */
+    public synchronized void open() {
+        File[] files = directory.listFiles();
+
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            Matcher matcher = namePattern.matcher(file.getName());
+
+            if (file.isDirectory() && matcher.matches()) {
+                Integer period = Integer.parseInt(matcher.group(1));
+
+                if (!partitions.containsKey(period)) {
+                    partitions.put(period, openPartition(period));
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the partition which holds measurements of the given date; the
+     * partition is created if it not exists.
+     *
+     * @param date Date instance
+     * @return Partition instance
+     */
+    public synchronized Partition getPartition(final Date date) {
+        Integer period = Partition.periodOf(Validate.notNull(date, "date"));
+        Partition partition = partitions.get(period);
+
+        if (partition == null) {
+            partition = openPartition(period);
+            initIdSequence(partition);
+            partitions.put(period, partition);
+
+            LOG.info("Partition {} created.", partition);
+        }
+
+        return partition;
+    }
+
+    /**
+     * Gets all partitions, the newest first.
+     *
+     * @return List of Partition instances
+     */
+    public synchronized List<Partition> getPartitions() {
+        return new ArrayList<>(partitions.descendingMap().values());
+    }
+
+    /**
+     * Drops all partitions which only hold measurements older as the given
+     * date. Waits until no one uses the partitions.
+     *
+     * @param date Date instance
+     * @return Amount of dropped partitions
+     */
+    public Integer dropOlderAs(final Date date) {
+        Validate.notNull(date, "date");
+
+        List<Partition> expired = new ArrayList<>();
+
+        useLock.writeLock().lock();
+        try {
+            synchronized (this) {
+                for (Partition partition : partitions.values()) {
+                    if (!partition.getEnd().after(date)) {
+                        expired.add(partition);
+                    }
+                }
+
+                for (Partition partition : expired) {
+                    partitions.remove(partition.getPeriod());
+                }
+            }
+
+            for (Partition partition : expired) {
+                drop(partition);
+            }
+        } finally {
+            useLock.writeLock().unlock();
+        }
+
+        return expired.size();
+    }
+
+    /**
+     * Removes the measurements and the copy of the given process from all
+     * partitions.
+     *
+     * @param wpsId WPS ID
+     * @param processIdentifier Process identifier
+     */
+    public void removeProcess(final Long wpsId, final String processIdentifier) {
+        beginUse();
+        try {
+            for (Partition partition : getPartitions()) {
+                try (WpsProcessDao processDao = new WpsProcessDao(partition.getJpa())) {
+                    WpsProcessEntity process = processDao.find(wpsId, processIdentifier);
+
+                    if (process != null) {
+                        processDao.remove(process);
+                        partition.forgetReplicas();
+                    }
+                }
+            }
+        } finally {
+            endUse();
+        }
+    }
+
+    /**
+     * Removes the measurements and the copies of the processes of the given
+     * wps from all partitions.
+     *
+     * @param wpsId WPS ID
+     */
+    public void removeWps(final Long wpsId) {
+        beginUse();
+        try {
+            for (Partition partition : getPartitions()) {
+                try (WpsDao wpsDao = new WpsDao(partition.getJpa())) {
+                    WpsEntity wps = wpsDao.find(wpsId);
+
+                    if (wps != null) {
+                        wpsDao.remove(wps);
+                        partition.forgetReplicas();
+                    }
+                }
+            }
+        } finally {
+            endUse();
+        }
+    }
+
+    @Override
+    public void close() {
+        useLock.writeLock().lock();
+        try {
+            synchronized (this) {
+                for (Partition partition : partitions.values()) {
+                    partition.markDropped();
+                    partition.getJpa().close();
+                }
+
+                partitions.clear();
+            }
+        } finally {
+            useLock.writeLock().unlock();
+        }
+    }
+
+    private Partition openPartition(final Integer period) {
+        File partitionDirectory = new File(directory, prefix + period);
+
+        Map<String, String> properties = new HashMap<>();
+        properties.put("javax.persistence.jdbc.url", getJdbcUrl(partitionDirectory) + ";create=true");
+        properties.put("javax.persistence.schema-generation.database.action", "create");
+
+        Jpa jpa = new Jpa(persistenceUnit, properties);
+        jpa.open();
+
+        return new Partition(period, partitionDirectory, jpa);
+    }
+
+    private void initIdSequence(final Partition partition) {
+        Long firstId = partition.getPeriod() * ID_OFFSET;
+        EntityManager em = partition.getJpa().createEntityManager();
+
+        try {
+            em.getTransaction().begin();
+            em.createNativeQuery("UPDATE SEQUENCE SET SEQ_COUNT = ? WHERE SEQ_NAME = 'SEQ_GEN' AND SEQ_COUNT < ?")
+                    .setParameter(1, firstId)
+                    .setParameter(2, firstId)
+                    .executeUpdate();
+            em.getTransaction().commit();
+        } catch (RuntimeException ex) {
+            LOG.warn("Can't initialize the id sequence of partition {}; ids may overlap other partitions.", partition, ex);
+
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    private void drop(final Partition partition) {
+        partition.markDropped();
+        partition.getJpa().close();
+
+        try {
+            DriverManager.getConnection(getJdbcUrl(partition.getDirectory()) + ";shutdown=true");
+        } catch (SQLException ex) {
+            // Derby signals a successful shutdown of a single database with 08006
+            if (!"08006".equals(ex.getSQLState())) {
+                LOG.warn("Can't shut down the database of partition {}.", partition, ex);
+            }
+        }
+
+        try {
+            deleteRecursive(partition.getDirectory().toPath());
+            LOG.info("Partition {} dropped.", partition);
+        } catch (IOException ex) {
+            LOG.error("Can't delete the directory of partition {}.", partition, ex);
+        }
+    }
+
+    private String getJdbcUrl(final File partitionDirectory) {
+        return "jdbc:derby:" + partitionDirectory.getPath();
+    }
+
+    private static void deleteRecursive(final Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
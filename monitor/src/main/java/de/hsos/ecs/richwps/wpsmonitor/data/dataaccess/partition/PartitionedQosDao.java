@@ -0,0 +1,723 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.partition;
+
+import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
+import de.hsos.ecs.richwps.wpsmonitor.creation.Factory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Cursor;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosRecord;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Range;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.QosDao;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.AbstractQosEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataRollupEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.RollupGranularity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * QosDataAccess implementation which stores the measurements in monthly
+ * {@link Partition}s. Reads only query as many partitions as needed, newest
+ * first; deleteAllOlderAs drops whole partitions. Measurements which were
+ * stored before the partitioned mode was activated remain in the main
+ * database and are still read and deleted through the given main
+ * QosDataAccess; the rollups are always stored in the main database.
+ *
+ * Endpoint based methods resolve the endpoint through the main database,
+ * because the copies of the wps entities in the partitions may be outdated.
+ *
+ * Every access to the partitions is enclosed in
+ * {@link PartitionManager#beginUse()} and {@link PartitionManager#endUse()},
+ * so other instances can't drop a partition in the middle of it; the daos of
+ * dropped partitions are discarded.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class PartitionedQosDao implements QosDataAccess {
+
+    private final QosDataAccess mainDao;
+    private final PartitionManager manager;
+    private final Factory<WpsDataAccess> wpsDaoFactory;
+    private final Map<Partition, QosDao> partitionDaos;
+    private Boolean autoCommit;
+
+    /**
+     * Creates a new PartitionedQosDao instance.
+     *
+     * @param mainDao QosDataAccess instance of the main database
+     * @param manager PartitionManager instance
+     * @param wpsDaoFactory Factory to resolve wps endpoints
+     */
+    public PartitionedQosDao(final QosDataAccess mainDao, final PartitionManager manager,
+            final Factory<WpsDataAccess> wpsDaoFactory) {
+        this.mainDao = Validate.notNull(mainDao, "mainDao");
+        this.manager = Validate.notNull(manager, "manager");
+        this.wpsDaoFactory = Validate.notNull(wpsDaoFactory, "wpsDaoFactory");
+        this.partitionDaos = new HashMap<>();
+        this.autoCommit = true;
+    }
+
+    /**
+     * Fetches measurements from a single source.
+     */
+    private interface Fetch {
+
+        List<MeasuredDataEntity> fetch(final QosDataAccess dao, final Range range);
+    }
+
+    /**
+     * Fetches measurements from a single source by a cursor.
+     */
+    private interface SeekFetch {
+
+        List<MeasuredDataEntity> fetch(final QosDataAccess dao, final Cursor before, final Integer limit);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByProcess(final Long wpsId, final String processIdentifier, final Range range) {
+        Validate.notNull(wpsId, "WPS ID");
+        Validate.notNull(processIdentifier, "processIdentifier");
+
+        return collect(range, new Fetch() {
+
+            @Override
+            public List<MeasuredDataEntity> fetch(final QosDataAccess dao, final Range range) {
+                return dao.getByProcess(wpsId, processIdentifier, range);
+            }
+        });
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByProcess(final Long wpsId, final String processIdentifier) {
+        return getByProcess(wpsId, processIdentifier, null);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByProcess(final URL endpoint, final String processIdentifier) {
+        return getByProcess(endpoint, processIdentifier, null);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByProcess(final URL endpoint, final String processIdentifier, final Range range) {
+        Validate.notNull(endpoint, "endpoint");
+        Validate.notNull(processIdentifier, "processIdentifier");
+
+        Long wpsId = resolveWpsId(endpoint);
+
+        return (wpsId == null) ? new ArrayList<MeasuredDataEntity>() : getByProcess(wpsId, processIdentifier, range);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByWps(final Long wpsId, final Range range) {
+        Validate.notNull(wpsId, "WPS ID");
+
+        return collect(range, new Fetch() {
+
+            @Override
+            public List<MeasuredDataEntity> fetch(final QosDataAccess dao, final Range range) {
+                return dao.getByWps(wpsId, range);
+            }
+        });
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByWps(final Long wpsId) {
+        return getByWps(wpsId, (Range) null);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByWps(final URL endpoint) {
+        return getByWps(endpoint, null);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByWps(final URL endpoint, final Range range) {
+        Validate.notNull(endpoint, "endpoint");
+
+        Long wpsId = resolveWpsId(endpoint);
+
+        return (wpsId == null) ? new ArrayList<MeasuredDataEntity>() : getByWps(wpsId, range);
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByProcess(final Long wpsId, final String processIdentifier,
+            final Cursor before, final Integer limit) {
+        Validate.notNull(wpsId, "WPS ID");
+        Validate.notNull(processIdentifier, "processIdentifier");
+
+        return seek(before, limit, new SeekFetch() {
+
+            @Override
+            public List<MeasuredDataEntity> fetch(final QosDataAccess dao, final Cursor before, final Integer limit) {
+                return dao.getByProcess(wpsId, processIdentifier, before, limit);
+            }
+        });
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getByWps(final Long wpsId, final Cursor before, final Integer limit) {
+        Validate.notNull(wpsId, "WPS ID");
+
+        return seek(before, limit, new SeekFetch() {
+
+            @Override
+            public List<MeasuredDataEntity> fetch(final QosDataAccess dao, final Cursor before, final Integer limit) {
+                return dao.getByWps(wpsId, before, limit);
+            }
+        });
+    }
+
+    @Override
+    public List<QosRecord> getRecordsByProcess(final Long wpsId, final String processIdentifier,
+            final Cursor before, final Integer limit) {
+        Validate.notNull(wpsId, "WPS ID");
+        Validate.notNull(processIdentifier, "processIdentifier");
+        Validate.notNull(limit, "limit");
+
+        List<QosRecord> result = new ArrayList<>();
+        Integer measurements = 0;
+
+        manager.beginUse();
+        try {
+            for (QosDataAccess source : getSeekSources(before)) {
+                if (measurements >= limit) {
+                    break;
+                }
+
+                List<QosRecord> part = source.getRecordsByProcess(wpsId, processIdentifier, before, limit - measurements);
+
+                if (part != null) {
+                    result.addAll(part);
+                    measurements += QosRecord.countMeasurements(part);
+                }
+            }
+        } finally {
+            manager.endUse();
+        }
+
+        return result;
+    }
+
+    @Override
+    public List<MeasuredDataEntity> getBetween(final Date from, final Date to) {
+        Validate.notNull(from, "from");
+        Validate.notNull(to, "to");
+
+        // the main database holds the oldest measurements
+        List<MeasuredDataEntity> result = new ArrayList<>(mainDao.getBetween(from, to));
+
+        manager.beginUse();
+        try {
+            List<Partition> partitions = manager.getPartitions();
+            Collections.reverse(partitions);
+
+            for (Partition partition : partitions) {
+                if (partition.overlaps(from, to)) {
+                    result.addAll(getDao(partition).getBetween(from, to));
+                }
+            }
+        } finally {
+            manager.endUse();
+        }
+
+        return result;
+    }
+
+    @Override
+    public Date getOldestCreateTime(final Date since) {
+        Date oldest = mainDao.getOldestCreateTime(since);
+
+        manager.beginUse();
+        try {
+            List<Partition> partitions = manager.getPartitions();
+            Collections.reverse(partitions);
+
+            for (Partition partition : partitions) {
+                if (oldest != null && !partition.getStart().before(oldest)) {
+                    break;
+                }
+
+                if (partition.overlaps(since, null)) {
+                    Date candidate = getDao(partition).getOldestCreateTime(since);
+
+                    if (candidate != null && (oldest == null || candidate.before(oldest))) {
+                        oldest = candidate;
+                    }
+                }
+            }
+        } finally {
+            manager.endUse();
+        }
+
+        return oldest;
+    }
+
+    @Override
+    public Integer deleteByProcess(final Long wpsId, final String processIdentifier) {
+        return deleteByProcess(wpsId, processIdentifier, null);
+    }
+
+    @Override
+    public Integer deleteByProcess(final URL endpoint, final String processIdentifier) {
+        return deleteByProcess(endpoint, processIdentifier, null);
+    }
+
+    @Override
+    public Integer deleteByProcess(final Long wpsId, final String processIdentifier, final Date olderDate) {
+        Integer deleted = mainDao.deleteByProcess(wpsId, processIdentifier, olderDate);
+
+        manager.beginUse();
+        try {
+            for (Partition partition : manager.getPartitions()) {
+                if (partition.overlaps(null, olderDate)) {
+                    deleted += getDao(partition).deleteByProcess(wpsId, processIdentifier, olderDate);
+                }
+            }
+        } finally {
+            manager.endUse();
+        }
+
+        return deleted;
+    }
+
+    @Override
+    public Integer deleteByProcess(final URL endpoint, final String processIdentifier, final Date olderDate) {
+        Validate.notNull(endpoint, "endpoint");
+        Validate.notNull(processIdentifier, "processIdentifier");
+
+        Long wpsId = resolveWpsId(endpoint);
+
+        return (wpsId == null) ? 0 : deleteByProcess(wpsId, processIdentifier, olderDate);
+    }
+
+    /**
+     * Drops all partitions which are older as "date" and deletes the expired
+     * measurements of the remaining partition and the main database. The
+     * measurements of dropped partitions are not counted.
+     *
+     * @param date Date instance
+     * @return Affected rows
+     */
+    @Override
+    public Integer deleteAllOlderAs(final Date date) {
+        Validate.notNull(date, "date");
+
+        dropOlderAs(date);
+
+        Integer deleted = mainDao.deleteAllOlderAs(date);
+
+        manager.beginUse();
+        try {
+            for (Partition partition : manager.getPartitions()) {
+                if (partition.overlaps(null, date)) {
+                    deleted += getDao(partition).deleteAllOlderAs(date);
+                }
+            }
+        } finally {
+            manager.endUse();
+        }
+
+        return deleted;
+    }
+
+    /**
+     * Drops all partitions which are older as "date" and deletes at most
+     * "limit" expired measurements of the remaining partition or the main
+     * database. The measurements of dropped partitions are not counted.
+     *
+     * @param date Date instance
+     * @param limit Max. amount of measurements to delete
+     * @return Amount of deleted measurements
+     */
+    @Override
+    public Integer deleteAllOlderAs(final Date date, final Integer limit) {
+        Validate.notNull(date, "date");
+        Validate.notNull(limit, "limit");
+
+        dropOlderAs(date);
+
+        Integer deleted = mainDao.deleteAllOlderAs(date, limit);
+
+        manager.beginUse();
+        try {
+            for (Partition partition : manager.getPartitions()) {
+                if (deleted < limit && partition.overlaps(null, date)) {
+                    deleted += getDao(partition).deleteAllOlderAs(date, limit - deleted);
+                }
+            }
+        } finally {
+            manager.endUse();
+        }
+
+        return deleted;
+    }
+
+    /**
+     * Partitions have no archive; old partitions are dropped instead.
+     *
+     * @param date Date instance
+     * @return 0
+     */
+    @Override
+    public Integer archiveOlderAs(final Date date) {
+        Validate.notNull(date, "date");
+
+        return 0;
+    }
+
+    @Override
+    public AbstractQosEntity findAbstractQosEntityByid(final Long id) {
+        AbstractQosEntity found = null;
+
+        manager.beginUse();
+        try {
+            for (Partition partition : manager.getPartitions()) {
+                found = getDao(partition).findAbstractQosEntityByid(id);
+
+                if (found != null) {
+                    return found;
+                }
+            }
+        } finally {
+            manager.endUse();
+        }
+
+        return mainDao.findAbstractQosEntityByid(id);
+    }
+
+    @Override
+    public MeasuredDataEntity find(final Long primaryKey) {
+        MeasuredDataEntity found = null;
+
+        manager.beginUse();
+        try {
+            for (Partition partition : manager.getPartitions()) {
+                found = getDao(partition).find(primaryKey);
+
+                if (found != null) {
+                    return found;
+                }
+            }
+        } finally {
+            manager.endUse();
+        }
+
+        return mainDao.find(primaryKey);
+    }
+
+    @Override
+    public Boolean persist(final MeasuredDataEntity entityObject) {
+        Validate.notNull(entityObject, "entityObject");
+        Validate.notNull(entityObject.getCreateTime(), "createTime");
+
+        manager.beginUse();
+        try {
+            Partition partition = manager.getPartition(entityObject.getCreateTime());
+            partition.replicate(entityObject.getProcess());
+
+            Boolean persisted = getDao(partition).persist(entityObject);
+
+            if (!persisted) {
+                partition.forgetReplicas();
+            }
+
+            return persisted;
+        } finally {
+            manager.endUse();
+        }
+    }
+
+    @Override
+    public MeasuredDataEntity update(final MeasuredDataEntity entityObject) {
+        manager.beginUse();
+        try {
+            return getDaoOf(entityObject).update(entityObject);
+        } finally {
+            manager.endUse();
+        }
+    }
+
+    @Override
+    public void remove(final MeasuredDataEntity o) {
+        manager.beginUse();
+        try {
+            getDaoOf(o).remove(o);
+        } finally {
+            manager.endUse();
+        }
+    }
+
+    @Override
+    public List<MeasuredDataEntity> get(final Range range) {
+        // not needed here yet
+        return null;
+    }
+
+    @Override
+    public List<MeasuredDataRollupEntity> getRollups(final Long wpsId, final String processIdentifier,
+            final RollupGranularity granularity, final Date from, final Date to) {
+        return mainDao.getRollups(wpsId, processIdentifier, granularity, from, to);
+    }
+
+    @Override
+    public MeasuredDataRollupEntity findRollup(final WpsProcessEntity process, final String entityName,
+            final RollupGranularity granularity, final Date bucketStart) {
+        return mainDao.findRollup(process, entityName, granularity, bucketStart);
+    }
+
+    @Override
+    public MeasuredDataRollupEntity storeRollup(final MeasuredDataRollupEntity rollup) {
+        return mainDao.storeRollup(rollup);
+    }
+
+    @Override
+    public Date getNewestRollupBucket(final RollupGranularity granularity) {
+        return mainDao.getNewestRollupBucket(granularity);
+    }
+
+    @Override
+    public Integer deleteRollupsOlderAs(final RollupGranularity granularity, final Date date) {
+        return mainDao.deleteRollupsOlderAs(granularity, date);
+    }
+
+    @Override
+    public Boolean commit() {
+        Boolean commited = mainDao.commit();
+
+        manager.beginUse();
+        try {
+            removeDroppedDaos();
+
+            for (Map.Entry<Partition, QosDao> entry : partitionDaos.entrySet()) {
+                if (!entry.getValue().commit()) {
+                    entry.getKey().forgetReplicas();
+                    commited = false;
+                }
+            }
+        } finally {
+            manager.endUse();
+        }
+
+        return commited;
+    }
+
+    @Override
+    public void rollback() {
+        mainDao.rollback();
+
+        manager.beginUse();
+        try {
+            removeDroppedDaos();
+
+            for (Map.Entry<Partition, QosDao> entry : partitionDaos.entrySet()) {
+                entry.getValue().rollback();
+                entry.getKey().forgetReplicas();
+            }
+        } finally {
+            manager.endUse();
+        }
+    }
+
+    @Override
+    public void setAutoCommit(final Boolean value) {
+        if (value != null) {
+            autoCommit = value;
+        }
+
+        mainDao.setAutoCommit(value);
+
+        manager.beginUse();
+        try {
+            removeDroppedDaos();
+
+            for (QosDao dao : partitionDaos.values()) {
+                dao.setAutoCommit(value);
+            }
+        } finally {
+            manager.endUse();
+        }
+    }
+
+    @Override
+    public void close() {
+        manager.beginUse();
+        try {
+            removeDroppedDaos();
+
+            for (QosDao dao : partitionDaos.values()) {
+                dao.close();
+            }
+        } finally {
+            manager.endUse();
+        }
+
+        partitionDaos.clear();
+        mainDao.close();
+    }
+
+    private void dropOlderAs(final Date date) {
+        if (manager.dropOlderAs(date) > 0) {
+            removeDroppedDaos();
+        }
+    }
+
+    /**
+     * Discards the daos of partitions which were dropped in the meantime,
+     * possibly by another instance; their Jpa instance is already closed.
+     */
+    private void removeDroppedDaos() {
+        Iterator<Partition> iterator = partitionDaos.keySet().iterator();
+
+        while (iterator.hasNext()) {
+            if (iterator.next().isDropped()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private List<MeasuredDataEntity> collect(final Range range, final Fetch fetch) {
+        Integer offset = (range == null || range.getOffset() == null) ? 0 : range.getOffset();
+        Integer count = (range == null) ? null : range.getCount();
+
+        List<MeasuredDataEntity> result = new ArrayList<>();
+        List<QosDataAccess> sources = new ArrayList<>();
+
+        manager.beginUse();
+        try {
+            for (Partition partition : manager.getPartitions()) {
+                sources.add(getDao(partition));
+            }
+
+            sources.add(mainDao);
+
+            // newest partitions first; stop as soon as the range is satisfied
+            for (QosDataAccess source : sources) {
+                Range sourceRange = (count == null) ? null : new Range(null, offset + count - result.size());
+                List<MeasuredDataEntity> part = fetch.fetch(source, sourceRange);
+
+                if (part != null) {
+                    result.addAll(part);
+                }
+
+                if (count != null && result.size() >= offset + count) {
+                    break;
+                }
+            }
+        } finally {
+            manager.endUse();
+        }
+
+        Integer from = Math.min(offset, result.size());
+        Integer to = (count == null) ? result.size() : Math.min(offset + count, result.size());
+
+        return new ArrayList<>(result.subList(from, to));
+    }
+
+    private List<MeasuredDataEntity> seek(final Cursor before, final Integer limit, final SeekFetch fetch) {
+        Validate.notNull(limit, "limit");
+
+        List<MeasuredDataEntity> result = new ArrayList<>();
+
+        manager.beginUse();
+        try {
+            for (QosDataAccess source : getSeekSources(before)) {
+                if (result.size() >= limit) {
+                    break;
+                }
+
+                addAll(result, fetch.fetch(source, before, limit - result.size()));
+            }
+        } finally {
+            manager.endUse();
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the sources which may hold measurements older as the cursor, newest
+     * first; partitions which only hold newer measurements are skipped.
+     */
+    private List<QosDataAccess> getSeekSources(final Cursor before) {
+        List<QosDataAccess> sources = new ArrayList<>();
+
+        for (Partition partition : manager.getPartitions()) {
+            if (before == null || partition.overlaps(null, new Date(before.getCreateTime().getTime() + 1))) {
+                sources.add(getDao(partition));
+            }
+        }
+
+        sources.add(mainDao);
+
+        return sources;
+    }
+
+    private void addAll(final List<MeasuredDataEntity> result, final List<MeasuredDataEntity> part) {
+        if (part != null) {
+            result.addAll(part);
+        }
+    }
+
+    private QosDao getDao(final Partition partition) {
+        // a dropped partition may be created again; partitions equal by period
+        removeDroppedDaos();
+
+        QosDao dao = partitionDaos.get(partition);
+
+        if (dao == null) {
+            dao = new QosDao(partition.getJpa());
+            dao.setAutoCommit(autoCommit);
+            partitionDaos.put(partition, dao);
+        }
+
+        return dao;
+    }
+
+    private QosDataAccess getDaoOf(final MeasuredDataEntity entity) {
+        Validate.notNull(entity, "entity");
+        Validate.notNull(entity.getCreateTime(), "createTime");
+
+        for (Partition partition : manager.getPartitions()) {
+            if (partition.overlaps(entity.getCreateTime(), null)
+                    && partition.getStart().compareTo(entity.getCreateTime()) <= 0) {
+                return getDao(partition);
+            }
+        }
+
+        return mainDao;
+    }
+
+    private Long resolveWpsId(final URL endpoint) {
+        try (WpsDataAccess wpsDao = wpsDaoFactory.create()) {
+            WpsEntity wps = wpsDao.find(endpoint);
+
+            return (wps == null) ? null : wps.getId();
+        } catch (CreateException ex) {
+            throw new AssertionError("Can't create wpsDao. Execution aborted.", ex);
+        }
+    }
+}
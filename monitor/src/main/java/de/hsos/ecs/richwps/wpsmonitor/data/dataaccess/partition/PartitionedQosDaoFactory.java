@@ -0,0 +1,53 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.partition;
+
+import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
+import de.hsos.ecs.richwps.wpsmonitor.creation.Factory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+
+/**
+ * Factory for PartitionedQosDao instances.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class PartitionedQosDaoFactory implements Factory<QosDataAccess> {
+
+    private final Factory<QosDataAccess> mainDaoFactory;
+    private final PartitionManager manager;
+    private final Factory<WpsDataAccess> wpsDaoFactory;
+
+    /**
+     * Creates a new PartitionedQosDaoFactory instance.
+     *
+     * @param mainDaoFactory Factory for the QosDataAccess of the main database
+     * @param manager PartitionManager instance
+     * @param wpsDaoFactory Factory to resolve wps endpoints
+     */
+    public PartitionedQosDaoFactory(final Factory<QosDataAccess> mainDaoFactory, final PartitionManager manager,
+            final Factory<WpsDataAccess> wpsDaoFactory) {
+        this.mainDaoFactory = Validate.notNull(mainDaoFactory, "mainDaoFactory");
+        this.manager = Validate.notNull(manager, "manager");
+        this.wpsDaoFactory = Validate.notNull(wpsDaoFactory, "wpsDaoFactory");
+    }
+
+    @Override
+    public QosDataAccess create() throws CreateException {
+        return new PartitionedQosDao(mainDaoFactory.create(), manager, wpsDaoFactory);
+    }
+}
@@ -21,8 +21,6 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
-import javax.persistence.NamedQueries;
-import javax.persistence.NamedQuery;
 
 /**
  * General entity for qos-measurements. All qos entity must extends this entity.
@@ -30,46 +28,6 @@ import javax.persistence.NamedQuery;
  *
  * @author Florian Vogelpohl <floriantobias@gmail.com>
  */
-@NamedQueries({
-    /**
-     * Deletes all AbstractQosEntity instances which are associated with the
-     * given :wpsId.
-     */
-    @NamedQuery(name = "abstractQos.deleteByWps", query = "DELETE FROM AbstractQosEntity q WHERE q.id IN(SELECT md.id FROM MeasuredDataEntity m JOIN m.data md WHERE m.process.wps.id = :wpsId)"),
-
-    /**
-     * Deletes all AbstractQosEntity instances which are associated with the
-     * given :wpsId and :processIdentifier.
-     */
-    @NamedQuery(name = "abstractQos.deleteByWpsProcess", query = "DELETE FROM AbstractQosEntity t WHERE t.id "
-            + "IN(SELECT md.id FROM MeasuredDataEntity m JOIN m.data md WHERE m.process.wps.id = :wpsId AND m.process.identifier = :processIdentifier)"),
-    
-    /**
-     * Deletes all AbstractQosEntity instances which are associated with the
-     * given :wpsId and :processIdentifier.
-     */
-    @NamedQuery(name = "abstractQos.deleteByWpsProcessEndpoint", query = "DELETE FROM AbstractQosEntity t WHERE t.id "
-            + "IN(SELECT md.id FROM MeasuredDataEntity m JOIN m.data md WHERE m.process.wps.endpoint = :endpoint AND m.process.identifier = :processIdentifier)"),
-
-    /**
-     * Deletes all AbstractQosEntity instances which are associated with the
-     * given :wpsId and :processIdentifier and are older as :date.
-     */
-    @NamedQuery(name = "abstractQos.deleteByWpsProcessOlderAs", query = "DELETE FROM AbstractQosEntity t WHERE t.id "
-            + "IN(SELECT md.id FROM MeasuredDataEntity m JOIN m.data md WHERE m.process.wps.id = :wpsId AND m.process.identifier = :processIdentifier AND m.createTime < :date)"),
-
-    /**
-     * Deletes all AbstractQosEntity instances which are associated with the
-     * given :wpsId and :processIdentifier and are older as :date.
-     */
-    @NamedQuery(name = "abstractQos.deleteByWpsProcessOlderAsEndpoint", query = "DELETE FROM AbstractQosEntity t WHERE t.id "
-            + "IN(SELECT md.id FROM MeasuredDataEntity m JOIN m.data md WHERE m.process.wps.endpoint = :endpoint AND m.process.identifier = :processIdentifier AND m.createTime < :date)"),
-    
-    /**
-     * Deletes all AbstractQosEntity instances which are older as :date.
-     */
-    @NamedQuery(name = "abstractQos.deleteOlderAs", query = "DELETE FROM AbstractQosEntity t WHERE t.id IN(SELECT md.id FROM MeasuredDataEntity m JOIN m.data md WHERE m.createTime < :date)")
-})
 @Entity
 public abstract class AbstractQosEntity implements Serializable {
 
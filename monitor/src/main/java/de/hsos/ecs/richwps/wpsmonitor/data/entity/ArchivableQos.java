@@ -0,0 +1,34 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.entity;
+
+/**
+ * Implemented by {@link AbstractQosEntity} types which consist of a single
+ * numeric value only. The measurement archive stores such entities as the
+ * plain value instead of their encoded fields.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public interface ArchivableQos extends RollupSource {
+
+    /**
+     * Restores the value which was returned by getRollupValue.
+     *
+     * @param value the measured value, or null if the measurement was not
+     * successful
+     */
+    public void setRollupValue(final Long value);
+}
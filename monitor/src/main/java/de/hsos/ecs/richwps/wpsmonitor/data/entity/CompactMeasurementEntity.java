@@ -0,0 +1,195 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.entity;
+
+import java.io.Serializable;
+import java.util.Date;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Temporal;
+
+/**
+ * Compact storage of a measurement. In contrast to {@link MeasuredDataEntity}
+ * the qos entities are not stored in their own table, but encoded in the
+ * qosData column of the same row; so a measurement is read and deleted
+ * without any join. The named queries correspond to the qos.* queries of
+ * MeasuredDataEntity.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+@Entity
+@NamedQueries({
+    /**
+     * Selects all CompactMeasurementEntity objects by process and wps
+     * identifier.
+     */
+    @NamedQuery(name = "compactQos.getQosByProcess", query = "SELECT t FROM CompactMeasurementEntity t WHERE t.process.identifier = :processIdentifier AND "
+            + "t.process.wps.id = :wpsId "
+            + "ORDER BY t.createTime DESC, t.id DESC"),
+
+    /**
+     * Selects the CompactMeasurementEntity objects of a process which are
+     * older as the cursor position (:createTime, :id).
+     */
+    @NamedQuery(name = "compactQos.getQosByProcessBefore", query = "SELECT t FROM CompactMeasurementEntity t WHERE t.process.identifier = :processIdentifier AND "
+            + "t.process.wps.id = :wpsId AND t.createTime <= :createTime "
+            + "AND (t.createTime < :createTime OR t.id < :id) "
+            + "ORDER BY t.createTime DESC, t.id DESC"),
+
+    /**
+     * Selects all CompactMeasurementEntity objects by process identifier and
+     * wps endpoint.
+     */
+    @NamedQuery(name = "compactQos.getQosByProcessEndpoint", query = "SELECT t FROM CompactMeasurementEntity t WHERE t.process.identifier = :processIdentifier "
+            + "AND t.process.wps.endpoint = :endpoint "
+            + "ORDER BY t.createTime DESC"),
+
+    /**
+     * Selects all CompactMeasurementEntity objects by wps identifier.
+     */
+    @NamedQuery(name = "compactQos.getQosByWps", query = "SELECT t FROM CompactMeasurementEntity t WHERE t.process.wps.id = :wpsId ORDER BY t.createTime DESC, t.id DESC"),
+
+    /**
+     * Selects the CompactMeasurementEntity objects of a wps which are older as
+     * the cursor position (:createTime, :id).
+     */
+    @NamedQuery(name = "compactQos.getQosByWpsBefore", query = "SELECT t FROM CompactMeasurementEntity t WHERE t.process.wps.id = :wpsId "
+            + "AND t.createTime <= :createTime AND (t.createTime < :createTime OR t.id < :id) "
+            + "ORDER BY t.createTime DESC, t.id DESC"),
+
+    /**
+     * Selects all CompactMeasurementEntity objects by wps endpoint.
+     */
+    @NamedQuery(name = "compactQos.getQosByWpsEndpoint", query = "SELECT t FROM CompactMeasurementEntity t WHERE t.process.wps.endpoint = :endpoint ORDER BY t.createTime DESC"),
+
+    /**
+     * Selects all CompactMeasurementEntity objects which are created in
+     * [:from, :to).
+     */
+    @NamedQuery(name = "compactQos.getQosBetween", query = "SELECT t FROM CompactMeasurementEntity t WHERE t.createTime >= :from AND t.createTime < :to "
+            + "ORDER BY t.createTime ASC"),
+
+    /**
+     * Selects the createTime of the oldest CompactMeasurementEntity which is
+     * not older as :date.
+     */
+    @NamedQuery(name = "compactQos.getOldestCreateTime", query = "SELECT MIN(t.createTime) FROM CompactMeasurementEntity t WHERE t.createTime >= :date"),
+
+    /**
+     * Deletes all CompactMeasurementEntity instances of the given :process.
+     */
+    @NamedQuery(name = "compactQos.deleteByProcess", query = "DELETE FROM CompactMeasurementEntity t WHERE t.process = :process"),
+
+    /**
+     * Deletes all CompactMeasurementEntity instances of the given :process
+     * which are older as :date.
+     */
+    @NamedQuery(name = "compactQos.deleteByProcessOlderAs", query = "DELETE FROM CompactMeasurementEntity t WHERE "
+            + "t.process = :process AND t.createTime < :date"),
+
+    /**
+     * Selects the ids of the CompactMeasurementEntity objects which are older
+     * as :date, oldest first.
+     */
+    @NamedQuery(name = "compactQos.getIdsOlderAs", query = "SELECT t.id FROM CompactMeasurementEntity t WHERE t.createTime < :date ORDER BY t.createTime ASC"),
+
+    /**
+     * Deletes all CompactMeasurementEntity instances whose id is in :ids.
+     */
+    @NamedQuery(name = "compactQos.deleteByIds", query = "DELETE FROM CompactMeasurementEntity t WHERE t.id IN :ids")
+})
+public class CompactMeasurementEntity implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @Column(nullable = false, updatable = false)
+    @Temporal(javax.persistence.TemporalType.TIMESTAMP)
+    private Date createTime;
+
+    @JoinColumn(nullable = false)
+    @ManyToOne
+    private WpsProcessEntity process;
+
+    @Column(length = 4000)
+    private String qosData;
+
+    public CompactMeasurementEntity() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Date getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(Date createTime) {
+        this.createTime = createTime;
+    }
+
+    public WpsProcessEntity getProcess() {
+        return process;
+    }
+
+    public void setProcess(WpsProcessEntity process) {
+        this.process = process;
+    }
+
+    public String getQosData() {
+        return qosData;
+    }
+
+    public void setQosData(String qosData) {
+        this.qosData = qosData;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        hash += (id != null ? id.hashCode() : 0);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof CompactMeasurementEntity)) {
+            return false;
+        }
+        CompactMeasurementEntity other = (CompactMeasurementEntity) object;
+        return (this.id != null || other.id == null) && (this.id == null || this.id.equals(other.id));
+    }
+
+    @Override
+    public String toString() {
+        return "de.hsos.ecs.richwps.wpsmonitor.data.entity.CompactMeasurementEntity[ id=" + id + " ]";
+    }
+}
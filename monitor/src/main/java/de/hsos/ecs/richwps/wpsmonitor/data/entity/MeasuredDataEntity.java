@@ -32,6 +32,7 @@ import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
 import javax.persistence.Temporal;
+import org.eclipse.persistence.annotations.CascadeOnDelete;
 
 /**
  * Entity that group up various AbstractQosEntity objects by measurement
@@ -45,8 +46,48 @@ import javax.persistence.Temporal;
      */
     @NamedQuery(name = "qos.getQosByProcess", query = "SELECT t FROM MeasuredDataEntity t WHERE t.process.identifier = :processIdentifier AND "
             + "t.process.wps.id = :wpsId "
-            + "ORDER BY t.createTime DESC"),
+            + "ORDER BY t.createTime DESC, t.id DESC"),
+
+    /**
+     * Selects the MeasuredDataEntity objects of a process which are older as
+     * the cursor position (:createTime, :id); the first condition lets the
+     * database seek through the createTime index.
+     */
+    @NamedQuery(name = "qos.getQosByProcessBefore", query = "SELECT t FROM MeasuredDataEntity t WHERE t.process.identifier = :processIdentifier AND "
+            + "t.process.wps.id = :wpsId AND t.createTime <= :createTime "
+            + "AND (t.createTime < :createTime OR t.id < :id) "
+            + "ORDER BY t.createTime DESC, t.id DESC"),
     
+    /**
+     * Selects only the keys (createTime, id) of the MeasuredDataEntity objects
+     * of a process; used to determine the bounds of a page.
+     */
+    @NamedQuery(name = "qos.getKeysByProcess", query = "SELECT t.createTime, t.id FROM MeasuredDataEntity t WHERE t.process.identifier = :processIdentifier AND "
+            + "t.process.wps.id = :wpsId "
+            + "ORDER BY t.createTime DESC, t.id DESC"),
+
+    /**
+     * Selects only the keys (createTime, id) of the MeasuredDataEntity objects
+     * of a process which are older as the cursor position (:createTime, :id).
+     */
+    @NamedQuery(name = "qos.getKeysByProcessBefore", query = "SELECT t.createTime, t.id FROM MeasuredDataEntity t WHERE t.process.identifier = :processIdentifier AND "
+            + "t.process.wps.id = :wpsId AND t.createTime <= :createTime "
+            + "AND (t.createTime < :createTime OR t.id < :id) "
+            + "ORDER BY t.createTime DESC, t.id DESC"),
+
+    /**
+     * Selects id, createTime and the qos entities of the MeasuredDataEntity
+     * objects of a process between the keys (:oldestTime, :oldestId) and
+     * (:newestTime, :newestId), both inclusive. The process itself is not
+     * loaded.
+     */
+    @NamedQuery(name = "qos.getRecordsByProcess", query = "SELECT t.id, t.createTime, q FROM MeasuredDataEntity t LEFT JOIN t.data q "
+            + "WHERE t.process.identifier = :processIdentifier AND t.process.wps.id = :wpsId "
+            + "AND t.createTime >= :oldestTime AND t.createTime <= :newestTime "
+            + "AND (t.createTime > :oldestTime OR t.id >= :oldestId) "
+            + "AND (t.createTime < :newestTime OR t.id <= :newestId) "
+            + "ORDER BY t.createTime DESC, t.id DESC"),
+
     /**
      * Selects all MeasuredDataEntity objects by process and wps identifier.
      */
@@ -57,7 +98,15 @@ import javax.persistence.Temporal;
     /**
      * Selects all MeasuredDataEntity objects by wps identifier.
      */
-    @NamedQuery(name = "qos.getQosByWps", query = "SELECT t FROM MeasuredDataEntity t WHERE t.process.wps.id = :wpsId ORDER BY t.createTime DESC"),
+    @NamedQuery(name = "qos.getQosByWps", query = "SELECT t FROM MeasuredDataEntity t WHERE t.process.wps.id = :wpsId ORDER BY t.createTime DESC, t.id DESC"),
+
+    /**
+     * Selects the MeasuredDataEntity objects of a wps which are older as the
+     * cursor position (:createTime, :id).
+     */
+    @NamedQuery(name = "qos.getQosByWpsBefore", query = "SELECT t FROM MeasuredDataEntity t WHERE t.process.wps.id = :wpsId "
+            + "AND t.createTime <= :createTime AND (t.createTime < :createTime OR t.id < :id) "
+            + "ORDER BY t.createTime DESC, t.id DESC"),
     
      /**
      * Selects all MeasuredDataEntity objects by wps identifier.
@@ -65,45 +114,46 @@ import javax.persistence.Temporal;
     @NamedQuery(name = "qos.getQosByWpsEndpoint", query = "SELECT t FROM MeasuredDataEntity t WHERE t.process.wps.endpoint = :endpoint ORDER BY t.createTime DESC"),
 
     /**
-     * Deletes all MeasuredDataEntity instances which are associated by the
-     * given :wpsId parameter.
+     * Selects all MeasuredDataEntity objects which are created in [:from, :to).
      */
-    @NamedQuery(name = "qos.deleteByWps", query = "DELETE FROM MeasuredDataEntity t WHERE t.process.wps.id = :wpsId"),
+    @NamedQuery(name = "qos.getQosBetween", query = "SELECT t FROM MeasuredDataEntity t WHERE t.createTime >= :from AND t.createTime < :to "
+            + "ORDER BY t.createTime ASC"),
 
     /**
-     * Deletes all MeasuredDataEntity instances which are associated by the
-     * given :wpsId and :processIdentifier parameters.
+     * Selects the createTime of the oldest MeasuredDataEntity which is not
+     * older as :date.
      */
-    @NamedQuery(name = "qos.deleteByWpsProcess", query = "DELETE FROM MeasuredDataEntity t WHERE "
-            + "t.process.identifier = :processIdentifier AND t.process.wps.id = :wpsId"),
-    
+    @NamedQuery(name = "qos.getOldestCreateTime", query = "SELECT MIN(t.createTime) FROM MeasuredDataEntity t WHERE t.createTime >= :date"),
+
     /**
-     * Deletes all MeasuredDataEntity instances which are associated by the
-     * given :wpsId and :processIdentifier parameters.
+     * Deletes all MeasuredDataEntity instances of the given :process. The
+     * AbstractQosEntity rows are deleted by the database (ON DELETE CASCADE).
      */
-    @NamedQuery(name = "qos.deleteByWpsProcessEndpoint", query = "DELETE FROM MeasuredDataEntity t WHERE "
-            + "t.process.identifier = :processIdentifier AND t.process.wps.endpoint = :endpoint"),
+    @NamedQuery(name = "qos.deleteByProcess", query = "DELETE FROM MeasuredDataEntity t WHERE t.process = :process"),
 
     /**
-     * Deletes all MeasuredDataEntity instances which are associated by the
-     * given :wpsId and :processIdentifier parameters and are older as
-     * :date.
+     * Deletes all MeasuredDataEntity instances of the given :process which are
+     * older as :date.
      */
-    @NamedQuery(name = "qos.deleteByWpsProcessOlderAs", query = "DELETE FROM MeasuredDataEntity t WHERE "
-            + "t.process.identifier = :processIdentifier AND t.process.wps.id = :wpsId AND t.createTime < :date"),
-    
+    @NamedQuery(name = "qos.deleteByProcessOlderAs", query = "DELETE FROM MeasuredDataEntity t WHERE "
+            + "t.process = :process AND t.createTime < :date"),
+
+    /**
+     * Selects the ids of the MeasuredDataEntity objects which are older as
+     * :date, oldest first.
+     */
+    @NamedQuery(name = "qos.getIdsOlderAs", query = "SELECT t.id FROM MeasuredDataEntity t WHERE t.createTime < :date ORDER BY t.createTime ASC"),
+
     /**
-     * Deletes all MeasuredDataEntity instances which are associated by the
-     * given :wpsId and :processIdentifier parameters and are older as
-     * :date.
+     * Selects all MeasuredDataEntity objects, ordered by id; used by the
+     * migration to the compact storage.
      */
-    @NamedQuery(name = "qos.deleteByWpsProcessOlderAsEndpoint", query = "DELETE FROM MeasuredDataEntity t WHERE "
-            + "t.process.identifier = :processIdentifier AND t.process.wps.endpoint = :endpoint AND t.createTime < :date"),
+    @NamedQuery(name = "qos.getAll", query = "SELECT t FROM MeasuredDataEntity t ORDER BY t.id ASC"),
 
     /**
-     * Deletes all MeasuredDataEntity instances which are older as :date.
+     * Deletes all MeasuredDataEntity instances whose id is in :ids.
      */
-    @NamedQuery(name = "qos.deleteOlderAs", query = "DELETE FROM MeasuredDataEntity t WHERE t.createTime < :date")
+    @NamedQuery(name = "qos.deleteByIds", query = "DELETE FROM MeasuredDataEntity t WHERE t.id IN :ids")
 })
 public class MeasuredDataEntity implements Serializable {
 
@@ -122,6 +172,7 @@ public class MeasuredDataEntity implements Serializable {
     private WpsProcessEntity process;
 
     @OneToMany(fetch = FetchType.EAGER, cascade = {CascadeType.ALL})
+    @CascadeOnDelete
     @JoinColumn(name = "owner_id", referencedColumnName = "measureddata_id")
     private List<AbstractQosEntity> data;
 
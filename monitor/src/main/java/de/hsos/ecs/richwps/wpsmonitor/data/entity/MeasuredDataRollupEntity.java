@@ -0,0 +1,331 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.entity;
+
+import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.strategy.Hide;
+import de.hsos.ecs.richwps.wpsmonitor.util.QuantileHistogram;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Date;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.Lob;
+import javax.persistence.ManyToOne;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.Transient;
+import javax.persistence.UniqueConstraint;
+
+/**
+ * Pre-aggregated measurements of one process, one qos entity type and one
+ * time bucket. The rollups are maintained by the RollupJob, so long ranges
+ * can be reported without loading the raw {@link MeasuredDataEntity} rows.
+ *
+ * The histogram is kept deserialized while values are added or merged and is
+ * serialized once before the rollup is stored.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+@Entity
+@NamedQueries({
+    /**
+     * Selects all rollups of a process with the given granularity whose
+     * bucket starts in [:from, :to).
+     */
+    @NamedQuery(name = "rollup.getByProcess", query = "SELECT r FROM MeasuredDataRollupEntity r WHERE "
+            + "r.process.identifier = :processIdentifier AND r.process.wps.id = :wpsId "
+            + "AND r.granularity = :granularity AND r.bucketStart >= :from AND r.bucketStart < :to "
+            + "ORDER BY r.bucketStart ASC"),
+
+    /**
+     * Selects a specific rollup bucket.
+     */
+    @NamedQuery(name = "rollup.find", query = "SELECT r FROM MeasuredDataRollupEntity r WHERE "
+            + "r.process = :process AND r.entityName = :entityName "
+            + "AND r.granularity = :granularity AND r.bucketStart = :bucketStart"),
+
+    /**
+     * Selects the start of the newest bucket with the given granularity.
+     */
+    @NamedQuery(name = "rollup.getNewestBucket", query = "SELECT MAX(r.bucketStart) FROM MeasuredDataRollupEntity r "
+            + "WHERE r.granularity = :granularity"),
+
+    /**
+     * Deletes all rollups of the given :process.
+     */
+    @NamedQuery(name = "rollup.deleteByProcess", query = "DELETE FROM MeasuredDataRollupEntity r WHERE r.process = :process"),
+
+    /**
+     * Deletes all rollups with the given granularity whose bucket starts
+     * before :date.
+     */
+    @NamedQuery(name = "rollup.deleteOlderAs", query = "DELETE FROM MeasuredDataRollupEntity r WHERE "
+            + "r.granularity = :granularity AND r.bucketStart < :date")
+})
+@Table(
+        uniqueConstraints = @UniqueConstraint(columnNames = {"process_id", "entityName", "granularity", "bucketStart"})
+)
+public class MeasuredDataRollupEntity implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Hide
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @Hide
+    @ManyToOne
+    @JoinColumn(name = "process_id", nullable = false)
+    private WpsProcessEntity process;
+
+    @Column(nullable = false)
+    private String entityName;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private RollupGranularity granularity;
+
+    @Column(nullable = false)
+    @Temporal(javax.persistence.TemporalType.TIMESTAMP)
+    private Date bucketStart;
+
+    private Long measurementCount;
+    private Long successCount;
+    private Long valueSum;
+    private Long minValue;
+    private Long maxValue;
+
+    @Lob
+    @Hide
+    private byte[] histogram;
+
+    @Hide
+    @Transient
+    private transient QuantileHistogram histogramInstance;
+
+    /**
+     * The persistent state from which histogramInstance was read; if a merge
+     * replaces the persistent state, the histogram is read again.
+     */
+    @Hide
+    @Transient
+    private transient byte[] histogramSource;
+
+    @Hide
+    @Transient
+    private transient boolean histogramChanged;
+
+    public MeasuredDataRollupEntity() {
+        this.measurementCount = 0L;
+        this.successCount = 0L;
+        this.valueSum = 0L;
+    }
+
+    public MeasuredDataRollupEntity(final WpsProcessEntity process, final String entityName,
+            final RollupGranularity granularity, final Date bucketStart) {
+        this();
+
+        this.process = process;
+        this.entityName = entityName;
+        this.granularity = granularity;
+        this.bucketStart = granularity.floor(bucketStart);
+    }
+
+    /**
+     * Adds a single measured value to this bucket.
+     *
+     * @param value Measured value; null if the measurement was not successful
+     */
+    public void add(final Long value) {
+        measurementCount++;
+
+        if (value != null) {
+            successCount++;
+            valueSum += value;
+            minValue = (minValue == null) ? value : Math.min(minValue, value);
+            maxValue = (maxValue == null) ? value : Math.max(maxValue, value);
+
+            getHistogram().record(value);
+            histogramChanged = true;
+        }
+    }
+
+    /**
+     * Merges the values of the given rollup into this bucket.
+     *
+     * @param other MeasuredDataRollupEntity instance
+     */
+    public void merge(final MeasuredDataRollupEntity other) {
+        measurementCount += other.measurementCount;
+        successCount += other.successCount;
+        valueSum += other.valueSum;
+
+        if (other.minValue != null) {
+            minValue = (minValue == null) ? other.minValue : Math.min(minValue, other.minValue);
+        }
+
+        if (other.maxValue != null) {
+            maxValue = (maxValue == null) ? other.maxValue : Math.max(maxValue, other.maxValue);
+        }
+
+        getHistogram().merge(other.getHistogram());
+        histogramChanged = true;
+    }
+
+    /**
+     * Serializes the changed histogram into its persistent state. Called by
+     * the persistence provider before the rollup is stored; must be called
+     * explicitly before a detached rollup is merged.
+     */
+    @PrePersist
+    @PreUpdate
+    public void storeHistogram() {
+        if (histogramChanged && histogramInstance != null) {
+            histogram = histogramInstance.toByteArray();
+            histogramSource = histogram;
+            histogramChanged = false;
+        }
+    }
+
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        storeHistogram();
+        out.defaultWriteObject();
+    }
+
+    /**
+     * Gets the histogram of the successful values of this bucket.
+     *
+     * @return QuantileHistogram instance
+     */
+    public QuantileHistogram getHistogram() {
+        if (histogramInstance == null || histogramSource != histogram) {
+            histogramInstance = (histogram == null)
+                    ? new QuantileHistogram()
+                    : QuantileHistogram.fromByteArray(histogram);
+            histogramSource = histogram;
+            histogramChanged = false;
+        }
+
+        return histogramInstance;
+    }
+
+    /**
+     * Gets the rate of successful measurements in this bucket.
+     *
+     * @return Rate between 0 and 1; null if the bucket is empty
+     */
+    public Double getSuccessRate() {
+        if (measurementCount == 0) {
+            return null;
+        }
+
+        return successCount.doubleValue() / measurementCount;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public WpsProcessEntity getProcess() {
+        return process;
+    }
+
+    public void setProcess(WpsProcessEntity process) {
+        this.process = process;
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public void setEntityName(String entityName) {
+        this.entityName = entityName;
+    }
+
+    public RollupGranularity getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(RollupGranularity granularity) {
+        this.granularity = granularity;
+    }
+
+    public Date getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(Date bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public Long getMeasurementCount() {
+        return measurementCount;
+    }
+
+    public Long getSuccessCount() {
+        return successCount;
+    }
+
+    public Long getValueSum() {
+        return valueSum;
+    }
+
+    public Long getMinValue() {
+        return minValue;
+    }
+
+    public Long getMaxValue() {
+        return maxValue;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        hash += (id != null ? id.hashCode() : 0);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof MeasuredDataRollupEntity)) {
+            return false;
+        }
+        MeasuredDataRollupEntity other = (MeasuredDataRollupEntity) object;
+        return (this.id != null || other.id == null) && (this.id == null || this.id.equals(other.id));
+    }
+
+    @Override
+    public String toString() {
+        return "de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataRollupEntity[ id=" + id
+                + ", granularity=" + granularity + ", bucketStart=" + bucketStart + " ]";
+    }
+}
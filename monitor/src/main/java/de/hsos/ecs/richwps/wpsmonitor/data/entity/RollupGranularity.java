@@ -0,0 +1,74 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.entity;
+
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Time granularity of a {@link MeasuredDataRollupEntity} bucket.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public enum RollupGranularity {
+
+    MINUTE(Calendar.MINUTE),
+    HOUR(Calendar.HOUR_OF_DAY),
+    DAY(Calendar.DATE);
+
+    private final int calendarField;
+
+    private RollupGranularity(final int calendarField) {
+        this.calendarField = calendarField;
+    }
+
+    /**
+     * Gets the start of the bucket which contains the given date.
+     *
+     * @param date Date instance
+     * @return Start of the bucket
+     */
+    public Date floor(final Date date) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(date);
+        cal.set(Calendar.MILLISECOND, 0);
+        cal.set(Calendar.SECOND, 0);
+
+        if (this != MINUTE) {
+            cal.set(Calendar.MINUTE, 0);
+        }
+
+        if (this == DAY) {
+            cal.set(Calendar.HOUR_OF_DAY, 0);
+        }
+
+        return cal.getTime();
+    }
+
+    /**
+     * Gets the start of the bucket which follows the bucket of the given date.
+     *
+     * @param date Date instance
+     * @return Start of the next bucket
+     */
+    public Date next(final Date date) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(floor(date));
+        cal.add(calendarField, 1);
+
+        return cal.getTime();
+    }
+}
@@ -15,16 +15,21 @@
  */
 package de.hsos.ecs.richwps.wpsmonitor.data.entity;
 
+import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.strategy.Hide;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import javax.persistence.CascadeType;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
-import javax.persistence.Lob;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
@@ -51,6 +56,12 @@ import javax.persistence.UniqueConstraint;
      */
     @NamedQuery(name = "wpsprocess.getAll", query = "SELECT t FROM WpsProcessEntity t"),
 
+    /**
+     * Gets the summaries of all WpsProcess-entities of a wps; the test
+     * requests are not loaded.
+     */
+    @NamedQuery(name = "wpsprocess.getSummariesOf", query = "SELECT NEW de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessSummary(t.id, t.identifier, t.wpsException, t.wps) FROM WpsProcessEntity t WHERE t.wps.id = :wpsId ORDER BY t.identifier"),
+
     /**
      * Gets a specific process entity by wps.identifier and process.identifier.
      */
@@ -86,8 +97,16 @@ public class WpsProcessEntity implements Serializable {
     private String identifier;
     private boolean wpsException;
 
-    @Lob
-    private String rawRequest;
+    /**
+     * The test request, stored compressed in its own table. It's mapped as a
+     * collection with at most one element, because the persistence provider
+     * defers only collection mappings without bytecode weaving; so the
+     * request is loaded at the first access and not with every process (e.g.
+     * of every MeasuredDataEntity).
+     */
+    @Hide
+    @OneToMany(mappedBy = "process", fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    private List<WpsProcessRequestEntity> testRequest;
 
     @OneToOne
     @JoinColumn(name = "wps_id")
@@ -104,6 +123,7 @@ public class WpsProcessEntity implements Serializable {
     public WpsProcessEntity(String identifier, WpsEntity wps) {
         this.identifier = identifier;
         this.wps = wps;
+        this.testRequest = new ArrayList<>();
     }
 
     public String getIdentifier() {
@@ -122,12 +142,37 @@ public class WpsProcessEntity implements Serializable {
         this.wps = wps;
     }
 
+    /**
+     * Gets the test request; the request is loaded from the database at the
+     * first call.
+     *
+     * @return Raw request or null
+     */
     public String getRawRequest() {
-        return rawRequest;
+        if (testRequest == null || testRequest.isEmpty()) {
+            return null;
+        }
+
+        return testRequest.get(0).getRawRequest();
     }
 
+    /**
+     * Sets the test request; null removes the request.
+     *
+     * @param rawRequest Raw request or null
+     */
     public void setRawRequest(String rawRequest) {
-        this.rawRequest = rawRequest;
+        if (testRequest == null) {
+            testRequest = new ArrayList<>();
+        }
+
+        if (rawRequest == null) {
+            testRequest.clear();
+        } else if (testRequest.isEmpty()) {
+            testRequest.add(new WpsProcessRequestEntity(this, rawRequest));
+        } else {
+            testRequest.get(0).setRawRequest(rawRequest);
+        }
     }
 
     public Long getId() {
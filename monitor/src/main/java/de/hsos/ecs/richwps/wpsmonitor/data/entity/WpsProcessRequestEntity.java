@@ -0,0 +1,216 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.entity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.Lob;
+import javax.persistence.ManyToOne;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+
+/**
+ * Entity for the test request of a WpsProcess. The request is stored
+ * compressed (deflate) in its own table, so it is only loaded if it's really
+ * needed, e.g. by the MeasureJob.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+@Entity
+@NamedQueries({
+    /**
+     * Deletes the request of the given process.
+     */
+    @NamedQuery(name = "processrequest.deleteByProcess", query = "DELETE FROM WpsProcessRequestEntity t WHERE t.process = :process"),
+
+    /**
+     * Deletes the requests of all processes of the given wps.
+     */
+    @NamedQuery(name = "processrequest.deleteByWps", query = "DELETE FROM WpsProcessRequestEntity t WHERE t.process.id IN (SELECT p.id FROM WpsProcessEntity p WHERE p.wps.id = :wpsId)"),
+
+    /**
+     * Deletes the requests of all processes of the given wps endpoint.
+     */
+    @NamedQuery(name = "processrequest.deleteByWpsEndpoint", query = "DELETE FROM WpsProcessRequestEntity t WHERE t.process.id IN (SELECT p.id FROM WpsProcessEntity p WHERE p.wps.endpoint = :endpoint)")
+})
+public class WpsProcessRequestEntity implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "process_id")
+    private WpsProcessEntity process;
+
+    @Lob
+    private byte[] compressedRequest;
+
+    public WpsProcessRequestEntity() {
+        this(null, null);
+    }
+
+    public WpsProcessRequestEntity(final WpsProcessEntity process, final String rawRequest) {
+        this.process = process;
+        setRawRequest(rawRequest);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public WpsProcessEntity getProcess() {
+        return process;
+    }
+
+    public void setProcess(WpsProcessEntity process) {
+        this.process = process;
+    }
+
+    /**
+     * Gets the decompressed request.
+     *
+     * @return Raw request; can be null
+     */
+    public String getRawRequest() {
+        return decompress(compressedRequest);
+    }
+
+    /**
+     * Compresses and sets the given request.
+     *
+     * @param rawRequest Raw request; can be null
+     */
+    public final void setRawRequest(String rawRequest) {
+        this.compressedRequest = compress(rawRequest);
+    }
+
+    /**
+     * Gets the size of the stored (compressed) request.
+     *
+     * @return Size in bytes
+     */
+    public Integer getCompressedSize() {
+        return compressedRequest == null ? 0 : compressedRequest.length;
+    }
+
+    /**
+     * Compresses the given string; null is kept.
+     *
+     * @param value String instance
+     * @return Compressed UTF-8 bytes or null
+     */
+    public static byte[] compress(final String value) {
+        if (value == null) {
+            return null;
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+
+        try {
+            deflater.setInput(value.getBytes(CHARSET));
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Decompresses the given bytes, as returned by compress; null is kept.
+     *
+     * @param compressed Compressed bytes
+     * @return Decompressed string or null
+     */
+    public static String decompress(final byte[] compressed) {
+        if (compressed == null) {
+            return null;
+        }
+
+        Inflater inflater = new Inflater();
+
+        try {
+            inflater.setInput(compressed);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("The stored request is truncated.");
+                }
+
+                out.write(buffer, 0, length);
+            }
+
+            return new String(out.toByteArray(), CHARSET);
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException("The stored request is corrupt.", ex);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 5;
+        hash = 41 * hash + (this.id != null ? this.id.hashCode() : 0);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final WpsProcessRequestEntity other = (WpsProcessRequestEntity) obj;
+        return this.id != null && this.id.equals(other.id);
+    }
+
+    @Override
+    public String toString() {
+        return "WpsProcessRequestEntity{" + "id=" + id + ", compressedSize=" + getCompressedSize() + '}';
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.exchange;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MeasurementLineCodec for {@link ExchangeFormat#CSV}. Fields are quoted as
+ * described in RFC 4180 if necessary.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+class CsvMeasurementCodec extends MeasurementLineCodec {
+
+    private static final String HEADER = "id,createTime,data";
+    private static final Integer COLUMNS = 3;
+
+    @Override
+    String getHeader() {
+        return HEADER;
+    }
+
+    @Override
+    String encode(final MeasuredDataEntity measuredData) {
+        StringBuilder line = new StringBuilder();
+
+        line.append(measuredData.getId() == null ? "" : measuredData.getId().toString())
+                .append(',')
+                .append(formatTime(measuredData.getCreateTime()))
+                .append(',')
+                .append(quote(getQosCodec().encode(measuredData.getData())));
+
+        return line.toString();
+    }
+
+    @Override
+    MeasuredDataEntity decode(final String line) {
+        List<String> fields = split(line);
+
+        if (fields.size() != COLUMNS) {
+            throw new IllegalArgumentException("Expected " + COLUMNS + " columns, but got " + fields.size() + ".");
+        }
+
+        MeasuredDataEntity measuredData = new MeasuredDataEntity(getQosCodec().decode(fields.get(2)));
+        measuredData.setCreateTime(parseTime(fields.get(1)));
+
+        return measuredData;
+    }
+
+    private String quote(final String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private List<String> split(final String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        Boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append(c);
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field.");
+        }
+
+        fields.add(field.toString());
+
+        return fields;
+    }
+}
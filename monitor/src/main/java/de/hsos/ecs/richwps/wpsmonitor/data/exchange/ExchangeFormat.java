@@ -0,0 +1,74 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.exchange;
+
+/**
+ * Line based formats for the export and import of measurements. Each
+ * measurement is written as one line, so the data can be streamed.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public enum ExchangeFormat {
+
+    /**
+     * Comma separated values with the columns id, createTime and data; the
+     * qos data is stored as quoted JSON array.
+     */
+    CSV("text/csv"),
+    /**
+     * Newline delimited JSON; one JSON object per measurement.
+     */
+    NDJSON("application/x-ndjson");
+
+    private final String mimeType;
+
+    private ExchangeFormat(final String mimeType) {
+        this.mimeType = mimeType;
+    }
+
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    /**
+     * Gets the format of the given name, case-insensitive.
+     *
+     * @param name Name of the format, e.g. csv
+     * @return ExchangeFormat instance
+     * @throws IllegalArgumentException if there is no such format
+     */
+    public static ExchangeFormat fromString(final String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("The format name is null.");
+        }
+
+        return valueOf(name.trim().toUpperCase());
+    }
+
+    /**
+     * Creates a new codec of this format.
+     *
+     * @return MeasurementLineCodec instance
+     */
+    MeasurementLineCodec createCodec() {
+        switch (this) {
+            case CSV:
+                return new CsvMeasurementCodec();
+            default:
+                return new NdjsonMeasurementCodec();
+        }
+    }
+}
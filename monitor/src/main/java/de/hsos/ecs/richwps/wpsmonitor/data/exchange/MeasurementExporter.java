@@ -0,0 +1,130 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.exchange;
+
+import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
+import de.hsos.ecs.richwps.wpsmonitor.creation.Factory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Cursor;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Streams the measurements of a process into a writer, newest first. The
+ * measurements are read page by page through the cursor-based
+ * getByProcess method; every page is read by its own QosDataAccess instance,
+ * so the memory usage doesn't grow with the amount of exported measurements.
+ * The writer is flushed after every page.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class MeasurementExporter {
+
+    /**
+     * Default number of measurements per page.
+     */
+    public static final Integer DEFAULT_PAGE_SIZE = 500;
+
+    private static final String LINE_SEPARATOR = "\n";
+
+    private final Factory<QosDataAccess> qosDaoFactory;
+    private final Integer pageSize;
+
+    /**
+     * Creates a new MeasurementExporter instance with the default page size.
+     *
+     * @param qosDaoFactory Factory for QosDataAccess instances
+     */
+    public MeasurementExporter(final Factory<QosDataAccess> qosDaoFactory) {
+        this(qosDaoFactory, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Creates a new MeasurementExporter instance.
+     *
+     * @param qosDaoFactory Factory for QosDataAccess instances
+     * @param pageSize Number of measurements which are read at once
+     */
+    public MeasurementExporter(final Factory<QosDataAccess> qosDaoFactory, final Integer pageSize) {
+        this.qosDaoFactory = Validate.notNull(qosDaoFactory, "qosDaoFactory");
+        this.pageSize = Validate.notNull(pageSize, "pageSize");
+
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be greater than 0.");
+        }
+    }
+
+    /**
+     * Writes the measurements of the given process.
+     *
+     * @param wpsId Wps entity id
+     * @param processIdentifier Process entity identifier
+     * @param since Only measurements which are not older are written; null
+     * for all
+     * @param format ExchangeFormat instance
+     * @param writer Writer instance; it is not closed
+     * @return Amount of written measurements
+     * @throws IOException if the writer fails
+     */
+    public Integer export(final Long wpsId, final String processIdentifier, final Date since,
+            final ExchangeFormat format, final Writer writer) throws IOException {
+        Validate.notNull(wpsId, "wpsId");
+        Validate.notNull(processIdentifier, "processIdentifier");
+        Validate.notNull(format, "format");
+        Validate.notNull(writer, "writer");
+
+        MeasurementLineCodec codec = format.createCodec();
+        Integer exported = 0;
+        Cursor cursor = null;
+        Boolean finished = false;
+
+        if (codec.getHeader() != null) {
+            writer.write(codec.getHeader());
+            writer.write(LINE_SEPARATOR);
+        }
+
+        while (!finished) {
+            try (QosDataAccess qosDao = qosDaoFactory.create()) {
+                List<MeasuredDataEntity> page = qosDao.getByProcess(wpsId, processIdentifier, cursor, pageSize);
+                finished = page == null || page.size() < pageSize;
+
+                if (page != null) {
+                    for (MeasuredDataEntity measuredData : page) {
+                        if (since != null && measuredData.getCreateTime().before(since)) {
+                            finished = true;
+                            break;
+                        }
+
+                        writer.write(codec.encode(measuredData));
+                        writer.write(LINE_SEPARATOR);
+                        exported++;
+                        cursor = Cursor.after(measuredData);
+                    }
+                }
+            } catch (CreateException ex) {
+                throw new AssertionError("Can't create qosDao. Execution aborted.", ex);
+            }
+
+            writer.flush();
+        }
+
+        return exported;
+    }
+}
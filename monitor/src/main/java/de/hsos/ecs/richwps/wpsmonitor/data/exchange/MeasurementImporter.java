@@ -0,0 +1,168 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.exchange;
+
+import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
+import de.hsos.ecs.richwps.wpsmonitor.creation.Factory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Reads measurements from a reader and stores them for a process. The
+ * measurements are stored in batches, each in its own transaction; together
+ * with the JDBC batch writing of the persistence unit, a batch results in few
+ * round trips to the database. The ids of the lines are not taken over.
+ * Invalid lines are logged and skipped.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class MeasurementImporter {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    /**
+     * Default number of measurements per transaction.
+     */
+    public static final Integer DEFAULT_BATCH_SIZE = 500;
+
+    private final Factory<QosDataAccess> qosDaoFactory;
+    private final Factory<WpsProcessDataAccess> processDaoFactory;
+    private final Integer batchSize;
+
+    /**
+     * Creates a new MeasurementImporter instance with the default batch size.
+     *
+     * @param qosDaoFactory Factory for QosDataAccess instances
+     * @param processDaoFactory Factory for WpsProcessDataAccess instances
+     */
+    public MeasurementImporter(final Factory<QosDataAccess> qosDaoFactory,
+            final Factory<WpsProcessDataAccess> processDaoFactory) {
+        this(qosDaoFactory, processDaoFactory, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a new MeasurementImporter instance.
+     *
+     * @param qosDaoFactory Factory for QosDataAccess instances
+     * @param processDaoFactory Factory for WpsProcessDataAccess instances
+     * @param batchSize Number of measurements per transaction
+     */
+    public MeasurementImporter(final Factory<QosDataAccess> qosDaoFactory,
+            final Factory<WpsProcessDataAccess> processDaoFactory, final Integer batchSize) {
+        this.qosDaoFactory = Validate.notNull(qosDaoFactory, "qosDaoFactory");
+        this.processDaoFactory = Validate.notNull(processDaoFactory, "processDaoFactory");
+        this.batchSize = Validate.notNull(batchSize, "batchSize");
+
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be greater than 0.");
+        }
+    }
+
+    /**
+     * Reads the measurements and stores them for the given process.
+     *
+     * @param wpsId Wps entity id
+     * @param processIdentifier Process entity identifier
+     * @param format ExchangeFormat instance
+     * @param reader Reader instance; it is not closed
+     * @return Amount of imported measurements
+     * @throws IOException if the reader fails
+     * @throws IllegalArgumentException if the process doesn't exist
+     */
+    public Integer importFrom(final Long wpsId, final String processIdentifier, final ExchangeFormat format,
+            final Reader reader) throws IOException {
+        Validate.notNull(wpsId, "wpsId");
+        Validate.notNull(processIdentifier, "processIdentifier");
+        Validate.notNull(format, "format");
+        Validate.notNull(reader, "reader");
+
+        MeasurementLineCodec codec = format.createCodec();
+        BufferedReader lines = new BufferedReader(reader);
+        List<MeasuredDataEntity> batch = new ArrayList<>();
+        Integer imported = 0;
+        Integer lineNumber = 0;
+        String line;
+
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+
+            if (line.trim().isEmpty() || (lineNumber == 1 && codec.isHeader(line))) {
+                continue;
+            }
+
+            try {
+                batch.add(codec.decode(line));
+            } catch (IllegalArgumentException ex) {
+                LOG.warn("Line {} skipped: {}", lineNumber, ex.getMessage());
+            }
+
+            if (batch.size() >= batchSize) {
+                imported += store(wpsId, processIdentifier, batch);
+                batch.clear();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            imported += store(wpsId, processIdentifier, batch);
+        }
+
+        return imported;
+    }
+
+    private Integer store(final Long wpsId, final String processIdentifier, final List<MeasuredDataEntity> batch) {
+        try (WpsProcessDataAccess processDao = processDaoFactory.create();
+                QosDataAccess qosDao = qosDaoFactory.create()) {
+            WpsProcessEntity process = processDao.find(wpsId, processIdentifier);
+
+            if (process == null) {
+                throw new IllegalArgumentException("Process " + processIdentifier + " of wps " + wpsId
+                        + " doesn't exist.");
+            }
+
+            Integer stored = 0;
+            qosDao.setAutoCommit(false);
+
+            for (MeasuredDataEntity measuredData : batch) {
+                measuredData.setProcess(process);
+
+                if (qosDao.persist(measuredData)) {
+                    stored++;
+                }
+            }
+
+            if (!qosDao.commit()) {
+                qosDao.rollback();
+                LOG.warn("A batch of {} measurements could not be stored.", batch.size());
+
+                return 0;
+            }
+
+            return stored;
+        } catch (CreateException ex) {
+            throw new AssertionError("Can't create qosDao. Execution aborted.", ex);
+        }
+    }
+}
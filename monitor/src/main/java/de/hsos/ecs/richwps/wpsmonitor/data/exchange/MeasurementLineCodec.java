@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.exchange;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.compact.QosDataCodec;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Converts a measurement into a line of an {@link ExchangeFormat} and back.
+ * The process of a measurement is not part of the line; the create time is
+ * written as ISO 8601 timestamp in UTC. Instances are not thread-safe.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+abstract class MeasurementLineCodec {
+
+    private final DateFormat dateFormat;
+    private final QosDataCodec qosCodec;
+
+    MeasurementLineCodec() {
+        this.dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        this.dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        this.dateFormat.setLenient(false);
+        this.qosCodec = new QosDataCodec();
+    }
+
+    /**
+     * Gets the first line of an export.
+     *
+     * @return Header line, or null if the format has no header
+     */
+    abstract String getHeader();
+
+    /**
+     * Encodes the given measurement, without line separator.
+     *
+     * @param measuredData MeasuredDataEntity instance
+     * @return Line string
+     */
+    abstract String encode(final MeasuredDataEntity measuredData);
+
+    /**
+     * Decodes a line. The id of the line is not taken over.
+     *
+     * @param line Line string
+     * @return MeasuredDataEntity instance without id and process
+     * @throws IllegalArgumentException if the line is not valid
+     */
+    abstract MeasuredDataEntity decode(final String line);
+
+    /**
+     * Checks if the given line is the header line.
+     *
+     * @param line Line of an import
+     * @return true if the line is the header
+     */
+    Boolean isHeader(final String line) {
+        return getHeader() != null && getHeader().equals(line);
+    }
+
+    QosDataCodec getQosCodec() {
+        return qosCodec;
+    }
+
+    String formatTime(final Date time) {
+        return dateFormat.format(time);
+    }
+
+    Date parseTime(final String time) {
+        try {
+            return dateFormat.parse(time);
+        } catch (ParseException ex) {
+            throw new IllegalArgumentException("Invalid timestamp: " + time, ex);
+        }
+    }
+}
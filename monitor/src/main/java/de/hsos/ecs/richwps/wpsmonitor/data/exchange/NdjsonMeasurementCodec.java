@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.exchange;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+
+/**
+ * MeasurementLineCodec for {@link ExchangeFormat#NDJSON}. Each line is an
+ * object with the members id, createTime and data.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+class NdjsonMeasurementCodec extends MeasurementLineCodec {
+
+    private final JsonParser parser;
+
+    NdjsonMeasurementCodec() {
+        this.parser = new JsonParser();
+    }
+
+    @Override
+    String getHeader() {
+        return null;
+    }
+
+    @Override
+    String encode(final MeasuredDataEntity measuredData) {
+        JsonObject line = new JsonObject();
+        line.addProperty("id", measuredData.getId());
+        line.addProperty("createTime", formatTime(measuredData.getCreateTime()));
+        line.add("data", getQosCodec().toJsonTree(measuredData.getData()));
+
+        return line.toString();
+    }
+
+    @Override
+    MeasuredDataEntity decode(final String line) {
+        try {
+            JsonObject object = parser.parse(line).getAsJsonObject();
+            JsonElement createTime = object.get("createTime");
+            JsonElement data = object.get("data");
+
+            if (createTime == null || data == null) {
+                throw new IllegalArgumentException("createTime and data are required.");
+            }
+
+            MeasuredDataEntity measuredData = new MeasuredDataEntity(getQosCodec().decode(data));
+            measuredData.setCreateTime(parseTime(createTime.getAsString()));
+
+            return measuredData;
+        } catch (JsonParseException | IllegalStateException | ClassCastException ex) {
+            throw new IllegalArgumentException("Invalid JSON line.", ex);
+        }
+    }
+}
@@ -15,10 +15,12 @@
  */
 package de.hsos.ecs.richwps.wpsmonitor.measurement;
 
+import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.AsyncWpsClient;
 import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsClient;
 import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsProcessInfo;
 import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsRequest;
 import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsResponse;
+import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsResponseCallback;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.AbstractQosEntity;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
@@ -42,6 +44,11 @@ import org.quartz.JobExecutionException;
  * Otherwise a error flag is set, which is evaluated by the
  * {@link de.hsos.ecs.richwps.wpsmonitor.control.MeasureJobListener}.
  *
+ * If the WpsClient is an {@link AsyncWpsClient}, the job only submits the
+ * request and returns; probes and persisting are done in the completion
+ * callback of the client. Register a {@link MeasureJobCallback} through
+ * whenCompleted to get informed about the end of the measurement.
+ *
  * The dependencies should be thread save or new instantiated by the
  * {@link MeasureJobFactory}.
  *
@@ -55,6 +62,7 @@ public class MeasureJob implements Job {
 
     protected final WpsProcessEntity processEntity;
     protected final QosDataAccess dao;
+    protected final MeasuredDataWriter writer;
     protected WpsClient wpsClient;
 
     protected List<QosProbe> probes;
@@ -62,6 +70,9 @@ public class MeasureJob implements Job {
 
     protected Boolean fatalError;
 
+    private Boolean completed;
+    private MeasureJobCallback completionCallback;
+
     /**
      * Creates a new MeasureJob instance.
      *
@@ -71,41 +82,135 @@ public class MeasureJob implements Job {
      * @param wpsClient WpsClient instance
      */
     public MeasureJob(final List<QosProbe> probes, final WpsProcessEntity entity, final QosDataAccess dao, final WpsClient wpsClient) {
+        this(probes, entity, dao, wpsClient, null);
+    }
+
+    /**
+     * Creates a new MeasureJob instance which hands its measured data over to
+     * the given {@link MeasuredDataWriter}. If the writer doesn't accept the
+     * data, the data is persisted through the given dao.
+     *
+     * @param probes List of QosProbe instances
+     * @param entity WpsProcessEntity which the specific job take care of
+     * @param dao QosDataAcces instance
+     * @param wpsClient WpsClient instance
+     * @param writer MeasuredDataWriter instance; can be null
+     */
+    public MeasureJob(final List<QosProbe> probes, final WpsProcessEntity entity, final QosDataAccess dao,
+            final WpsClient wpsClient, final MeasuredDataWriter writer) {
+        this.writer = writer;
         this.probes = Validate.notNull(probes, "probeService");
         this.dao = Validate.notNull(dao, "dao");
         this.processEntity = Validate.notNull(entity, "entity");
         this.wpsClient = Validate.notNull(wpsClient, "wpsClient");
 
         this.error = false;
+        this.completed = false;
     }
 
     @Override
     public void execute(JobExecutionContext context) throws JobExecutionException {
+        if (wpsClient instanceof AsyncWpsClient) {
+            callWpsAsync(context, (AsyncWpsClient) wpsClient);
+
+            return;
+        }
+
         try {
             Pair<WpsRequest, WpsResponse> pair = callWps();
-            WpsRequest request = pair.getLeft();
-            WpsResponse response = pair.getRight();
 
-            if (request.getRequestTime() == null
-                    || !response.isConnectionException()
-                    && response.getResponseTime() == null) {
-                throw new JobExecutionException("Request- or response time was not set correctly.", false);
-            }
+            evaluate(context, pair.getLeft(), pair.getRight());
+        } finally {
+            dao.close();
+            complete();
+        }
+    }
 
-            // if no execption occurs (except Connection exception), then call probes and store Data 
-            error = response.isOtherException() || response.isWpsException();
+    /**
+     * Submits the request and returns; the response is evaluated in the
+     * callback of the client.
+     */
+    private void callWpsAsync(final JobExecutionContext context, final AsyncWpsClient asyncClient) {
+        WpsRequest request = buildWpsRequest();
 
-            if (!error) {
-                MeasuredDataEntity data = callProbes(request, response);
-                persistMeasuredData(data, request.getRequestTime());
+        asyncClient.executeAsync(request, new WpsResponseCallback() {
+            private Boolean retried = false;
+
+            @Override
+            public void completed(final WpsRequest wpsRequest, final WpsResponse wpsResponse) {
+                // if wps exception, then retry
+                if (wpsResponse.isWpsException() && !retried) {
+                    retried = true;
+                    asyncClient.executeAsync(wpsRequest, this);
+
+                    return;
+                }
+
+                try {
+                    evaluate(context, wpsRequest, wpsResponse);
+                } catch (JobExecutionException ex) {
+                    LOG.error("Asynchronous MeasureJob of Process {} failed.", processEntity, ex);
+                } finally {
+                    dao.close();
+                    complete();
+                }
             }
+        });
+    }
 
-            logInfo(context, response);
-        } finally {
-            dao.close();
+    private void evaluate(final JobExecutionContext context, final WpsRequest request, final WpsResponse response) throws JobExecutionException {
+        if (request.getRequestTime() == null
+                || !response.isConnectionException()
+                && response.getResponseTime() == null) {
+            throw new JobExecutionException("Request- or response time was not set correctly.", false);
+        }
+
+        // if no execption occurs (except Connection exception), then call probes and store Data 
+        error = response.isOtherException() || response.isWpsException();
+
+        if (!error) {
+            MeasuredDataEntity data = callProbes(request, response);
+            persistMeasuredData(data, request.getRequestTime());
+        }
+
+        logInfo(context, response);
+    }
+
+    private void complete() {
+        MeasureJobCallback callback;
+
+        synchronized (this) {
+            completed = true;
+            callback = completionCallback;
+            completionCallback = null;
+        }
+
+        if (callback != null) {
+            callback.completed(this);
         }
     }
 
+    /**
+     * Registers a callback which is called after the measurement is completed.
+     * If the measurement is already completed, the callback is called
+     * immediately in the current thread.
+     *
+     * @param callback {@link MeasureJobCallback} instance
+     */
+    public void whenCompleted(final MeasureJobCallback callback) {
+        Validate.notNull(callback, "callback");
+
+        synchronized (this) {
+            if (!completed) {
+                completionCallback = callback;
+
+                return;
+            }
+        }
+
+        callback.completed(this);
+    }
+
     private void logInfo(final JobExecutionContext context, final WpsResponse response) {
         LOG.info("MeasureJob with JobKey {} and TriggerKey {} of Process {} executed! isWpsException: {} isConnectionException: {} isOtherException: {}",
                 context.getJobDetail().getKey(),
@@ -121,7 +226,9 @@ public class MeasureJob implements Job {
         data.setProcess(processEntity);
         data.setCreateTime(measureDate);
 
-        dao.persist(data);
+        if (writer == null || !writer.submit(data)) {
+            dao.persist(data);
+        }
     }
 
     /**
@@ -149,9 +256,7 @@ public class MeasureJob implements Job {
      * @return a pair consisting of WpsRequest and WpsResponse
      */
     private Pair<WpsRequest, WpsResponse> callWps() {
-        WpsProcessInfo info = new WpsProcessInfo(processEntity.getWps().getEndpoint(), processEntity.getIdentifier());
-
-        WpsRequest request = new WpsRequest(processEntity.getRawRequest(), info);
+        WpsRequest request = buildWpsRequest();
         WpsResponse response = wpsClient.execute(request);
 
         // if wps exception, then retry
@@ -162,6 +267,12 @@ public class MeasureJob implements Job {
         return new Pair<>(request, response);
     }
 
+    private WpsRequest buildWpsRequest() {
+        WpsProcessInfo info = new WpsProcessInfo(processEntity.getWps().getEndpoint(), processEntity.getIdentifier());
+
+        return new WpsRequest(processEntity.getRawRequest(), info);
+    }
+
     /**
      * Indicates, that this Job can't measure the speicified Wps Process because
      * of a WpsException or an other Exception.
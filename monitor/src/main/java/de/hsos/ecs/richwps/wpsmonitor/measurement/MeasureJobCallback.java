@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.measurement;
+
+/**
+ * Callback which is called if a {@link MeasureJob} has completed its
+ * measurement. If the job uses an asynchronous WpsClient, the measurement is
+ * completed after the Quartz execute-method has returned.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public interface MeasureJobCallback {
+
+    /**
+     * Is called after the measurement of the given job is completed.
+     *
+     * @param job The completed MeasureJob instance
+     */
+    public void completed(final MeasureJob job);
+}
@@ -19,11 +19,16 @@ import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsClientFactory;
 import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDaoFactory;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDaoFactory;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDataAccess;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import de.hsos.ecs.richwps.wpsmonitor.util.Pair;
 import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.quartz.Job;
@@ -42,15 +47,23 @@ import org.quartz.spi.TriggerFiredBundle;
 public class MeasureJobFactory implements JobFactory {
 
     private final static Logger LOG = LogManager.getLogger();
+
+    /**
+     * Default max. amount of cached WpsProcessEntity instances.
+     */
+    public static final Integer DEFAULT_CACHE_SIZE = 1000;
+
     /**
      * Probeservice instance.
      */
     private final ProbeService probeService;
 
     /**
-     * ProcessDao .. Select Process Informations after a restart
+     * ProcessDao factory .. Select Process Informations after a restart; newJob
+     * is called by concurrent quartz threads, so every lookup uses its own
+     * data access
      */
-    private final WpsProcessDataAccess processDao;
+    private final WpsProcessDaoFactory processDaoFactory;
 
     /**
      * Wps client factory - each job needs its own wps client.
@@ -62,36 +75,97 @@ public class MeasureJobFactory implements JobFactory {
      */
     private final QosDaoFactory qosDaoFactory;
 
+    /**
+     * Write-behind queue for the measured data; can be null.
+     */
+    private final MeasuredDataWriter writer;
+
     /**
      * This Map is a cache to prevent multiple request for the WpsProcessEntity
      * of a MeasureJob. Because of every Job is created if fired, so for every
      * job a database query is also fired - the cache should prevent this
-     * unecessary behavior. On the other hands, renames or endpoint changes are
-     * not so good
+     * unecessary behavior. Renames, endpoint changes and deletes must be
+     * reported through the invalidate methods.
      *
-     * the Long template parameter is the wpsId
+     * the key is the pair of wpsId and process identifier
      */
-    private final Map<Long, WpsProcessEntity> wpsProcessEntities;
+    private final ConcurrentMap<Pair<Long, String>, WpsProcessEntity> wpsProcessEntities;
+
+    /**
+     * Max. amount of cached WpsProcessEntity instances.
+     */
+    private final Integer cacheSize;
+
+    /**
+     * Incremented by every invalidation; entities which are loaded while an
+     * invalidation happens are not cached, because they may be outdated.
+     */
+    private final AtomicLong invalidations;
 
     /**
      * Constructor.
      *
      * @param probeService Probeservice instance
-     * @param processDao WpsProcessDataAccess instance
+     * @param processDaoFactory WpsProcessDaoFactory instance
      * @param qosDaoFactory QosDaoFactory instance to create a new data access
      * for a new job
      * @param wpsClientFactory Wps client factory - each job should have its own
      * WPS client instance
      */
-    public MeasureJobFactory(final ProbeService probeService, final WpsProcessDataAccess processDao,
+    public MeasureJobFactory(final ProbeService probeService, final WpsProcessDaoFactory processDaoFactory,
             final QosDaoFactory qosDaoFactory, final WpsClientFactory wpsClientFactory) {
 
+        this(probeService, processDaoFactory, qosDaoFactory, wpsClientFactory, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param probeService Probeservice instance
+     * @param processDaoFactory WpsProcessDaoFactory instance
+     * @param qosDaoFactory QosDaoFactory instance to create a new data access
+     * for a new job
+     * @param wpsClientFactory Wps client factory - each job should have its own
+     * WPS client instance
+     * @param writer MeasuredDataWriter instance which is shared by all jobs;
+     * can be null
+     */
+    public MeasureJobFactory(final ProbeService probeService, final WpsProcessDaoFactory processDaoFactory,
+            final QosDaoFactory qosDaoFactory, final WpsClientFactory wpsClientFactory, final MeasuredDataWriter writer) {
+
+        this(probeService, processDaoFactory, qosDaoFactory, wpsClientFactory, writer, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param probeService Probeservice instance
+     * @param processDaoFactory WpsProcessDaoFactory instance
+     * @param qosDaoFactory QosDaoFactory instance to create a new data access
+     * for a new job
+     * @param wpsClientFactory Wps client factory - each job should have its own
+     * WPS client instance
+     * @param writer MeasuredDataWriter instance which is shared by all jobs;
+     * can be null
+     * @param cacheSize Max. amount of cached WpsProcessEntity instances
+     */
+    public MeasureJobFactory(final ProbeService probeService, final WpsProcessDaoFactory processDaoFactory,
+            final QosDaoFactory qosDaoFactory, final WpsClientFactory wpsClientFactory, final MeasuredDataWriter writer,
+            final Integer cacheSize) {
+
+        this.writer = writer;
         this.probeService = Validate.notNull(probeService, "probeService");
-        this.processDao = Validate.notNull(processDao, "processDao");
+        this.processDaoFactory = Validate.notNull(processDaoFactory, "processDaoFactory");
         this.qosDaoFactory = Validate.notNull(qosDaoFactory, "qosDaoFactory");
         this.wpsClientFactory = Validate.notNull(wpsClientFactory, "wpsClientFactory");
+        this.cacheSize = Validate.notNull(cacheSize, "cacheSize");
+
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("cacheSize need to be greater than zero.");
+        }
 
-        this.wpsProcessEntities = new HashMap<>();
+        this.wpsProcessEntities = new ConcurrentHashMap<>();
+        this.invalidations = new AtomicLong();
     }
 
     @Override
@@ -119,7 +193,76 @@ public class MeasureJobFactory implements JobFactory {
         }
 
         LOG.debug("WpsProcessEntity instance for MesaureJob saved({}).", entity);
-        wpsProcessEntities.put(entity.getWps().getId(), entity);
+        put(entity);
+    }
+
+    /**
+     * Loads all processes into the cache, until the cache is full; e.g. at
+     * startup, before the first jobs are fired.
+     */
+    public void warmUp() {
+        Long generation = invalidations.get();
+
+        try (WpsProcessDataAccess processDao = processDaoFactory.create()) {
+            List<WpsProcessEntity> processes = processDao.get(null);
+
+            for (WpsProcessEntity process : processes) {
+                if (wpsProcessEntities.size() >= cacheSize || generation != invalidations.get()) {
+                    break;
+                }
+
+                put(process);
+            }
+        } catch (CreateException ex) {
+            throw new AssertionError("Can't create processDao. Execution aborted.", ex);
+        }
+
+        LOG.debug("MeasureJobFactory cache warmed up with {} processes.", wpsProcessEntities.size());
+    }
+
+    /**
+     * Removes the cached entity of the given process.
+     *
+     * @param wpsId Wps entity id
+     * @param processIdentifier Process entity identifier
+     */
+    public void invalidate(final Long wpsId, final String processIdentifier) {
+        invalidations.incrementAndGet();
+        wpsProcessEntities.remove(new Pair<>(wpsId, processIdentifier));
+    }
+
+    /**
+     * Removes the cached entities of all processes of the given wps.
+     *
+     * @param wpsId Wps entity id
+     */
+    public void invalidateWps(final Long wpsId) {
+        invalidations.incrementAndGet();
+
+        Iterator<Pair<Long, String>> iterator = wpsProcessEntities.keySet().iterator();
+
+        while (iterator.hasNext()) {
+            if (iterator.next().getLeft().equals(wpsId)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all cached entities.
+     */
+    public void clear() {
+        invalidations.incrementAndGet();
+        wpsProcessEntities.clear();
+    }
+
+    /**
+     * Gets the amount of cached entities.
+     *
+     * @return Amount of cached entities
+     */
+    public Integer getCacheSize() {
+        return wpsProcessEntities.size();
     }
 
     private Job createNewMeasureJob(final WpsProcessEntity wpsProcessEntity) {
@@ -131,7 +274,7 @@ public class MeasureJobFactory implements JobFactory {
             QosDataAccess dao = qosDaoFactory.create();
 
             LOG.debug("MeasureJob created for {}", wpsProcessEntity);
-            measureJob = new MeasureJob(probeService.buildProbes(), wpsProcessEntity, dao, wpsClientFactory.create());
+            measureJob = new MeasureJob(probeService.buildProbes(), wpsProcessEntity, dao, wpsClientFactory.create(), writer);
         } catch (CreateException ex) {
             throw new AssertionError("Fatal exception occourd. Can't create one of the Dependencies. Without these dependencies i can't do my work.", ex);
         }
@@ -139,14 +282,43 @@ public class MeasureJobFactory implements JobFactory {
         return measureJob;
     }
 
+    /*
+        Puts the entity into the cache; if the cache is full, an arbitrary
+        entry is evicted
+    */
+    private void put(final WpsProcessEntity entity) {
+        Pair<Long, String> key = new Pair<>(entity.getWps().getId(), entity.getIdentifier());
+
+        if (!wpsProcessEntities.containsKey(key)) {
+            Iterator<Pair<Long, String>> iterator = wpsProcessEntities.keySet().iterator();
+
+            while (wpsProcessEntities.size() >= cacheSize && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+
+        wpsProcessEntities.put(key, entity);
+    }
+
     /*
         Tries to get the WpsProcessEntity instance
     */
     private WpsProcessEntity getProcessEntity(final Long wpsId, final String processIdentifier) {
-        WpsProcessEntity result = wpsProcessEntities.get(wpsId);
+        WpsProcessEntity result = wpsProcessEntities.get(new Pair<>(wpsId, processIdentifier));
 
         if (result == null) {
-            result = processDao.find(wpsId, processIdentifier);
+            Long generation = invalidations.get();
+
+            try (WpsProcessDataAccess processDao = processDaoFactory.create()) {
+                result = processDao.find(wpsId, processIdentifier);
+            } catch (CreateException ex) {
+                throw new AssertionError("Can't create processDao. Execution aborted.", ex);
+            }
+
+            if (result != null && generation == invalidations.get()) {
+                put(result);
+            }
         }
 
         return result;
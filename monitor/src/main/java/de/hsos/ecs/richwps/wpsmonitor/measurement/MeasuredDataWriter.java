@@ -0,0 +1,362 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.measurement;
+
+import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDaoFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Write-behind queue for {@link MeasuredDataEntity} instances. MeasureJobs hand
+ * their results over to this writer instead of committing each measurement on
+ * its own. A dedicated writer thread persists the queued entities in one
+ * transaction per batch; a batch is flushed if batchSize entities are
+ * collected or flushInterval ms have passed since the first entity of the
+ * batch was taken. If the transaction of a batch fails, the entities of the
+ * batch are persisted one by one; so only the failing entities are lost.
+ *
+ * If the writer is not running or the queue is full, submit returns false and
+ * the caller should persist the entity itself. close() stops the writer and
+ * drains the queue.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class MeasuredDataWriter implements AutoCloseable {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    /**
+     * Max. time in ms to wait for the writer thread at close()
+     */
+    private static final Long JOIN_TIMEOUT = 30000L;
+
+    private final QosDaoFactory qosDaoFactory;
+    private final BlockingQueue<MeasuredDataEntity> queue;
+    private final Integer batchSize;
+    private final Long flushInterval;
+
+    private final AtomicLong flushCount;
+    private final AtomicLong flushedEntities;
+    private final AtomicLong lostEntities;
+    private final AtomicLong lastFlushLatency;
+    private final AtomicLong totalFlushLatency;
+
+    /**
+     * Guards the running flag; so no entity can be queued after the writer
+     * thread has drained the queue
+     */
+    private final ReadWriteLock stateLock;
+    private volatile Boolean running;
+    private Thread writerThread;
+
+    /**
+     * Creates a new MeasuredDataWriter instance.
+     *
+     * @param qosDaoFactory QosDaoFactory instance to create the DAO of the
+     * writer thread
+     * @param capacity Max. amount of queued entities
+     * @param batchSize Max. amount of entities which are persisted in one
+     * transaction
+     * @param flushInterval Max. time in ms an entity waits for its batch
+     */
+    public MeasuredDataWriter(final QosDaoFactory qosDaoFactory, final Integer capacity,
+            final Integer batchSize, final Integer flushInterval) {
+
+        this.qosDaoFactory = Validate.notNull(qosDaoFactory, "qosDaoFactory");
+        this.queue = new ArrayBlockingQueue<>(Validate.notNull(capacity, "capacity"));
+        this.batchSize = Validate.notNull(batchSize, "batchSize");
+        this.flushInterval = Validate.notNull(flushInterval, "flushInterval").longValue();
+
+        this.flushCount = new AtomicLong();
+        this.flushedEntities = new AtomicLong();
+        this.lostEntities = new AtomicLong();
+        this.lastFlushLatency = new AtomicLong();
+        this.totalFlushLatency = new AtomicLong();
+
+        this.stateLock = new ReentrantReadWriteLock();
+        this.running = false;
+    }
+
+    /**
+     * Starts the writer thread, if not already running.
+     */
+    public synchronized void start() {
+        if (!running) {
+            stateLock.writeLock().lock();
+            try {
+                running = true;
+            } finally {
+                stateLock.writeLock().unlock();
+            }
+
+            writerThread = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    writeLoop();
+                }
+            }, "qos-measureddata-writer");
+
+            writerThread.start();
+        }
+    }
+
+    /**
+     * Hands the given entity over to the writer.
+     *
+     * @param data MeasuredDataEntity instance
+     * @return true if the entity was queued; false if the writer is not
+     * running or the queue is full
+     */
+    public Boolean submit(final MeasuredDataEntity data) {
+        Validate.notNull(data, "data");
+
+        stateLock.readLock().lock();
+        try {
+            return running && queue.offer(data);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    private void writeLoop() {
+        List<MeasuredDataEntity> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException ex) {
+                // close() was called; the rest is drained below
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            flush(batch);
+        }
+
+        // drain the rest
+        while (!queue.isEmpty()) {
+            queue.drainTo(batch, batchSize);
+            flush(batch);
+        }
+    }
+
+    private void collectBatch(final List<MeasuredDataEntity> batch) throws InterruptedException {
+        MeasuredDataEntity first = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+
+        if (first == null) {
+            return;
+        }
+
+        batch.add(first);
+        Long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushInterval);
+
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+
+            Long remaining = deadline - System.nanoTime();
+
+            if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                break;
+            }
+
+            MeasuredDataEntity next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+
+            if (next == null) {
+                break;
+            }
+
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Persists the batch in one transaction and clears it.
+     */
+    private void flush(final List<MeasuredDataEntity> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Long start = System.nanoTime();
+
+        if (!persistBatch(batch)) {
+            persistEach(batch);
+        }
+
+        Long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        lastFlushLatency.set(latency);
+        totalFlushLatency.addAndGet(latency);
+        flushCount.incrementAndGet();
+
+        LOG.debug("MeasuredDataWriter flushed {} measurements in {} ms; queue depth: {}", batch.size(), latency, queue.size());
+
+        batch.clear();
+    }
+
+    /**
+     * Persists the batch in one transaction.
+     *
+     * @return true if the batch is committed, otherwise false
+     */
+    private Boolean persistBatch(final List<MeasuredDataEntity> batch) {
+        try (QosDataAccess dao = qosDaoFactory.create()) {
+            dao.setAutoCommit(false);
+
+            for (MeasuredDataEntity data : batch) {
+                dao.persist(data);
+            }
+
+            if (dao.commit()) {
+                flushedEntities.addAndGet(batch.size());
+
+                return true;
+            }
+
+            dao.rollback();
+            LOG.warn("Can't commit a batch of {} measurements. The measurements are persisted one by one.", batch.size());
+        } catch (CreateException ex) {
+            LOG.error("Can't create QosDataAccess for the MeasuredDataWriter.", ex);
+        } catch (RuntimeException ex) {
+            LOG.warn("Exception while persisting a batch of {} measurements. The measurements are persisted one by one.", batch.size(), ex);
+        }
+
+        return false;
+    }
+
+    /**
+     * Persists each entity of the batch in its own transaction, like before
+     * the write-behind queue; so one bad entity doesn't discard the others.
+     */
+    private void persistEach(final List<MeasuredDataEntity> batch) {
+        for (MeasuredDataEntity data : batch) {
+            // a new DAO for each entity; the failed transaction may leave the persistence context unusable
+            try (QosDataAccess dao = qosDaoFactory.create()) {
+                if (dao.persist(data)) {
+                    flushedEntities.incrementAndGet();
+                } else {
+                    lostEntities.incrementAndGet();
+                    LOG.error("Can't persist the measurement {}. The measurement is lost.", data);
+                }
+            } catch (CreateException ex) {
+                lostEntities.incrementAndGet();
+                LOG.error("Can't create QosDataAccess for the MeasuredDataWriter. The measurement {} is lost.", data, ex);
+            } catch (RuntimeException ex) {
+                lostEntities.incrementAndGet();
+                LOG.error("Exception while persisting the measurement {}. The measurement is lost.", data, ex);
+            }
+        }
+    }
+
+    /**
+     * Gets the amount of queued entities.
+     *
+     * @return Integer
+     */
+    public Integer getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Gets the amount of executed flushes.
+     *
+     * @return Long
+     */
+    public Long getFlushCount() {
+        return flushCount.get();
+    }
+
+    /**
+     * Gets the amount of successfully persisted entities.
+     *
+     * @return Long
+     */
+    public Long getFlushedEntities() {
+        return flushedEntities.get();
+    }
+
+    /**
+     * Gets the amount of entities which couldn't be persisted.
+     *
+     * @return Long
+     */
+    public Long getLostEntities() {
+        return lostEntities.get();
+    }
+
+    /**
+     * Gets the latency of the last flush in ms.
+     *
+     * @return Long
+     */
+    public Long getLastFlushLatency() {
+        return lastFlushLatency.get();
+    }
+
+    /**
+     * Gets the average latency of all flushes in ms.
+     *
+     * @return Double
+     */
+    public Double getAverageFlushLatency() {
+        Long count = flushCount.get();
+
+        return count == 0 ? 0.0 : totalFlushLatency.get() / count.doubleValue();
+    }
+
+    public Boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops accepting new entities and waits until the queue is drained.
+     */
+    @Override
+    public synchronized void close() {
+        if (running) {
+            stateLock.writeLock().lock();
+            try {
+                running = false;
+            } finally {
+                stateLock.writeLock().unlock();
+            }
+
+            try {
+                writerThread.join(JOIN_TIMEOUT);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (writerThread.isAlive()) {
+                LOG.warn("MeasuredDataWriter is not drained after {} ms. {} measurements are outstanding.", JOIN_TIMEOUT, queue.size());
+            }
+
+            writerThread = null;
+        }
+    }
+}
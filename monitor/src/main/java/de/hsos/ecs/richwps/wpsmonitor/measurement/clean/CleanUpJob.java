@@ -15,7 +15,11 @@
  */
 package de.hsos.ecs.richwps.wpsmonitor.measurement.clean;
 
+import de.hsos.ecs.richwps.wpsmonitor.control.event.MonitorEvent;
+import de.hsos.ecs.richwps.wpsmonitor.control.event.MonitorEventHandler;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.RollupGranularity;
+import de.hsos.ecs.richwps.wpsmonitor.measurement.rollup.RollupCompactor;
 import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
 import java.util.Date;
 import org.apache.logging.log4j.LogManager;
@@ -25,7 +29,16 @@ import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 
 /**
- * A Job implementation which deletes the old measured data.
+ * A Job implementation which deletes the old measured data in tiers. Raw
+ * measurements which expire are aggregated into rollups first, if the
+ * {@link RetentionPolicy} demands it; then the expired raw measurements and
+ * rollups are deleted. Afterwards the raw measurements which reached the
+ * archive age are moved into the archive of the QosDataAccess.
+ *
+ * The raw measurements are deleted in batches, each in its own short
+ * transaction, so the measure jobs are not blocked for long. The deletion
+ * rate can be throttled; the progress is reported through the
+ * measurement.cleanup.progress and measurement.cleanup.finished events.
  *
  * @author Florian Vogelpohl <floriantobias@gmail.com>
  */
@@ -34,28 +47,109 @@ public class CleanUpJob implements Job {
     private static final Logger LOG = LogManager.getLogger();
 
     private final QosDataAccess qosDao;
-    private final Date olderAs;
+    private final RetentionPolicy policy;
+    private final MonitorEventHandler eventHandler;
+    private final Integer batchSize;
+    private final Integer rowsPerSecond;
 
     /**
-     * Creates a CleanUpJob instance which will call the deleteAllOlderAss method
-     * of the monitor which are older as oderAs.
-     * 
+     * Creates a CleanUpJob instance which deletes the measured data and
+     * rollups which are expired according to the given policy.
+     *
      * @param qosDao QosDataAccess instance
-     * @param olderAs Date instance
+     * @param policy RetentionPolicy instance
+     * @param eventHandler MonitorEventHandler instance to report the progress
+     * @param batchSize Max. amount of measurements per transaction
+     * @param rowsPerSecond Max. amount of deleted measurements per second; 0
+     * disables the throttle
      */
-    public CleanUpJob(final QosDataAccess qosDao, final Date olderAs) {
+    public CleanUpJob(final QosDataAccess qosDao, final RetentionPolicy policy, final MonitorEventHandler eventHandler,
+            final Integer batchSize, final Integer rowsPerSecond) {
         this.qosDao = Validate.notNull(qosDao, "qosDao");
-        this.olderAs = Validate.notNull(olderAs, "olderAs");
+        this.policy = Validate.notNull(policy, "policy");
+        this.eventHandler = Validate.notNull(eventHandler, "eventHandler");
+        this.batchSize = Validate.notNull(batchSize, "batchSize");
+        this.rowsPerSecond = Validate.notNull(rowsPerSecond, "rowsPerSecond");
     }
 
     @Override
     public void execute(JobExecutionContext context) throws JobExecutionException {
         try {
-            LOG.info("Cleanup Job: deleteAllOlderAs {}", olderAs);
-            qosDao.deleteAllOlderAs(olderAs);
+            Date now = new Date();
+            Date rawDeadline = policy.getRawDeadline(now);
+
+            if (!policy.isCompactBeforeDelete()
+                    || new RollupCompactor(qosDao).compactUntil(rawDeadline, Integer.MAX_VALUE)) {
+
+                LOG.info("Cleanup Job: deleteAllOlderAs {}", rawDeadline);
+                deleteInBatches(rawDeadline);
+            } else {
+                LOG.warn("Cleanup Job: measured data before {} could not be aggregated; it is not deleted.", rawDeadline);
+            }
+
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                Date deadline = policy.getRollupDeadline(granularity, now);
+
+                if (deadline != null) {
+                    LOG.info("Cleanup Job: deleteRollupsOlderAs {} {}", granularity, deadline);
+                    qosDao.deleteRollupsOlderAs(granularity, deadline);
+                }
+            }
+
+            Date archiveDeadline = policy.getArchiveDeadline(now);
+
+            if (archiveDeadline != null) {
+                LOG.info("Cleanup Job: archiveOlderAs {}", archiveDeadline);
+                LOG.info("Cleanup Job: {} measurements archived.", qosDao.archiveOlderAs(archiveDeadline));
+            }
         } finally {
             qosDao.close();
         }
     }
 
+    private void deleteInBatches(final Date deadline) {
+        Integer deletedRows = 0;
+        Integer batches = 0;
+        Boolean finished = false;
+
+        try {
+            while (!finished) {
+                long start = System.currentTimeMillis();
+                Integer deleted = qosDao.deleteAllOlderAs(deadline, batchSize);
+
+                deletedRows += deleted;
+                batches++;
+                finished = deleted < batchSize;
+
+                if (!finished) {
+                    eventHandler.fireEvent(new MonitorEvent("measurement.cleanup.progress",
+                            new CleanUpProgress(deadline, deletedRows, batches, false)));
+
+                    throttle(deleted, System.currentTimeMillis() - start);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOG.info("Cleanup Job: interrupted after {} deleted measurements.", deletedRows);
+        } catch (RuntimeException ex) {
+            qosDao.rollback();
+            LOG.error("Cleanup Job: exception occourd after {} deleted measurements.", deletedRows, ex);
+        }
+
+        LOG.info("Cleanup Job: {} measurements deleted in {} batches.", deletedRows, batches);
+
+        eventHandler.fireEvent(new MonitorEvent("measurement.cleanup.finished",
+                new CleanUpProgress(deadline, deletedRows, batches, finished)));
+    }
+
+    private void throttle(final Integer deleted, final long elapsed) throws InterruptedException {
+        if (rowsPerSecond > 0) {
+            long pause = deleted * 1000L / rowsPerSecond - elapsed;
+
+            if (pause > 0) {
+                Thread.sleep(pause);
+            }
+        }
+    }
+
 }
@@ -16,11 +16,10 @@
 package de.hsos.ecs.richwps.wpsmonitor.measurement.clean;
 
 import de.hsos.ecs.richwps.wpsmonitor.Application;
+import de.hsos.ecs.richwps.wpsmonitor.control.event.MonitorEventHandler;
 import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDaoFactory;
 import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
-import java.util.Calendar;
-import java.util.Date;
 import org.quartz.Job;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
@@ -35,12 +34,18 @@ import org.quartz.spi.TriggerFiredBundle;
 public final class CleanUpJobFactory implements JobFactory {
 
     private final QosDaoFactory qosDaoFactory;
-    private Integer olderAs;
-    private Date olderAsDate;
+    private final MonitorEventHandler eventHandler;
+    private RetentionPolicy policy;
+    private Integer batchSize;
+    private Integer rowsPerSecond;
 
-    public CleanUpJobFactory(final QosDaoFactory qosDaoFactory, final Integer olderAs) {
+    public CleanUpJobFactory(final QosDaoFactory qosDaoFactory, final RetentionPolicy policy,
+            final MonitorEventHandler eventHandler, final Integer batchSize, final Integer rowsPerSecond) {
         this.qosDaoFactory = Validate.notNull(qosDaoFactory, "qosDaoFactory");
-        setOlderAs(olderAs);
+        this.eventHandler = Validate.notNull(eventHandler, "eventHandler");
+        setPolicy(policy);
+        setBatchSize(batchSize);
+        setRowsPerSecond(rowsPerSecond);
     }
 
     @Override
@@ -48,7 +53,7 @@ public final class CleanUpJobFactory implements JobFactory {
         Job newJobInstance = null;
 
         try {
-            newJobInstance = new CleanUpJob(qosDaoFactory.create(), olderAsDate);
+            newJobInstance = new CleanUpJob(qosDaoFactory.create(), policy, eventHandler, batchSize, rowsPerSecond);
         } catch (CreateException ex) {
             Application.exitApplicationImmediately(
                     new AssertionError("Can't create the qosDao-dependencie. "
@@ -58,20 +63,20 @@ public final class CleanUpJobFactory implements JobFactory {
 
         return newJobInstance;
     }
-    
-    private Date computeOlderAsDate() {
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(new Date());
-        cal.add(Calendar.DATE, -olderAs);
-        
-        return cal.getTime();
+
+    public void setPolicy(final RetentionPolicy policy) {
+        this.policy = Validate.notNull(policy, "policy");
+    }
+
+    public void setBatchSize(final Integer batchSize) {
+        if (batchSize != null && batchSize > 0) {
+            this.batchSize = batchSize;
+        }
     }
 
-    public void setOlderAs(Integer olderAs) {
-        if (olderAs != null && olderAs > 0) {
-            this.olderAs = olderAs;
-            
-            this.olderAsDate = computeOlderAsDate();
+    public void setRowsPerSecond(final Integer rowsPerSecond) {
+        if (rowsPerSecond != null && rowsPerSecond >= 0) {
+            this.rowsPerSecond = rowsPerSecond;
         }
     }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.measurement.clean;
+
+import java.util.Date;
+
+/**
+ * Progress of a running CleanUpJob; the message of the
+ * measurement.cleanup.progress and measurement.cleanup.finished events.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class CleanUpProgress {
+
+    private final Date deadline;
+    private final Integer deletedRows;
+    private final Integer batches;
+    private final Boolean finished;
+
+    public CleanUpProgress(final Date deadline, final Integer deletedRows, final Integer batches, final Boolean finished) {
+        this.deadline = deadline;
+        this.deletedRows = deletedRows;
+        this.batches = batches;
+        this.finished = finished;
+    }
+
+    /**
+     * Gets the date before which the measurements are deleted.
+     *
+     * @return Date instance
+     */
+    public Date getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Gets the amount of measurements which are deleted so far.
+     *
+     * @return Integer instance
+     */
+    public Integer getDeletedRows() {
+        return deletedRows;
+    }
+
+    /**
+     * Gets the amount of batches which are deleted so far.
+     *
+     * @return Integer instance
+     */
+    public Integer getBatches() {
+        return batches;
+    }
+
+    /**
+     * Indicates if all expired measurements are deleted.
+     *
+     * @return true if the cleanup is finished
+     */
+    public Boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public String toString() {
+        return "CleanUpProgress{" + "deadline=" + deadline + ", deletedRows=" + deletedRows
+                + ", batches=" + batches + ", finished=" + finished + '}';
+    }
+}
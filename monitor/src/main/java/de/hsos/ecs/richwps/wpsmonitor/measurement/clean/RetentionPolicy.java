@@ -0,0 +1,131 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.measurement.clean;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.RollupGranularity;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Describes how long the raw measurements and the rollups of each
+ * {@link RollupGranularity} are kept. A retention of 0 days keeps the rollups
+ * forever. Minute rollups are kept at least as long as the raw measurements,
+ * because the newest minute rollup marks which raw measurements are already
+ * aggregated. Raw measurements can be moved into the archive before they
+ * are deleted; an archive age of 0 days disables the archive.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class RetentionPolicy {
+
+    private final Integer rawDays;
+    private final Integer minuteDays;
+    private final Integer hourDays;
+    private final Integer dayDays;
+    private final Boolean compactBeforeDelete;
+    private final Integer archiveDays;
+
+    /**
+     * Creates a new RetentionPolicy instance.
+     *
+     * @param rawDays Days after which raw measurements are deleted
+     * @param minuteDays Days after which minute rollups are deleted
+     * @param hourDays Days after which hour rollups are deleted
+     * @param dayDays Days after which day rollups are deleted
+     * @param compactBeforeDelete true if raw measurements are aggregated into
+     * rollups before they are deleted
+     * @param archiveDays Days after which raw measurements are moved into the
+     * archive; 0 disables the archive
+     */
+    public RetentionPolicy(final Integer rawDays, final Integer minuteDays, final Integer hourDays,
+            final Integer dayDays, final Boolean compactBeforeDelete, final Integer archiveDays) {
+
+        this.rawDays = Validate.notNull(rawDays, "rawDays");
+        this.minuteDays = Validate.notNull(minuteDays, "minuteDays");
+        this.hourDays = Validate.notNull(hourDays, "hourDays");
+        this.dayDays = Validate.notNull(dayDays, "dayDays");
+        this.compactBeforeDelete = Validate.notNull(compactBeforeDelete, "compactBeforeDelete");
+        this.archiveDays = Validate.notNull(archiveDays, "archiveDays");
+    }
+
+    /**
+     * Gets the date before which raw measurements are deleted. The date is
+     * floored to the minute, so no partial minute bucket is deleted.
+     *
+     * @param now Date instance
+     * @return Date instance
+     */
+    public Date getRawDeadline(final Date now) {
+        return RollupGranularity.MINUTE.floor(daysBefore(now, rawDays));
+    }
+
+    /**
+     * Gets the date before which raw measurements are moved into the archive.
+     *
+     * @param now Date instance
+     * @return Date instance, or null if the archive is disabled or the raw
+     * measurements are deleted before they reach the archive age
+     */
+    public Date getArchiveDeadline(final Date now) {
+        if (archiveDays == 0 || archiveDays >= rawDays) {
+            return null;
+        }
+
+        return RollupGranularity.MINUTE.floor(daysBefore(now, archiveDays));
+    }
+
+    /**
+     * Gets the date before which rollups of the given granularity are
+     * deleted.
+     *
+     * @param granularity RollupGranularity instance
+     * @param now Date instance
+     * @return Date instance, or null if the rollups are kept forever
+     */
+    public Date getRollupDeadline(final RollupGranularity granularity, final Date now) {
+        Integer days;
+
+        switch (granularity) {
+            case MINUTE:
+                days = (minuteDays == 0) ? 0 : Math.max(minuteDays, rawDays);
+                break;
+            case HOUR:
+                days = hourDays;
+                break;
+            default:
+                days = dayDays;
+        }
+
+        if (days == 0) {
+            return null;
+        }
+
+        return granularity.floor(daysBefore(now, days));
+    }
+
+    public Boolean isCompactBeforeDelete() {
+        return compactBeforeDelete;
+    }
+
+    private Date daysBefore(final Date now, final Integer days) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(now);
+        cal.add(Calendar.DATE, -days);
+
+        return cal.getTime();
+    }
+}
@@ -16,6 +16,7 @@
 package de.hsos.ecs.richwps.wpsmonitor.measurement.qos.response;
 
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.AbstractQosEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.ArchivableQos;
 import javax.persistence.Entity;
 
 /**
@@ -24,7 +25,7 @@ import javax.persistence.Entity;
  * @author Florian Vogelpohl <floriantobias@gmail.com>
  */
 @Entity
-public class ResponseEntity extends AbstractQosEntity {
+public class ResponseEntity extends AbstractQosEntity implements ArchivableQos {
 
     private static final long serialVersionUID = 1L;
 
@@ -52,6 +53,16 @@ public class ResponseEntity extends AbstractQosEntity {
         this.responseTime = responseTime;
     }
 
+    @Override
+    public Long getRollupValue() {
+        return (responseTime != null) ? responseTime.longValue() : null;
+    }
+
+    @Override
+    public void setRollupValue(final Long value) {
+        responseTime = (value != null) ? value.intValue() : null;
+    }
+
     public Boolean wasAvailable() {
         return responseTime != null;
     }
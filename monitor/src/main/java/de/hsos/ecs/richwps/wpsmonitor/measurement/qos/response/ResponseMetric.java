@@ -19,73 +19,53 @@ import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.metric.MeasuredValue;
 import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.metric.Measurement;
 import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.metric.QosMetric;
 import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.metric.MeasureUnit;
-import java.util.ArrayList;
-import java.util.Arrays;
+import de.hsos.ecs.richwps.wpsmonitor.util.QuantileHistogram;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
- * Metric for ResponseEntity instances. Calculates the best-, the worst- and the
- * median value for the given ResponseEntity-Instances.
- * 
+ * Metric for ResponseEntity instances. Calculates the best-, the worst-, the
+ * mean- and the median value and the 90th, 95th and 99th percentile for the
+ * given ResponseEntity-Instances.
+ *
+ * The response times are recorded in one pass into a
+ * {@link QuantileHistogram}; so no sorting of all values is needed.
+ *
  * @author Florian Vogelpohl <floriantobias@gmail.com>
  */
 public class ResponseMetric extends QosMetric {
 
     @Override
     public Map<String, MeasuredValue> calculate() {
-        double worst = 0., best = 0.;
-        Double median;
-
-        List<Integer> averageList = new ArrayList<>();
+        QuantileHistogram histogram = new QuantileHistogram();
 
         for (Measurement measured : getEntities()) {
             ResponseEntity responseEntity = measured.getEntity();
-            Integer compare = responseEntity.getResponseTime();
-
-            if (compare != null) {
-                if (compare > worst) {
-                    worst = compare * 1.0;
-                }
-
-                if (compare < best) {
-                    best = compare * 1.0;
-                }
+            Integer responseTime = responseEntity.getResponseTime();
 
-                averageList.add(compare);
+            if (responseTime != null) {
+                histogram.record(responseTime);
             }
         }
 
-        if (!getEntities().isEmpty() && !averageList.isEmpty()) {
-            median = computeMedian(averageList.toArray(new Integer[averageList.size()]));
-        } else {
+        if (histogram.isEmpty()) {
             return null;
         }
 
         Map<String, MeasuredValue> data = new HashMap<>();
-        data.put("median", new MeasuredValue(median / 1000, MeasureUnit.SECOND));
-        data.put("worst", new MeasuredValue(worst / 1000, MeasureUnit.SECOND));
-        data.put("best", new MeasuredValue(best / 1000, MeasureUnit.SECOND));
+        data.put("median", inSeconds(histogram.getMedian()));
+        data.put("mean", inSeconds(histogram.getMean()));
+        data.put("p90", inSeconds(histogram.getValueAtQuantile(0.90)));
+        data.put("p95", inSeconds(histogram.getValueAtQuantile(0.95)));
+        data.put("p99", inSeconds(histogram.getValueAtQuantile(0.99)));
+        data.put("worst", inSeconds(histogram.getMax()));
+        data.put("best", inSeconds(histogram.getMin()));
 
         return data;
     }
 
-    private Double computeMedian(final Integer[] values) {
-        Double median = null;
-
-        if (values != null) {
-            Integer index = values.length / 2;
-            Arrays.sort(values);
-
-            if (values.length % 2 == 0) {
-                median = (values[index] + values[index - 1]) / 2.;
-            } else {
-                median = new Double(values[index]);
-            }
-        }
-
-        return median;
+    private MeasuredValue inSeconds(final Number milliseconds) {
+        return new MeasuredValue(milliseconds.doubleValue() / 1000, MeasureUnit.SECOND);
     }
 
     @Override
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.measurement.rollup;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.AbstractQosEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataRollupEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.RollupGranularity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.RollupSource;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Aggregates the raw measured data into {@link MeasuredDataRollupEntity}
+ * buckets of every {@link RollupGranularity}.
+ *
+ * The compactor works through closed one-hour windows. Every window is
+ * committed in one transaction, so a window is aggregated completely or not
+ * at all. The newest minute bucket marks how far the raw data was already
+ * aggregated; hour and day buckets are merged, because they span several
+ * windows. Compactions are serialized, because the RollupJob and the
+ * CleanUpJob may compact at the same time.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class RollupCompactor {
+
+    private static final Logger LOG = LogManager.getLogger();
+    private static final Lock COMPACTION_LOCK = new ReentrantLock();
+
+    private final QosDataAccess qosDao;
+
+    /**
+     * Creates a new RollupCompactor instance.
+     *
+     * @param qosDao QosDataAccess instance
+     */
+    public RollupCompactor(final QosDataAccess qosDao) {
+        this.qosDao = Validate.notNull(qosDao, "qosDao");
+    }
+
+    /**
+     * Aggregates all raw measured data which is created before the given date
+     * and was not aggregated yet.
+     *
+     * @param until Exclusive end; is floored to the minute
+     * @param maxWindows Max. amount of one-hour windows which are aggregated
+     * @return true if all data before until is aggregated, false if the
+     * compaction was stopped early
+     */
+    public Boolean compactUntil(final Date until, final Integer maxWindows) {
+        Validate.notNull(until, "until");
+        Validate.notNull(maxWindows, "maxWindows");
+
+        COMPACTION_LOCK.lock();
+
+        try {
+            return compact(RollupGranularity.MINUTE.floor(until), maxWindows);
+        } finally {
+            COMPACTION_LOCK.unlock();
+        }
+    }
+
+    private Boolean compact(final Date end, final Integer maxWindows) {
+        Date since = getWatermark();
+        Integer windows = 0;
+
+        while (windows < maxWindows) {
+            Date oldest = qosDao.getOldestCreateTime(since);
+
+            if (oldest == null || !oldest.before(end)) {
+                return true;
+            }
+
+            Date start = RollupGranularity.MINUTE.floor(oldest);
+            Date windowEnd = RollupGranularity.HOUR.next(start);
+
+            if (windowEnd.after(end)) {
+                windowEnd = end;
+            }
+
+            if (!compactWindow(start, windowEnd)) {
+                return false;
+            }
+
+            since = windowEnd;
+            windows++;
+        }
+
+        return false;
+    }
+
+    private Date getWatermark() {
+        Date newest = qosDao.getNewestRollupBucket(RollupGranularity.MINUTE);
+
+        return (newest == null) ? new Date(0) : RollupGranularity.MINUTE.next(newest);
+    }
+
+    private Boolean compactWindow(final Date start, final Date end) {
+        List<MeasuredDataEntity> measurements = qosDao.getBetween(start, end);
+        Map<String, MeasuredDataRollupEntity> aggregates = new LinkedHashMap<>();
+
+        for (MeasuredDataEntity measurement : measurements) {
+            for (AbstractQosEntity qos : measurement.getData()) {
+                if (qos instanceof RollupSource) {
+                    Long value = ((RollupSource) qos).getRollupValue();
+
+                    for (RollupGranularity granularity : RollupGranularity.values()) {
+                        getAggregate(aggregates, measurement, qos.getEntityName(), granularity)
+                                .add(value);
+                    }
+                }
+            }
+        }
+
+        qosDao.setAutoCommit(false);
+
+        try {
+            for (MeasuredDataRollupEntity aggregate : aggregates.values()) {
+                MeasuredDataRollupEntity stored = qosDao.findRollup(aggregate.getProcess(),
+                        aggregate.getEntityName(), aggregate.getGranularity(), aggregate.getBucketStart());
+
+                if (stored == null) {
+                    qosDao.storeRollup(aggregate);
+                } else {
+                    stored.merge(aggregate);
+                    qosDao.storeRollup(stored);
+                }
+            }
+
+            if (qosDao.commit()) {
+                LOG.debug("Aggregated {} measurements between {} and {} into {} rollups.",
+                        measurements.size(), start, end, aggregates.size());
+
+                return true;
+            }
+        } catch (RuntimeException ex) {
+            LOG.error("Exception occourd at aggregating the measured data between {} and {}.", start, end, ex);
+        } finally {
+            qosDao.rollback();
+            qosDao.setAutoCommit(true);
+        }
+
+        LOG.warn("Can't store the rollups between {} and {}.", start, end);
+
+        return false;
+    }
+
+    private MeasuredDataRollupEntity getAggregate(final Map<String, MeasuredDataRollupEntity> aggregates,
+            final MeasuredDataEntity measurement, final String entityName, final RollupGranularity granularity) {
+
+        Date bucketStart = granularity.floor(measurement.getCreateTime());
+        String key = measurement.getProcess().getId() + "|" + entityName + "|" + granularity + "|" + bucketStart.getTime();
+
+        MeasuredDataRollupEntity aggregate = aggregates.get(key);
+
+        if (aggregate == null) {
+            aggregate = new MeasuredDataRollupEntity(measurement.getProcess(), entityName, granularity, bucketStart);
+            aggregates.put(key, aggregate);
+        }
+
+        return aggregate;
+    }
+}
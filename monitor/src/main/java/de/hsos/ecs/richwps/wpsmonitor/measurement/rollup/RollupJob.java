@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.measurement.rollup;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import java.util.Date;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+
+/**
+ * A Job implementation which aggregates the measured data into rollups. Only
+ * data which is older as the given lag is aggregated, because measurements are
+ * persisted after the request has finished.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+@DisallowConcurrentExecution
+public class RollupJob implements Job {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    /**
+     * Max. amount of one-hour windows per execution; limits the duration of a
+     * single execution if a large backlog has to be aggregated.
+     */
+    private static final Integer MAX_WINDOWS = 168;
+
+    private final QosDataAccess qosDao;
+    private final Long lag;
+
+    /**
+     * Creates a new RollupJob instance.
+     *
+     * @param qosDao QosDataAccess instance
+     * @param lag Lag in milliseconds
+     */
+    public RollupJob(final QosDataAccess qosDao, final Long lag) {
+        this.qosDao = Validate.notNull(qosDao, "qosDao");
+        this.lag = Validate.notNull(lag, "lag");
+    }
+
+    @Override
+    public void execute(JobExecutionContext context) throws JobExecutionException {
+        try {
+            Date until = new Date(System.currentTimeMillis() - lag);
+
+            if (!new RollupCompactor(qosDao).compactUntil(until, MAX_WINDOWS)) {
+                LOG.info("Rollup Job: not all measured data before {} is aggregated yet.", until);
+            }
+        } finally {
+            qosDao.close();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.measurement.rollup;
+
+import de.hsos.ecs.richwps.wpsmonitor.Application;
+import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDaoFactory;
+import de.hsos.ecs.richwps.wpsmonitor.util.Validate;
+import org.quartz.Job;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.spi.JobFactory;
+import org.quartz.spi.TriggerFiredBundle;
+
+/**
+ * Factory for the Rollup-Job.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public final class RollupJobFactory implements JobFactory {
+
+    private final QosDaoFactory qosDaoFactory;
+    private final Long lag;
+
+    /**
+     * Creates a new RollupJobFactory instance.
+     *
+     * @param qosDaoFactory QosDaoFactory instance
+     * @param lag Lag in milliseconds; measured data which is younger is not
+     * aggregated yet
+     */
+    public RollupJobFactory(final QosDaoFactory qosDaoFactory, final Long lag) {
+        this.qosDaoFactory = Validate.notNull(qosDaoFactory, "qosDaoFactory");
+        this.lag = Validate.notNull(lag, "lag");
+    }
+
+    @Override
+    public Job newJob(TriggerFiredBundle bundle, Scheduler scheduler) throws SchedulerException {
+        Job newJobInstance = null;
+
+        try {
+            newJobInstance = new RollupJob(qosDaoFactory.create(), lag);
+        } catch (CreateException ex) {
+            Application.exitApplicationImmediately(
+                    new AssertionError("Can't create the qosDao-dependencie. "
+                            + "This is necessary for the RollupJob. Execution aborted.", ex)
+            );
+        }
+
+        return newJobInstance;
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A mergeable quantile sketch for non-negative long values (e.g. response
+ * times in ms), based on a log-linear bucket layout like HDR-Histograms. The
+ * counts are held in a primitive array; recording a value is O(1) and needs
+ * no boxing.
+ *
+ * Values below {@value #SUB_BUCKET_COUNT} are counted exactly. Above, every
+ * power of two range is divided into {@value #SUB_BUCKET_HALF_COUNT} linear
+ * buckets, so the relative error of a quantile is below 1/64. Count, min, max
+ * and mean are always exact. Values above {@link Integer#MAX_VALUE} are
+ * counted in the last bucket.
+ *
+ * A histogram can be stored as a compact byte array (only the filled buckets
+ * are written) and restored with {@link #fromByteArray(byte[])}.
+ *
+ * This class is not thread-safe.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class QuantileHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT >> 1;
+    private static final int MAX_EXPONENT = 30 - (SUB_BUCKET_BITS - 1);
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + MAX_EXPONENT * SUB_BUCKET_HALF_COUNT;
+
+    private final long[] counts;
+    private long count;
+    private long sum;
+    private long min;
+    private long max;
+
+    public QuantileHistogram() {
+        this.counts = new long[BUCKET_COUNT];
+
+        reset();
+    }
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     *
+     * @param value Value
+     */
+    public void record(final long value) {
+        long v = Math.max(0, value);
+
+        counts[indexOf(v)]++;
+        count++;
+        sum += v;
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+    }
+
+    /**
+     * Adds all recorded values of the other histogram to this histogram.
+     *
+     * @param other QuantileHistogram instance
+     */
+    public void merge(final QuantileHistogram other) {
+        Validate.notNull(other, "other");
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Removes all recorded values.
+     */
+    public final void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = 0;
+        }
+
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = Long.MIN_VALUE;
+    }
+
+    public Boolean isEmpty() {
+        return count == 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * Gets the smallest recorded value.
+     *
+     * @return min value or null if the histogram is empty
+     */
+    public Long getMin() {
+        return isEmpty() ? null : min;
+    }
+
+    /**
+     * Gets the largest recorded value.
+     *
+     * @return max value or null if the histogram is empty
+     */
+    public Long getMax() {
+        return isEmpty() ? null : max;
+    }
+
+    /**
+     * Gets the arithmetic mean of the recorded values.
+     *
+     * @return mean value or null if the histogram is empty
+     */
+    public Double getMean() {
+        return isEmpty() ? null : (double) sum / count;
+    }
+
+    /**
+     * Gets the median. If an even amount of values is recorded, the mean of
+     * both middle values is returned.
+     *
+     * @return median value or null if the histogram is empty
+     */
+    public Double getMedian() {
+        if (isEmpty()) {
+            return null;
+        }
+
+        if (count % 2 == 0) {
+            return (getValueAtRank(count / 2) + getValueAtRank(count / 2 + 1)) / 2.;
+        }
+
+        return (double) getValueAtRank(count / 2 + 1);
+    }
+
+    /**
+     * Gets the value at the given quantile, by the nearest-rank method.
+     *
+     * @param quantile Quantile between 0 and 1 (e.g. 0.95)
+     * @return value or null if the histogram is empty
+     */
+    public Long getValueAtQuantile(final double quantile) {
+        if (isEmpty()) {
+            return null;
+        }
+
+        double q = Math.min(1., Math.max(0., quantile));
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+
+        return getValueAtRank(rank);
+    }
+
+    /**
+     * Serializes the histogram. Only the filled buckets are written, each as
+     * varint encoded index delta and count.
+     *
+     * @return byte array
+     */
+    public byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(count);
+            out.writeLong(sum);
+            out.writeLong(min);
+            out.writeLong(max);
+
+            int lastIndex = 0;
+
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                if (counts[i] > 0) {
+                    writeVarLong(out, i - lastIndex);
+                    writeVarLong(out, counts[i]);
+                    lastIndex = i;
+                }
+            }
+        } catch (IOException ex) {
+            throw new AssertionError("I/O Exception at a ByteArrayOutputStream.", ex);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Restores a histogram which was serialized by {@link #toByteArray()}.
+     *
+     * @param data byte array
+     * @return QuantileHistogram instance
+     * @throws IllegalArgumentException if the data is corrupt
+     */
+    public static QuantileHistogram fromByteArray(final byte[] data) {
+        Validate.notNull(data, "data");
+
+        QuantileHistogram histogram = new QuantileHistogram();
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            histogram.count = in.readLong();
+            histogram.sum = in.readLong();
+            histogram.min = in.readLong();
+            histogram.max = in.readLong();
+
+            int index = 0;
+
+            while (in.available() > 0) {
+                index += (int) readVarLong(in);
+                histogram.counts[index] = readVarLong(in);
+            }
+        } catch (IOException | ArrayIndexOutOfBoundsException ex) {
+            throw new IllegalArgumentException("Corrupt histogram data.", ex);
+        }
+
+        return histogram;
+    }
+
+    private static void writeVarLong(final DataOutputStream out, final long value) throws IOException {
+        long v = value;
+
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(final DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+
+        do {
+            if (shift > 63) {
+                throw new IOException("Malformed varint.");
+            }
+
+            b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return value;
+    }
+
+    /**
+     * Gets the value with the given rank; 1 is the smallest value.
+     */
+    private long getValueAtRank(final long rank) {
+        long seen = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+
+            if (seen >= rank) {
+                // the representative value must not leave the recorded range
+                return Math.min(max, Math.max(min, representativeValueOf(i)));
+            }
+        }
+
+        return max;
+    }
+
+    private static int indexOf(final long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+
+        int subBucket = (int) (value >> exponent) - SUB_BUCKET_HALF_COUNT;
+
+        return SUB_BUCKET_COUNT + (exponent - 1) * SUB_BUCKET_HALF_COUNT + subBucket;
+    }
+
+    private static long representativeValueOf(final int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int offset = index - SUB_BUCKET_COUNT;
+        int exponent = offset / SUB_BUCKET_HALF_COUNT + 1;
+        long lowerBound = (long) (SUB_BUCKET_HALF_COUNT + offset % SUB_BUCKET_HALF_COUNT) << exponent;
+
+        // middle of the bucket
+        return lowerBound + (((1L << exponent) - 1) >> 1);
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.defaultimpl;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.AsyncWpsClient;
+import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsClientConfig;
+import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsProcessInfo;
+import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsRequest;
+import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsResponse;
+import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsResponseCallback;
+import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.simple.SimpleAsyncWpsClientFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class SimpleAsyncWpsClientTest {
+
+    private static final String VALID_RESPONSE = "<wps:ExecuteResponse xmlns:wps=\"http://www.opengis.net/wps/1.0.0\">"
+            + "<wps:ProcessOutputs><wps:Output>%s</wps:Output></wps:ProcessOutputs></wps:ExecuteResponse>";
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private SimpleAsyncWpsClientFactory factory;
+    private WpsProcessInfo info;
+    private volatile byte[] responseBody;
+
+    @Before
+    public void setUp() throws IOException {
+        responseBody = String.format(VALID_RESPONSE, "result").getBytes(StandardCharsets.UTF_8);
+        serverExecutor = Executors.newCachedThreadPool();
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/wps", new HttpHandler() {
+
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                try (InputStream in = exchange.getRequestBody()) {
+                    while (in.read() != -1) {
+                        // consume the request
+                    }
+                }
+
+                exchange.getResponseHeaders().add("Content-Type", "text/xml; charset=UTF-8");
+                exchange.sendResponseHeaders(200, responseBody.length);
+
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(responseBody);
+                }
+            }
+        });
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        info = new WpsProcessInfo(new URL("http://localhost:" + server.getAddress().getPort() + "/wps"), "request");
+        factory = new SimpleAsyncWpsClientFactory();
+    }
+
+    @After
+    public void tearDown() {
+        factory.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private AsyncWpsClient createClient(final Integer maxResponseBodySize) {
+        WpsClientConfig config = new WpsClientConfig();
+        config.setAsyncWorkers(1);
+        config.setAsyncQueueCapacity(1);
+        config.setMaxResponseBodySize(maxResponseBodySize);
+
+        AsyncWpsClient client = (AsyncWpsClient) factory.create();
+        client.init(config);
+
+        return client;
+    }
+
+    /**
+     * Callback which records the responses and the threads they are delivered
+     * in; it blocks until the gate is opened.
+     */
+    private static class RecordingCallback implements WpsResponseCallback {
+
+        private final BlockingQueue<WpsResponse> responses = new LinkedBlockingQueue<>();
+        private final BlockingQueue<String> threads = new LinkedBlockingQueue<>();
+        private final CountDownLatch gate;
+
+        RecordingCallback(final CountDownLatch gate) {
+            this.gate = gate;
+        }
+
+        @Override
+        public void completed(final WpsRequest request, final WpsResponse response) {
+            threads.add(Thread.currentThread().getName());
+            responses.add(response);
+
+            try {
+                gate.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        WpsResponse next() throws InterruptedException {
+            return responses.poll(10, TimeUnit.SECONDS);
+        }
+
+        String nextThread() throws InterruptedException {
+            return threads.poll(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testResponseIsDispatchedToWorker() throws InterruptedException {
+        RecordingCallback callback = new RecordingCallback(new CountDownLatch(0));
+
+        createClient(0).executeAsync(new WpsRequest("request", info), callback);
+
+        WpsResponse response = callback.next();
+        Assert.assertNotNull(response);
+        Assert.assertFalse(response.isException());
+        Assert.assertEquals(new String(responseBody, StandardCharsets.UTF_8), response.getResponseBody());
+        Assert.assertTrue(callback.nextThread().startsWith("wpsclient-async-worker"));
+    }
+
+    @Test
+    public void testMaxResponseBodySize() throws InterruptedException {
+        StringBuilder output = new StringBuilder();
+
+        for (int i = 0; i < 10000; i++) {
+            output.append('x');
+        }
+
+        responseBody = String.format(VALID_RESPONSE, output).getBytes(StandardCharsets.UTF_8);
+        RecordingCallback callback = new RecordingCallback(new CountDownLatch(0));
+
+        createClient(200).executeAsync(new WpsRequest("request", info), callback);
+
+        WpsResponse response = callback.next();
+        Assert.assertNotNull(response);
+        Assert.assertFalse(response.isException());
+        Assert.assertTrue(response.isTruncated());
+        Assert.assertEquals(responseBody.length, response.getResponseSize().intValue());
+        Assert.assertTrue(response.getResponseBody().length() <= 200);
+    }
+
+    @Test
+    public void testRejectedResponseIsDeliveredInline() throws InterruptedException {
+        CountDownLatch gate = new CountDownLatch(1);
+        RecordingCallback callback = new RecordingCallback(gate);
+        AsyncWpsClient client = createClient(0);
+
+        try {
+            // the first response blocks the only worker
+            client.executeAsync(new WpsRequest("request", info), callback);
+            Assert.assertNotNull(callback.next());
+            callback.nextThread();
+
+            // one response fills the queue, the other is rejected
+            client.executeAsync(new WpsRequest("request", info), callback);
+            client.executeAsync(new WpsRequest("request", info), callback);
+
+            WpsResponse rejected = callback.next();
+            Assert.assertNotNull(rejected);
+            Assert.assertTrue(rejected.isConnectionException());
+            Assert.assertFalse(callback.nextThread().startsWith("wpsclient-async-worker"));
+        } finally {
+            gate.countDown();
+        }
+
+        WpsResponse queued = callback.next();
+        Assert.assertNotNull(queued);
+        Assert.assertFalse(queued.isException());
+    }
+
+    @Test
+    public void testCloseDrainsCallbacks() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean finished = new AtomicBoolean(false);
+
+        createClient(0).executeAsync(new WpsRequest("request", info), new WpsResponseCallback() {
+
+            @Override
+            public void completed(final WpsRequest request, final WpsResponse response) {
+                started.countDown();
+
+                try {
+                    Thread.sleep(300);
+                    finished.set(true);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        factory.close();
+
+        Assert.assertTrue(finished.get());
+    }
+}
@@ -15,6 +15,7 @@
  */
 package de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.defaultimpl;
 
+import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.simple.SimpleWpsClient;
 import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.simple.SimpleWpsClientFactory;
 import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsClient;
 import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsClientFactory;
@@ -22,6 +23,7 @@ import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsProcessInfo;
 import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsRequest;
 import de.hsos.ecs.richwps.wpsmonitor.communication.wpsclient.WpsResponse;
 import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -35,6 +37,8 @@ import java.util.Scanner;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import junit.framework.Assert;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.BasicHttpEntity;
 import org.junit.After;
 import org.junit.AfterClass;
 import static org.junit.Assert.fail;
@@ -146,7 +150,9 @@ public class SimpleWpsClientTest {
 
         client.execute(request);
 
-        Assert.assertTrue(!request.getRequestTime().equals(dateRef));
+        // the client sets a new request time; within the same millisecond it equals the old one
+        Assert.assertNotSame(dateRef, request.getRequestTime());
+        Assert.assertFalse(request.getRequestTime().before(dateRef));
     }
 
     @Test
@@ -200,4 +206,48 @@ public class SimpleWpsClientTest {
         
         Assert.assertTrue(response.isConnectionException() && !response.isWpsException());
     }
+
+    @Test
+    public void testStreamedExceptionIdentificationIdentifyException() {
+        WpsResponse response = readStreamedResponse(exceptionResponse);
+
+        Assert.assertTrue(response.isWpsException());
+        Assert.assertEquals(exceptionResponse.getBytes(StandardCharsets.UTF_8).length, response.getResponseSize().intValue());
+    }
+
+    @Test
+    public void testStreamedExceptionIdentificationDoNotIdentifyExceptionAtValidResponse() {
+        String validResponse = getFileContent(TEST_VALID_RESPONSE_FILE);
+        WpsResponse response = readStreamedResponse(validResponse);
+
+        Assert.assertTrue(!response.isException());
+        Assert.assertEquals(validResponse, response.getResponseBody());
+        Assert.assertTrue(!response.isTruncated());
+    }
+
+    @Test
+    public void testStreamedExceptionIdentificationIdentifyConnectionExceptionAtUnvalidResponse() {
+        WpsResponse response = readStreamedResponse("Hello World");
+
+        Assert.assertTrue(response.isConnectionException() && !response.isWpsException());
+        Assert.assertEquals(11, response.getResponseSize().intValue());
+    }
+
+    private WpsResponse readStreamedResponse(final String body) {
+        BasicHttpEntity entity = new BasicHttpEntity();
+        entity.setContent(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        entity.setContentType("text/xml; charset=UTF-8");
+
+        WpsResponse response = null;
+
+        try {
+            Method method = SimpleWpsClient.class.getDeclaredMethod("readWpsResponse", HttpEntity.class, Date.class);
+            method.setAccessible(true);
+            response = (WpsResponse) method.invoke(client, entity, new Date());
+        } catch (NoSuchMethodException | SecurityException | IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
+            fail(ex.getMessage());
+        }
+
+        return response;
+    }
 }
@@ -25,8 +25,10 @@ import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
 import de.hsos.ecs.richwps.wpsmonitor.measurement.qos.response.ResponseFactory;
 import de.hsos.ecs.richwps.wpsmonitor.creation.BuilderException;
 import java.net.MalformedURLException;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 import junit.framework.Assert;
 import org.junit.After;
@@ -232,6 +234,52 @@ public class MonitorControlTest {
         Assert.assertTrue(checkIfSaved);
     }
 
+    /**
+     * Test of createAndScheduleProcesses and saveTriggers methods, of class
+     * MonitorControlService.
+     */
+    @Test
+    public void testCreateAndScheduleProcessesAndSaveTriggers() {
+        WpsEntity wps = getUnstoredProcessEntity().getWps();
+        Assert.assertTrue(mControl.createWps(wps));
+
+        List<String> identifiers = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            identifiers.add("bulk" + i);
+        }
+
+        // duplicates are added only once
+        identifiers.add("bulk0");
+
+        List<WpsProcessEntity> created = mControl.createAndScheduleProcesses(wps.getEndpoint(), identifiers);
+        Assert.assertEquals(5, created.size());
+
+        for (WpsProcessEntity process : created) {
+            Assert.assertTrue(checkIsCreateAndScheduledProcess(process));
+        }
+
+        // already existing processes are skipped
+        identifiers.add("bulk5");
+        created = mControl.createAndScheduleProcesses(wps.getEndpoint(), identifiers);
+        Assert.assertEquals(1, created.size());
+        Assert.assertEquals("bulk5", created.get(0).getIdentifier());
+
+        Calendar c = Calendar.getInstance();
+        c.add(Calendar.DATE, 1);
+        TriggerConfig config = new TriggerConfig(new Date(), c.getTime(), 30, TriggerConfig.IntervalUnit.MINUTE);
+
+        // unknown processes are skipped; duplicates get only one trigger
+        identifiers.add("unknown");
+        identifiers.add("bulk5");
+        List<TriggerConfig> triggers = mControl.saveTriggers(wps.getEndpoint(), identifiers.subList(5, identifiers.size()), config);
+        Assert.assertEquals(2, triggers.size());
+
+        for (TriggerConfig trigger : triggers) {
+            Assert.assertTrue(checkIfSaved(new TriggerKey(trigger.getTriggerName(), trigger.getTriggerGroup())));
+        }
+    }
+
     /**
      * Test of setTestRequest method, of class MonitorControlService.
      */
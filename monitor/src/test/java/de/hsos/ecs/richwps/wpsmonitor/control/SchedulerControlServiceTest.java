@@ -0,0 +1,307 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.control;
+
+import de.hsos.ecs.richwps.wpsmonitor.control.scheduler.JobFactoryService;
+import de.hsos.ecs.richwps.wpsmonitor.control.scheduler.TriggerConfig;
+import de.hsos.ecs.richwps.wpsmonitor.control.scheduler.TriggerSpreading;
+import de.hsos.ecs.richwps.wpsmonitor.measurement.MeasureJob;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.impl.matchers.GroupMatcher;
+
+/**
+ * Stress tests of the SchedulerControlService; many threads add, pause and
+ * remove jobs and triggers in parallel. The scheduler uses a RAMJobStore and
+ * is not started, so no job is executed.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class SchedulerControlServiceTest {
+
+    private static final Integer THREADS = 8;
+    private static final Integer GROUPS = 16;
+    private static final Integer JOBS_PER_GROUP = 25;
+
+    private Scheduler scheduler;
+    private SchedulerControlService schedulerControl;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws SchedulerException {
+        Properties properties = new Properties();
+        properties.setProperty("org.quartz.scheduler.instanceName", "SchedulerControlServiceTest-" + UUID.randomUUID());
+        properties.setProperty("org.quartz.threadPool.threadCount", "1");
+        properties.setProperty("org.quartz.jobStore.class", "org.quartz.simpl.RAMJobStore");
+
+        scheduler = new StdSchedulerFactory(properties).getScheduler();
+        schedulerControl = new SchedulerControlService(scheduler, new JobFactoryService());
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() throws SchedulerException {
+        executor.shutdownNow();
+        scheduler.shutdown();
+    }
+
+    private TriggerConfig hourly() {
+        return new TriggerConfig(new Date(), new Date(System.currentTimeMillis() + 3600000L), 1, TriggerConfig.IntervalUnit.HOUR);
+    }
+
+    /**
+     * Runs the given tasks in parallel; all tasks start at the same time.
+     */
+    private void runParallel(final List<Callable<Void>> tasks) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+
+        for (final Callable<Void> task : tasks) {
+            futures.add(executor.submit(new Callable<Void>() {
+
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+
+                    return task.call();
+                }
+            }));
+        }
+
+        start.countDown();
+
+        for (Future<Void> future : futures) {
+            // rethrows the exception of a task
+            future.get(60, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testExistenceChecks() throws SchedulerException {
+        JobKey jobKey = new JobKey("process", "1");
+        TriggerKey triggerKey;
+
+        Assert.assertFalse(schedulerControl.isJobRegistred(jobKey));
+
+        schedulerControl.addJob(jobKey, MeasureJob.class);
+        TriggerConfig config = schedulerControl.addTriggerToJob(jobKey, hourly());
+        triggerKey = new TriggerKey(config.getTriggerName(), config.getTriggerGroup());
+
+        Assert.assertTrue(schedulerControl.isJobRegistred(jobKey));
+        Assert.assertTrue(schedulerControl.isTriggerRegistred(triggerKey));
+        Assert.assertFalse(schedulerControl.isJobRegistred(new JobKey("process", "2")));
+
+        schedulerControl.removeJob(jobKey);
+
+        Assert.assertFalse(schedulerControl.isJobRegistred(jobKey));
+        Assert.assertFalse(schedulerControl.isTriggerRegistred(triggerKey));
+    }
+
+    @Test
+    public void testParallelAdd() throws Exception {
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int g = 0; g < GROUPS; g++) {
+            for (int t = 0; t < 2; t++) {
+                final String group = Integer.toString(g);
+                final Integer offset = t;
+
+                tasks.add(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+                        for (int i = offset; i < JOBS_PER_GROUP; i += 2) {
+                            JobKey jobKey = schedulerControl.addJob(new JobKey("process" + i, group), MeasureJob.class);
+                            schedulerControl.addTriggerToJob(jobKey, hourly());
+                        }
+
+                        return null;
+                    }
+                });
+            }
+        }
+
+        runParallel(tasks);
+
+        for (int g = 0; g < GROUPS; g++) {
+            String group = Integer.toString(g);
+
+            Assert.assertEquals((int) JOBS_PER_GROUP, scheduler.getJobKeys(GroupMatcher.jobGroupEquals(group)).size());
+
+            for (int i = 0; i < JOBS_PER_GROUP; i++) {
+                JobKey jobKey = new JobKey("process" + i, group);
+
+                Assert.assertTrue(schedulerControl.isJobRegistred(jobKey));
+                Assert.assertEquals(1, schedulerControl.getTriggerKeysOfJob(jobKey).size());
+            }
+        }
+    }
+
+    @Test
+    public void testParallelAddPauseResumeRemove() throws Exception {
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int g = 0; g < GROUPS; g++) {
+            final String group = Integer.toString(g);
+
+            tasks.add(new Callable<Void>() {
+
+                @Override
+                public Void call() throws Exception {
+                    for (int i = 0; i < JOBS_PER_GROUP; i++) {
+                        JobKey jobKey = schedulerControl.addJob(new JobKey("process" + i, group), MeasureJob.class);
+                        TriggerConfig config = schedulerControl.addTriggerToJob(jobKey, hourly());
+
+                        schedulerControl.pauseJob(jobKey);
+                        Assert.assertTrue(schedulerControl.isPaused(jobKey));
+
+                        schedulerControl.resume(jobKey);
+                        Assert.assertFalse(schedulerControl.isPaused(jobKey));
+
+                        TriggerConfig updated = schedulerControl.updateTrigger(config);
+                        Assert.assertEquals(1, schedulerControl.getTriggerKeysOfJob(jobKey).size());
+
+                        if (i % 2 == 0) {
+                            schedulerControl.removeTrigger(updated);
+                            schedulerControl.removeJob(jobKey);
+                            Assert.assertFalse(schedulerControl.isJobRegistred(jobKey));
+                        }
+                    }
+
+                    return null;
+                }
+            });
+        }
+
+        runParallel(tasks);
+
+        for (int g = 0; g < GROUPS; g++) {
+            String group = Integer.toString(g);
+
+            Assert.assertEquals(JOBS_PER_GROUP / 2, scheduler.getJobKeys(GroupMatcher.jobGroupEquals(group)).size());
+            Assert.assertTrue(schedulerControl.removeWpsJobs(Long.valueOf(g)));
+            Assert.assertTrue(scheduler.getJobKeys(GroupMatcher.jobGroupEquals(group)).isEmpty());
+        }
+
+        Assert.assertTrue(scheduler.getTriggerKeys(GroupMatcher.<TriggerKey>anyGroup()).isEmpty());
+    }
+
+    @Test
+    public void testParallelRemoveWpsJobsWhileAdding() throws Exception {
+        final String group = "1";
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int t = 0; t < THREADS - 1; t++) {
+            final Integer thread = t;
+
+            tasks.add(new Callable<Void>() {
+
+                @Override
+                public Void call() throws Exception {
+                    for (int i = 0; i < JOBS_PER_GROUP; i++) {
+                        JobKey jobKey = schedulerControl.addJob(new JobKey("process" + thread + "-" + i, group), MeasureJob.class);
+
+                        try {
+                            schedulerControl.addTriggerToJob(jobKey, hourly());
+                        } catch (SchedulerException ex) {
+                            // the job was removed in between; that's the expected race
+                            Assert.assertFalse(schedulerControl.isJobRegistred(jobKey));
+                        }
+                    }
+
+                    return null;
+                }
+            });
+        }
+
+        tasks.add(new Callable<Void>() {
+
+            @Override
+            public Void call() throws Exception {
+                for (int i = 0; i < JOBS_PER_GROUP; i++) {
+                    schedulerControl.removeWpsJobs(1L);
+                }
+
+                return null;
+            }
+        });
+
+        runParallel(tasks);
+
+        // no trigger without its job
+        for (TriggerKey triggerKey : scheduler.getTriggerKeys(GroupMatcher.triggerGroupEquals(group))) {
+            Assert.assertTrue(schedulerControl.isJobRegistred(scheduler.getTrigger(triggerKey).getJobKey()));
+        }
+    }
+
+    @Test
+    public void testRebalanceTriggers() throws SchedulerException {
+        // all triggers start at the same time
+        Date start = new Date(System.currentTimeMillis() / 60000L * 60000L + 60000L);
+        TriggerConfig everyMinute = new TriggerConfig(start, new Date(start.getTime() + 3600000L), 1, TriggerConfig.IntervalUnit.MINUTE);
+        JobKey paused = null;
+
+        for (int i = 0; i < JOBS_PER_GROUP; i++) {
+            JobKey jobKey = schedulerControl.addJob(new JobKey("process" + i, "1"), MeasureJob.class);
+            Assert.assertEquals(start, schedulerControl.addTriggerToJob(jobKey, everyMinute).getStart());
+            paused = jobKey;
+        }
+
+        schedulerControl.pauseJob(paused);
+
+        TriggerSpreading spreading = new TriggerSpreading(true, 3600000L, 0L);
+        schedulerControl.setSpreading(spreading);
+
+        List<TriggerConfig> moved = schedulerControl.rebalanceTriggers();
+        Assert.assertTrue(moved.size() > JOBS_PER_GROUP - 3);
+
+        for (TriggerConfig config : moved) {
+            Trigger trigger = scheduler.getTrigger(new TriggerKey(config.getTriggerName(), config.getTriggerGroup()));
+
+            Assert.assertEquals(config.getStart(), trigger.getStartTime());
+            Assert.assertTrue(config.getStart().getTime() - start.getTime() < 60000L);
+            Assert.assertTrue(spreading.isSpread(trigger.getJobKey(), config));
+        }
+
+        Assert.assertTrue(schedulerControl.isPaused(paused));
+        Assert.assertTrue(schedulerControl.rebalanceTriggers().isEmpty());
+
+        // new triggers are spread directly
+        JobKey jobKey = schedulerControl.addJob(new JobKey("process", "2"), MeasureJob.class);
+        TriggerConfig spread = schedulerControl.addTriggerToJob(jobKey, everyMinute);
+
+        Assert.assertEquals(spreading.spread(jobKey, everyMinute), spread.getStart());
+    }
+}
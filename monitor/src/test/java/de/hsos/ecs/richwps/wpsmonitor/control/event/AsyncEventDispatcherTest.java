@@ -0,0 +1,160 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.control.event;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class AsyncEventDispatcherTest {
+
+    private static final String EVENT_NAME = "test.event";
+
+    private MonitorEventHandler eventHandler;
+    private AsyncEventDispatcher dispatcher;
+
+    @Before
+    public void setUp() {
+        eventHandler = new MonitorEventHandler();
+        eventHandler.registerEvent(EVENT_NAME);
+
+        dispatcher = new AsyncEventDispatcher(eventHandler, 1, 1);
+        eventHandler.setDispatcher(dispatcher);
+    }
+
+    @After
+    public void tearDown() {
+        dispatcher.close();
+    }
+
+    @Test
+    public void testSynchronousWithoutRunningDispatcher() throws EventNotFoundException {
+        final AtomicReference<Thread> firedIn = new AtomicReference<>();
+
+        eventHandler.registerListener(EVENT_NAME, new MonitorEventListener() {
+
+            @Override
+            public void execute(final MonitorEvent event) {
+                firedIn.set(Thread.currentThread());
+            }
+        });
+
+        eventHandler.fireEventAsync(new MonitorEvent(EVENT_NAME));
+
+        Assert.assertSame(Thread.currentThread(), firedIn.get());
+        Assert.assertEquals(Long.valueOf(0), dispatcher.getDispatchedCount());
+    }
+
+    @Test
+    public void testAsynchronousDispatch() throws EventNotFoundException, InterruptedException {
+        final AtomicReference<Thread> firedIn = new AtomicReference<>();
+        final CountDownLatch fired = new CountDownLatch(1);
+
+        eventHandler.registerListener(EVENT_NAME, new MonitorEventListener() {
+
+            @Override
+            public void execute(final MonitorEvent event) {
+                firedIn.set(Thread.currentThread());
+                fired.countDown();
+            }
+        });
+
+        dispatcher.start();
+        eventHandler.fireEventAsync(new MonitorEvent(EVENT_NAME));
+
+        Assert.assertTrue(fired.await(5, TimeUnit.SECONDS));
+        Assert.assertNotSame(Thread.currentThread(), firedIn.get());
+    }
+
+    @Test
+    public void testCallerRunsIfQueueIsFull() throws EventNotFoundException, InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger callerRuns = new AtomicInteger();
+        final Thread caller = Thread.currentThread();
+
+        eventHandler.registerListener(EVENT_NAME, new MonitorEventListener() {
+
+            @Override
+            public void execute(final MonitorEvent event) {
+                if (Thread.currentThread() == caller) {
+                    callerRuns.incrementAndGet();
+                    return;
+                }
+
+                blocked.countDown();
+
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        dispatcher.start();
+
+        // the first event blocks the only thread, the second fills the queue
+        eventHandler.fireEventAsync(new MonitorEvent(EVENT_NAME));
+        Assert.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        eventHandler.fireEventAsync(new MonitorEvent(EVENT_NAME));
+        eventHandler.fireEventAsync(new MonitorEvent(EVENT_NAME));
+
+        Assert.assertEquals(1, callerRuns.get());
+        Assert.assertEquals(Long.valueOf(1), dispatcher.getCallerRunsCount());
+        Assert.assertEquals(Integer.valueOf(1), dispatcher.getQueueDepth());
+
+        release.countDown();
+        dispatcher.close();
+
+        Assert.assertEquals(Long.valueOf(3), dispatcher.getDispatchedCount());
+    }
+
+    @Test
+    public void testListenerErrorIsIsolated() throws EventNotFoundException {
+        final AtomicInteger executed = new AtomicInteger();
+
+        eventHandler.registerListener(EVENT_NAME, new MonitorEventListener() {
+
+            @Override
+            public void execute(final MonitorEvent event) {
+                throw new IllegalStateException("listener failed");
+            }
+        });
+
+        eventHandler.registerListener(EVENT_NAME, new MonitorEventListener() {
+
+            @Override
+            public void execute(final MonitorEvent event) {
+                executed.incrementAndGet();
+            }
+        });
+
+        eventHandler.fireEvent(new MonitorEvent(EVENT_NAME));
+
+        Assert.assertEquals(1, executed.get());
+        Assert.assertEquals(Long.valueOf(1), eventHandler.getListenerErrorCount());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.control.event;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class CoalescingEventListenerTest {
+
+    private static final String EVENT_NAME = "test.event";
+    private static final Long WINDOW = 200L;
+
+    private MonitorEventHandler eventHandler;
+    private List<MonitorEvent> received;
+    private CountDownLatch delivered;
+    private MonitorEventListener listener;
+
+    @Before
+    public void setUp() {
+        eventHandler = new MonitorEventHandler();
+        eventHandler.registerEvent(EVENT_NAME);
+
+        received = new CopyOnWriteArrayList<>();
+        delivered = new CountDownLatch(2);
+        listener = new MonitorEventListener() {
+
+            @Override
+            public void execute(final MonitorEvent event) {
+                received.add(event);
+                delivered.countDown();
+            }
+        };
+    }
+
+    @Test
+    public void testLatestEventPerKey() throws EventNotFoundException, InterruptedException {
+        CoalescingEventListener coalescing = eventHandler.registerCoalescingListener(EVENT_NAME, listener, WINDOW);
+
+        for (int i = 0; i < 100; i++) {
+            eventHandler.fireEvent(new MonitorEvent(EVENT_NAME, "process" + (i % 2)));
+        }
+
+        MonitorEvent latest = new MonitorEvent(EVENT_NAME, "process0");
+        eventHandler.fireEvent(latest);
+
+        Assert.assertTrue(received.isEmpty());
+        Assert.assertTrue(delivered.await(5, TimeUnit.SECONDS));
+
+        Assert.assertEquals(2, received.size());
+        Assert.assertTrue(received.contains(latest));
+        Assert.assertEquals(Long.valueOf(101), coalescing.getReceivedCount());
+        Assert.assertEquals(Integer.valueOf(0), coalescing.getPendingCount());
+    }
+
+    @Test
+    public void testRemoveByDelegate() throws EventNotFoundException, InterruptedException {
+        eventHandler.registerCoalescingListener(EVENT_NAME, listener, WINDOW);
+        eventHandler.fireEvent(new MonitorEvent(EVENT_NAME, "process0"));
+        eventHandler.removeListener(EVENT_NAME, listener);
+        eventHandler.fireEvent(new MonitorEvent(EVENT_NAME, "process1"));
+
+        Assert.assertFalse(delivered.await(WINDOW * 3, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(received.isEmpty());
+    }
+}
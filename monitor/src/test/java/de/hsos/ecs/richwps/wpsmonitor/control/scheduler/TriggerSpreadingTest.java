@@ -0,0 +1,128 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.control.scheduler;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+import org.quartz.JobKey;
+
+/**
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class TriggerSpreadingTest {
+
+    private static final Long MINUTE = 60000L;
+
+    private TriggerConfig everyMinute(final Date start) {
+        return new TriggerConfig(start, new Date(start.getTime() + 24 * 60 * MINUTE), 1, TriggerConfig.IntervalUnit.MINUTE);
+    }
+
+    @Test
+    public void testSpreadIsDeterministicAndStable() {
+        TriggerSpreading spreading = new TriggerSpreading(true, 3600000L, 0L);
+        Date start = new Date(1420070400000L); // a round time
+        Set<Long> offsets = new HashSet<>();
+
+        for (int i = 0; i < 100; i++) {
+            JobKey jobKey = new JobKey("process" + i, "1");
+            TriggerConfig config = everyMinute(start);
+
+            Date spread = spreading.spread(jobKey, config);
+
+            Assert.assertEquals(spread, spreading.spread(jobKey, config));
+            Assert.assertFalse(spread.before(start));
+            Assert.assertTrue(spread.getTime() - start.getTime() < MINUTE);
+
+            // spreading a spread start doesn't move it again
+            config.setStart(spread);
+            Assert.assertTrue(spreading.isSpread(jobKey, config));
+            Assert.assertEquals(spread, spreading.spread(jobKey, config));
+
+            offsets.add(spread.getTime() - start.getTime());
+        }
+
+        // the jobs are not started at the same time
+        Assert.assertTrue(offsets.size() > 90);
+    }
+
+    @Test
+    public void testJitterStaysInPhase() {
+        TriggerSpreading spreading = new TriggerSpreading(true, 3600000L, 5000L);
+        TriggerSpreading withoutJitter = new TriggerSpreading(true, 3600000L, 0L);
+        JobKey jobKey = new JobKey("process", "1");
+        Date start = new Date(1420070400000L);
+
+        Date phase = withoutJitter.spread(jobKey, everyMinute(start));
+
+        for (int i = 0; i < 50; i++) {
+            TriggerConfig config = everyMinute(start);
+            Date spread = spreading.spread(jobKey, config);
+
+            Assert.assertTrue(spread.getTime() - phase.getTime() >= 0);
+            Assert.assertTrue(spread.getTime() - phase.getTime() <= 5000L);
+
+            config.setStart(spread);
+            Assert.assertTrue(spreading.isSpread(jobKey, config));
+        }
+    }
+
+    @Test
+    public void testJitterIsNotBeforeStart() {
+        TriggerSpreading spreading = new TriggerSpreading(true, 3600000L, 5000L);
+
+        for (int i = 0; i < 100; i++) {
+            JobKey jobKey = new JobKey("process" + i, "1");
+
+            // a round start and starts just behind the phase of the job; the window is one minute
+            Long phase = TriggerSpreading.phaseOf(jobKey, MINUTE);
+            Date[] starts = new Date[]{
+                new Date(1420070400000L),
+                new Date(1420070400000L + phase + 1),
+                new Date(1420070400000L + phase + 4999)
+            };
+
+            for (Date start : starts) {
+                TriggerConfig config = everyMinute(new Date(1420070400000L));
+                Date spread = spreading.spread(jobKey, config, start);
+
+                Assert.assertFalse(spread.before(start));
+
+                config.setStart(spread);
+                Assert.assertTrue(spreading.isSpread(jobKey, config));
+            }
+        }
+    }
+
+    @Test
+    public void testNoSpreading() {
+        Date start = new Date(1420070400000L);
+        JobKey jobKey = new JobKey("process", "1");
+
+        Assert.assertEquals(start, TriggerSpreading.none().spread(jobKey, everyMinute(start)));
+
+        // the end is before the spread start
+        TriggerConfig shortOne = new TriggerConfig(start, new Date(start.getTime() + 1), 1, TriggerConfig.IntervalUnit.HOUR);
+        TriggerSpreading spreading = new TriggerSpreading(true, 3600000L, 0L);
+
+        if (TriggerSpreading.phaseOf(jobKey, 3600000L) > 1) {
+            Assert.assertEquals(start, spreading.spread(jobKey, shortOne));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.control.threadsave;
+
+import de.hsos.ecs.richwps.wpsmonitor.control.event.MonitorEvent;
+import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDaoFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDaoFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.Jpa;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.WpsDaoDefaultFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.WpsProcessDaoDefaultFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import java.net.MalformedURLException;
+import java.net.URL;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class WpsMetadataRegistryTest {
+
+    private static final String WPS_PROCESS_NAME = "testCaseScenario_Registry";
+
+    private static Jpa jpa;
+
+    @BeforeClass
+    public static void setUpClass() {
+        jpa = new Jpa("de.hsosnabrueck.ecs.richwps_WPSMonitorTEST_pu");
+        jpa.open();
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        jpa.close();
+    }
+
+    private WpsMetadataRegistry registry;
+    private WpsEntity wps;
+    private WpsProcessEntity process;
+
+    @Before
+    public void setUp() throws MalformedURLException, CreateException {
+        wps = new WpsEntity(new URL("http://localhost/registry/wps"));
+        process = new WpsProcessEntity(WPS_PROCESS_NAME, wps);
+
+        try (WpsDataAccess wpsDao = new WpsDaoDefaultFactory(jpa).create();
+                WpsProcessDataAccess wpsProcessDao = new WpsProcessDaoDefaultFactory(jpa).create()) {
+            wpsDao.persist(wps);
+            wpsProcessDao.persist(process);
+        }
+
+        registry = new WpsMetadataRegistry(new WpsDaoFactory(new WpsDaoDefaultFactory(jpa)),
+                new WpsProcessDaoFactory(new WpsProcessDaoDefaultFactory(jpa)));
+    }
+
+    @After
+    public void tearDown() throws CreateException {
+        try (WpsDataAccess wpsDao = new WpsDaoDefaultFactory(jpa).create()) {
+            WpsEntity stored = wpsDao.find(wps.getId());
+
+            if (stored != null) {
+                wpsDao.remove(stored);
+            }
+        }
+    }
+
+    private void removeStoredWps() throws CreateException {
+        try (WpsDataAccess wpsDao = new WpsDaoDefaultFactory(jpa).create()) {
+            wpsDao.remove(wpsDao.find(wps.getId()));
+        }
+    }
+
+    @Test
+    public void testLoad() throws CreateException {
+        registry.load();
+
+        // the registry answers without the database
+        removeStoredWps();
+
+        Assert.assertEquals(wps.getId(), registry.getWpsId(wps.getEndpoint()));
+        Assert.assertEquals(wps.getEndpoint(), registry.getEndpoint(wps.getId()));
+        Assert.assertEquals(process.getId(), registry.getProcessId(wps.getId(), WPS_PROCESS_NAME));
+        Assert.assertEquals(process.getId(), registry.getProcessId(wps.getEndpoint(), WPS_PROCESS_NAME));
+    }
+
+    @Test
+    public void testReadThrough() {
+        Assert.assertEquals(process.getId(), registry.getProcessId(wps.getEndpoint(), WPS_PROCESS_NAME));
+        Assert.assertNull(registry.getProcessId(wps.getId(), "unknownProcess"));
+    }
+
+    @Test
+    public void testUnknownWps() throws MalformedURLException {
+        registry.load();
+
+        Assert.assertNull(registry.getWpsId(new URL("http://localhost/registry/unknown")));
+        Assert.assertNull(registry.getEndpoint(-1L));
+    }
+
+    @Test
+    public void testUpdateEvent() throws MalformedURLException, CreateException {
+        registry.load();
+        removeStoredWps();
+
+        URL newEndpoint = new URL("http://localhost/registry/moved");
+        registry.execute(new MonitorEvent("monitorcontrol.updateWps", new URL[]{wps.getEndpoint(), newEndpoint}));
+
+        Assert.assertEquals(wps.getId(), registry.getWpsId(newEndpoint));
+        Assert.assertEquals(newEndpoint, registry.getEndpoint(wps.getId()));
+        Assert.assertNull(registry.getWpsId(wps.getEndpoint()));
+    }
+
+    @Test
+    public void testDeleteEvents() throws MalformedURLException, CreateException {
+        registry.load();
+        removeStoredWps();
+
+        // the delete events carry the given entities, which may have no id
+        WpsEntity unstoredWps = new WpsEntity(wps.getEndpoint());
+        registry.execute(new MonitorEvent("monitorcontrol.deleteProcess",
+                new WpsProcessEntity(WPS_PROCESS_NAME, unstoredWps)));
+
+        Assert.assertNull(registry.getProcessId(wps.getId(), WPS_PROCESS_NAME));
+        Assert.assertEquals(wps.getId(), registry.getWpsId(wps.getEndpoint()));
+
+        registry.execute(new MonitorEvent("monitorcontrol.deleteWps", unstoredWps));
+
+        Assert.assertNull(registry.getWpsId(wps.getEndpoint()));
+        Assert.assertNull(registry.getEndpoint(wps.getId()));
+    }
+
+    @Test
+    public void testCreateEvents() throws CreateException {
+        removeStoredWps();
+
+        registry.execute(new MonitorEvent("monitorcontrol.createWps", wps));
+        registry.execute(new MonitorEvent("monitorcontrol.createAndScheduleProcess", process));
+
+        Assert.assertEquals(wps.getId(), registry.getWpsId(wps.getEndpoint()));
+        Assert.assertEquals(process.getId(), registry.getProcessId(wps.getId(), WPS_PROCESS_NAME));
+    }
+}
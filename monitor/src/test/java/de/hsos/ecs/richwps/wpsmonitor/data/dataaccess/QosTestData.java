@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.defaultimpl.TestQosEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.AbstractQosEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import java.net.URL;
+import java.util.Calendar;
+
+/**
+ * Shared fixture of the data access tests: a persisted WPS with a process and
+ * the measured data of it.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public final class QosTestData {
+
+    private QosTestData() {
+    }
+
+    /**
+     * Persists a new WPS with one process.
+     *
+     * @param wpsDao WpsDataAccess instance
+     * @param wpsProcessDao WpsProcessDataAccess instance
+     * @param endpoint Endpoint of the new WPS
+     * @param processIdentifier Identifier of the new process
+     * @return The persisted process; the WPS is available through getWps()
+     */
+    public static WpsProcessEntity persistProcess(final WpsDataAccess wpsDao, final WpsProcessDataAccess wpsProcessDao,
+            final URL endpoint, final String processIdentifier) {
+        WpsEntity wps = new WpsEntity(endpoint);
+        WpsProcessEntity process = new WpsProcessEntity(processIdentifier, wps);
+
+        wpsDao.persist(wps);
+        wpsProcessDao.persist(process);
+
+        return process;
+    }
+
+    /**
+     * Creates measured data with one {@link TestQosEntity}.
+     *
+     * @param process Measured process
+     * @param addDay Days which are added to the current time
+     * @param value Value of the TestQosEntity
+     * @return MeasuredDataEntity instance
+     */
+    public static MeasuredDataEntity genDataEn(final WpsProcessEntity process, final Integer addDay, final Integer value) {
+        TestQosEntity qos = new TestQosEntity();
+        qos.setSomeValue(value);
+
+        return genDataEn(process, addDay, qos);
+    }
+
+    /**
+     * Creates measured data with the given qos entity.
+     *
+     * @param process Measured process
+     * @param addDay Days which are added to the current time
+     * @param qos The measured value
+     * @return MeasuredDataEntity instance
+     */
+    public static MeasuredDataEntity genDataEn(final WpsProcessEntity process, final Integer addDay,
+            final AbstractQosEntity qos) {
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.DAY_OF_MONTH, addDay);
+
+        MeasuredDataEntity measuredData = new MeasuredDataEntity();
+        measuredData.setCreateTime(cal.getTime());
+        measuredData.setProcess(process);
+        measuredData.add(qos);
+
+        return measuredData;
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.archive;
+
+import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Cursor;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosRecord;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosTestData;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Range;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.defaultimpl.TestQosEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.Jpa;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.QosDaoDefaultFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.WpsDaoDefaultFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.WpsProcessDaoDefaultFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import de.hsos.ecs.richwps.wpsmonitor.measurement.qos.response.ResponseEntity;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class ArchivedQosDaoTest {
+
+    private static final String WPS_PROCESS_NAME = "testCaseScenario_Archive";
+    private static final Integer GENERATE_COUNT = 10;
+    private static final Integer ARCHIVED_COUNT = 6;
+    private static final Integer BLOCK_SIZE = 4;
+
+    private static Jpa jpa;
+
+    @BeforeClass
+    public static void setUpClass() {
+        jpa = new Jpa("de.hsosnabrueck.ecs.richwps_WPSMonitorTEST_pu");
+        jpa.open();
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        jpa.close();
+    }
+
+    private File directory;
+    private ArchiveStore store;
+    private QosDataAccess qosDao;
+    private WpsEntity wps;
+    private WpsProcessEntity process;
+    private List<Long> insertedIds;
+
+    @Before
+    public void setUp() throws IOException, CreateException {
+        directory = Files.createTempDirectory("archive").toFile();
+        store = new ArchiveStore(directory, BLOCK_SIZE);
+
+        WpsDataAccess wpsDao = new WpsDaoDefaultFactory(jpa).create();
+        wpsDao.setAutoCommit(false);
+
+        WpsProcessDataAccess wpsProcessDao = new WpsProcessDaoDefaultFactory(jpa).create();
+        wpsProcessDao.setAutoCommit(false);
+
+        process = QosTestData.persistProcess(wpsDao, wpsProcessDao, new URL("http://localhost/archive/wps"),
+                WPS_PROCESS_NAME);
+        wps = process.getWps();
+
+        qosDao = new ArchivedQosDaoFactory(new QosDaoDefaultFactory(jpa), store,
+                new WpsProcessDaoDefaultFactory(jpa)).create();
+        qosDao.setAutoCommit(false);
+
+        insertedIds = new ArrayList<>();
+
+        // newest first; every third measurement was not available
+        for (int i = 1; i <= GENERATE_COUNT; i++) {
+            MeasuredDataEntity measuredData = genDataEn(-i, i);
+            qosDao.persist(measuredData);
+            insertedIds.add(measuredData.getId());
+        }
+
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.DAY_OF_MONTH, -(GENERATE_COUNT - ARCHIVED_COUNT));
+        cal.add(Calendar.HOUR_OF_DAY, -1);
+
+        Assert.assertTrue(qosDao.archiveOlderAs(cal.getTime()) >= ARCHIVED_COUNT);
+    }
+
+    @After
+    public void tearDown() {
+        qosDao.rollback();
+
+        File[] files = directory.listFiles();
+
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+
+        directory.delete();
+    }
+
+    private MeasuredDataEntity genDataEn(final Integer addDay, final Integer value) {
+        if (value % 2 == 0) {
+            return QosTestData.genDataEn(process, addDay, value);
+        }
+
+        ResponseEntity qos = new ResponseEntity();
+        qos.setResponseTime((value % 3 == 0) ? null : value);
+
+        return QosTestData.genDataEn(process, addDay, qos);
+    }
+
+    private void assertValue(final Integer value, final MeasuredDataEntity measuredData) {
+        Assert.assertEquals(1, measuredData.getData().size());
+
+        if (value % 2 == 0) {
+            Assert.assertEquals(value, ((TestQosEntity) measuredData.getData().get(0)).getSomeValue());
+        } else {
+            Assert.assertEquals((value % 3 == 0) ? null : value,
+                    ((ResponseEntity) measuredData.getData().get(0)).getResponseTime());
+        }
+    }
+
+    @Test
+    public void testArchiveOlderAs() {
+        Assert.assertEquals(ARCHIVED_COUNT.intValue(), store.read(process.getId(), null, null, null, null).size());
+        Assert.assertTrue(store.getNewestCreateTime(process.getId()).before(new Date()));
+
+        List<MeasuredDataEntity> all = qosDao.getByProcess(wps.getId(), WPS_PROCESS_NAME);
+        Assert.assertEquals(GENERATE_COUNT.intValue(), all.size());
+
+        for (int i = 0; i < GENERATE_COUNT; i++) {
+            Assert.assertEquals(insertedIds.get(i), all.get(i).getId());
+            Assert.assertEquals(process, all.get(i).getProcess());
+            assertValue(i + 1, all.get(i));
+        }
+    }
+
+    @Test
+    public void testGetByProcessRange() {
+        List<MeasuredDataEntity> page = qosDao.getByProcess(wps.getId(), WPS_PROCESS_NAME, new Range(3, 4));
+
+        Assert.assertEquals(4, page.size());
+
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(insertedIds.get(3 + i), page.get(i).getId());
+        }
+    }
+
+    @Test
+    public void testCursorPaging() {
+        List<Long> ids = new ArrayList<>();
+        Cursor cursor = null;
+        List<MeasuredDataEntity> page;
+
+        do {
+            page = qosDao.getByProcess(wps.getId(), WPS_PROCESS_NAME, cursor, 3);
+
+            for (MeasuredDataEntity measuredData : page) {
+                ids.add(measuredData.getId());
+            }
+
+            if (!page.isEmpty()) {
+                cursor = Cursor.after(page.get(page.size() - 1));
+            }
+        } while (page.size() == 3);
+
+        Assert.assertEquals(insertedIds, ids);
+    }
+
+    @Test
+    public void testGetRecordsByProcess() throws CreateException {
+        // the records are read from the committed data
+        Assert.assertTrue(qosDao.commit());
+
+        try {
+            List<QosRecord> records = qosDao.getRecordsByProcess(wps.getId(), WPS_PROCESS_NAME, null, 6);
+
+            Assert.assertEquals(6, records.size());
+
+            for (int i = 0; i < 6; i++) {
+                Assert.assertEquals(insertedIds.get(i), records.get(i).getMeasuredDataId());
+            }
+        } finally {
+            try (WpsDataAccess wpsDao = new WpsDaoDefaultFactory(jpa).create()) {
+                wpsDao.remove(wps);
+            }
+        }
+    }
+
+    @Test
+    public void testGetBetween() {
+        List<MeasuredDataEntity> between = qosDao.getBetween(new Date(0), new Date());
+        List<Long> ids = new ArrayList<>();
+
+        for (MeasuredDataEntity measuredData : between) {
+            if (process.equals(measuredData.getProcess())) {
+                ids.add(0, measuredData.getId());
+            }
+        }
+
+        // oldest first
+        Assert.assertEquals(insertedIds, ids);
+    }
+
+    @Test
+    public void testDeleteAllOlderAs() {
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.DAY_OF_MONTH, -7);
+        cal.add(Calendar.HOUR_OF_DAY, 1);
+
+        Integer deleted = qosDao.deleteAllOlderAs(cal.getTime(), 100);
+
+        Assert.assertTrue(deleted >= 4);
+        Assert.assertEquals(6, qosDao.getByProcess(wps.getId(), WPS_PROCESS_NAME).size());
+        Assert.assertNull(qosDao.find(insertedIds.get(GENERATE_COUNT - 1)));
+        Assert.assertNotNull(qosDao.find(insertedIds.get(5)));
+    }
+
+    @Test
+    public void testFindAndRemove() {
+        Long archivedId = insertedIds.get(GENERATE_COUNT - 2);
+        MeasuredDataEntity found = qosDao.find(archivedId);
+
+        Assert.assertNotNull(found);
+        Assert.assertEquals(process, found.getProcess());
+        assertValue(GENERATE_COUNT - 1, found);
+
+        qosDao.remove(found);
+
+        Assert.assertNull(qosDao.find(archivedId));
+        Assert.assertEquals(GENERATE_COUNT - 1, qosDao.getByProcess(wps.getId(), WPS_PROCESS_NAME).size());
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        ArchiveStore reopened = new ArchiveStore(directory, BLOCK_SIZE);
+        reopened.open();
+
+        List<MeasuredDataEntity> archived = reopened.read(process.getId(), null, null, null, null);
+
+        Assert.assertEquals(ARCHIVED_COUNT.intValue(), archived.size());
+        Assert.assertEquals(insertedIds.get(GENERATE_COUNT - ARCHIVED_COUNT), archived.get(0).getId());
+
+        // measurements which are already archived are skipped
+        Assert.assertEquals(Integer.valueOf(0), reopened.append(process.getId(), archived));
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.cache;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Range;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.defaultimpl.TestQosEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class MeasuredDataCacheTest {
+
+    private static final Long WPS_ID = 1L;
+    private static final String PROCESS_NAME = "SimpleBuffer";
+    private static final Integer CAPACITY = 5;
+
+    private MeasuredDataCache instance;
+    private WpsProcessEntity process;
+
+    public MeasuredDataCacheTest() {
+    }
+
+    @Before
+    public void setUp() throws MalformedURLException {
+        WpsEntity wps = new WpsEntity("http://localhost/wps");
+        wps.setId(WPS_ID);
+
+        process = new WpsProcessEntity(PROCESS_NAME, wps);
+        instance = new MeasuredDataCache(CAPACITY);
+    }
+
+    @Test
+    public void testNotLoadedWindowIsNotServed() {
+        instance.add(createMeasuredData(1000));
+
+        Assert.assertNull(instance.get(WPS_ID, PROCESS_NAME, new Range(null, 3)));
+    }
+
+    @Test
+    public void testRangesBeyondCapacityAreNotServable() {
+        Assert.assertFalse(instance.isServable(new Range(null, CAPACITY + 1)));
+        Assert.assertFalse(instance.isServable(new Range(1, 3)));
+        Assert.assertFalse(instance.isServable(null));
+        Assert.assertTrue(instance.isServable(new Range(0, CAPACITY)));
+    }
+
+    @Test
+    public void testAddedDataIsOrderedAndTrimmed() {
+        instance.load(WPS_ID, PROCESS_NAME, new ArrayList<MeasuredDataEntity>());
+
+        for (int i = 1; i <= CAPACITY + 2; i++) {
+            instance.add(createMeasuredData(i * 1000));
+        }
+
+        // out of order, e.g. by a batched writer
+        instance.add(createMeasuredData(6500));
+
+        List<MeasuredDataEntity> result = instance.get(WPS_ID, PROCESS_NAME, new Range(null, CAPACITY));
+
+        Assert.assertEquals(CAPACITY.intValue(), result.size());
+        Assert.assertEquals(7000, result.get(0).getCreateTime().getTime());
+        Assert.assertEquals(6500, result.get(1).getCreateTime().getTime());
+        Assert.assertEquals(4000, result.get(4).getCreateTime().getTime());
+    }
+
+    @Test
+    public void testLoadKeepsNewerAddedData() {
+        instance.add(createMeasuredData(3000));
+
+        List<MeasuredDataEntity> loaded = new ArrayList<>();
+        loaded.add(createMeasuredData(2000));
+        loaded.add(createMeasuredData(1000));
+        instance.load(WPS_ID, PROCESS_NAME, loaded);
+
+        List<MeasuredDataEntity> result = instance.get(WPS_ID, PROCESS_NAME, new Range(null, CAPACITY));
+
+        Assert.assertEquals(3, result.size());
+        Assert.assertEquals(3000, result.get(0).getCreateTime().getTime());
+    }
+
+    @Test
+    public void testSnapshotIsReusedUntilChange() {
+        instance.load(WPS_ID, PROCESS_NAME, new ArrayList<MeasuredDataEntity>());
+        instance.add(createMeasuredData(1000));
+
+        List<MeasuredDataEntity> first = instance.get(WPS_ID, PROCESS_NAME, new Range(null, 3));
+        Assert.assertSame(first, instance.get(WPS_ID, PROCESS_NAME, new Range(null, 3)));
+
+        instance.add(createMeasuredData(2000));
+        Assert.assertNotSame(first, instance.get(WPS_ID, PROCESS_NAME, new Range(null, 3)));
+    }
+
+    @Test
+    public void testInvalidateAndRemoveOlderAs() {
+        instance.load(WPS_ID, PROCESS_NAME, new ArrayList<MeasuredDataEntity>());
+        instance.add(createMeasuredData(1000));
+        instance.add(createMeasuredData(2000));
+
+        instance.removeOlderAs(new Date(1500));
+        Assert.assertEquals(1, instance.get(WPS_ID, PROCESS_NAME, new Range(null, 3)).size());
+
+        instance.invalidateWps(WPS_ID);
+        Assert.assertNull(instance.get(WPS_ID, PROCESS_NAME, new Range(null, 3)));
+    }
+
+    @Test
+    public void testCachedDataIsDetached() {
+        MeasuredDataEntity data = createMeasuredData(1000);
+        data.setId(42L);
+
+        TestQosEntity qos = new TestQosEntity();
+        qos.setSomeValue(7);
+        data.add(qos);
+
+        instance.load(WPS_ID, PROCESS_NAME, new ArrayList<MeasuredDataEntity>());
+        instance.add(data);
+
+        MeasuredDataEntity cached = instance.get(WPS_ID, PROCESS_NAME, new Range(null, 1)).get(0);
+
+        Assert.assertNotSame(data, cached);
+        Assert.assertNotSame(process, cached.getProcess());
+        Assert.assertNotSame(qos, cached.getData().get(0));
+        Assert.assertEquals(data.getId(), cached.getId());
+        Assert.assertEquals(process, cached.getProcess());
+        Assert.assertEquals(WPS_ID, cached.getProcess().getWps().getId());
+        Assert.assertEquals(Integer.valueOf(7), ((TestQosEntity) cached.getData().get(0)).getSomeValue());
+
+        // later changes of the entity don't reach the cache
+        qos.setSomeValue(8);
+        Assert.assertEquals(Integer.valueOf(7), ((TestQosEntity) cached.getData().get(0)).getSomeValue());
+    }
+
+    private MeasuredDataEntity createMeasuredData(final long time) {
+        MeasuredDataEntity data = new MeasuredDataEntity();
+        data.setProcess(process);
+        data.setCreateTime(new Date(time));
+
+        return data;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.compact;
+
+import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosRecord;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosTestData;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Range;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.defaultimpl.TestQosEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.Jpa;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.QosDaoDefaultFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.WpsDaoDefaultFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.WpsProcessDaoDefaultFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class CompactQosDaoTest {
+
+    private static final Integer GENERATE_COUNT = 5;
+    private static final String WPS_PROCESS_NAME = "testCaseScenario_SimpleBuffer";
+
+    private static Jpa jpa;
+
+    @BeforeClass
+    public static void setUpClass() {
+        jpa = new Jpa("de.hsosnabrueck.ecs.richwps_WPSMonitorTEST_pu");
+        jpa.open();
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        jpa.close();
+    }
+
+    private QosDataAccess qosDao;
+    private WpsDataAccess wpsDao;
+    private WpsProcessDataAccess wpsProcessDao;
+    private WpsEntity wps;
+    private WpsProcessEntity process;
+    private List<Long> insertedIds;
+
+    @Before
+    public void setUp() throws MalformedURLException, CreateException {
+        qosDao = new CompactQosDaoFactory(jpa).create();
+        qosDao.setAutoCommit(false);
+
+        wpsDao = new WpsDaoDefaultFactory(jpa).create();
+        wpsDao.setAutoCommit(false);
+
+        wpsProcessDao = new WpsProcessDaoDefaultFactory(jpa).create();
+        wpsProcessDao.setAutoCommit(false);
+
+        process = QosTestData.persistProcess(wpsDao, wpsProcessDao, new URL("http://localhost/compact-wps"),
+                WPS_PROCESS_NAME);
+        wps = process.getWps();
+
+        insertedIds = new ArrayList<>();
+
+        for (int i = 1; i <= GENERATE_COUNT; i++) {
+            MeasuredDataEntity measuredData = QosTestData.genDataEn(process, -i, i);
+            qosDao.persist(measuredData);
+            insertedIds.add(measuredData.getId());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        qosDao.rollback();
+    }
+
+    @Test
+    public void testFind() {
+        MeasuredDataEntity found = qosDao.find(insertedIds.get(0));
+
+        Assert.assertNotNull(found);
+        Assert.assertEquals(process, found.getProcess());
+        Assert.assertEquals(1, found.getData().size());
+        Assert.assertEquals(Integer.valueOf(1), ((TestQosEntity) found.getData().get(0)).getSomeValue());
+    }
+
+    @Test
+    public void testGetByProcess() {
+        List<MeasuredDataEntity> byProcess = qosDao.getByProcess(wps.getId(), WPS_PROCESS_NAME, new Range(null, GENERATE_COUNT));
+
+        Assert.assertEquals(GENERATE_COUNT.intValue(), byProcess.size());
+
+        // newest first
+        for (int i = 0; i < GENERATE_COUNT; i++) {
+            Assert.assertEquals(insertedIds.get(i), byProcess.get(i).getId());
+        }
+    }
+
+    @Test
+    public void testGetRecordsByProcess() {
+        List<QosRecord> records = qosDao.getRecordsByProcess(wps.getId(), WPS_PROCESS_NAME, null, 2);
+
+        Assert.assertEquals(2, records.size());
+        Assert.assertEquals(insertedIds.get(0), records.get(0).getMeasuredDataId());
+        Assert.assertTrue(records.get(0).getEntity() instanceof TestQosEntity);
+    }
+
+    @Test
+    public void testDeleteAllOlderAs() {
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.DAY_OF_MONTH, -2);
+        cal.add(Calendar.HOUR_OF_DAY, 1);
+
+        Integer deleted = qosDao.deleteAllOlderAs(cal.getTime());
+
+        Assert.assertEquals(Integer.valueOf(GENERATE_COUNT - 1), deleted);
+        Assert.assertNull(qosDao.find(insertedIds.get(1)));
+        Assert.assertNotNull(qosDao.find(insertedIds.get(0)));
+    }
+
+    @Test
+    public void testDeleteByProcess() {
+        Integer deleted = qosDao.deleteByProcess(wps.getId(), WPS_PROCESS_NAME);
+
+        Assert.assertEquals(GENERATE_COUNT, deleted);
+        Assert.assertTrue(qosDao.getByProcess(wps.getId(), WPS_PROCESS_NAME).isEmpty());
+    }
+
+    @Test
+    public void testRemoveWps() {
+        wpsDao.remove(wps);
+
+        Assert.assertTrue(qosDao.getBetween(new Date(0), new Date()).isEmpty());
+    }
+
+    @Test
+    public void testMigration() throws CreateException {
+        QosDataAccess legacyDao = new QosDaoDefaultFactory(jpa).create();
+        legacyDao.setAutoCommit(false);
+
+        List<Long> legacyIds = new ArrayList<>();
+
+        for (int i = 1; i <= GENERATE_COUNT; i++) {
+            MeasuredDataEntity measuredData = QosTestData.genDataEn(process, -i - GENERATE_COUNT, 100 + i);
+            legacyDao.persist(measuredData);
+            legacyIds.add(measuredData.getId());
+        }
+
+        // the migration uses its own transactions
+        legacyDao.commit();
+
+        try {
+            Integer migrated = new CompactStorageMigration(jpa, 2).migrate();
+            Assert.assertEquals(GENERATE_COUNT, migrated);
+
+            Assert.assertTrue(legacyDao.getByProcess(wps.getId(), WPS_PROCESS_NAME).isEmpty());
+
+            for (int i = 0; i < GENERATE_COUNT; i++) {
+                MeasuredDataEntity found = qosDao.find(legacyIds.get(i));
+
+                Assert.assertNotNull(found);
+                Assert.assertEquals(Integer.valueOf(101 + i), ((TestQosEntity) found.getData().get(0)).getSomeValue());
+            }
+
+            Assert.assertEquals(Integer.valueOf(0), new CompactStorageMigration(jpa).migrate());
+        } finally {
+            wpsDao.remove(wps);
+            wpsDao.commit();
+        }
+    }
+}
@@ -20,8 +20,10 @@ import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.WpsProcessDaoDefaultFa
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.WpsDaoDefaultFactory;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.Jpa;
 import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Cursor;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDaoFactory;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosRecord;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Range;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDaoFactory;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDataAccess;
@@ -29,8 +31,15 @@ import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDaoFactory;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDataAccess;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.AbstractQosEntity;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataRollupEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.RollupGranularity;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -90,6 +99,7 @@ public class QosDaoTest {
     private WpsDataAccess wpsDao;
     private WpsProcessDataAccess wpsProcessDao;
     private Long[] insertedIds;
+    private WpsProcessEntity process;
 
     public QosDaoTest() {
     }
@@ -109,7 +119,7 @@ public class QosDaoTest {
             insertedIds = new Long[GENERATE_COUNT];
 
             WpsEntity wps = genWps();
-            WpsProcessEntity process = genProcess(wps);
+            process = genProcess(wps);
 
             wpsDao.persist(wps);
             wpsProcessDao.persist(process);
@@ -209,6 +219,64 @@ public class QosDaoTest {
         Assert.assertTrue(assertWpsIdentical && byProcess.size() == GENERATE_COUNT);
     }
 
+    @Test
+    public void testGetByProcess_cursor() {
+        Long wpsId = process.getWps().getId();
+        List<MeasuredDataEntity> all = qosDao.getByProcess(wpsId, WPS_PROCESS_NAME, new Range(null, GENERATE_COUNT));
+        List<MeasuredDataEntity> paged = new ArrayList<>();
+
+        Cursor cursor = null;
+        List<MeasuredDataEntity> page;
+
+        do {
+            page = qosDao.getByProcess(wpsId, WPS_PROCESS_NAME, cursor, 2);
+            paged.addAll(page);
+
+            if (!page.isEmpty()) {
+                // the token must survive the round trip through a client
+                cursor = Cursor.decode(Cursor.after(page.get(page.size() - 1)).encode());
+            }
+        } while (page.size() == 2);
+
+        Assert.assertEquals(all.size(), paged.size());
+
+        for (int i = 0; i < all.size(); i++) {
+            Assert.assertEquals(all.get(i).getId(), paged.get(i).getId());
+        }
+    }
+
+    @Test
+    public void testGetRecordsByProcess() {
+        // the records are read from the committed data
+        Assert.assertTrue(qosDao.commit());
+
+        try {
+            Long wpsId = process.getWps().getId();
+            List<MeasuredDataEntity> page = qosDao.getByProcess(wpsId, WPS_PROCESS_NAME, null, 3);
+            List<QosRecord> records = qosDao.getRecordsByProcess(wpsId, WPS_PROCESS_NAME, null, 3);
+
+            Assert.assertEquals(3, (int) QosRecord.countMeasurements(records));
+            Assert.assertEquals(3, records.size());
+
+            for (int i = 0; i < records.size(); i++) {
+                Assert.assertEquals(page.get(i).getId(), records.get(i).getMeasuredDataId());
+                Assert.assertTrue(records.get(i).getEntity() instanceof TestQosEntity);
+            }
+
+            List<QosRecord> rest = qosDao.getRecordsByProcess(wpsId, WPS_PROCESS_NAME, Cursor.after(records.get(2)), 3);
+
+            Assert.assertEquals(GENERATE_COUNT - 3, (int) QosRecord.countMeasurements(rest));
+        } finally {
+            wpsDao.remove(process.getWps());
+            wpsDao.commit();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCursor_invalidToken() {
+        Cursor.decode("not a cursor");
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testDeleteByProcess_NullValue_firstParam() {
         Range r = new Range(null, GENERATE_COUNT);
@@ -304,6 +372,114 @@ public class QosDaoTest {
         Assert.assertTrue(deleteAllOlderAs.equals(expectedCount) && evaluateByProcess.size() == (GENERATE_COUNT - expectedCount));
     }
 
+    /**
+     * Test of storeRollup, findRollup and getRollups methods, of class QosDao.
+     */
+    @Test
+    public void testStoreAndGetRollups() {
+        Date bucketStart = RollupGranularity.HOUR.floor(getDate(-1));
+
+        MeasuredDataRollupEntity rollup = new MeasuredDataRollupEntity(process, "test", RollupGranularity.HOUR, bucketStart);
+        rollup.add(100L);
+        rollup.add(null);
+        qosDao.storeRollup(rollup);
+
+        MeasuredDataRollupEntity other = new MeasuredDataRollupEntity(process, "test", RollupGranularity.HOUR, bucketStart);
+        other.add(300L);
+
+        MeasuredDataRollupEntity stored = qosDao.findRollup(process, "test", RollupGranularity.HOUR, bucketStart);
+        stored.merge(other);
+        qosDao.storeRollup(stored);
+
+        List<MeasuredDataRollupEntity> rollups = qosDao.getRollups(process.getWps().getId(), WPS_PROCESS_NAME,
+                RollupGranularity.HOUR, getDate(-2), new Date());
+
+        Assert.assertEquals(1, rollups.size());
+        Assert.assertEquals(Long.valueOf(3), rollups.get(0).getMeasurementCount());
+        Assert.assertEquals(Long.valueOf(2), rollups.get(0).getSuccessCount());
+        Assert.assertEquals(Long.valueOf(100), rollups.get(0).getMinValue());
+        Assert.assertEquals(Long.valueOf(300), rollups.get(0).getMaxValue());
+        Assert.assertEquals(Long.valueOf(2), Long.valueOf(rollups.get(0).getHistogram().getCount()));
+        Assert.assertEquals(bucketStart, qosDao.getNewestRollupBucket(RollupGranularity.HOUR));
+        Assert.assertNull(qosDao.getNewestRollupBucket(RollupGranularity.MINUTE));
+    }
+
+    /**
+     * Test of storeRollup method, of class QosDao, with a detached rollup; the
+     * histogram of the detached rollup replaces the stored one.
+     */
+    @Test
+    public void testStoreDetachedRollup() throws IOException, ClassNotFoundException {
+        Date bucketStart = RollupGranularity.HOUR.floor(getDate(-1));
+
+        MeasuredDataRollupEntity rollup = new MeasuredDataRollupEntity(process, "test", RollupGranularity.HOUR, bucketStart);
+        rollup.add(100L);
+        MeasuredDataRollupEntity stored = qosDao.storeRollup(rollup);
+        Assert.assertEquals(1L, stored.getHistogram().getCount());
+
+        MeasuredDataRollupEntity detached = detach(stored);
+        detached.add(200L);
+        detached.add(300L);
+        qosDao.storeRollup(detached);
+
+        MeasuredDataRollupEntity found = qosDao.findRollup(process, "test", RollupGranularity.HOUR, bucketStart);
+
+        Assert.assertEquals(Long.valueOf(3), found.getSuccessCount());
+        Assert.assertEquals(3L, found.getHistogram().getCount());
+        Assert.assertEquals(Long.valueOf(300), found.getHistogram().getMax());
+    }
+
+    private MeasuredDataRollupEntity detach(final MeasuredDataRollupEntity rollup) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(rollup);
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (MeasuredDataRollupEntity) in.readObject();
+        }
+    }
+
+    /**
+     * Test of deleteRollupsOlderAs method, of class QosDao.
+     */
+    @Test
+    public void testDeleteRollupsOlderAs() {
+        for (int i = 1; i <= GENERATE_COUNT; i++) {
+            qosDao.storeRollup(new MeasuredDataRollupEntity(process, "test", RollupGranularity.DAY, getDate(-i)));
+        }
+
+        Integer deleted = qosDao.deleteRollupsOlderAs(RollupGranularity.DAY, getDate(-2));
+        Integer deletedHours = qosDao.deleteRollupsOlderAs(RollupGranularity.HOUR, new Date());
+
+        List<MeasuredDataRollupEntity> remaining = qosDao.getRollups(process.getWps().getId(), WPS_PROCESS_NAME,
+                RollupGranularity.DAY, getDate(-GENERATE_COUNT - 1), new Date());
+
+        Assert.assertEquals(Integer.valueOf(GENERATE_COUNT - 2), deleted);
+        Assert.assertEquals(Integer.valueOf(0), deletedHours);
+        Assert.assertEquals(2, remaining.size());
+    }
+
+    /**
+     * Test of deleteAllOlderAs method with a limit, of class QosDao.
+     */
+    @Test
+    public void testDeleteAllOlderAs_batches() {
+        Date date = getDate(0);
+
+        List<MeasuredDataEntity> before = qosDao.getByProcess(WPS_URL, WPS_PROCESS_NAME);
+        Integer firstBatch = qosDao.deleteAllOlderAs(date, 2);
+        Integer secondBatch = qosDao.deleteAllOlderAs(date, GENERATE_COUNT);
+        Integer thirdBatch = qosDao.deleteAllOlderAs(date, GENERATE_COUNT);
+
+        Assert.assertEquals(Integer.valueOf(2), firstBatch);
+        Assert.assertEquals(Integer.valueOf(GENERATE_COUNT - 2), secondBatch);
+        Assert.assertEquals(Integer.valueOf(0), thirdBatch);
+        Assert.assertTrue(qosDao.getByProcess(WPS_URL, WPS_PROCESS_NAME).isEmpty());
+        Assert.assertTrue(allQosDeleted(before));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testDeleteAllOlderAs_NullValue() {
         qosDao.deleteAllOlderAs(null);
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.defaultimpl;
+
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.Jpa;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.SchemaMigration;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataRollupEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.RollupGranularity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import java.net.MalformedURLException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks with Derby's XPLAIN statistics that the named queries on the
+ * measurement tables use indexes instead of table scans.
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class QueryPlanTest {
+
+    private static final String PLAN_SCHEMA = "QUERYPLANS";
+    private static final Integer WPS_COUNT = 3;
+    private static final Integer PROCESSES_PER_WPS = 2;
+    private static final Integer MEASUREMENTS_PER_PROCESS = 200;
+
+    /**
+     * The tables which grow with the amount of measurements.
+     */
+    private static final List<String> LARGE_TABLES = Arrays.asList(
+            "MEASUREDDATAENTITY", "ABSTRACTQOSENTITY", "MEASUREDDATAROLLUPENTITY"
+    );
+
+    private static Jpa jpa;
+
+    @BeforeClass
+    public static void setUpClass() {
+        jpa = new Jpa("de.hsosnabrueck.ecs.richwps_WPSMonitorTEST_pu");
+        jpa.open();
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        jpa.close();
+    }
+
+    private EntityManager em;
+    private Connection connection;
+    private WpsEntity wps;
+    private WpsProcessEntity process;
+    private MeasuredDataEntity measurement;
+
+    @Before
+    public void setUp() throws MalformedURLException {
+        em = jpa.createEntityManager();
+        em.getTransaction().begin();
+
+        Long now = System.currentTimeMillis();
+
+        for (int w = 0; w < WPS_COUNT; w++) {
+            wps = new WpsEntity("http://localhost/queryplan/wps" + w);
+            em.persist(wps);
+
+            for (int p = 0; p < PROCESSES_PER_WPS; p++) {
+                process = new WpsProcessEntity("queryPlanProcess" + p, wps);
+                em.persist(process);
+
+                for (int i = 0; i < MEASUREMENTS_PER_PROCESS; i++) {
+                    measurement = new MeasuredDataEntity();
+                    measurement.setCreateTime(new Date(now - i * 60000L));
+                    measurement.setProcess(process);
+
+                    TestQosEntity qos = new TestQosEntity();
+                    qos.setSomeValue(i);
+                    measurement.add(qos);
+
+                    em.persist(measurement);
+
+                    MeasuredDataRollupEntity rollup = new MeasuredDataRollupEntity(process, qos.getEntityName(),
+                            RollupGranularity.MINUTE, measurement.getCreateTime());
+                    rollup.add((long) i);
+                    em.persist(rollup);
+                }
+            }
+        }
+
+        em.flush();
+        connection = em.unwrap(Connection.class);
+    }
+
+    @After
+    public void tearDown() {
+        em.getTransaction().rollback();
+        em.close();
+    }
+
+    @Test
+    public void testMigrationCreatesIndexes() throws SQLException {
+        for (String name : SchemaMigration.getIndexNames()) {
+            try (Statement statement = connection.createStatement();
+                    ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM SYS.SYSCONGLOMERATES WHERE CONGLOMERATENAME = '" + name + "'")) {
+                rs.next();
+                Assert.assertEquals(name, 1, rs.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    public void testMigrationAddsDeleteCascade() throws SQLException {
+        Assert.assertEquals("C", getQosOwnerDeleteRule());
+
+        // simulate the schema of an older version, without the test data
+        em.getTransaction().rollback();
+        em.getTransaction().begin();
+        connection = em.unwrap(Connection.class);
+
+        String name = getQosOwnerConstraint();
+        execute("ALTER TABLE ABSTRACTQOSENTITY DROP CONSTRAINT \"" + name + "\"");
+        execute("ALTER TABLE ABSTRACTQOSENTITY ADD CONSTRAINT \"" + name + "\" "
+                + "FOREIGN KEY (OWNER_ID) REFERENCES MEASUREDDATAENTITY (MEASUREDDATA_ID)");
+        Assert.assertEquals("R", getQosOwnerDeleteRule());
+        em.getTransaction().commit();
+
+        List<String> migrated = new SchemaMigration(jpa).migrate();
+
+        Assert.assertEquals(Arrays.asList(name), migrated);
+        Assert.assertTrue(new SchemaMigration(jpa).migrate().isEmpty());
+
+        em.getTransaction().begin();
+        connection = em.unwrap(Connection.class);
+        Assert.assertEquals("C", getQosOwnerDeleteRule());
+    }
+
+    @Test
+    public void testMigrationKeepsLegacyRawRequestColumn() throws SQLException, MalformedURLException {
+        // simulate the schema of an older version, without the test data
+        em.getTransaction().rollback();
+        em.getTransaction().begin();
+        connection = em.unwrap(Connection.class);
+
+        WpsEntity legacyWps = new WpsEntity("http://localhost/queryplan/legacy");
+        WpsProcessEntity legacyProcess = new WpsProcessEntity("legacyProcess", legacyWps);
+        em.persist(legacyWps);
+        em.persist(legacyProcess);
+        em.flush();
+
+        execute("ALTER TABLE WPSPROCESSENTITY ADD COLUMN RAWREQUEST CLOB");
+        execute("UPDATE WPSPROCESSENTITY SET RAWREQUEST = '<wps:Execute/>' WHERE ID = " + legacyProcess.getId());
+        em.getTransaction().commit();
+
+        try {
+            Assert.assertTrue(new SchemaMigration(jpa).migrate().isEmpty());
+            Assert.assertTrue(hasRawRequestColumn());
+            Assert.assertEquals("<wps:Execute/>", findRawRequest(legacyProcess.getId()));
+
+            // only dropped on demand
+            Assert.assertTrue(new SchemaMigration(jpa).dropRawRequestColumn());
+            Assert.assertFalse(hasRawRequestColumn());
+            Assert.assertFalse(new SchemaMigration(jpa).dropRawRequestColumn());
+            Assert.assertEquals("<wps:Execute/>", findRawRequest(legacyProcess.getId()));
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+
+            new SchemaMigration(jpa).dropRawRequestColumn();
+
+            em.getTransaction().begin();
+            connection = em.unwrap(Connection.class);
+            execute("DELETE FROM WPSPROCESSREQUESTENTITY WHERE PROCESS_ID = " + legacyProcess.getId());
+            execute("DELETE FROM WPSPROCESSENTITY WHERE ID = " + legacyProcess.getId());
+            execute("DELETE FROM WPSENTITY WHERE ID = " + legacyWps.getId());
+            em.getTransaction().commit();
+
+            em.getTransaction().begin();
+        }
+    }
+
+    @Test
+    public void testNamedQueriesUseIndexes() throws SQLException {
+        Date now = new Date();
+        Date recent = new Date(now.getTime() - 5 * 60000L);
+        Date old = new Date(now.getTime() - (MEASUREMENTS_PER_PROCESS - 5) * 60000L);
+        Long wpsId = wps.getId();
+        String endpoint = wps.getEndpoint().toString();
+        String identifier = process.getIdentifier();
+        List<Long> ids = Arrays.asList(measurement.getId());
+
+        Map<String, Object[]> queries = new LinkedHashMap<>();
+        queries.put("qos.getQosByProcess", params("wpsId", wpsId, "processIdentifier", identifier));
+        queries.put("qos.getQosByProcessBefore", params("wpsId", wpsId, "processIdentifier", identifier,
+                "createTime", recent, "id", measurement.getId()));
+        queries.put("qos.getQosByProcessEndpoint", params("endpoint", endpoint, "processIdentifier", identifier));
+        queries.put("qos.getKeysByProcess", params("wpsId", wpsId, "processIdentifier", identifier));
+        queries.put("qos.getKeysByProcessBefore", params("wpsId", wpsId, "processIdentifier", identifier,
+                "createTime", recent, "id", measurement.getId()));
+        queries.put("qos.getRecordsByProcess", params("wpsId", wpsId, "processIdentifier", identifier,
+                "oldestTime", recent, "oldestId", 0L, "newestTime", now, "newestId", Long.MAX_VALUE));
+        queries.put("qos.getQosByWps", params("wpsId", wpsId));
+        queries.put("qos.getQosByWpsBefore", params("wpsId", wpsId, "createTime", recent, "id", measurement.getId()));
+        queries.put("qos.getQosByWpsEndpoint", params("endpoint", endpoint));
+        queries.put("qos.getQosBetween", params("from", recent, "to", now));
+        queries.put("qos.getOldestCreateTime", params("date", old));
+        queries.put("qos.getIdsOlderAs", params("date", old));
+        queries.put("rollup.getByProcess", params("wpsId", wpsId, "processIdentifier", identifier,
+                "granularity", RollupGranularity.MINUTE, "from", recent, "to", now));
+        queries.put("rollup.find", params("process", process, "entityName", "TestQosEntity",
+                "granularity", RollupGranularity.MINUTE, "bucketStart", recent));
+        queries.put("rollup.getNewestBucket", params("granularity", RollupGranularity.MINUTE));
+
+        // the deletes run last
+        queries.put("qos.deleteByIds", params("ids", ids));
+        queries.put("rollup.deleteOlderAs", params("granularity", RollupGranularity.MINUTE, "date", old));
+        queries.put("qos.deleteByProcessOlderAs", params("process", process, "date", old));
+        queries.put("qos.deleteByProcess", params("process", process));
+        queries.put("rollup.deleteByProcess", params("process", process));
+
+        List<String> tableScans = new ArrayList<>();
+
+        for (Map.Entry<String, Object[]> e : queries.entrySet()) {
+            for (String table : explain(e.getKey(), e.getValue())) {
+                tableScans.add(e.getKey() + " scans " + table);
+            }
+        }
+
+        Assert.assertTrue(tableScans.toString(), tableScans.isEmpty());
+    }
+
+    private String getQosOwnerConstraint() throws SQLException {
+        return getQosOwnerForeignKey(1);
+    }
+
+    private String getQosOwnerDeleteRule() throws SQLException {
+        return getQosOwnerForeignKey(2);
+    }
+
+    private String getQosOwnerForeignKey(final Integer column) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT c.CONSTRAINTNAME, f.DELETERULE FROM SYS.SYSFOREIGNKEYS f "
+                        + "JOIN SYS.SYSCONSTRAINTS c ON f.CONSTRAINTID = c.CONSTRAINTID "
+                        + "JOIN SYS.SYSTABLES t ON c.TABLEID = t.TABLEID "
+                        + "WHERE t.TABLENAME = 'ABSTRACTQOSENTITY'")) {
+            Assert.assertTrue(rs.next());
+
+            return rs.getString(column);
+        }
+    }
+
+    private Object[] params(final Object... params) {
+        return params;
+    }
+
+    /**
+     * Executes the named query with XPLAIN statistics and returns the large
+     * tables which were scanned completely.
+     */
+    private List<String> explain(final String queryName, final Object[] params) throws SQLException {
+        Query query = em.createNamedQuery(queryName);
+
+        for (int i = 0; i < params.length; i += 2) {
+            query.setParameter((String) params[i], params[i + 1]);
+        }
+
+        execute("CALL SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS(1)");
+        execute("CALL SYSCS_UTIL.SYSCS_SET_XPLAIN_SCHEMA('" + PLAN_SCHEMA + "')");
+
+        try {
+            if (queryName.contains(".delete")) {
+                query.executeUpdate();
+            } else {
+                query.getResultList();
+            }
+        } finally {
+            execute("CALL SYSCS_UTIL.SYSCS_SET_XPLAIN_SCHEMA('')");
+            execute("CALL SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS(0)");
+        }
+
+        List<String> scanned = new ArrayList<>();
+
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT sp.SCAN_OBJECT_NAME FROM " + PLAN_SCHEMA + ".SYSXPLAIN_RESULTSETS rs "
+                        + "JOIN " + PLAN_SCHEMA + ".SYSXPLAIN_SCAN_PROPS sp ON rs.SCAN_RS_ID = sp.SCAN_RS_ID "
+                        + "WHERE rs.OP_IDENTIFIER = 'TABLESCAN'")) {
+            while (rs.next()) {
+                String table = rs.getString(1);
+
+                if (LARGE_TABLES.contains(table) && !scanned.contains(table)) {
+                    scanned.add(table);
+                }
+            }
+        }
+
+        for (String table : new String[]{"SYSXPLAIN_SCAN_PROPS", "SYSXPLAIN_SORT_PROPS", "SYSXPLAIN_RESULTSET_TIMINGS",
+            "SYSXPLAIN_RESULTSETS", "SYSXPLAIN_STATEMENT_TIMINGS", "SYSXPLAIN_STATEMENTS"}) {
+            execute("DELETE FROM " + PLAN_SCHEMA + "." + table);
+        }
+
+        return scanned;
+    }
+
+    private Boolean hasRawRequestColumn() throws SQLException {
+        em.getTransaction().begin();
+        connection = em.unwrap(Connection.class);
+
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM SYS.SYSCOLUMNS c "
+                        + "JOIN SYS.SYSTABLES t ON c.REFERENCEID = t.TABLEID "
+                        + "WHERE t.TABLENAME = 'WPSPROCESSENTITY' AND c.COLUMNNAME = 'RAWREQUEST'")) {
+            rs.next();
+
+            return rs.getInt(1) > 0;
+        } finally {
+            em.getTransaction().rollback();
+        }
+    }
+
+    private String findRawRequest(final Long processId) {
+        EntityManager other = jpa.createEntityManager();
+
+        try {
+            other.getEntityManagerFactory().getCache().evictAll();
+
+            return other.find(WpsProcessEntity.class, processId).getRawRequest();
+        } finally {
+            other.close();
+        }
+    }
+
+    private void execute(final String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
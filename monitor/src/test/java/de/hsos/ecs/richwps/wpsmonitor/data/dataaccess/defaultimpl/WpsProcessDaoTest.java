@@ -24,8 +24,10 @@ import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDaoFactory;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDataAccess;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDaoFactory;
 import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessSummary;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
 import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessRequestEntity;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.List;
@@ -238,4 +240,49 @@ public class WpsProcessDaoTest {
         Assert.assertTrue(findById == null);
     }
 
+    /**
+     * Test of getSummaries method, of class WpsProcessDao.
+     */
+    @Test
+    public void testGetSummaries() {
+        List<WpsProcessSummary> summaries = wpsProcessDao.getSummaries(wpsId);
+
+        Assert.assertEquals((int) GENERATE_COUNT, summaries.size());
+
+        String last = "";
+        for (WpsProcessSummary summary : summaries) {
+            Assert.assertEquals(wpsId, summary.getWps().getId());
+            Assert.assertTrue(summary.getIdentifier().compareTo(last) > 0);
+
+            last = summary.getIdentifier();
+        }
+    }
+
+    @Test
+    public void testRawRequestIsCompressed() {
+        StringBuilder request = new StringBuilder();
+
+        for (int i = 0; i < 100; i++) {
+            request.append("<wps:Input><ows:Identifier>input").append(i).append("</ows:Identifier></wps:Input>");
+        }
+
+        WpsProcessRequestEntity requestEntity = new WpsProcessRequestEntity(null, request.toString());
+
+        Assert.assertTrue(requestEntity.getCompressedSize() < request.length() / 4);
+        Assert.assertEquals(request.toString(), requestEntity.getRawRequest());
+        Assert.assertNull(WpsProcessRequestEntity.decompress(WpsProcessRequestEntity.compress(null)));
+    }
+
+    @Test
+    public void testDeleteProcessesWithRawRequest() {
+        WpsProcessEntity process = wpsProcessDao.find(insertedIds[0]);
+        process.setRawRequest("<wps:Execute/>");
+        wpsProcessDao.update(process);
+
+        Assert.assertEquals("<wps:Execute/>", wpsProcessDao.find(insertedIds[0]).getRawRequest());
+
+        wpsProcessDao.deleteProcessesOfWps(wpsId);
+
+        Assert.assertTrue(wpsProcessDao.getAll(wpsId).isEmpty());
+    }
 }
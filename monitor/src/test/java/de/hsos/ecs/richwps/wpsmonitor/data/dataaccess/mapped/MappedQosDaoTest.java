@@ -0,0 +1,263 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.mapped;
+
+import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Cursor;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosTestData;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Range;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.defaultimpl.TestQosEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.Jpa;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.QosDaoDefaultFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.WpsDaoDefaultFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.WpsProcessDaoDefaultFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class MappedQosDaoTest {
+
+    private static final String WPS_PROCESS_NAME = "testCaseScenario_Mapped";
+    private static final Integer GENERATE_COUNT = 10;
+    private static final Integer SEGMENT_CAPACITY = 4;
+
+    private static Jpa jpa;
+
+    @BeforeClass
+    public static void setUpClass() {
+        jpa = new Jpa("de.hsosnabrueck.ecs.richwps_WPSMonitorTEST_pu");
+        jpa.open();
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        jpa.close();
+    }
+
+    private File directory;
+    private MappedQosStore store;
+    private QosDataAccess qosDao;
+    private WpsDataAccess wpsDao;
+    private WpsEntity wps;
+    private WpsProcessEntity process;
+    private List<Long> insertedIds;
+
+    @Before
+    public void setUp() throws IOException, CreateException {
+        directory = Files.createTempDirectory("mapped").toFile();
+        store = new MappedQosStore(directory, 256, SEGMENT_CAPACITY);
+
+        wpsDao = new WpsDaoDefaultFactory(jpa).create();
+        wpsDao.setAutoCommit(false);
+
+        WpsProcessDataAccess wpsProcessDao = new WpsProcessDaoDefaultFactory(jpa).create();
+        wpsProcessDao.setAutoCommit(false);
+
+        process = QosTestData.persistProcess(wpsDao, wpsProcessDao, new URL("http://localhost/mapped/wps"),
+                WPS_PROCESS_NAME);
+        wps = process.getWps();
+
+        qosDao = new MappedQosDaoFactory(store, new QosDaoDefaultFactory(jpa), new WpsProcessDaoDefaultFactory(jpa))
+                .create();
+
+        insertedIds = new ArrayList<>();
+
+        // newest first, so the ids are descending in time
+        for (int i = 1; i <= GENERATE_COUNT; i++) {
+            MeasuredDataEntity measuredData = QosTestData.genDataEn(process, -i, i);
+            Assert.assertTrue(qosDao.persist(measuredData));
+            insertedIds.add(measuredData.getId());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        wpsDao.rollback();
+        store.close();
+        delete(directory);
+    }
+
+    private void delete(final File file) {
+        File[] children = file.listFiles();
+
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+
+        file.delete();
+    }
+
+    private Integer countSegments() {
+        String[] files = new File(directory, process.getId().toString()).list();
+
+        return (files == null) ? 0 : files.length;
+    }
+
+    @Test
+    public void testFind() {
+        MeasuredDataEntity found = qosDao.find(insertedIds.get(2));
+
+        Assert.assertNotNull(found);
+        Assert.assertEquals(process, found.getProcess());
+        Assert.assertEquals(Integer.valueOf(3), ((TestQosEntity) found.getData().get(0)).getSomeValue());
+    }
+
+    @Test
+    public void testGetByProcess_range() {
+        List<MeasuredDataEntity> page = qosDao.getByProcess(wps.getId(), WPS_PROCESS_NAME, new Range(2, 3));
+
+        Assert.assertEquals(3, page.size());
+
+        for (int i = 0; i < page.size(); i++) {
+            Assert.assertEquals(insertedIds.get(i + 2), page.get(i).getId());
+        }
+    }
+
+    @Test
+    public void testGetByProcess_cursor() {
+        List<Long> read = new ArrayList<>();
+        Cursor cursor = null;
+        List<MeasuredDataEntity> page;
+
+        do {
+            page = qosDao.getByProcess(wps.getId(), WPS_PROCESS_NAME, cursor, 3);
+
+            for (MeasuredDataEntity measuredData : page) {
+                read.add(measuredData.getId());
+                cursor = Cursor.after(measuredData);
+            }
+        } while (!page.isEmpty());
+
+        Assert.assertEquals(insertedIds, read);
+    }
+
+    @Test
+    public void testGetByWps_endpoint() {
+        Assert.assertEquals(GENERATE_COUNT.intValue(), qosDao.getByWps(wps.getEndpoint()).size());
+    }
+
+    @Test
+    public void testDeleteAllOlderAs_dropsSegments() {
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.DAY_OF_MONTH, -4);
+        cal.add(Calendar.HOUR_OF_DAY, -1);
+
+        Assert.assertEquals(3, countSegments().intValue());
+
+        // the second segment is dropped; the records of the third (active)
+        // segment are only marked as deleted
+        Integer deleted = qosDao.deleteAllOlderAs(cal.getTime());
+
+        Assert.assertEquals(Integer.valueOf(GENERATE_COUNT - 4), deleted);
+        Assert.assertEquals(2, countSegments().intValue());
+        Assert.assertEquals(4, qosDao.getByProcess(wps.getId(), WPS_PROCESS_NAME).size());
+        Assert.assertNull(qosDao.find(insertedIds.get(GENERATE_COUNT - 1)));
+        Assert.assertNotNull(qosDao.find(insertedIds.get(3)));
+    }
+
+    @Test
+    public void testDeleteByProcess() {
+        Assert.assertEquals(GENERATE_COUNT, qosDao.deleteByProcess(wps.getId(), WPS_PROCESS_NAME));
+        Assert.assertTrue(qosDao.getByProcess(wps.getId(), WPS_PROCESS_NAME).isEmpty());
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        qosDao.remove(qosDao.find(insertedIds.get(0)));
+        store.close();
+
+        store = new MappedQosStore(directory, 256, SEGMENT_CAPACITY);
+        store.open();
+
+        List<MappedRecord> records = store.scan(process.getId(), null, null, null, null, null);
+        Assert.assertEquals(GENERATE_COUNT - 1, records.size());
+        Assert.assertEquals(insertedIds.get(1), records.get(0).getId());
+
+        Long id = store.append(process.getId(), System.currentTimeMillis(), new byte[0]);
+        Assert.assertTrue(id > Collections.max(insertedIds));
+    }
+
+    @Test
+    public void testPersist_tooLarge() {
+        MeasuredDataEntity measuredData = QosTestData.genDataEn(process, 0, 1);
+
+        for (int i = 0; i < 20; i++) {
+            measuredData.add(new TestQosEntity());
+        }
+
+        Assert.assertFalse(qosDao.persist(measuredData));
+        Assert.assertNull(measuredData.getId());
+    }
+
+    @Test
+    public void testConcurrentAppends() throws InterruptedException {
+        final Integer threads = 4;
+        final Integer appends = 250;
+        final Set<Long> ids = Collections.synchronizedSet(new HashSet<Long>());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        for (int t = 0; t < threads; t++) {
+            executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    for (int i = 0; i < appends; i++) {
+                        try {
+                            ids.add(store.append(process.getId(), System.currentTimeMillis(), new byte[16]));
+                        } catch (IOException ex) {
+                            Assert.fail(ex.getMessage());
+                        }
+                    }
+                }
+            });
+        }
+
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        Assert.assertEquals(threads * appends, ids.size());
+        Assert.assertEquals(threads * appends + GENERATE_COUNT,
+                store.scan(process.getId(), null, null, null, null, null).size());
+    }
+}
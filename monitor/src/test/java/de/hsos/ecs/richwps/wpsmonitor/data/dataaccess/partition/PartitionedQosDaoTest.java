@@ -0,0 +1,220 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.partition;
+
+import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Cursor;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosTestData;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.Range;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.Jpa;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.QosDaoDefaultFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.WpsDaoDefaultFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.WpsProcessDaoDefaultFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class PartitionedQosDaoTest {
+
+    private static final String PU = "de.hsosnabrueck.ecs.richwps_WPSMonitorTEST_pu";
+    private static final String WPS_PROCESS_NAME = "testCaseScenario_Partitioned";
+    private static URL WPS_URL;
+
+    private static Jpa jpa;
+
+    static {
+        try {
+            WPS_URL = new URL("http://localhost/partitioned/wps");
+        } catch (MalformedURLException ex) {
+            fail("MalformedURLException");
+        }
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+        jpa = new Jpa(PU);
+        jpa.open();
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        jpa.close();
+    }
+
+    private File directory;
+    private PartitionManager manager;
+    private QosDataAccess qosDao;
+    private WpsDataAccess wpsDao;
+    private WpsEntity wps;
+    private WpsProcessEntity process;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("partitions").toFile();
+        manager = new PartitionManager(PU, directory, "MonitoredData_");
+        manager.open();
+
+        qosDao = new PartitionedQosDao(new QosDaoDefaultFactory(jpa).create(), manager, new WpsDaoDefaultFactory(jpa));
+        wpsDao = new WpsDaoDefaultFactory(jpa).create();
+
+        WpsProcessDataAccess wpsProcessDao = new WpsProcessDaoDefaultFactory(jpa).create();
+        process = QosTestData.persistProcess(wpsDao, wpsProcessDao, WPS_URL, WPS_PROCESS_NAME);
+        wps = process.getWps();
+
+        // now, last month and the month before
+        for (Integer days : new Integer[]{0, -40, -80}) {
+            Assert.assertTrue(qosDao.persist(QosTestData.genDataEn(process, days, 100000)));
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        wpsDao.remove(wpsDao.find(WPS_URL));
+        qosDao.close();
+        manager.close();
+    }
+
+    @Test
+    public void testPersist_createsPartitions() {
+        List<Partition> partitions = manager.getPartitions();
+
+        Assert.assertEquals(3, partitions.size());
+        Assert.assertEquals(Partition.periodOf(new Date()), partitions.get(0).getPeriod());
+        Assert.assertTrue(partitions.get(0).getDirectory().isDirectory());
+    }
+
+    @Test
+    public void testGetByProcess() {
+        List<MeasuredDataEntity> all = qosDao.getByProcess(wps.getId(), WPS_PROCESS_NAME);
+        List<MeasuredDataEntity> byEndpoint = qosDao.getByProcess(WPS_URL, WPS_PROCESS_NAME);
+        List<MeasuredDataEntity> second = qosDao.getByProcess(wps.getId(), WPS_PROCESS_NAME, new Range(1, 1));
+
+        Assert.assertEquals(3, all.size());
+        Assert.assertEquals(3, byEndpoint.size());
+        Assert.assertTrue(all.get(0).getCreateTime().after(all.get(1).getCreateTime()));
+        Assert.assertTrue(all.get(1).getCreateTime().after(all.get(2).getCreateTime()));
+        Assert.assertEquals(1, second.size());
+        Assert.assertEquals(all.get(1).getId(), second.get(0).getId());
+    }
+
+    @Test
+    public void testGetByProcess_cursor() {
+        List<MeasuredDataEntity> first = qosDao.getByProcess(wps.getId(), WPS_PROCESS_NAME, null, 2);
+        List<MeasuredDataEntity> second = qosDao.getByProcess(wps.getId(), WPS_PROCESS_NAME, Cursor.after(first.get(1)), 2);
+
+        Assert.assertEquals(2, first.size());
+        Assert.assertEquals(1, second.size());
+        Assert.assertTrue(first.get(1).getCreateTime().after(second.get(0).getCreateTime()));
+    }
+
+    @Test
+    public void testFind_idsAreUnique() {
+        List<MeasuredDataEntity> all = qosDao.getByWps(wps.getId());
+
+        Assert.assertEquals(3, all.size());
+        Assert.assertFalse(all.get(0).getId().equals(all.get(1).getId()));
+        Assert.assertFalse(all.get(1).getId().equals(all.get(2).getId()));
+        Assert.assertEquals(all.get(2).getCreateTime(), qosDao.find(all.get(2).getId()).getCreateTime());
+    }
+
+    @Test
+    public void testDeleteAllOlderAs_dropsPartitions() {
+        Partition oldest = manager.getPartitions().get(2);
+
+        qosDao.deleteAllOlderAs(oldest.getEnd());
+
+        Assert.assertEquals(2, manager.getPartitions().size());
+        Assert.assertFalse(oldest.getDirectory().exists());
+        Assert.assertEquals(2, qosDao.getByProcess(wps.getId(), WPS_PROCESS_NAME).size());
+    }
+
+    @Test
+    public void testRemoveProcess() {
+        manager.removeProcess(wps.getId(), WPS_PROCESS_NAME);
+
+        Assert.assertTrue(qosDao.getByProcess(wps.getId(), WPS_PROCESS_NAME).isEmpty());
+    }
+
+    @Test
+    public void testPersist_afterRemoveProcess() {
+        manager.removeProcess(wps.getId(), WPS_PROCESS_NAME);
+
+        Assert.assertTrue(qosDao.persist(QosTestData.genDataEn(process, 0, 100000)));
+        Assert.assertEquals(1, qosDao.getByProcess(wps.getId(), WPS_PROCESS_NAME).size());
+    }
+
+    @Test
+    public void testDeleteAllOlderAs_byOtherInstance() {
+        Partition oldest = manager.getPartitions().get(2);
+        Assert.assertEquals(3, qosDao.getByProcess(wps.getId(), WPS_PROCESS_NAME).size());
+
+        QosDataAccess other = new PartitionedQosDao(new QosDaoDefaultFactory(jpa).create(), manager, new WpsDaoDefaultFactory(jpa));
+        other.deleteAllOlderAs(oldest.getEnd());
+
+        Assert.assertTrue(oldest.isDropped());
+        Assert.assertTrue(qosDao.commit());
+        Assert.assertEquals(2, qosDao.getByProcess(wps.getId(), WPS_PROCESS_NAME).size());
+    }
+
+    @Test
+    public void testDropOlderAs_waitsForUse() throws InterruptedException {
+        final Partition oldest = manager.getPartitions().get(2);
+        Thread dropper = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                manager.dropOlderAs(oldest.getEnd());
+            }
+        });
+
+        manager.beginUse();
+        try {
+            dropper.start();
+            dropper.join(200);
+
+            Assert.assertTrue(dropper.isAlive());
+            Assert.assertFalse(oldest.isDropped());
+        } finally {
+            manager.endUse();
+        }
+
+        dropper.join();
+
+        Assert.assertTrue(oldest.isDropped());
+        Assert.assertFalse(oldest.getDirectory().exists());
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.data.exchange;
+
+import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosTestData;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.defaultimpl.TestQosEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.Jpa;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.QosDaoDefaultFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.WpsDaoDefaultFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.WpsProcessDaoDefaultFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URL;
+import java.util.Calendar;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class MeasurementExchangeTest {
+
+    private static final String SOURCE_PROCESS_NAME = "testCaseScenario_ExportSource";
+    private static final String TARGET_PROCESS_NAME = "testCaseScenario_ImportTarget";
+    private static final Integer GENERATE_COUNT = 7;
+    private static final Integer PAGE_SIZE = 3;
+
+    private static Jpa jpa;
+
+    @BeforeClass
+    public static void setUpClass() {
+        jpa = new Jpa("de.hsosnabrueck.ecs.richwps_WPSMonitorTEST_pu");
+        jpa.open();
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        jpa.close();
+    }
+
+    private WpsEntity wps;
+    private MeasurementExporter exporter;
+    private MeasurementImporter importer;
+
+    @Before
+    public void setUp() throws Exception {
+        try (WpsDataAccess wpsDao = new WpsDaoDefaultFactory(jpa).create();
+                WpsProcessDataAccess wpsProcessDao = new WpsProcessDaoDefaultFactory(jpa).create();
+                QosDataAccess qosDao = new QosDaoDefaultFactory(jpa).create()) {
+            WpsProcessEntity source = QosTestData.persistProcess(wpsDao, wpsProcessDao,
+                    new URL("http://localhost/exchange/wps"), SOURCE_PROCESS_NAME);
+            wps = source.getWps();
+            wpsProcessDao.persist(new WpsProcessEntity(TARGET_PROCESS_NAME, wps));
+
+            qosDao.setAutoCommit(false);
+
+            for (int i = 1; i <= GENERATE_COUNT; i++) {
+                qosDao.persist(QosTestData.genDataEn(source, -i, i));
+            }
+
+            Assert.assertTrue(qosDao.commit());
+        }
+
+        exporter = new MeasurementExporter(new QosDaoDefaultFactory(jpa), PAGE_SIZE);
+        importer = new MeasurementImporter(new QosDaoDefaultFactory(jpa),
+                new WpsProcessDaoDefaultFactory(jpa), PAGE_SIZE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        try (WpsDataAccess wpsDao = new WpsDaoDefaultFactory(jpa).create()) {
+            wpsDao.remove(wpsDao.find(wps.getId()));
+        }
+    }
+
+    private List<MeasuredDataEntity> getTargetData() throws CreateException {
+        try (QosDataAccess qosDao = new QosDaoDefaultFactory(jpa).create()) {
+            return qosDao.getByProcess(wps.getId(), TARGET_PROCESS_NAME);
+        }
+    }
+
+    private void assertRoundTrip(final ExchangeFormat format) throws IOException, CreateException {
+        StringWriter exported = new StringWriter();
+
+        Assert.assertEquals(GENERATE_COUNT, exporter.export(wps.getId(), SOURCE_PROCESS_NAME, null, format, exported));
+        Assert.assertEquals(GENERATE_COUNT,
+                importer.importFrom(wps.getId(), TARGET_PROCESS_NAME, format, new StringReader(exported.toString())));
+
+        List<MeasuredDataEntity> imported = getTargetData();
+        Assert.assertEquals(GENERATE_COUNT.intValue(), imported.size());
+
+        // newest first, as exported
+        for (int i = 0; i < GENERATE_COUNT; i++) {
+            Assert.assertEquals(1, imported.get(i).getData().size());
+            Assert.assertEquals(Integer.valueOf(i + 1),
+                    ((TestQosEntity) imported.get(i).getData().get(0)).getSomeValue());
+        }
+    }
+
+    @Test
+    public void testCsvRoundTrip() throws IOException, CreateException {
+        assertRoundTrip(ExchangeFormat.CSV);
+    }
+
+    @Test
+    public void testNdjsonRoundTrip() throws IOException, CreateException {
+        assertRoundTrip(ExchangeFormat.NDJSON);
+    }
+
+    @Test
+    public void testExportSince() throws IOException {
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.DAY_OF_MONTH, -3);
+        cal.add(Calendar.HOUR_OF_DAY, -1);
+
+        StringWriter exported = new StringWriter();
+
+        Assert.assertEquals(Integer.valueOf(3),
+                exporter.export(wps.getId(), SOURCE_PROCESS_NAME, cal.getTime(), ExchangeFormat.NDJSON, exported));
+    }
+
+    @Test
+    public void testImportSkipsInvalidLines() throws IOException, CreateException {
+        StringWriter exported = new StringWriter();
+        exporter.export(wps.getId(), SOURCE_PROCESS_NAME, null, ExchangeFormat.CSV, exported);
+
+        String input = exported.toString() + "no,valid,line\n\n";
+
+        Assert.assertEquals(GENERATE_COUNT,
+                importer.importFrom(wps.getId(), TARGET_PROCESS_NAME, ExchangeFormat.CSV, new StringReader(input)));
+        Assert.assertEquals(GENERATE_COUNT.intValue(), getTargetData().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testImportIntoUnknownProcess() throws IOException {
+        StringWriter exported = new StringWriter();
+        exporter.export(wps.getId(), SOURCE_PROCESS_NAME, null, ExchangeFormat.NDJSON, exported);
+
+        importer.importFrom(wps.getId(), "unknownProcess", ExchangeFormat.NDJSON,
+                new StringReader(exported.toString()));
+    }
+}
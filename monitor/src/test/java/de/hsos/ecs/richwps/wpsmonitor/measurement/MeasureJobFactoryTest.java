@@ -0,0 +1,180 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.measurement;
+
+import de.hsos.ecs.richwps.wpsmonitor.control.Monitor;
+import de.hsos.ecs.richwps.wpsmonitor.control.MonitorBuilder;
+import de.hsos.ecs.richwps.wpsmonitor.creation.BuilderException;
+import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
+import de.hsos.ecs.richwps.wpsmonitor.creation.Factory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDaoFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import de.hsos.ecs.richwps.wpsmonitor.measurement.qos.response.ResponseFactory;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.quartz.JobBuilder;
+import org.quartz.SchedulerException;
+import org.quartz.TriggerBuilder;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredBundle;
+
+/**
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class MeasureJobFactoryTest {
+
+    private static final Integer PROCESS_COUNT = 3;
+
+    private Monitor monitor;
+    private WpsEntity wps;
+    private List<WpsProcessEntity> processes;
+    private AtomicInteger lookups;
+    private WpsProcessDaoFactory countingDaoFactory;
+
+    @Before
+    public void setUp() throws BuilderException, CreateException, MalformedURLException {
+        monitor = new MonitorBuilder()
+                .withPersistenceUnit("de.hsosnabrueck.ecs.richwps_WPSMonitorTEST_pu")
+                .setupDefault()
+                .build();
+
+        monitor.getProbeService()
+                .addProbe(new ResponseFactory());
+
+        final WpsProcessDaoFactory daoFactory = monitor.getBuilderInstance()
+                .getWpsProcessDaoFactory();
+
+        lookups = new AtomicInteger();
+        countingDaoFactory = new WpsProcessDaoFactory(new Factory<WpsProcessDataAccess>() {
+
+            @Override
+            public WpsProcessDataAccess create() throws CreateException {
+                lookups.incrementAndGet();
+
+                return daoFactory.create();
+            }
+        });
+
+        wps = new WpsEntity("http://example" + UUID.randomUUID().toString() + ".com");
+        processes = new ArrayList<>();
+
+        try (WpsDataAccess wpsDao = monitor.getBuilderInstance().getWpsDaoFactory().create();
+                WpsProcessDataAccess wpsProcessDao = daoFactory.create()) {
+            wpsDao.persist(wps);
+
+            for (int i = 0; i < PROCESS_COUNT; i++) {
+                WpsProcessEntity process = new WpsProcessEntity("process" + i, wps);
+                wpsProcessDao.persist(process);
+                processes.add(process);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        monitor.ServicegetMonitorControl()
+                .deleteWps(wps);
+    }
+
+    private MeasureJobFactory createFactory(final Integer cacheSize) {
+        MonitorBuilder builder = monitor.getBuilderInstance();
+
+        return new MeasureJobFactory(monitor.getProbeService(), countingDaoFactory,
+                builder.getQosDaoFactory(), builder.getWpsClientFactory(), null, cacheSize);
+    }
+
+    private TriggerFiredBundle createBundle(final WpsProcessEntity process) {
+        Date now = new Date();
+
+        return new TriggerFiredBundle(
+                JobBuilder.newJob(MeasureJob.class)
+                .withIdentity(process.getIdentifier(), wps.getId().toString())
+                .build(),
+                (OperableTrigger) TriggerBuilder.newTrigger().build(),
+                null, false, now, now, null, null);
+    }
+
+    @Test
+    public void testProcessesOfSameWpsAreCachedSeparately() throws SchedulerException {
+        MeasureJobFactory factory = createFactory(MeasureJobFactory.DEFAULT_CACHE_SIZE);
+
+        for (int round = 0; round < 2; round++) {
+            for (WpsProcessEntity process : processes) {
+                MeasureJob job = (MeasureJob) factory.newJob(createBundle(process), null);
+
+                Assert.assertNotNull(job);
+            }
+        }
+
+        Assert.assertEquals(PROCESS_COUNT.intValue(), lookups.get());
+        Assert.assertEquals(PROCESS_COUNT, factory.getCacheSize());
+    }
+
+    @Test
+    public void testWarmUp() throws SchedulerException {
+        MeasureJobFactory factory = createFactory(MeasureJobFactory.DEFAULT_CACHE_SIZE);
+        factory.warmUp();
+
+        Integer afterWarmUp = lookups.get();
+
+        for (WpsProcessEntity process : processes) {
+            factory.newJob(createBundle(process), null);
+        }
+
+        Assert.assertEquals(afterWarmUp.intValue(), lookups.get());
+    }
+
+    @Test
+    public void testCacheSizeIsBounded() throws SchedulerException {
+        MeasureJobFactory factory = createFactory(2);
+
+        for (WpsProcessEntity process : processes) {
+            factory.newJob(createBundle(process), null);
+        }
+
+        Assert.assertEquals(Integer.valueOf(2), factory.getCacheSize());
+    }
+
+    @Test
+    public void testInvalidate() throws SchedulerException {
+        MeasureJobFactory factory = createFactory(MeasureJobFactory.DEFAULT_CACHE_SIZE);
+
+        for (WpsProcessEntity process : processes) {
+            factory.newJob(createBundle(process), null);
+        }
+
+        factory.invalidate(wps.getId(), processes.get(0).getIdentifier());
+        Assert.assertEquals(Integer.valueOf(PROCESS_COUNT - 1), factory.getCacheSize());
+
+        factory.newJob(createBundle(processes.get(0)), null);
+        Assert.assertEquals(PROCESS_COUNT + 1, lookups.get());
+
+        factory.invalidateWps(wps.getId());
+        Assert.assertEquals(Integer.valueOf(0), factory.getCacheSize());
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.measurement;
+
+import de.hsos.ecs.richwps.wpsmonitor.creation.CreateException;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDaoFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.QosDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDaoFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDaoFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.WpsProcessDataAccess;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.defaultimpl.TestQosEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.Jpa;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.QosDaoDefaultFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.WpsDaoDefaultFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.dataaccess.jpa.WpsProcessDaoDefaultFactory;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.MeasuredDataEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsEntity;
+import de.hsos.ecs.richwps.wpsmonitor.data.entity.WpsProcessEntity;
+import java.net.MalformedURLException;
+import java.util.Date;
+import java.util.UUID;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class MeasuredDataWriterTest {
+
+    private static Jpa jpa;
+    private static QosDaoFactory qosFactory;
+    private static WpsDaoFactory wpsFactory;
+    private static WpsProcessDaoFactory wpsProcessFactory;
+
+    @BeforeClass
+    public static void setUpClass() {
+        jpa = new Jpa("de.hsosnabrueck.ecs.richwps_WPSMonitorTEST_pu");
+        jpa.open();
+
+        qosFactory = new QosDaoFactory(new QosDaoDefaultFactory(jpa));
+        wpsFactory = new WpsDaoFactory(new WpsDaoDefaultFactory(jpa));
+        wpsProcessFactory = new WpsProcessDaoFactory(new WpsProcessDaoDefaultFactory(jpa));
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        jpa.close();
+    }
+
+    private WpsProcessEntity newProcess() throws MalformedURLException {
+        return new WpsProcessEntity("writerProcess", new WpsEntity("http://localhost/writer/" + UUID.randomUUID()));
+    }
+
+    private MeasuredDataEntity newMeasurement(final WpsProcessEntity process) {
+        MeasuredDataEntity data = new MeasuredDataEntity();
+        data.setCreateTime(new Date());
+        data.setProcess(process);
+
+        TestQosEntity qos = new TestQosEntity();
+        qos.setSomeValue(42);
+        data.add(qos);
+
+        return data;
+    }
+
+    @Test
+    public void testFailedBatchKeepsValidMeasurements() throws CreateException, MalformedURLException {
+        WpsProcessEntity process = newProcess();
+
+        try (WpsDataAccess wpsDao = wpsFactory.create();
+                WpsProcessDataAccess wpsProcessDao = wpsProcessFactory.create()) {
+            wpsDao.persist(process.getWps());
+            wpsProcessDao.persist(process);
+        }
+
+        // one batch for all measurements
+        MeasuredDataWriter writer = new MeasuredDataWriter(qosFactory, 100, 100, 500);
+        writer.start();
+
+        for (int i = 0; i < 9; i++) {
+            Assert.assertTrue(writer.submit(newMeasurement(process)));
+        }
+
+        // the process of this one isn't persisted; so the commit of the batch fails
+        Assert.assertTrue(writer.submit(newMeasurement(newProcess())));
+
+        writer.close();
+
+        Assert.assertEquals(9L, (long) writer.getFlushedEntities());
+        Assert.assertEquals(1L, (long) writer.getLostEntities());
+
+        try (QosDataAccess qosDao = qosFactory.create()) {
+            Assert.assertEquals(9, qosDao.getByProcess(process.getWps().getId(), process.getIdentifier()).size());
+        }
+    }
+}
@@ -15,13 +15,15 @@
  */
 package de.hsos.ecs.richwps.wpsmonitor.qos.response;
 
+import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.metric.MeasuredValue;
+import de.hsos.ecs.richwps.wpsmonitor.boundary.restful.metric.Measurement;
+import de.hsos.ecs.richwps.wpsmonitor.measurement.qos.response.ResponseEntity;
 import de.hsos.ecs.richwps.wpsmonitor.measurement.qos.response.ResponseMetric;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.util.Date;
+import java.util.Map;
 import junit.framework.Assert;
 import org.junit.After;
 import org.junit.AfterClass;
-import static org.junit.Assert.fail;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -59,38 +61,49 @@ public class ResponseMetricTest {
      */
     @Test
     public void testMedianCalculationEvenCase() {
-        Double result, expected;
-        result = computeMedian(new Integer[]{7, 100, 9, 1});
-        expected = 8.;
+        Map<String, MeasuredValue> result = calculate(7, 100, 9, 1);
 
-        Assert.assertTrue(result.equals(expected));
+        Assert.assertEquals(0.008, result.get("median").getValue().doubleValue(), 1e-9);
     }
-    
+
     @Test
     public void testMedianCalculationUnevenCase() {
-        Double result, expected;
-        result = computeMedian(new Integer[]{3, 7, 1, 9, 100});
-        expected = 7.;
+        Map<String, MeasuredValue> result = calculate(3, 7, 1, 9, 100);
 
-        Assert.assertTrue(result.equals(expected));
+        Assert.assertEquals(0.007, result.get("median").getValue().doubleValue(), 1e-9);
+        Assert.assertEquals(0.001, result.get("best").getValue().doubleValue(), 1e-9);
+        Assert.assertEquals(0.1, result.get("worst").getValue().doubleValue(), 1e-9);
     }
 
-    private Double computeMedian(Integer[] values) {
-        Double result = null;
+    @Test
+    public void testPercentiles() {
+        Integer[] responseTimes = new Integer[100];
+
+        for (int i = 0; i < responseTimes.length; i++) {
+            responseTimes[i] = i + 1;
+        }
 
-        try {
-            Method method = instance.getClass().getDeclaredMethod("computeMedian", Integer[].class);
-            method.setAccessible(true);
+        Map<String, MeasuredValue> result = calculate(responseTimes);
 
-            Object invoke = method.invoke(instance, (Object) values);
+        Assert.assertEquals(0.090, result.get("p90").getValue().doubleValue(), 0.002);
+        Assert.assertEquals(0.095, result.get("p95").getValue().doubleValue(), 0.002);
+        Assert.assertEquals(0.099, result.get("p99").getValue().doubleValue(), 0.002);
+    }
+
+    @Test
+    public void testWithoutValues() {
+        Assert.assertNull(instance.calculate());
+    }
 
-            result = (Double) invoke;
+    private Map<String, MeasuredValue> calculate(final Integer... responseTimes) {
+        for (Integer responseTime : responseTimes) {
+            ResponseEntity entity = new ResponseEntity();
+            entity.setResponseTime(responseTime);
 
-        } catch (NoSuchMethodException | SecurityException | IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
-            fail(ex.getMessage());
+            instance.add(new Measurement(entity, new Date()));
         }
 
-        return result;
+        return instance.calculate();
     }
 
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2014 Florian Vogelpohl <floriantobias@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.hsos.ecs.richwps.wpsmonitor.util;
+
+import junit.framework.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Florian Vogelpohl <floriantobias@gmail.com>
+ */
+public class QuantileHistogramTest {
+
+    private QuantileHistogram instance;
+
+    public QuantileHistogramTest() {
+    }
+
+    @Before
+    public void setUp() {
+        instance = new QuantileHistogram();
+    }
+
+    @Test
+    public void testEmptyHistogramReturnsNull() {
+        Assert.assertTrue(instance.isEmpty());
+        Assert.assertNull(instance.getMedian());
+        Assert.assertNull(instance.getValueAtQuantile(0.99));
+        Assert.assertNull(instance.getMin());
+        Assert.assertNull(instance.getMax());
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        for (int i = 1; i <= 100; i++) {
+            instance.record(i);
+        }
+
+        Assert.assertEquals(50.5, instance.getMedian());
+        Assert.assertEquals(Long.valueOf(90), instance.getValueAtQuantile(0.90));
+        Assert.assertEquals(Long.valueOf(99), instance.getValueAtQuantile(0.99));
+        Assert.assertEquals(Long.valueOf(1), instance.getMin());
+        Assert.assertEquals(Long.valueOf(100), instance.getMax());
+        Assert.assertEquals(50.5, instance.getMean());
+    }
+
+    @Test
+    public void testLargeValuesWithinRelativeError() {
+        for (int i = 1; i <= 100000; i++) {
+            instance.record(i * 10L);
+        }
+
+        assertWithinRelativeError(500000, instance.getValueAtQuantile(0.5));
+        assertWithinRelativeError(950000, instance.getValueAtQuantile(0.95));
+        assertWithinRelativeError(990000, instance.getValueAtQuantile(0.99));
+        Assert.assertEquals(Long.valueOf(1000000), instance.getMax());
+    }
+
+    @Test
+    public void testMergeEqualsRecordingAll() {
+        QuantileHistogram other = new QuantileHistogram();
+        QuantileHistogram all = new QuantileHistogram();
+
+        for (int i = 0; i < 1000; i++) {
+            instance.record(i * 7L);
+            other.record(i * 13L);
+            all.record(i * 7L);
+            all.record(i * 13L);
+        }
+
+        instance.merge(other);
+
+        Assert.assertEquals(all.getCount(), instance.getCount());
+        Assert.assertEquals(all.getMedian(), instance.getMedian());
+        Assert.assertEquals(all.getValueAtQuantile(0.95), instance.getValueAtQuantile(0.95));
+        Assert.assertEquals(all.getMean(), instance.getMean());
+    }
+
+    @Test
+    public void testByteArrayRoundTrip() {
+        for (int i = 0; i < 1000; i++) {
+            instance.record(i * 31L);
+        }
+
+        QuantileHistogram restored = QuantileHistogram.fromByteArray(instance.toByteArray());
+
+        Assert.assertEquals(instance.getCount(), restored.getCount());
+        Assert.assertEquals(instance.getMin(), restored.getMin());
+        Assert.assertEquals(instance.getMax(), restored.getMax());
+        Assert.assertEquals(instance.getMedian(), restored.getMedian());
+        Assert.assertEquals(instance.getValueAtQuantile(0.99), restored.getValueAtQuantile(0.99));
+        Assert.assertTrue(QuantileHistogram.fromByteArray(new QuantileHistogram().toByteArray()).isEmpty());
+    }
+
+    private void assertWithinRelativeError(final long expected, final Long actual) {
+        Assert.assertTrue(Math.abs(actual - expected) <= expected / 64);
+    }
+}